@@ -1,7 +1,11 @@
 package ai.pipestream.module.runtime.deployment;
 
+import ai.pipestream.module.runtime.work.WorkerLoopReadinessCheck;
+import io.quarkus.arc.deployment.AdditionalBeanBuildItem;
+import io.quarkus.deployment.annotations.BuildProducer;
 import io.quarkus.deployment.annotations.BuildStep;
 import io.quarkus.deployment.builditem.FeatureBuildItem;
+import io.quarkus.smallrye.health.deployment.spi.HealthBuildItem;
 
 public class PipestreamModuleRuntimeProcessor {
 
@@ -11,4 +15,12 @@ public class PipestreamModuleRuntimeProcessor {
     FeatureBuildItem feature() {
         return new FeatureBuildItem(FEATURE);
     }
+
+    @BuildStep
+    void registerHealthChecks(BuildProducer<HealthBuildItem> healthChecks,
+                              BuildProducer<AdditionalBeanBuildItem> beans) {
+        beans.produce(AdditionalBeanBuildItem.unremovableOf(WorkerLoopReadinessCheck.class));
+        healthChecks.produce(new HealthBuildItem(
+                WorkerLoopReadinessCheck.class.getName(), true));
+    }
 }
@@ -0,0 +1,34 @@
+package ai.pipestream.module.runtime.work;
+
+import io.quarkus.runtime.configuration.DurationConverter;
+import io.smallrye.config.SmallRyeConfigBuilder;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * {@link WorkerLoopConfig} for benchmarks: the mapping's own defaults,
+ * with the loop enabled and pressure throttling off (a benchmark JVM is
+ * meant to be busy), plus whatever a benchmark overrides. Going through
+ * SmallRye rather than an anonymous implementation keeps the benchmarks
+ * compiling as the config grows.
+ */
+final class BenchmarkConfigs {
+
+    private static final String PREFIX = "pipestream.module.worker-loop.";
+
+    private BenchmarkConfigs() {
+    }
+
+    /** @param overrides keys relative to {@code pipestream.module.worker-loop.} */
+    static WorkerLoopConfig workerLoop(Map<String, String> overrides) {
+        SmallRyeConfigBuilder builder = new SmallRyeConfigBuilder()
+                .withConverter(Duration.class, 200, new DurationConverter())
+                .withDefaultValue(PREFIX + "enabled", "true")
+                .withDefaultValue(PREFIX + "module-id", "bench")
+                .withDefaultValue(PREFIX + "pressure-throttling", "false")
+                .withMapping(WorkerLoopConfig.class);
+        overrides.forEach((key, value) -> builder.withDefaultValue(PREFIX + key, value));
+        return builder.build().getConfigMapping(WorkerLoopConfig.class);
+    }
+}
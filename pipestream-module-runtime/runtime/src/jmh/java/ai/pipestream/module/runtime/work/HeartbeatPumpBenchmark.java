@@ -0,0 +1,59 @@
+package ai.pipestream.module.runtime.work;
+
+import ai.pipestream.module.work.v1.WorkRequest;
+import io.grpc.stub.StreamObserver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link HeartbeatPump} start/close — paid twice per unit, once around
+ * the wait for the unit and once around {@code process} — on the shared
+ * {@link HeartbeatWheel}. The interval is far longer than a benchmark
+ * iteration, so no heartbeat is ever sent: this is the pure
+ * register/cancel cost, alone and with many workers cycling units at
+ * once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeartbeatPumpBenchmark {
+
+    private static final Duration INTERVAL = Duration.ofMinutes(5);
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final StreamObserver<WorkRequest> requests = new StreamObserver<>() {
+        @Override public void onNext(WorkRequest value) { }
+        @Override public void onError(Throwable t) { }
+        @Override public void onCompleted() { }
+    };
+
+    @Benchmark
+    public void startClose() {
+        HeartbeatPump pump = new HeartbeatPump(requests, writeLock, INTERVAL);
+        pump.start();
+        pump.close();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void startCloseContended() {
+        HeartbeatPump pump = new HeartbeatPump(requests, writeLock, INTERVAL);
+        pump.start();
+        pump.close();
+    }
+}
@@ -0,0 +1,85 @@
+package ai.pipestream.module.runtime.work;
+
+import ai.pipestream.module.work.v1.WorkAck;
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PayloadCodec} against plain {@link Any#pack} /
+ * {@link Any#unpack(Class)} — what the codec did before it cached its
+ * parser and type URL and parsed with aliasing.
+ *
+ * <p>The payload is a {@link WorkAck} (a module-worker message, so the
+ * benchmark needs no engine types) whose {@code updated_payload} carries
+ * {@code payloadBytes} of random data, standing in for a PipeDoc with a
+ * large body. Run with {@code -prof gc} to see the allocation difference,
+ * which is the point on multi-megabyte payloads.
+ *
+ * <p>{@code Any} memoises what {@code unpack} returned, so each unpack
+ * benchmark starts from a fresh {@code Any} sharing the same bytes — the
+ * situation of a unit that has just come off the wire.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadCodecBenchmark {
+
+    @Param({"1024", "65536", "1048576", "8388608"})
+    int payloadBytes;
+
+    private PayloadCodec<WorkAck> codec;
+    private WorkAck message;
+    private Any wire;
+
+    @Setup
+    public void setUp() {
+        byte[] body = new byte[payloadBytes];
+        new Random(42).nextBytes(body);
+        message = WorkAck.newBuilder()
+                .setWorkUnitId("bench-unit")
+                .setUpdatedPayload(Any.newBuilder()
+                        .setTypeUrl("type.googleapis.com/bench.Blob")
+                        .setValue(ByteString.copyFrom(body)))
+                .build();
+        codec = new PayloadCodec<>(WorkAck.class);
+        wire = Any.pack(message);
+    }
+
+    @Benchmark
+    public Any packBaseline() {
+        return Any.pack(message);
+    }
+
+    @Benchmark
+    public Any packCodec() {
+        return codec.pack(message);
+    }
+
+    @Benchmark
+    public WorkAck unpackBaseline() throws InvalidProtocolBufferException {
+        return wire.toBuilder().build().unpack(WorkAck.class);
+    }
+
+    @Benchmark
+    public WorkAck unpackCodec() throws InvalidProtocolBufferException {
+        return codec.unpack(wire.toBuilder().build());
+    }
+}
@@ -0,0 +1,131 @@
+package ai.pipestream.module.runtime.work;
+
+import ai.pipestream.module.work.v1.AckConfirmed;
+import ai.pipestream.module.work.v1.ModuleWorkServiceGrpc;
+import ai.pipestream.module.work.v1.WorkAck;
+import ai.pipestream.module.work.v1.WorkRequest;
+import ai.pipestream.module.work.v1.WorkResponse;
+import ai.pipestream.module.work.v1.WorkUnit;
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-unit overhead of one {@link WorkStreamSession#run()} against an
+ * in-process engine: open the stream, Hello, receive and decode the
+ * unit, heartbeat pump around a no-op {@code process}, encode and send
+ * the ack, wait for {@code AckConfirmed}, close. The module does nothing,
+ * so the score is what the framework adds to every unit.
+ *
+ * <p>The in-process transport passes messages by reference, so payload
+ * size shows the codec's share rather than serialisation on the wire.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkStreamSessionBenchmark {
+
+    @Param({"1024", "1048576"})
+    int payloadBytes;
+
+    private Server server;
+    private ManagedChannel channel;
+    private ModuleWorkServiceGrpc.ModuleWorkServiceStub stub;
+    private PayloadCodec<WorkAck> codec;
+    private WorkerLoopConfig config;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] body = new byte[payloadBytes];
+        new Random(42).nextBytes(body);
+        WorkResponse unit = WorkResponse.newBuilder()
+                .setWorkUnit(WorkUnit.newBuilder()
+                        .setWorkUnitId("bench-unit")
+                        .setPayload(Any.pack(WorkAck.newBuilder()
+                                .setWorkUnitId("bench-payload")
+                                .setUpdatedPayload(Any.newBuilder()
+                                        .setTypeUrl("type.googleapis.com/bench.Blob")
+                                        .setValue(ByteString.copyFrom(body)))
+                                .build())))
+                .build();
+
+        String name = "work-stream-session-bench-" + UUID.randomUUID();
+        server = InProcessServerBuilder.forName(name)
+                .directExecutor()
+                .addService(new OneUnitEngine(unit))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        stub = ModuleWorkServiceGrpc.newStub(channel);
+        codec = new PayloadCodec<>(WorkAck.class);
+        config = BenchmarkConfigs.workerLoop(Map.of());
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        channel.shutdownNow();
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public WorkStreamSession.Outcome runOneUnit() {
+        return new WorkStreamSession<>(stub, input -> input, codec, config).run();
+    }
+
+    /** Serves the same unit on every stream and confirms every ack. */
+    private static final class OneUnitEngine extends ModuleWorkServiceGrpc.ModuleWorkServiceImplBase {
+
+        private final WorkResponse unit;
+
+        OneUnitEngine(WorkResponse unit) {
+            this.unit = unit;
+        }
+
+        @Override
+        public StreamObserver<WorkRequest> work(StreamObserver<WorkResponse> responses) {
+            return new StreamObserver<>() {
+                @Override
+                public void onNext(WorkRequest request) {
+                    if (request.hasHello()) {
+                        responses.onNext(unit);
+                    } else if (request.hasAck()) {
+                        responses.onNext(WorkResponse.newBuilder()
+                                .setAckConfirmed(AckConfirmed.newBuilder()
+                                        .setWorkUnitId(request.getAck().getWorkUnitId())
+                                        .setAccepted(true))
+                                .build());
+                        responses.onCompleted();
+                    }
+                }
+
+                @Override public void onError(Throwable t) { }
+                @Override public void onCompleted() { }
+            };
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ai.pipestream.module.runtime.work;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The bookkeeping every worker does around every unit, with 8 workers
+ * at it at once: what {@code ModuleWorkerLoop.onUnitCompleted} does
+ * (feed the limiter, compare the worker count to the target, consult
+ * the resource pressure), taking and returning a {@link WorkerBudget}
+ * slot, and a worker's private {@link BackoffSchedule}.
+ *
+ * <p>The shared state is per benchmark, so the score includes the
+ * contention on it: the limiters' sample windows, the budget's grant
+ * lock and member scan, the pressure tracker's sampling CAS.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class WorkerAccountingBenchmark {
+
+    private static final int MAX_WORKERS = 64;
+
+    private ResourcePressure pressure;
+    private WorkerBudget.Member member;
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        pressure = new ResourcePressure(
+                () -> ResourcePressure.Reading.UNTHROTTLED,
+                0.85, 0.95, 0.25, 0.95, Duration.ofMillis(1), System::nanoTime);
+        // Two members, so the fair-share scan has someone to look at.
+        WorkerBudget budget = new WorkerBudget(MAX_WORKERS);
+        member = budget.join("bench", 1, MAX_WORKERS, activeWorkers);
+        budget.join("neighbour", 1, MAX_WORKERS, new AtomicInteger(1));
+    }
+
+    /** The loop's limiter, shared by its workers. */
+    @State(Scope.Benchmark)
+    public static class Limiter {
+
+        @Param({"ramp", "aimd", "gradient"})
+        String limiter;
+
+        ConcurrencyLimiter concurrencyLimiter;
+
+        @Setup
+        public void setUp() {
+            WorkerLoopConfig config = BenchmarkConfigs.workerLoop(Map.of("concurrency-limiter", limiter));
+            concurrencyLimiter = ConcurrencyLimiter.fromConfig(config, 1, MAX_WORKERS);
+        }
+    }
+
+    /** Thread-confined, like the schedule each worker owns. */
+    @State(Scope.Thread)
+    public static class Worker {
+        final BackoffSchedule backoff = new BackoffSchedule(Duration.ofMillis(100), Duration.ofSeconds(30));
+    }
+
+    @Benchmark
+    public boolean unitCompleted(Limiter limiter) {
+        ConcurrencyLimiter concurrencyLimiter = limiter.concurrencyLimiter;
+        concurrencyLimiter.onSample(ThreadLocalRandom.current().nextLong(1_000_000, 2_000_000));
+        return activeWorkers.get() < Math.min(concurrencyLimiter.limit(), member.ceiling())
+                && pressure.throttle() == ResourcePressure.Throttle.NONE;
+    }
+
+    @Benchmark
+    public int admitAndRelease() {
+        int slot = member.admit();
+        if (slot > 0) {
+            activeWorkers.decrementAndGet();
+        }
+        return slot;
+    }
+
+    @Benchmark
+    public Duration backoffCycle(Worker worker) {
+        worker.backoff.next();
+        worker.backoff.next();
+        Duration last = worker.backoff.next();
+        worker.backoff.reset();
+        return last;
+    }
+}
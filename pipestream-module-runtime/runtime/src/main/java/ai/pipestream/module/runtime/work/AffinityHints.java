@@ -0,0 +1,156 @@
+package ai.pipestream.module.runtime.work;
+
+import io.grpc.ClientInterceptor;
+import io.grpc.Metadata;
+import io.grpc.stub.MetadataUtils;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Affinity keys a {@link ModuleWorkerLoop} advertises to the engine:
+ * what this instance has warm, so the engine can hand it the units that
+ * need it. A module with a tokenizer vocabulary per language or a model
+ * per tenant {@link #add adds} the key when it loads the entry and
+ * {@link #remove removes} it on eviction:
+ *
+ * <pre>{@code
+ * AffinityHints hints = loop.affinityHints();
+ * Vocab vocab = vocabs.computeIfAbsent(lang, l -> {
+ *     hints.add("lang:" + l);
+ *     return Vocab.load(l);
+ * });
+ * }</pre>
+ *
+ * <p>Keys travel in the {@code x-pipestream-affinity} header of each new
+ * {@code Work} stream, alongside its {@code Hello}, as a comma-separated
+ * list; a change reaches the engine with the next stream a worker opens.
+ * The engine treats them as a preference, never a filter: a unit nobody
+ * advertised still goes to whoever asks.
+ *
+ * <p>At most {@link WorkerLoopConfig#affinityMaxKeys()} keys are kept;
+ * adding one more drops the key added (or re-added) longest ago. A key is
+ * 1–128 characters of {@code [A-Za-z0-9._:/=-]}, by convention
+ * {@code kind:value} such as {@code tenant:acme} or {@code lang:de}.
+ *
+ * <p>Thread-safe. The header is rebuilt only when the set of keys
+ * changes; re-adding a key that is already advertised only refreshes its
+ * place in the eviction order.
+ */
+public final class AffinityHints {
+
+    /** Header carrying the advertised keys on stream open, for engines reading them. */
+    public static final Metadata.Key<String> HEADER =
+            Metadata.Key.of("x-pipestream-affinity", Metadata.ASCII_STRING_MARSHALLER);
+
+    private static final Pattern KEY = Pattern.compile("[A-Za-z0-9._:/=-]{1,128}");
+
+    private final int maxKeys;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Insertion order is eviction order: the first key is the oldest.
+    private final LinkedHashSet<String> keys = new LinkedHashSet<>();
+    private volatile ClientInterceptor interceptor;
+
+    /**
+     * @param maxKeys most keys advertised at once; {@code 0} turns hints
+     *                off, making {@link #add} a no-op
+     */
+    public AffinityHints(int maxKeys) {
+        if (maxKeys < 0) {
+            throw new IllegalArgumentException("maxKeys must be >= 0, got " + maxKeys);
+        }
+        this.maxKeys = maxKeys;
+    }
+
+    /** The hints {@code config} asks for, seeded with its {@link WorkerLoopConfig#affinityKeys()}. */
+    static AffinityHints fromConfig(WorkerLoopConfig config) {
+        AffinityHints hints = new AffinityHints(config.affinityMaxKeys());
+        config.affinityKeys().ifPresent(seed -> seed.forEach(hints::add));
+        return hints;
+    }
+
+    /**
+     * Advertise {@code key}, or refresh it if it is already advertised.
+     *
+     * @throws IllegalArgumentException if {@code key} isn't a valid key
+     */
+    public void add(String key) {
+        Objects.requireNonNull(key, "key");
+        if (!KEY.matcher(key).matches()) {
+            throw new IllegalArgumentException("Affinity key must match " + KEY.pattern() + ": '" + key + "'");
+        }
+        if (maxKeys == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (keys.remove(key)) {
+                keys.add(key);
+                return;
+            }
+            keys.add(key);
+            if (keys.size() > maxKeys) {
+                keys.remove(keys.iterator().next());
+            }
+            rebuild();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Stop advertising {@code key}; no-op if it isn't advertised. */
+    public void remove(String key) {
+        lock.lock();
+        try {
+            if (keys.remove(key)) {
+                rebuild();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Stop advertising every key. */
+    public void clear() {
+        lock.lock();
+        try {
+            if (!keys.isEmpty()) {
+                keys.clear();
+                rebuild();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return the advertised keys, oldest first */
+    public List<String> keys() {
+        lock.lock();
+        try {
+            return List.copyOf(keys);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return an interceptor attaching the current keys to a new stream,
+     *         or {@code null} while no key is advertised
+     */
+    ClientInterceptor interceptor() {
+        return interceptor;
+    }
+
+    private void rebuild() {
+        if (keys.isEmpty()) {
+            interceptor = null;
+            return;
+        }
+        Metadata headers = new Metadata();
+        headers.put(HEADER, String.join(",", keys));
+        interceptor = MetadataUtils.newAttachHeadersInterceptor(headers);
+    }
+}
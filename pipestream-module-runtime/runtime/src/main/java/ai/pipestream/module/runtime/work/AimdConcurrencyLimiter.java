@@ -0,0 +1,119 @@
+package ai.pipestream.module.runtime.work;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Additive-increase / multiplicative-decrease limiter on
+ * {@code process()} latency.
+ *
+ * <p>Samples are judged a window at a time, one window being
+ * {@link #limit()} samples — roughly one unit per worker. If the
+ * window's mean latency stays within {@code tolerance ×} the baseline,
+ * the limit grows by one; if it exceeds it, the limit is cut to 90%
+ * (at least one less). The baseline is the lowest window mean seen,
+ * drifting slowly upwards so a permanent shift in the workload (bigger
+ * documents) doesn't pin the limit at the minimum forever.
+ *
+ * <p>The limit only grows while the measured throughput — the window's
+ * units over its wall time — is at least half of what {@code limit}
+ * workers busy at the window's mean latency would deliver. Below that the
+ * workers are waiting for work rather than for each other, so more of
+ * them would only hold more idle streams; the limit holds instead.
+ *
+ * <p>Thread-safe; {@link #onSample} is a short synchronized update.
+ */
+public final class AimdConcurrencyLimiter implements ConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double BASELINE_DRIFT = 0.05;
+    private static final double MIN_UTILIZATION = 0.5;
+
+    private final int min;
+    private final int max;
+    private final double tolerance;
+    private final LongSupplier clock;
+
+    private int limit;
+    private Decision lastDecision = Decision.HOLD;
+    private double baselineNanos;
+    private long windowSumNanos;
+    private int windowCount;
+    private long windowStartNanos;
+
+    /**
+     * @param min       lowest limit ever returned
+     * @param max       highest limit ever returned
+     * @param tolerance latency growth over baseline that counts as
+     *                  contention; must be above 1
+     */
+    public AimdConcurrencyLimiter(int min, int max, double tolerance) {
+        this(min, max, tolerance, System::nanoTime);
+    }
+
+    AimdConcurrencyLimiter(int min, int max, double tolerance, LongSupplier clock) {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("need 1 <= min <= max: min=" + min + " max=" + max);
+        }
+        if (tolerance <= 1.0) {
+            throw new IllegalArgumentException("tolerance must be > 1: " + tolerance);
+        }
+        this.min = min;
+        this.max = max;
+        this.tolerance = tolerance;
+        this.clock = clock;
+        this.limit = min;
+        this.windowStartNanos = clock.getAsLong();
+    }
+
+    @Override
+    public synchronized int limit() {
+        return limit;
+    }
+
+    @Override
+    public synchronized Decision lastDecision() {
+        return lastDecision;
+    }
+
+    @Override
+    public synchronized void onSample(long latencyNanos) {
+        windowSumNanos += Math.max(0L, latencyNanos);
+        if (++windowCount < limit) {
+            return;
+        }
+        double mean = (double) windowSumNanos / windowCount;
+        long now = clock.getAsLong();
+        boolean saturated = saturated(windowSumNanos, now - windowStartNanos, limit);
+        windowStartNanos = now;
+        windowSumNanos = 0;
+        windowCount = 0;
+
+        if (baselineNanos == 0 || mean < baselineNanos) {
+            baselineNanos = mean;
+        } else {
+            baselineNanos += (mean - baselineNanos) * BASELINE_DRIFT;
+        }
+
+        if (mean > baselineNanos * tolerance) {
+            int next = Math.max(min, Math.min(limit - 1, (int) (limit * BACKOFF_RATIO)));
+            lastDecision = next < limit ? Decision.DECREASE : Decision.HOLD;
+            limit = next;
+        } else if (limit < max && saturated) {
+            limit++;
+            lastDecision = Decision.INCREASE;
+        } else {
+            lastDecision = Decision.HOLD;
+        }
+    }
+
+    /**
+     * Whether a window's measured throughput kept at least
+     * {@link #MIN_UTILIZATION} of {@code limit} workers busy. Units per
+     * second times mean latency (Little's law) is the workers busy on
+     * average, which comes to the window's total latency over its wall
+     * time.
+     */
+    static boolean saturated(long windowSumNanos, long elapsedNanos, int limit) {
+        return elapsedNanos <= 0 || (double) windowSumNanos / elapsedNanos >= limit * MIN_UTILIZATION;
+    }
+}
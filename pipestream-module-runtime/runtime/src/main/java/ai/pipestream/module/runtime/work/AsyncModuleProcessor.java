@@ -0,0 +1,91 @@
+package ai.pipestream.module.runtime.work;
+
+import com.google.protobuf.Message;
+import io.smallrye.mutiny.Uni;
+
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Asynchronous variant of {@link ModuleProcessor} for modules that spend
+ * most of a unit waiting on remote calls (an OpenSearch lookup, an
+ * embedding server over gRPC). Use it with
+ * {@link ModuleWorkerLoop#async}; Mutiny modules can wrap a
+ * {@code Uni}-returning function with {@link #ofUni}.
+ *
+ * <p>The worker hands the payload over and goes on to fetch the next
+ * unit without waiting: the stage's completion sends the ack. No thread
+ * is held while a stage is pending, so many more units can be in flight
+ * than the loop has workers; the loop's concurrency limit bounds them.
+ * The stream stays heartbeated the whole time, and the ack is sent the
+ * moment the stage completes.
+ *
+ * <p>Failure mapping is the same as {@link ModuleProcessor}: a stage
+ * completed exceptionally with a {@link ModuleProcessor.PermanentFailure}
+ * (possibly wrapped in a {@link CompletionException}) is reported as a
+ * permanent failure, anything else as retryable.
+ *
+ * @param <T> the module's concrete protobuf payload type
+ */
+@FunctionalInterface
+public interface AsyncModuleProcessor<T extends Message> {
+
+    /**
+     * Start processing one work unit.
+     *
+     * @param input the unpacked input payload
+     * @return a stage completing with the updated payload, or
+     *         exceptionally with a {@link ModuleProcessor.PermanentFailure}
+     *         or any retryable exception; never {@code null}
+     */
+    CompletionStage<T> processAsync(T input);
+
+    /** Adapt a Mutiny {@code Uni}-returning function; the {@code Uni} is subscribed once per unit. */
+    static <T extends Message> AsyncModuleProcessor<T> ofUni(Function<T, Uni<T>> processor) {
+        Objects.requireNonNull(processor, "processor");
+        return input -> processor.apply(input).subscribeAsCompletionStage();
+    }
+
+    /**
+     * A synchronous view: start the stage, then wait for it on the calling
+     * (virtual) thread and unwrap its outcome. The loop uses it for warm-up
+     * and the rare unit it can't dispatch. If the caller is interrupted
+     * while waiting, the stage is cancelled.
+     */
+    static <T extends Message> ModuleProcessor<T> awaiting(AsyncModuleProcessor<T> processor) {
+        Objects.requireNonNull(processor, "processor");
+        return input -> {
+            CompletionStage<T> stage = processor.processAsync(input);
+            if (stage == null) {
+                throw new IllegalStateException("processAsync returned null");
+            }
+            CompletableFuture<T> future = stage.toCompletableFuture();
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for processAsync", e);
+            } catch (CancellationException e) {
+                throw new IllegalStateException("processAsync stage was cancelled", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                while (cause instanceof CompletionException && cause.getCause() != null) {
+                    cause = cause.getCause();
+                }
+                if (cause instanceof RuntimeException re) {
+                    throw re;
+                }
+                if (cause instanceof Error err) {
+                    throw err;
+                }
+                throw new IllegalStateException(cause);
+            }
+        };
+    }
+}
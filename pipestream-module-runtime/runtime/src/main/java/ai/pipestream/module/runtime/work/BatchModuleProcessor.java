@@ -0,0 +1,78 @@
+package ai.pipestream.module.runtime.work;
+
+import com.google.protobuf.Message;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Batch variant of {@link ModuleProcessor} for modules that are much
+ * faster on many inputs at once (embedders, NLP pipelines). The
+ * {@link ModuleWorkerLoop} collects up to
+ * {@link WorkerLoopConfig#maxBatchSize()} work units — waiting at most
+ * {@link WorkerLoopConfig#maxBatchDelay()} after the first one arrives —
+ * and hands their payloads to a single {@link #processBatch} call. Each
+ * result is then acked back to the engine on its own unit's stream.
+ *
+ * <p>Every unit in the batch stays heartbeated until its ack is sent,
+ * so a long batch doesn't trip the engine's watchdog for any of them.
+ *
+ * <p>The same expectations as {@link ModuleProcessor} apply: synchronous,
+ * idempotent per item, and explicit about failures. Failures can be
+ * reported per item via {@link Result}; a {@link ModuleProcessor.PermanentFailure}
+ * thrown from {@code processBatch} fails every unit in the batch
+ * permanently, and any other exception fails every unit as retryable.
+ *
+ * @param <T> the module's concrete protobuf payload type
+ */
+@FunctionalInterface
+public interface BatchModuleProcessor<T extends Message> {
+
+    /**
+     * Process a batch of work units.
+     *
+     * @param inputs the unpacked payloads, in the order the units arrived;
+     *               never empty
+     * @return one {@link Result} per input, in the same order
+     * @throws ModuleProcessor.PermanentFailure to fail the whole batch
+     *         permanently
+     * @throws RuntimeException any other exception fails the whole batch
+     *         as retryable
+     */
+    List<Result<T>> processBatch(List<T> inputs);
+
+    /** Per-item outcome of a batch, mapped onto that unit's {@code WorkAck}. */
+    enum Status {
+        SUCCESS,
+        PERMANENT_FAILURE,
+        RETRYABLE_FAILURE
+    }
+
+    /**
+     * Result for one item of a batch. Use the factory methods; a
+     * {@link Status#SUCCESS} result carries the output payload, failures
+     * carry the {@code error_message} reported to the engine.
+     */
+    record Result<T extends Message>(Status status, T output, String errorMessage) {
+
+        public Result {
+            Objects.requireNonNull(status, "status");
+            if (status == Status.SUCCESS) {
+                Objects.requireNonNull(output, "output");
+            }
+            errorMessage = errorMessage == null ? "" : errorMessage;
+        }
+
+        public static <T extends Message> Result<T> success(T output) {
+            return new Result<>(Status.SUCCESS, output, "");
+        }
+
+        public static <T extends Message> Result<T> permanentFailure(String message) {
+            return new Result<>(Status.PERMANENT_FAILURE, null, message);
+        }
+
+        public static <T extends Message> Result<T> retryableFailure(String message) {
+            return new Result<>(Status.RETRYABLE_FAILURE, null, message);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ai.pipestream.module.runtime.work;
+
+import java.util.Locale;
+
+/**
+ * Decides how many workers {@link ModuleWorkerLoop} should run, from
+ * the latency of the {@link ModuleProcessor#process} calls it observes.
+ * The loop clamps {@link #limit()} to
+ * [{@link WorkerLoopConfig#minConcurrency()}, {@link WorkerLoopConfig#concurrency()}],
+ * stops ramping up once the live worker count reaches it, and sheds a
+ * worker after a unit whenever the count is above it.
+ *
+ * <p>Select an implementation with
+ * {@link WorkerLoopConfig#concurrencyLimiter()}, or plug one in with
+ * {@link ModuleWorkerLoop#useConcurrencyLimiter(ConcurrencyLimiter)}.
+ * Implementations must be thread-safe; {@link #onSample} is called from
+ * every worker after every unit.
+ */
+public interface ConcurrencyLimiter {
+
+    /** What the limiter did with the most recent window of samples. */
+    enum Decision {
+        HOLD,
+        INCREASE,
+        DECREASE
+    }
+
+    /** @return the current target worker count */
+    int limit();
+
+    /** @return the most recent limit change (or {@link Decision#HOLD}) */
+    Decision lastDecision();
+
+    /**
+     * Record one processed unit.
+     *
+     * @param latencyNanos wall time of the {@code process} (or batch) call
+     */
+    void onSample(long latencyNanos);
+
+    /**
+     * Today's behaviour: the limit is pinned at {@code max}, so the loop's
+     * one-more-worker-per-unit ramp alone decides the worker count.
+     */
+    static ConcurrencyLimiter fixed(int max) {
+        return new ConcurrencyLimiter() {
+            @Override public int limit() { return max; }
+            @Override public Decision lastDecision() { return Decision.HOLD; }
+            @Override public void onSample(long latencyNanos) { }
+        };
+    }
+
+    /**
+     * Build the limiter named by {@link WorkerLoopConfig#concurrencyLimiter()}.
+     *
+     * @throws IllegalArgumentException for an unknown name
+     */
+    static ConcurrencyLimiter fromConfig(WorkerLoopConfig config, int min, int max) {
+        String name = config.concurrencyLimiter().trim().toLowerCase(Locale.ROOT);
+        return switch (name) {
+            case "ramp" -> fixed(max);
+            case "aimd" -> new AimdConcurrencyLimiter(min, max, config.limiterLatencyTolerance());
+            case "gradient" -> new GradientConcurrencyLimiter(min, max);
+            default -> throw new IllegalArgumentException(
+                    "Unknown pipestream.module.worker-loop.concurrency-limiter '"
+                            + config.concurrencyLimiter() + "' (expected ramp, aimd or gradient)");
+        };
+    }
+}
@@ -0,0 +1,143 @@
+package ai.pipestream.module.runtime.work;
+
+import com.google.protobuf.Message;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounded platform-thread pool that runs {@code process()} for
+ * {@link WorkerLoopConfig#processExecutor()} {@code cpu-bound}.
+ *
+ * <p>By default the module's processor runs on the worker's own virtual
+ * thread. That is right for I/O-heavy modules, but a CPU-heavy one
+ * (tokenisation, embedding on CPU) keeps every carrier thread busy, and
+ * the gRPC callbacks and heartbeats that share those carriers fall
+ * behind until the engine's watchdog closes the stream. Here the stream
+ * I/O stays on virtual threads while the work itself queues for one of
+ * {@link #threads()} platform threads; the waiting worker unmounts, so
+ * its carrier stays free.
+ *
+ * <p>The loop caps its workers at {@link #capacity()}: one unit running
+ * per thread plus one queued behind it, so a thread never idles while
+ * its worker is busy acking. More workers would only lengthen the queue.
+ */
+final class CpuBoundExecutor {
+
+    static final String VIRTUAL = "virtual";
+    static final String CPU_BOUND = "cpu-bound";
+
+    private final ThreadPoolExecutor pool;
+    private final int threads;
+    private volatile WorkerLoopMetrics metrics = WorkerLoopMetrics.NOOP;
+
+    CpuBoundExecutor(String moduleId, int threads) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "worker-cpu-" + moduleId + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        this.pool = new ThreadPoolExecutor(this.threads, this.threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), factory);
+        // Idle modules give their threads back.
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * The pool {@code config} asks for, or {@code null} to process on the
+     * workers' virtual threads.
+     *
+     * @throws IllegalArgumentException for an unknown executor name
+     */
+    static CpuBoundExecutor fromConfig(WorkerLoopConfig config) {
+        return switch (config.processExecutor().trim().toLowerCase(Locale.ROOT)) {
+            case VIRTUAL -> null;
+            case CPU_BOUND -> new CpuBoundExecutor(config.moduleId(), config.cpuBoundThreads());
+            default -> throw new IllegalArgumentException(
+                    "Unknown pipestream.module.worker-loop.process-executor '" + config.processExecutor()
+                            + "' (expected virtual or cpu-bound)");
+        };
+    }
+
+    int threads() {
+        return threads;
+    }
+
+    /** Most workers worth running against this pool. */
+    int capacity() {
+        return threads * 2;
+    }
+
+    /** Units waiting for a thread. */
+    int queued() {
+        return pool.getQueue().size();
+    }
+
+    /** Threads currently running a unit. */
+    int active() {
+        return pool.getActiveCount();
+    }
+
+    void useMetrics(WorkerLoopMetrics metrics) {
+        this.metrics = metrics;
+        metrics.registerCpuPoolGauge("threads", () -> threads);
+        metrics.registerCpuPoolGauge("active", this::active);
+        metrics.registerCpuPoolGauge("queued", this::queued);
+    }
+
+    <T extends Message> ModuleProcessor<T> wrapProcessor(ModuleProcessor<T> processor) {
+        return input -> call(() -> processor.process(input));
+    }
+
+    <T extends Message> BatchModuleProcessor<T> wrapBatch(BatchModuleProcessor<T> processor) {
+        return inputs -> call(() -> processor.processBatch(inputs));
+    }
+
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    /** Queue {@code work} for a thread, recording how long it waits for one. */
+    <R> Future<R> submit(Supplier<R> work) {
+        long submitted = System.nanoTime();
+        return pool.submit(() -> {
+            metrics.recordCpuQueueWait(System.nanoTime() - submitted);
+            return work.get();
+        });
+    }
+
+    /**
+     * Run {@code work} on the pool and wait for it. Whatever it throws is
+     * rethrown unchanged, so the caller's failure mapping
+     * ({@link ModuleProcessor.PermanentFailure} vs. retryable) still
+     * applies.
+     */
+    private <R> R call(Supplier<R> work) {
+        Future<R> future = submit(work);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for the CPU-bound pool", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            if (cause instanceof Error err) {
+                throw err;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package ai.pipestream.module.runtime.work;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Gradient (Vegas-style) limiter on {@code process()} latency.
+ *
+ * <p>Once per window of {@link #limit()} samples the limiter compares
+ * the window's mean latency with the no-load baseline (the lowest mean
+ * seen, drifting slowly upwards). The ratio {@code baseline / mean},
+ * clamped to [0.5, 1], is the gradient: 1 means extra workers aren't
+ * slowing anyone down, lower values mean they are queueing for the same
+ * CPU or downstream service. The new limit is
+ * {@code limit × gradient + √limit} — the square-root term is the
+ * headroom that lets the limit keep probing upwards while latency is
+ * flat — smoothed against the old limit so one noisy window can't swing
+ * it far. The headroom term is dropped for a window whose measured
+ * throughput used less than half of the limit (see
+ * {@link AimdConcurrencyLimiter}): workers that are waiting for work
+ * don't need company.
+ *
+ * <p>Reacts proportionally to how much latency grew, where
+ * {@link AimdConcurrencyLimiter} only knows "too slow" or "fine".
+ * Thread-safe; {@link #onSample} is a short synchronized update.
+ */
+public final class GradientConcurrencyLimiter implements ConcurrencyLimiter {
+
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BASELINE_DRIFT = 0.05;
+
+    private final int min;
+    private final int max;
+    private final LongSupplier clock;
+
+    private double estimatedLimit;
+    private int limit;
+    private Decision lastDecision = Decision.HOLD;
+    private double baselineNanos;
+    private long windowSumNanos;
+    private int windowCount;
+    private long windowStartNanos;
+
+    public GradientConcurrencyLimiter(int min, int max) {
+        this(min, max, System::nanoTime);
+    }
+
+    GradientConcurrencyLimiter(int min, int max, LongSupplier clock) {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("need 1 <= min <= max: min=" + min + " max=" + max);
+        }
+        this.min = min;
+        this.max = max;
+        this.limit = min;
+        this.estimatedLimit = min;
+        this.clock = clock;
+        this.windowStartNanos = clock.getAsLong();
+    }
+
+    @Override
+    public synchronized int limit() {
+        return limit;
+    }
+
+    @Override
+    public synchronized Decision lastDecision() {
+        return lastDecision;
+    }
+
+    @Override
+    public synchronized void onSample(long latencyNanos) {
+        windowSumNanos += Math.max(0L, latencyNanos);
+        if (++windowCount < limit) {
+            return;
+        }
+        double mean = Math.max(1.0, (double) windowSumNanos / windowCount);
+        long now = clock.getAsLong();
+        boolean saturated = AimdConcurrencyLimiter.saturated(windowSumNanos, now - windowStartNanos, limit);
+        windowStartNanos = now;
+        windowSumNanos = 0;
+        windowCount = 0;
+
+        if (baselineNanos == 0 || mean < baselineNanos) {
+            baselineNanos = mean;
+        } else {
+            baselineNanos += (mean - baselineNanos) * BASELINE_DRIFT;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, baselineNanos / mean));
+        double target = estimatedLimit * gradient + (saturated ? Math.sqrt(estimatedLimit) : 0);
+        estimatedLimit = Math.max(min, Math.min(max,
+                estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING));
+
+        int next = (int) estimatedLimit;
+        lastDecision = next > limit ? Decision.INCREASE
+                : next < limit ? Decision.DECREASE
+                : Decision.HOLD;
+        limit = next;
+    }
+}
@@ -7,74 +7,73 @@ import org.jboss.logging.Logger;
 
 import java.time.Duration;
 import java.util.Objects;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Periodic {@code Heartbeat} emitter for one open {@code Work} stream.
  *
  * <p>Started by {@link WorkStreamSession} just before invoking the
  * module's {@code process} call; stopped immediately after the call
- * returns. Each heartbeat is sent on whatever thread the scheduler
- * provides; the underlying gRPC stream's
+ * returns. Each heartbeat is sent on the shared {@link HeartbeatWheel}
+ * thread; the underlying gRPC stream's
  * {@link StreamObserver#onNext} is documented as thread-safe-against-
  * itself when the bidi stream is in flow-controlled mode, but the
  * session is the sole writer to the request observer aside from this
  * pump, so the session's call sites cooperate via a write lock owned
  * by the session.
  *
- * <p>One pump per stream — they are not reused. A single daemon-VT
- * scheduler is allocated on construction and shut down on
- * {@link #close()}; cost is one virtual thread per active work unit
- * for the lifetime of the {@code process} call only.
+ * <p>The wheel thread is shared by every session in the JVM, so the
+ * pump only ever {@linkplain ReentrantLock#tryLock() tries} the write
+ * lock: while the session holds it (serializing a large ack, or stuck
+ * in a stalled transport) the beat is skipped rather than waited for,
+ * and the next one comes an interval later. Waiting would hold up the
+ * heartbeats of every other session behind this one.
+ *
+ * <p>One pump per stream — they are not reused. A pump owns no thread
+ * or executor: {@link #start()} registers a timer on the wheel and
+ * {@link #close()} cancels it, so units cycling in milliseconds cost
+ * one small allocation each instead of a scheduler apiece.
  */
 final class HeartbeatPump implements AutoCloseable {
 
     private static final Logger LOG = Logger.getLogger(HeartbeatPump.class);
 
+    private static final WorkRequest HEARTBEAT = WorkRequest.newBuilder()
+            .setHeartbeat(Heartbeat.newBuilder().build())
+            .build();
+
     private final StreamObserver<WorkRequest> requestObserver;
-    private final Runnable writeGuardedSend;
+    private final ReentrantLock writeLock;
     private final Duration interval;
-    private final ScheduledExecutorService scheduler;
-    private volatile ScheduledFuture<?> tick;
+    private final HeartbeatWheel wheel;
+    private HeartbeatWheel.Timer tick;
 
     /**
      * @param requestObserver  the open stream's request observer; the
      *                         pump writes {@code Heartbeat} messages to
-     *                         it on the scheduler thread
+     *                         it on the wheel thread
      * @param writeLock        synchronization gate the session passes
      *                         in; every {@code onNext} call goes
      *                         through it so heartbeats can't interleave
-     *                         with the session's own Hello or Ack writes
+     *                         with the session's own Hello or Ack writes;
+     *                         a beat that finds it held is skipped
      * @param interval         heartbeat cadence; the engine's watchdog
      *                         silence threshold is {@code 2 × interval}
      */
     HeartbeatPump(StreamObserver<WorkRequest> requestObserver,
-                  Object writeLock,
+                  ReentrantLock writeLock,
                   Duration interval) {
+        this(requestObserver, writeLock, interval, HeartbeatWheel.shared());
+    }
+
+    HeartbeatPump(StreamObserver<WorkRequest> requestObserver,
+                  ReentrantLock writeLock,
+                  Duration interval,
+                  HeartbeatWheel wheel) {
         this.requestObserver = Objects.requireNonNull(requestObserver, "requestObserver");
-        Objects.requireNonNull(writeLock, "writeLock");
+        this.writeLock = Objects.requireNonNull(writeLock, "writeLock");
         this.interval = Objects.requireNonNull(interval, "interval");
-        this.scheduler = Executors.newSingleThreadScheduledExecutor(
-                Thread.ofVirtual().name("worker-heartbeat-").factory());
-        this.writeGuardedSend = () -> {
-            synchronized (writeLock) {
-                try {
-                    requestObserver.onNext(WorkRequest.newBuilder()
-                            .setHeartbeat(Heartbeat.newBuilder().build())
-                            .build());
-                } catch (RuntimeException e) {
-                    // The stream has likely closed under us (peer RST,
-                    // watchdog forced close, normal completion that
-                    // raced the scheduler). Log at debug — the session
-                    // will catch the real failure via its own error
-                    // path.
-                    LOG.debugf(e, "heartbeat send failed; stream likely closed");
-                }
-            }
-        };
+        this.wheel = Objects.requireNonNull(wheel, "wheel");
     }
 
     /** Begin emitting heartbeats. Idempotent — repeated calls are ignored. */
@@ -82,16 +81,33 @@ final class HeartbeatPump implements AutoCloseable {
         if (tick != null) {
             return;
         }
-        long millis = interval.toMillis();
-        tick = scheduler.scheduleAtFixedRate(writeGuardedSend, millis, millis, TimeUnit.MILLISECONDS);
+        tick = wheel.schedule(this::sendHeartbeat, interval);
     }
 
     @Override
     public void close() {
         if (tick != null) {
-            tick.cancel(false);
+            tick.close();
             tick = null;
         }
-        scheduler.shutdownNow();
+    }
+
+    private void sendHeartbeat() {
+        if (!writeLock.tryLock()) {
+            LOG.trace("write lock busy; skipping heartbeat");
+            return;
+        }
+        try {
+            requestObserver.onNext(HEARTBEAT);
+        } catch (RuntimeException e) {
+            // The stream has likely closed under us (peer RST,
+            // watchdog forced close, normal completion that
+            // raced the wheel). Log at debug — the session
+            // will catch the real failure via its own error
+            // path.
+            LOG.debugf(e, "heartbeat send failed; stream likely closed");
+        } finally {
+            writeLock.unlock();
+        }
     }
 }
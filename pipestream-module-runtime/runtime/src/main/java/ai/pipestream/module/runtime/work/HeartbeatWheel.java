@@ -0,0 +1,239 @@
+package ai.pipestream.module.runtime.work;
+
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timer wheel that drives every {@link HeartbeatPump} in the JVM
+ * from one virtual thread.
+ *
+ * <p>A worker cycling units in milliseconds used to build and tear down
+ * a {@code ScheduledExecutorService} per unit; with the wheel,
+ * registering a pump is one small object and two lock-free queue
+ * operations, and cancelling it is O(1). Resolution is one tick
+ * ({@link #DEFAULT_TICK}), which is plenty for heartbeats measured in
+ * seconds.
+ *
+ * <p>Only the wheel thread touches the slots: {@link #schedule} and
+ * {@link Timer#close()} hand timers over through concurrent inboxes
+ * that are drained at the start of every tick. Tasks run inline on the
+ * wheel thread, so they must be short and must never block: one task
+ * waiting delays every other timer in the JVM. {@link HeartbeatPump}
+ * therefore only tries its session's write lock and skips a beat when
+ * it is held. A task that throws, even an {@link Error}, is logged and
+ * stays scheduled; the wheel thread keeps running. When nothing is
+ * registered the thread parks until the next {@link #schedule}.
+ */
+final class HeartbeatWheel {
+
+    private static final Logger LOG = Logger.getLogger(HeartbeatWheel.class);
+
+    static final Duration DEFAULT_TICK = Duration.ofMillis(100);
+    private static final int DEFAULT_SLOTS = 512;
+
+    private static final HeartbeatWheel SHARED =
+            new HeartbeatWheel(DEFAULT_TICK, DEFAULT_SLOTS, "worker-heartbeat");
+
+    /** The process-wide wheel used by {@link HeartbeatPump}. */
+    static HeartbeatWheel shared() {
+        return SHARED;
+    }
+
+    private final long tickNanos;
+    private final Timer[] heads;
+    private final Timer[] tails;
+    private final int mask;
+    private final String threadName;
+    private final Queue<Timer> pending = new ConcurrentLinkedQueue<>();
+    private final Queue<Timer> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private volatile Thread worker;
+
+    // Wheel-thread-only state.
+    private long tick;
+    private int scheduled;
+
+    /**
+     * @param tick       wheel resolution
+     * @param slots      number of slots; rounded up to a power of two
+     * @param threadName name of the wheel's virtual thread
+     */
+    HeartbeatWheel(Duration tick, int slots, String threadName) {
+        this.tickNanos = Math.max(1L, tick.toNanos());
+        int size = Integer.highestOneBit(Math.max(1, slots - 1)) << 1;
+        this.heads = new Timer[size];
+        this.tails = new Timer[size];
+        this.mask = size - 1;
+        this.threadName = Objects.requireNonNull(threadName, "threadName");
+    }
+
+    /**
+     * Run {@code task} every {@code interval}, first after one interval.
+     * The returned timer stops it; closing is idempotent and safe from
+     * any thread, including from inside {@code task}.
+     */
+    Timer schedule(Runnable task, Duration interval) {
+        Objects.requireNonNull(task, "task");
+        long periodTicks = Math.max(1L, (interval.toNanos() + tickNanos - 1) / tickNanos);
+        Timer timer = new Timer(task, periodTicks);
+        pending.add(timer);
+        if (started.compareAndSet(false, true)) {
+            worker = Thread.ofVirtual().name(threadName).start(this::run);
+        } else {
+            LockSupport.unpark(worker);
+        }
+        return timer;
+    }
+
+    private void run() {
+        long deadline = System.nanoTime() + tickNanos;
+        while (true) {
+            drainInboxes();
+            if (scheduled == 0) {
+                if (pending.isEmpty()) {
+                    LockSupport.park(this);
+                }
+                deadline = System.nanoTime() + tickNanos;
+                continue;
+            }
+            long wait = deadline - System.nanoTime();
+            if (wait > 0) {
+                // Woken early by schedule(): loop to pick up the new timer.
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            expire((int) (tick & mask));
+            tick++;
+            deadline += tickNanos;
+        }
+    }
+
+    private void drainInboxes() {
+        Timer timer;
+        while ((timer = pending.poll()) != null) {
+            if (!timer.cancelled.get()) {
+                // Slot tick has not been walked yet.
+                insert(timer, tick);
+            }
+        }
+        while ((timer = cancelled.poll()) != null) {
+            if (timer.inWheel) {
+                unlink(timer);
+            }
+        }
+    }
+
+    private void expire(int slot) {
+        List<Timer> due = null;
+        Timer timer = heads[slot];
+        while (timer != null) {
+            Timer next = timer.next;
+            if (timer.remainingRounds > 0) {
+                timer.remainingRounds--;
+            } else {
+                unlink(timer);
+                if (due == null) {
+                    due = new ArrayList<>();
+                }
+                due.add(timer);
+            }
+            timer = next;
+        }
+        if (due == null) {
+            return;
+        }
+        // Re-arm after the slot walk so a period of exactly one revolution
+        // lands back in this slot for the next visit, not this one.
+        for (Timer t : due) {
+            if (t.cancelled.get()) {
+                continue;
+            }
+            try {
+                t.task.run();
+            } catch (Throwable e) {
+                // Not even an Error may end the thread: it drives every
+                // session's heartbeats.
+                LOG.warnf(e, "heartbeat task failed");
+            }
+            if (!t.cancelled.get()) {
+                insert(t, tick + 1);
+            }
+        }
+    }
+
+    /**
+     * @param firstVisit the next tick whose slot will be walked; the timer
+     *                   skips one visit per revolution between it and its
+     *                   due tick, so a period that is an exact multiple of
+     *                   the wheel size still waits its full length
+     */
+    private void insert(Timer timer, long firstVisit) {
+        long due = tick + timer.periodTicks;
+        int slot = (int) (due & mask);
+        timer.remainingRounds = (due - firstVisit) / heads.length;
+        timer.slot = slot;
+        timer.prev = tails[slot];
+        timer.next = null;
+        if (tails[slot] == null) {
+            heads[slot] = timer;
+        } else {
+            tails[slot].next = timer;
+        }
+        tails[slot] = timer;
+        timer.inWheel = true;
+        scheduled++;
+    }
+
+    private void unlink(Timer timer) {
+        int slot = timer.slot;
+        if (timer.prev == null) {
+            heads[slot] = timer.next;
+        } else {
+            timer.prev.next = timer.next;
+        }
+        if (timer.next == null) {
+            tails[slot] = timer.prev;
+        } else {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.inWheel = false;
+        scheduled--;
+    }
+
+    /** One periodic registration; {@link #close()} cancels it. */
+    final class Timer implements AutoCloseable {
+
+        private final Runnable task;
+        private final long periodTicks;
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+        // Wheel-thread-only linkage.
+        private long remainingRounds;
+        private int slot;
+        private Timer prev;
+        private Timer next;
+        private boolean inWheel;
+
+        private Timer(Runnable task, long periodTicks) {
+            this.task = task;
+            this.periodTicks = periodTicks;
+        }
+
+        @Override
+        public void close() {
+            if (cancelled.compareAndSet(false, true)) {
+                HeartbeatWheel.this.cancelled.add(this);
+            }
+        }
+    }
+}
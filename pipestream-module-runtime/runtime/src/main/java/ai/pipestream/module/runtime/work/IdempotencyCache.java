@@ -0,0 +1,187 @@
+package ai.pipestream.module.runtime.work;
+
+import ai.pipestream.module.work.v1.WorkUnit;
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of acked outputs for redelivered work units, enabled with
+ * {@link WorkerLoopConfig#idempotencyCacheMaxEntries()}.
+ *
+ * <p>Kafka redelivery, engine restarts and stream errors re-serve units
+ * the module already processed. {@link ModuleProcessor} must be
+ * idempotent, so a unit with the same {@code work_unit_id} and the same
+ * payload bytes gets the same answer: the cache returns the whole output
+ * packed last time, and the session acks it without calling
+ * {@code process()}. The output is cached whole, never as the
+ * {@link PayloadDelta} it may have been acked as, because a redelivery
+ * can arrive on a stream whose engine did not agree to deltas.
+ *
+ * <p>Keys are the unit id plus the payload's length, type URL and
+ * SHA-256 digest. A hit skips {@code process()} entirely, so two
+ * versions of a payload must never share a key; unlike a 32-bit CRC,
+ * the digest won't collide by chance or by a crafted edit. It is
+ * still far cheaper than re-parsing a multi-megabyte payload.
+ *
+ * <p>Entries are evicted least-recently-used once either
+ * {@link WorkerLoopConfig#idempotencyCacheMaxEntries()} or
+ * {@link WorkerLoopConfig#idempotencyCacheMaxBytes()} (counting the
+ * cached output bytes) is exceeded, and are ignored after
+ * {@link WorkerLoopConfig#idempotencyCacheTtl()}. With
+ * {@link WorkerLoopConfig#idempotencyCacheOffHeap()} the outputs are
+ * copied into direct buffers, so large outputs don't weigh on the heap
+ * and its GC.
+ *
+ * <p>Only successful acks are cached; failures are always re-run.
+ */
+final class IdempotencyCache {
+
+    /** Rough per-entry bookkeeping cost, added to the output size. */
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final boolean offHeap;
+    private final LongSupplier clock;
+
+    // Access-ordered: iteration starts at the least recently used entry.
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // ReentrantLock, not synchronized: callers are virtual threads.
+    private final ReentrantLock lock = new ReentrantLock();
+    private long bytes;
+
+    IdempotencyCache(int maxEntries, long maxBytes, Duration ttl, boolean offHeap) {
+        this(maxEntries, maxBytes, ttl, offHeap, System::nanoTime);
+    }
+
+    IdempotencyCache(int maxEntries, long maxBytes, Duration ttl, boolean offHeap, LongSupplier clock) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be >= 1, got " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttl.toNanos();
+        this.offHeap = offHeap;
+        this.clock = clock;
+    }
+
+    /** The cache {@code config} asks for, or {@code null} if it is disabled. */
+    static IdempotencyCache fromConfig(WorkerLoopConfig config) {
+        if (config.idempotencyCacheMaxEntries() <= 0) {
+            return null;
+        }
+        return new IdempotencyCache(config.idempotencyCacheMaxEntries(),
+                config.idempotencyCacheMaxBytes(),
+                config.idempotencyCacheTtl(),
+                config.idempotencyCacheOffHeap());
+    }
+
+    /** Identity of one unit's payload. */
+    record Key(String workUnitId, String typeUrl, int length, ByteString sha256) {
+
+        static Key of(WorkUnit unit) {
+            ByteString value = unit.getPayload().getValue();
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                // Every Java platform is required to provide SHA-256.
+                throw new IllegalStateException(e);
+            }
+            for (ByteBuffer chunk : value.asReadOnlyByteBufferList()) {
+                digest.update(chunk);
+            }
+            return new Key(unit.getWorkUnitId(), unit.getPayload().getTypeUrl(),
+                    value.size(), UnsafeByteOperations.unsafeWrap(digest.digest()));
+        }
+    }
+
+    private record Entry(String typeUrl, ByteString value, long expiresAtNanos, long weight) {}
+
+    /** The whole output acked for {@code key} last time, or {@code null}. */
+    Any get(Key key) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (clock.getAsLong() - entry.expiresAtNanos() >= 0) {
+                remove(key);
+                return null;
+            }
+            return Any.newBuilder().setTypeUrl(entry.typeUrl()).setValue(entry.value()).build();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Remember the whole packed output of a successful ack for {@code key}. */
+    void put(Key key, Any updatedPayload) {
+        ByteString value = updatedPayload.getValue();
+        long weight = (long) value.size() + ENTRY_OVERHEAD_BYTES;
+        if (weight > maxBytes) {
+            return;
+        }
+        if (offHeap) {
+            ByteBuffer direct = ByteBuffer.allocateDirect(value.size());
+            value.copyTo(direct);
+            direct.flip();
+            value = UnsafeByteOperations.unsafeWrap(direct.asReadOnlyBuffer());
+        }
+        Entry entry = new Entry(updatedPayload.getTypeUrl(), value, clock.getAsLong() + ttlNanos, weight);
+        lock.lock();
+        try {
+            Entry old = entries.put(key, entry);
+            if (old != null) {
+                bytes -= old.weight();
+            }
+            bytes += weight;
+            Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+            while ((entries.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+                bytes -= eldest.next().getValue().weight();
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Cached output bytes plus bookkeeping, as counted against the byte bound. */
+    long bytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.weight();
+        }
+    }
+}
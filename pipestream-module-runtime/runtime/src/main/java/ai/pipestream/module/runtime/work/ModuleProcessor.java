@@ -18,7 +18,8 @@ import com.google.protobuf.Message;
  * <ul>
  *   <li><b>Synchronous</b>. The framework runs each {@code process}
  *       call on a dedicated virtual thread inside a stream; blocking
- *       I/O is fine.</li>
+ *       I/O is fine. Modules built on async clients can implement
+ *       {@link AsyncModuleProcessor} instead.</li>
  *   <li><b>Idempotent.</b> Kafka redelivery, engine restart, or
  *       network-level retries can cause the same {@code WorkUnit} to
  *       arrive more than once. The implementation must produce an
@@ -3,8 +3,9 @@ package ai.pipestream.module.runtime.work;
 import ai.pipestream.module.work.v1.ModuleWorkServiceGrpc;
 
 /**
- * Shared engine transport for {@link ModuleWorkerLoop}. One {@link io.grpc.ManagedChannel}
- * is reused across concurrent virtual-thread workers (HTTP/2 stream multiplexing).
+ * Shared engine transport for {@link ModuleWorkerLoop}. A {@link io.grpc.ManagedChannel}
+ * (or a small pool of them) is reused across concurrent virtual-thread workers (HTTP/2
+ * stream multiplexing).
  *
  * <p><b>Do NOT call {@link #reconnect()} on a per-stream
  * {@link WorkStreamSession.Outcome#STREAM_ERROR}.</b> Because the channel is shared by
@@ -16,12 +17,12 @@ import ai.pipestream.module.work.v1.ModuleWorkServiceGrpc;
  */
 public interface ModuleWorkEngineClient {
 
-    /** Async stub on the shared channel — cheap to call each session. */
+    /** Async stub on a shared channel — cheap to call each session. */
     ModuleWorkServiceGrpc.ModuleWorkServiceStub stub();
 
     /**
-     * Force a full teardown of the current channel; the next {@link #stub()} opens a
-     * fresh one. Cancels every in-flight call on the channel, so this is only safe for
+     * Force a full teardown of the current channel(s); the next {@link #stub()} opens a
+     * fresh one. Cancels every in-flight call on them, so this is only safe for
      * shutdown or a channel that is confirmed dead — never as a per-stream-error retry
      * hook (see the type-level note).
      */
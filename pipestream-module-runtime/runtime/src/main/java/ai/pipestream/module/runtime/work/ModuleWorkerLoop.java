@@ -1,6 +1,7 @@
 package ai.pipestream.module.runtime.work;
 
 import com.google.protobuf.Message;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.quarkus.runtime.ShutdownEvent;
 import io.quarkus.runtime.StartupEvent;
 import jakarta.enterprise.event.Observes;
@@ -8,9 +9,27 @@ import jakarta.enterprise.inject.Vetoed;
 import org.jboss.logging.Logger;
 
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 /**
  * Module-side demand-pull worker. Maintains between
@@ -32,6 +51,88 @@ import java.util.concurrent.atomic.AtomicInteger;
  * <p>Set {@code min-concurrency == concurrency} for legacy fixed-pool
  * behavior (all workers start at once).
  *
+ * <p><b>Persistent streams:</b> with
+ * {@link WorkerLoopConfig#maxUnitsPerStream()} above {@code 1} a worker
+ * processes many units back to back on one stream; ramp-up still happens
+ * per unit via the session's {@link WorkStreamSession.UnitListener}.
+ *
+ * <p><b>Prefetch:</b> with {@link WorkerLoopConfig#prefetchCredits()}
+ * above zero each worker keeps that many units fetched and decoded
+ * ahead while the current one is processing, hiding the engine round
+ * trip between units. Units still held on shutdown are released back
+ * to the engine for redelivery.
+ *
+ * <p><b>Batching:</b> constructed with a {@link BatchModuleProcessor},
+ * each worker gathers up to {@link WorkerLoopConfig#maxBatchSize()} units
+ * (waiting at most {@link WorkerLoopConfig#maxBatchDelay()}) and processes
+ * them in one call, acking each unit individually.
+ *
+ * <p><b>Adaptive concurrency:</b> a {@link ConcurrencyLimiter} (chosen by
+ * {@link WorkerLoopConfig#concurrencyLimiter()}) turns observed
+ * {@code process()} latency into a target worker count between the
+ * minimum and maximum. Ramp-up stops at that target and workers above it
+ * exit after their current unit. The default {@code ramp} limiter pins
+ * the target at the maximum, which is the plain ramp described above.
+ *
+ * <p><b>Long-poll idle mode:</b> with {@link WorkerLoopConfig#idleMode()}
+ * {@code long-poll}, workers at the minimum keep a parked stream open on
+ * an empty queue so the engine can push the next unit immediately,
+ * rather than it waiting out {@link WorkerLoopConfig#noWorkRetryAfter()}
+ * plus a stream setup. If the engine doesn't agree to long-poll the
+ * loop falls back to polling for the rest of its life.
+ *
+ * <p><b>Async modules:</b> an {@link AsyncModuleProcessor} (see
+ * {@link #async}) returns a {@code CompletionStage} or {@code Uni}. Its
+ * workers only dispatch: each fetches a unit, starts its stage and goes
+ * on to the next, and the stage's completion acks the unit. Units in
+ * flight are bounded by the limiter's target instead of the worker
+ * count, which stays at the minimum.
+ *
+ * <p><b>CPU-bound modules:</b> with {@link WorkerLoopConfig#processExecutor()}
+ * {@code cpu-bound}, {@code process()} runs on a {@link CpuBoundExecutor}
+ * pool sized to the cores instead of the worker's virtual thread, and
+ * the worker count is capped at that pool's capacity.
+ *
+ * <p><b>Splittable units:</b> a {@link SplittableModuleProcessor} (see
+ * {@link #splitting}) cuts each unit into parts that a shared
+ * {@link SplitExecutor} pool processes in parallel, so one huge document
+ * spreads over the cores while its stream keeps a single heartbeat and
+ * ack.
+ *
+ * <p><b>Idempotency cache:</b> with
+ * {@link WorkerLoopConfig#idempotencyCacheMaxEntries()} above zero,
+ * redelivered units are acked from an {@link IdempotencyCache} of earlier
+ * outputs without calling {@code process()}.
+ *
+ * <p><b>Resource pressure:</b> with
+ * {@link WorkerLoopConfig#pressureThrottling()} (opt-in) the loop
+ * stops ramping up while {@link ResourcePressure} reports the heap, direct
+ * memory, GC or CPU under pressure, and sheds workers down to the minimum
+ * when memory or GC pressure turns critical.
+ *
+ * <p><b>Warm-up:</b> a module that supplies sample inputs with
+ * {@link #useWarmup} has {@code process()} run on them (up to
+ * {@link WorkerLoopConfig#warmupIterations()} times or for
+ * {@link WorkerLoopConfig#warmupDuration()}) before the first
+ * {@code Hello}, so the JIT has compiled the processor by the time real
+ * units arrive. {@link WorkerLoopReadinessCheck} reports DOWN meanwhile.
+ *
+ * <p><b>Affinity:</b> keys added to {@link #affinityHints()} (or seeded
+ * from {@link WorkerLoopConfig#affinityKeys()}) go out with each new
+ * stream, so the engine can prefer this instance for units that need
+ * what it already has warm.
+ *
+ * <p><b>Shared budget:</b> several loops in one JVM (one per hosted
+ * module, each with its own {@link WorkerLoopConfig#moduleId()} and
+ * processor) can draw on one {@link WorkerBudget} via
+ * {@link #useWorkerBudget}; pass them the same engine client so they
+ * share its channels too. Each keeps its minimum and borrows the rest
+ * from the budget, down to a fair share when modules contend.
+ *
+ * <p><b>Metrics:</b> {@link #snapshot()} is always available; pass a
+ * {@code MeterRegistry} to {@link #useMeterRegistry} for per-phase
+ * timers and the rest of {@link WorkerLoopMetrics}.
+ *
  * <p>{@code @Vetoed} so CDI never auto-registers this generic class as a
  * bean — the {@code @Observes} lifecycle methods are invoked manually by
  * the module's {@code @Produces}/{@code @Inject} wrapper, which supplies
@@ -42,30 +143,255 @@ public final class ModuleWorkerLoop<T extends Message> {
 
     private static final Logger LOG = Logger.getLogger(ModuleWorkerLoop.class);
 
+    /** One short-lived virtual thread per prefetch; nothing to shut down. */
+    private static final Executor PREFETCH_EXECUTOR =
+            task -> Thread.ofVirtual().name("worker-prefetch").start(task);
+
+    /** One short-lived virtual thread per completed async stage, to ack its unit. */
+    private static final Executor ASYNC_ACK_EXECUTOR =
+            task -> Thread.ofVirtual().name("worker-async-ack").start(task);
+
     private final ModuleWorkEngineClient engineClient;
     private final ModuleProcessor<T> processor;
+    private final BatchModuleProcessor<T> batchProcessor;
+    private final AsyncModuleProcessor<T> asyncProcessor;
     private final PayloadCodec<T> codec;
     private final WorkerLoopConfig config;
     private final int minWorkers;
     private final int maxWorkers;
+    private final int prefetchCredits;
+    private final int maxBatchSize;
+    private final long maxBatchDelayNanos;
+    private final CpuBoundExecutor cpuPool;
+    private final SplitExecutor splitExecutor;
+    private final IdempotencyCache idempotencyCache;
+    private final AffinityHints affinityHints;
+    private volatile ResourcePressure pressure;
+
+    private volatile ConcurrencyLimiter limiter;
+    private volatile WorkerLoopMetrics metrics = WorkerLoopMetrics.NOOP;
+    private volatile boolean longPoll;
+    private volatile WorkerBudget.Member budget;
+    private volatile Supplier<T> warmupInputs;
+    private volatile boolean warmingUp;
 
     private final AtomicBoolean running = new AtomicBoolean(false);
     private final AtomicInteger activeWorkers = new AtomicInteger(0);
     private final AtomicInteger streamErrors = new AtomicInteger();
     private final AtomicInteger sessionsCompleted = new AtomicInteger();
+    private final AtomicInteger unitsCompleted = new AtomicInteger();
+
+    // Async units dispatched and not yet acked, bounded by targetWorkers().
+    // ReentrantLock, not synchronized: callers are virtual threads.
+    private final ReentrantLock asyncLock = new ReentrantLock();
+    private final Condition asyncUnitDone = asyncLock.newCondition();
+    private int asyncInFlight;
 
     public ModuleWorkerLoop(Class<T> messageClass,
                             ModuleProcessor<T> processor,
                             ModuleWorkEngineClient engineClient,
                             WorkerLoopConfig config) {
-        this.processor = Objects.requireNonNull(processor, "processor");
+        this(messageClass, Objects.requireNonNull(processor, "processor"), null, null, null, engineClient, config);
+    }
+
+    /**
+     * Batch-mode loop: workers collect up to
+     * {@link WorkerLoopConfig#maxBatchSize()} units and hand them to one
+     * {@link BatchModuleProcessor#processBatch} call. A factory rather than
+     * a constructor overload so lambdas passed to the single-unit
+     * constructor stay unambiguous.
+     */
+    public static <T extends Message> ModuleWorkerLoop<T> batching(Class<T> messageClass,
+                                                                   BatchModuleProcessor<T> batchProcessor,
+                                                                   ModuleWorkEngineClient engineClient,
+                                                                   WorkerLoopConfig config) {
+        Objects.requireNonNull(batchProcessor, "batchProcessor");
+        return new ModuleWorkerLoop<>(messageClass, singleItem(batchProcessor),
+                batchProcessor, null, null, engineClient, config);
+    }
+
+    /**
+     * Loop for an {@link AsyncModuleProcessor}: each worker starts a unit's
+     * stage and moves on without waiting for it; the unit's stream stays
+     * heartbeated and is acked from the stage's completion. At most the
+     * limiter's target ({@link WorkerLoopConfig#concurrency()} with the
+     * default limiter) units are in flight at once, over
+     * {@link WorkerLoopConfig#minConcurrency()} workers.
+     *
+     * @throws IllegalArgumentException with {@code cpu-bound}
+     *         {@link WorkerLoopConfig#processExecutor()}, which would hold
+     *         a platform thread for every pending stage
+     */
+    public static <T extends Message> ModuleWorkerLoop<T> async(Class<T> messageClass,
+                                                                AsyncModuleProcessor<T> asyncProcessor,
+                                                                ModuleWorkEngineClient engineClient,
+                                                                WorkerLoopConfig config) {
+        Objects.requireNonNull(asyncProcessor, "asyncProcessor");
+        if (CpuBoundExecutor.CPU_BOUND.equalsIgnoreCase(config.processExecutor().trim())) {
+            throw new IllegalArgumentException("pipestream.module.worker-loop.process-executor=cpu-bound "
+                    + "is for synchronous processors; an AsyncModuleProcessor runs its own work");
+        }
+        // The awaiting view only backs warm-up and units a session finishes
+        // itself; dispatch() runs the rest without blocking a worker.
+        return new ModuleWorkerLoop<>(messageClass, AsyncModuleProcessor.awaiting(asyncProcessor),
+                null, asyncProcessor, null, engineClient, config);
+    }
+
+    /**
+     * Loop for a {@link SplittableModuleProcessor}: each worker splits its
+     * unit, waits while the parts run in parallel on the loop's split pool
+     * (or the {@code cpu-bound} pool, if configured), and merges them into
+     * the unit's single ack, heartbeating the stream throughout.
+     */
+    public static <T extends Message, P> ModuleWorkerLoop<T> splitting(Class<T> messageClass,
+                                                                       SplittableModuleProcessor<T, P> splittableProcessor,
+                                                                       ModuleWorkEngineClient engineClient,
+                                                                       WorkerLoopConfig config) {
+        Objects.requireNonNull(splittableProcessor, "splittableProcessor");
+        return new ModuleWorkerLoop<>(messageClass, null, null, null, splittableProcessor, engineClient, config);
+    }
+
+    private ModuleWorkerLoop(Class<T> messageClass,
+                             ModuleProcessor<T> processor,
+                             BatchModuleProcessor<T> batchProcessor,
+                             AsyncModuleProcessor<T> asyncProcessor,
+                             SplittableModuleProcessor<T, ?> splittableProcessor,
+                             ModuleWorkEngineClient engineClient,
+                             WorkerLoopConfig config) {
+        this.config = Objects.requireNonNull(config, "config");
+        this.cpuPool = CpuBoundExecutor.fromConfig(config);
+        // Batch workers process through processBatch, which the cache
+        // doesn't front.
+        this.idempotencyCache = batchProcessor == null ? IdempotencyCache.fromConfig(config) : null;
+        this.affinityHints = AffinityHints.fromConfig(config);
+        // Split/merge stay on the worker thread; only the parts go to a pool.
+        this.splitExecutor = splittableProcessor == null ? null : SplitExecutor.fromConfig(config, cpuPool);
+        if (splitExecutor != null) {
+            this.processor = splitExecutor.wrap(splittableProcessor);
+        } else {
+            this.processor = cpuPool == null ? processor : cpuPool.wrapProcessor(processor);
+        }
+        this.batchProcessor = cpuPool == null || batchProcessor == null
+                ? batchProcessor
+                : cpuPool.wrapBatch(batchProcessor);
+        this.asyncProcessor = asyncProcessor;
         this.codec = new PayloadCodec<>(Objects.requireNonNull(messageClass, "messageClass"));
         this.engineClient = Objects.requireNonNull(engineClient, "engineClient");
-        this.config = Objects.requireNonNull(config, "config");
         int max = Math.max(1, config.concurrency());
         int min = Math.max(1, Math.min(config.minConcurrency(), max));
         this.minWorkers = min;
         this.maxWorkers = max;
+        this.prefetchCredits = Math.max(0, config.prefetchCredits());
+        this.maxBatchSize = Math.max(1, config.maxBatchSize());
+        this.maxBatchDelayNanos = Math.max(0L, config.maxBatchDelay().toNanos());
+        this.limiter = ConcurrencyLimiter.fromConfig(config, min, max);
+        this.pressure = ResourcePressure.fromConfig(config);
+        this.longPoll = switch (config.idleMode().trim().toLowerCase(Locale.ROOT)) {
+            case "poll" -> false;
+            case WorkStreamSession.LONG_POLL -> true;
+            default -> throw new IllegalArgumentException(
+                    "Unknown pipestream.module.worker-loop.idle-mode '" + config.idleMode()
+                            + "' (expected poll or long-poll)");
+        };
+    }
+
+    /**
+     * Replace the configured {@link ConcurrencyLimiter} with a custom one.
+     * Call before {@link #onStart}; the limiter sees every processed unit
+     * and its {@link ConcurrencyLimiter#limit()} is clamped to the
+     * configured minimum and maximum.
+     */
+    public void useConcurrencyLimiter(ConcurrencyLimiter limiter) {
+        this.limiter = Objects.requireNonNull(limiter, "limiter");
+    }
+
+    /**
+     * Replace the configured {@link ResourcePressure} tracker ({@code null}:
+     * never throttle). Call before {@link #onStart}; for tests.
+     */
+    void useResourcePressure(ResourcePressure pressure) {
+        this.pressure = pressure;
+    }
+
+    /**
+     * Publish phase timers, worker gauges, {@code NoWorkAvailable} /
+     * stream-error counters and payload-size summaries to
+     * {@code registry} (see {@link WorkerLoopMetrics} for the meter
+     * names). Call once, before {@link #onStart}; without it the loop
+     * records nothing beyond {@link #snapshot()}.
+     */
+    public void useMeterRegistry(MeterRegistry registry) {
+        WorkerLoopMetrics m = new WorkerLoopMetrics(registry, config.moduleId());
+        m.registerWorkerGauge("active", activeWorkers::get);
+        m.registerWorkerGauge("min", () -> minWorkers);
+        m.registerWorkerGauge("max", () -> maxWorkers);
+        m.registerWorkerGauge("limit", this::targetWorkers);
+        if (cpuPool != null) {
+            cpuPool.useMetrics(m);
+        }
+        if (splitExecutor != null) {
+            splitExecutor.useMetrics(m);
+        }
+        ResourcePressure p = pressure;
+        if (p != null) {
+            m.registerPressureGauge("heap_after_gc", () -> p.reading().heapAfterGc());
+            m.registerPressureGauge("direct_memory", () -> p.reading().directMemory());
+            m.registerPressureGauge("gc_time", () -> p.reading().gcTime());
+            m.registerPressureGauge("cpu_load", () -> p.reading().cpuLoad());
+            m.registerPressureGauge("throttle", () -> p.throttle().ordinal());
+        }
+        if (idempotencyCache != null) {
+            m.registerIdempotencyGauge("entries", idempotencyCache::size);
+            m.registerIdempotencyGauge("bytes", idempotencyCache::bytes);
+        }
+        this.metrics = m;
+    }
+
+    /**
+     * Draw workers above the minimum from {@code budget}, shared with the
+     * other loops hosted in this JVM. Call once, before {@link #onStart}.
+     *
+     * @throws IllegalStateException if the budget can't reserve this
+     *         loop's minimum workers
+     */
+    public void useWorkerBudget(WorkerBudget budget) {
+        Objects.requireNonNull(budget, "budget");
+        if (this.budget != null) {
+            throw new IllegalStateException("Module " + config.moduleId() + " already uses a worker budget");
+        }
+        this.budget = budget.join(config.moduleId(), minWorkers, maxWorkers, activeWorkers);
+    }
+
+    /**
+     * Warm up {@code process()} on {@code samples}, cycling through them,
+     * before the first stream is opened. Call before {@link #onStart}.
+     */
+    public void useWarmup(List<T> samples) {
+        List<T> inputs = List.copyOf(samples);
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("warm-up needs at least one sample input");
+        }
+        AtomicInteger next = new AtomicInteger();
+        useWarmup(() -> inputs.get(Math.floorMod(next.getAndIncrement(), inputs.size())));
+    }
+
+    /**
+     * Warm up {@code process()} on inputs from {@code generator}, called
+     * once per iteration, before the first stream is opened. Use a
+     * generator to vary document sizes and shapes the way production
+     * traffic does. Call before {@link #onStart}.
+     */
+    public void useWarmup(Supplier<T> generator) {
+        this.warmupInputs = Objects.requireNonNull(generator, "generator");
+    }
+
+    /**
+     * The affinity keys this loop advertises on every stream it opens.
+     * Add a key when the processor loads something worth routing for and
+     * remove it when that is evicted; see {@link AffinityHints}.
+     */
+    public AffinityHints affinityHints() {
+        return affinityHints;
     }
 
     public void onStart(@Observes StartupEvent event) {
@@ -74,14 +400,34 @@ public final class ModuleWorkerLoop<T extends Message> {
             return;
         }
         running.set(true);
+        WorkerLoopReadinessCheck.register(this);
         String namePrefix = "worker-" + config.moduleId() + "-";
-        for (int i = 0; i < minWorkers; i++) {
-            startWorker(namePrefix);
+        Supplier<T> warmup = warmupInputs;
+        if (warmup == null) {
+            startMinWorkers(namePrefix);
+        } else {
+            // Off the startup thread: readiness, not startup, waits for it.
+            warmingUp = true;
+            Thread.ofVirtual().name(namePrefix + "warmup").start(() -> {
+                try {
+                    warmUp(warmup);
+                } finally {
+                    warmingUp = false;
+                    if (running.get()) {
+                        startMinWorkers(namePrefix);
+                    }
+                }
+            });
         }
         LOG.infof("ModuleWorkerLoop started: module=%s workers=%d..%d "
-                        + "idlePoll=%s heartbeat=%s payloadType=%s",
+                        + "idlePoll=%s idleMode=%s processExecutor=%s heartbeat=%s unitsPerStream=%d prefetch=%d limiter=%s payloadType=%s",
                 config.moduleId(), minWorkers, maxWorkers,
-                config.noWorkRetryAfter(), config.heartbeatInterval(),
+                config.noWorkRetryAfter(), longPoll ? WorkStreamSession.LONG_POLL : "poll",
+                (cpuPool == null ? CpuBoundExecutor.VIRTUAL : CpuBoundExecutor.CPU_BOUND + "(" + cpuPool.threads() + ")")
+                        + (splitExecutor == null ? "" : " split(" + splitExecutor.parallelism() + ")"),
+                config.heartbeatInterval(),
+                Math.max(1, config.maxUnitsPerStream()), prefetchCredits,
+                config.concurrencyLimiter(),
                 codec.messageClass().getSimpleName());
     }
 
@@ -90,16 +436,75 @@ public final class ModuleWorkerLoop<T extends Message> {
             return;
         }
         long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
-        while (activeWorkers.get() > 0 && System.nanoTime() < deadline) {
+        while ((activeWorkers.get() > 0 || asyncInFlight() > 0) && System.nanoTime() < deadline) {
             sleepInterruptibly(Duration.ofMillis(50));
         }
-        LOG.infof("ModuleWorkerLoop stopped: sessions=%d stream-errors=%d activeWorkers=%d",
-                sessionsCompleted.get(), streamErrors.get(), activeWorkers.get());
+        WorkerBudget.Member member = budget;
+        if (member != null) {
+            member.leave();
+        }
+        WorkerLoopReadinessCheck.deregister(this);
+        if (splitExecutor != null) {
+            splitExecutor.shutdown();
+        }
+        if (cpuPool != null) {
+            cpuPool.shutdown();
+        }
+        LOG.infof("ModuleWorkerLoop stopped: sessions=%d units=%d stream-errors=%d activeWorkers=%d",
+                sessionsCompleted.get(), unitsCompleted.get(), streamErrors.get(), activeWorkers.get());
+    }
+
+    private void startMinWorkers(String namePrefix) {
+        for (int i = 0; i < minWorkers; i++) {
+            startWorker(namePrefix);
+        }
+    }
+
+    /**
+     * Run the pack → unpack → {@code process()} → pack round trip a unit
+     * takes on the module side, on generated inputs, until the configured
+     * iteration count or duration is reached or the loop stops. Failures
+     * are counted, not fatal: warm-up inputs are only there to be run.
+     */
+    private void warmUp(Supplier<T> inputs) {
+        int maxIterations = config.warmupIterations();
+        long durationNanos = config.warmupDuration().toNanos();
+        if (maxIterations <= 0 && durationNanos <= 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        int iterations = 0;
+        int failures = 0;
+        while (running.get()
+                && (maxIterations <= 0 || iterations < maxIterations)
+                && (durationNanos <= 0 || System.nanoTime() - start < durationNanos)) {
+            iterations++;
+            try {
+                T input = codec.unpack(codec.pack(inputs.get()));
+                codec.pack(processor.process(input));
+            } catch (Exception e) {
+                failures++;
+                LOG.debugf(e, "Warm-up iteration %d failed", iterations);
+            }
+        }
+        Duration took = Duration.ofNanos(System.nanoTime() - start);
+        if (failures == iterations && iterations > 0) {
+            LOG.warnf("ModuleWorkerLoop warm-up for module %s: all %d iterations failed in %s; "
+                    + "check the warm-up inputs", config.moduleId(), iterations, took);
+        } else {
+            LOG.infof("ModuleWorkerLoop warm-up for module %s: %d iterations (%d failed) in %s",
+                    config.moduleId(), iterations, failures, took);
+        }
     }
 
     private void startWorker(String namePrefix) {
-        int slot = activeWorkers.incrementAndGet();
-        if (slot > maxWorkers) {
+        WorkerBudget.Member member = budget;
+        int slot = member == null ? activeWorkers.incrementAndGet() : member.admit();
+        if (slot < 0) {
+            metrics.recordBudgetDenied();
+            return;
+        }
+        if (slot > targetWorkers()) {
             activeWorkers.decrementAndGet();
             return;
         }
@@ -118,7 +523,12 @@ public final class ModuleWorkerLoop<T extends Message> {
     }
 
     private void tryRampUp() {
-        if (activeWorkers.get() >= maxWorkers) {
+        if (asyncProcessor != null) {
+            // Async workers only dispatch; the target bounds their units
+            // in flight instead (see acquireAsyncSlot).
+            return;
+        }
+        if (activeWorkers.get() >= targetWorkers() || throttle() != ResourcePressure.Throttle.NONE) {
             return;
         }
         String namePrefix = "worker-" + config.moduleId() + "-";
@@ -136,74 +546,552 @@ public final class ModuleWorkerLoop<T extends Message> {
     private boolean runWorker() {
         BackoffSchedule backoff = new BackoffSchedule(
                 config.reconnectInitialDelay(), config.reconnectMaxDelay());
+        if (batchProcessor != null) {
+            return runBatchingWorker(backoff);
+        }
+        if (asyncProcessor != null) {
+            return runAsyncWorker(backoff);
+        }
+        if (prefetchCredits > 0) {
+            return runPrefetchingWorker(backoff);
+        }
         while (running.get()) {
-            WorkStreamSession<T> session = new WorkStreamSession<>(
-                    engineClient.stub(), processor, codec, config);
+            WorkStreamSession<T> session = newSession();
             WorkStreamSession.Outcome outcome = session.run();
-            Duration suggestedNoWorkRetry = session.suggestedNoWorkRetry();
-            sessionsCompleted.incrementAndGet();
-            switch (outcome) {
-                case SUCCESS, FAILED_BY_MODULE -> {
-                    backoff.reset();
-                    tryRampUp();
-                }
-                case NO_WORK_AVAILABLE -> {
-                    backoff.reset();
-                    // Atomic check-and-decrement: only this worker
-                    // exits if doing so still leaves >= minWorkers
-                    // alive. Plain `get() > min` + finally-decrement
-                    // races when many workers see NO_WORK at once —
-                    // all read the same value, all decide to exit,
-                    // all decrement, leaving zero workers and a dead
-                    // module until restart.
-                    int prev = activeWorkers.getAndUpdate(
-                            n -> n > minWorkers ? n - 1 : n);
-                    if (prev > minWorkers) {
+            if (afterSession(outcome, session, backoff)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Pipelined worker body for {@link WorkerLoopConfig#prefetchCredits()}
+     * above zero. While one unit is in {@code process}, up to
+     * {@code prefetchCredits} further sessions are already open on virtual
+     * threads, each holding a fetched and decoded unit. Units are
+     * processed and acked strictly in the order they were requested.
+     *
+     * <p>The pipeline is only topped up after a unit actually arrived, so
+     * an idle worker still holds a single polling stream. Anything still
+     * in the pipeline when the worker exits is released back to the engine.
+     * Same return contract as {@link #runWorker()}.
+     */
+    private boolean runPrefetchingWorker(BackoffSchedule backoff) {
+        Deque<CompletableFuture<WorkStreamSession<T>>> pipeline = new ArrayDeque<>();
+        try {
+            while (running.get()) {
+                if (pipeline.isEmpty()) {
+                    pipeline.add(prefetchAsync());
+                }
+                WorkStreamSession<T> session = pipeline.poll().join();
+                if (session.hasPrefetchedUnit()) {
+                    while (pipeline.size() < prefetchCredits && running.get()) {
+                        pipeline.add(prefetchAsync());
+                    }
+                }
+                WorkStreamSession.Outcome outcome = session.run();
+                if (outcome == WorkStreamSession.Outcome.NO_WORK_AVAILABLE && !pipeline.isEmpty()) {
+                    // A credit requested earlier is still outstanding on the
+                    // engine; it is the next poll, so don't sleep or ramp down.
+                    sessionsCompleted.incrementAndGet();
+                    continue;
+                }
+                if (afterSession(outcome, session, backoff)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            for (CompletableFuture<WorkStreamSession<T>> pending : pipeline) {
+                pending.thenAccept(s -> s.release("worker stopped before processing; released for redelivery"));
+            }
+        }
+    }
+
+    /**
+     * Async worker body. Fetches a unit, starts its stage with
+     * {@link #dispatch} and goes straight on to the next, once a slot is
+     * free among the {@link #targetWorkers()} units allowed in flight.
+     * Units the session finishes without the processor (no work, a
+     * payload that didn't decode, a cached redelivery) are run on this
+     * thread. Same return contract as {@link #runWorker()}.
+     */
+    private boolean runAsyncWorker(BackoffSchedule backoff) {
+        while (running.get()) {
+            if (!acquireAsyncSlot()) {
+                return false;
+            }
+            WorkStreamSession<T> session = newSession();
+            T input = session.prefetch() ? session.prefetchedInput() : null;
+            if (input == null || session.heldUnitCached()) {
+                releaseAsyncSlot();
+                if (afterSession(session.run(), session, backoff)) {
+                    return true;
+                }
+                continue;
+            }
+            dispatch(session, input);
+            backoff.reset();
+        }
+        return false;
+    }
+
+    /**
+     * Start {@code input}'s stage and return at once. Its completion acks
+     * the held unit, waits for the confirmation and frees the slot on a
+     * virtual thread of its own, so no thread is held while it is pending.
+     */
+    private void dispatch(WorkStreamSession<T> session, T input) {
+        long startNanos = System.nanoTime();
+        CompletionStage<T> stage;
+        try {
+            stage = asyncProcessor.processAsync(input);
+            if (stage == null) {
+                throw new IllegalStateException("processAsync returned null");
+            }
+        } catch (RuntimeException e) {
+            stage = CompletableFuture.failedFuture(e);
+        }
+        stage.whenCompleteAsync((output, failure) -> {
+            try {
+                session.sendResult(asyncResult(output, failure), System.nanoTime() - startNanos);
+                sessionsCompleted.incrementAndGet();
+                if (session.awaitConfirmation() == WorkStreamSession.Outcome.STREAM_ERROR) {
+                    streamErrors.incrementAndGet();
+                }
+            } finally {
+                releaseAsyncSlot();
+            }
+        }, ASYNC_ACK_EXECUTOR);
+    }
+
+    /** Map a completed stage the way {@link AsyncModuleProcessor#awaiting} does. */
+    private static <T extends Message> BatchModuleProcessor.Result<T> asyncResult(T output, Throwable failure) {
+        if (failure == null) {
+            return output == null
+                    ? BatchModuleProcessor.Result.retryableFailure("processAsync completed with null")
+                    : BatchModuleProcessor.Result.success(output);
+        }
+        Throwable cause = failure;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof ModuleProcessor.PermanentFailure pf) {
+            return BatchModuleProcessor.Result.permanentFailure(pf.getMessage());
+        }
+        if (cause instanceof CancellationException) {
+            return BatchModuleProcessor.Result.retryableFailure("processAsync stage was cancelled");
+        }
+        LOG.warnf(cause, "Retryable async module failure");
+        return BatchModuleProcessor.Result.retryableFailure(
+                cause.getMessage() == null ? cause.getClass().getSimpleName() : cause.getMessage());
+    }
+
+    /**
+     * Wait for a free in-flight slot; {@code false} once the loop stops.
+     * The wait is sliced because the target moves with the limiter and
+     * resource pressure without anyone signalling.
+     */
+    private boolean acquireAsyncSlot() {
+        asyncLock.lock();
+        try {
+            while (asyncInFlight >= targetWorkers()) {
+                if (!running.get()) {
+                    return false;
+                }
+                asyncUnitDone.await(100, TimeUnit.MILLISECONDS);
+            }
+            asyncInFlight++;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            asyncLock.unlock();
+        }
+    }
+
+    private void releaseAsyncSlot() {
+        asyncLock.lock();
+        try {
+            asyncInFlight--;
+            asyncUnitDone.signal();
+        } finally {
+            asyncLock.unlock();
+        }
+    }
+
+    /** Async units dispatched and not yet acked. */
+    int asyncInFlight() {
+        asyncLock.lock();
+        try {
+            return asyncInFlight;
+        } finally {
+            asyncLock.unlock();
+        }
+    }
+
+    /**
+     * Batch-mode worker body. Waits for one unit, then keeps up to
+     * {@code maxBatchSize - 1} further prefetches outstanding and takes
+     * every unit that arrives within {@code maxBatchDelay} of the first.
+     * Prefetches still outstanding at the deadline carry over to the next
+     * batch rather than being cancelled. A fill that finds no work pauses
+     * further fills for the engine's {@code retry_after_ms}. Every held
+     * unit stays heartbeated until its ack goes out. Same return contract
+     * as {@link #runWorker()}.
+     */
+    private boolean runBatchingWorker(BackoffSchedule backoff) {
+        Deque<CompletableFuture<WorkStreamSession<T>>> pending = new ArrayDeque<>();
+        long fillResumeAt = System.nanoTime();
+        try {
+            while (running.get()) {
+                if (pending.isEmpty()) {
+                    pending.add(prefetchAsync());
+                }
+                WorkStreamSession<T> head = pending.poll().join();
+                if (!head.hasPrefetchedUnit()) {
+                    WorkStreamSession.Outcome outcome = head.run();
+                    if (outcome == WorkStreamSession.Outcome.NO_WORK_AVAILABLE && !pending.isEmpty()) {
+                        sessionsCompleted.incrementAndGet();
+                        continue;
+                    }
+                    if (afterSession(outcome, head, backoff)) {
                         return true;
                     }
-                    Duration wait = suggestedNoWorkRetry;
-                    if (wait.isZero() || wait.isNegative()) {
-                        wait = config.noWorkRetryAfter();
+                    continue;
+                }
+
+                List<WorkStreamSession<T>> batch = new ArrayList<>(maxBatchSize);
+                batch.add(head);
+                // Top up only while the fills are finding work: after one
+                // comes back NoWorkAvailable or fails, hold off for the
+                // engine's retry_after_ms (or the backoff), as the
+                // single-unit path does, instead of re-polling every batch.
+                if (System.nanoTime() - fillResumeAt >= 0) {
+                    while (pending.size() < maxBatchSize - 1 && running.get()) {
+                        pending.add(prefetchAsync());
+                    }
+                }
+                long deadline = System.nanoTime() + maxBatchDelayNanos;
+                Iterator<CompletableFuture<WorkStreamSession<T>>> it = pending.iterator();
+                while (batch.size() < maxBatchSize && it.hasNext()) {
+                    WorkStreamSession<T> next = awaitPrefetch(it.next(), deadline - System.nanoTime());
+                    if (next == null) {
+                        continue;
+                    }
+                    it.remove();
+                    if (next.hasPrefetchedUnit()) {
+                        batch.add(next);
+                    } else {
+                        // NoWork or a failed stream: nothing to batch.
+                        sessionsCompleted.incrementAndGet();
+                        WorkStreamSession.Outcome outcome = next.run();
+                        if (outcome == WorkStreamSession.Outcome.STREAM_ERROR) {
+                            streamErrors.incrementAndGet();
+                            fillResumeAt = System.nanoTime() + backoff.next().toNanos();
+                        } else if (outcome == WorkStreamSession.Outcome.NO_WORK_AVAILABLE) {
+                            Duration wait = next.suggestedNoWorkRetry();
+                            if (wait.isZero() || wait.isNegative()) {
+                                wait = config.noWorkRetryAfter();
+                            }
+                            fillResumeAt = System.nanoTime() + wait.toNanos();
+                        }
                     }
-                    sleepInterruptibly(wait);
                 }
-                case STREAM_ERROR -> {
+                try {
+                    processBatch(batch);
+                } catch (RuntimeException e) {
+                    // processBatch has already released the batch; keep the
+                    // worker (and the units behind it) alive.
+                    LOG.errorf(e, "Batch of %d units failed for module %s", batch.size(), config.moduleId());
+                    continue;
+                }
+                backoff.reset();
+                if (shedIfOverTarget()) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            for (CompletableFuture<WorkStreamSession<T>> f : pending) {
+                f.thenAccept(s -> s.release("worker stopped before processing; released for redelivery"));
+            }
+        }
+    }
+
+    /**
+     * Run one {@link BatchModuleProcessor#processBatch} call over the
+     * held units and ack each one. Units whose payload didn't decode are
+     * left out of the batch and acked as permanent failures by their own
+     * session. Items the processor returned no result for are acked as
+     * retryable failures, and any session still open when this returns,
+     * normally or not, is released back to the engine.
+     */
+    private void processBatch(List<WorkStreamSession<T>> batch) {
+        List<WorkStreamSession<T>> open = new ArrayList<>(batch);
+        try {
+            List<WorkStreamSession<T>> decoded = new ArrayList<>(batch.size());
+            List<T> inputs = new ArrayList<>(batch.size());
+            for (WorkStreamSession<T> session : batch) {
+                T input = session.prefetchedInput();
+                if (input == null) {
+                    sessionsCompleted.incrementAndGet();
+                    open.remove(session);
+                    session.run();
+                } else {
+                    decoded.add(session);
+                    inputs.add(input);
+                }
+            }
+            if (decoded.isEmpty()) {
+                return;
+            }
+
+            List<BatchModuleProcessor.Result<T>> results;
+            long startNanos = System.nanoTime();
+            try {
+                results = batchProcessor.processBatch(List.copyOf(inputs));
+                if (results == null || results.size() != inputs.size()) {
+                    String message = "processBatch returned " + (results == null ? "null" : results.size())
+                            + " results for " + inputs.size() + " inputs";
+                    LOG.warn(message);
+                    results = Collections.nCopies(inputs.size(),
+                            BatchModuleProcessor.Result.retryableFailure(message));
+                }
+            } catch (ModuleProcessor.PermanentFailure pf) {
+                results = Collections.nCopies(inputs.size(),
+                        BatchModuleProcessor.Result.permanentFailure(pf.getMessage()));
+            } catch (RuntimeException retryable) {
+                LOG.warnf(retryable, "Retryable module failure for a batch of %d units", inputs.size());
+                results = Collections.nCopies(inputs.size(),
+                        BatchModuleProcessor.Result.retryableFailure(retryable.getMessage() == null
+                                ? retryable.getClass().getSimpleName()
+                                : retryable.getMessage()));
+            }
+
+            // Send every ack first, then collect confirmations, so the batch
+            // pays one engine round trip rather than one per unit.
+            long batchNanos = System.nanoTime() - startNanos;
+            for (int i = 0; i < decoded.size(); i++) {
+                BatchModuleProcessor.Result<T> result = results.get(i);
+                if (result == null) {
+                    String message = "processBatch returned no result for item " + i;
+                    LOG.warn(message);
+                    result = BatchModuleProcessor.Result.retryableFailure(message);
+                }
+                decoded.get(i).sendResult(result, batchNanos);
+            }
+            for (WorkStreamSession<T> session : decoded) {
+                sessionsCompleted.incrementAndGet();
+                open.remove(session);
+                if (session.awaitConfirmation() == WorkStreamSession.Outcome.STREAM_ERROR) {
                     streamErrors.incrementAndGet();
-                    // A stream error is CALL-scoped: this one bidi Work
-                    // stream aborted (engine watchdog close, a slow/missed
-                    // first response, a transient transport blip). It does
-                    // NOT mean the shared channel is bad. We deliberately do
-                    // NOT tear the channel down here.
-                    //
-                    // The channel is an @ApplicationScoped singleton reused by
-                    // every worker virtual thread (HTTP/2 multiplexing). A
-                    // ManagedChannel.shutdownNow() cancels ALL in-flight calls
-                    // on it — so one worker's stream error would cancel every
-                    // sibling's in-flight Work stream, each of which then
-                    // reports STREAM_ERROR and reconnects in turn: a
-                    // self-amplifying cancellation storm. Under load that storm
-                    // re-served the same work unit fast enough to exhaust the
-                    // engine's per-record redelivery cap, quarantining a
-                    // perfectly good document (observed: 999/1000 at a terminal
-                    // node). See SharedModuleWorkEngineClient.
-                    //
-                    // gRPC's ManagedChannel already re-resolves and reconnects
-                    // the transport on its own with backoff, and
-                    // SharedModuleWorkEngineClient.channel() rebuilds a
-                    // terminated channel lazily on the next stub() call, so a
-                    // genuinely-dead channel still recovers without us forcing
-                    // it. Here we just back off and open a fresh stream on the
-                    // same channel.
-                    Duration wait = backoff.next();
-                    LOG.warnf("Stream error; backing off %s before retry "
-                            + "(total stream-errors=%d)", wait, streamErrors.get());
-                    sleepInterruptibly(wait);
                 }
             }
+        } finally {
+            for (WorkStreamSession<T> session : open) {
+                session.abandon("batch ended before this unit was acked; released for redelivery");
+            }
+        }
+    }
+
+    /**
+     * Wait up to {@code remainingNanos} for a prefetch; {@code null} if it
+     * is still outstanding (it stays queued for the next batch).
+     */
+    private WorkStreamSession<T> awaitPrefetch(CompletableFuture<WorkStreamSession<T>> f, long remainingNanos) {
+        if (remainingNanos <= 0) {
+            return f.getNow(null);
+        }
+        try {
+            return f.get(remainingNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            // prefetch() never throws; a failed future would be a bug here.
+            throw new IllegalStateException("prefetch failed", e.getCause());
+        }
+    }
+
+    /**
+     * Single-unit view of a batch processor. Sessions always carry a
+     * {@link ModuleProcessor}; batch workers finish held units through
+     * {@link #processBatch} instead, so this only backs units that are
+     * run on their own.
+     */
+    private static <T extends Message> ModuleProcessor<T> singleItem(BatchModuleProcessor<T> batch) {
+        return input -> {
+            BatchModuleProcessor.Result<T> result = batch.processBatch(List.of(input)).get(0);
+            return switch (result.status()) {
+                case SUCCESS -> result.output();
+                case PERMANENT_FAILURE -> throw new ModuleProcessor.PermanentFailure(result.errorMessage());
+                case RETRYABLE_FAILURE -> throw new IllegalStateException(result.errorMessage());
+            };
+        };
+    }
+
+    private CompletableFuture<WorkStreamSession<T>> prefetchAsync() {
+        WorkStreamSession<T> session = newSession();
+        return CompletableFuture.supplyAsync(() -> {
+            session.prefetch();
+            return session;
+        }, PREFETCH_EXECUTOR);
+    }
+
+    /**
+     * The limiter's target, clamped to the configured worker range and,
+     * with a {@link WorkerBudget}, to this module's current ceiling in it
+     * and, in {@code cpu-bound} mode, to the pool's capacity. The minimum
+     * while {@link ResourcePressure} says to shed.
+     */
+    private int targetWorkers() {
+        if (throttle() == ResourcePressure.Throttle.SHED) {
+            return minWorkers;
+        }
+        WorkerBudget.Member member = budget;
+        int ceiling = member == null ? maxWorkers : Math.min(maxWorkers, member.ceiling());
+        if (cpuPool != null) {
+            ceiling = Math.min(ceiling, cpuPool.capacity());
+        }
+        return Math.max(minWorkers, Math.min(ceiling, limiter.limit()));
+    }
+
+    private ResourcePressure.Throttle throttle() {
+        ResourcePressure p = pressure;
+        return p == null ? ResourcePressure.Throttle.NONE : p.throttle();
+    }
+
+    /**
+     * Exit this worker if the limiter's target has dropped below the live
+     * worker count. Same atomic check-and-decrement as the
+     * {@code NoWorkAvailable} ramp-down, so concurrent workers can't all
+     * shed at once. Returns {@code true} if this worker must exit.
+     */
+    private boolean shedIfOverTarget() {
+        int target = targetWorkers();
+        int prev = activeWorkers.getAndUpdate(n -> n > target ? n - 1 : n);
+        return prev > target;
+    }
+
+    private WorkStreamSession<T> newSession() {
+        WorkStreamSession<T> session = new WorkStreamSession<>(
+                engineClient.stub(), processor, codec, config, this::onUnitCompleted, metrics);
+        // Only the workers that would stay on an empty queue park; the
+        // rest ramp down on NoWorkAvailable as usual.
+        if (longPoll && activeWorkers.get() <= minWorkers) {
+            session.parkOnNoWork(running::get);
+        }
+        if (idempotencyCache != null) {
+            session.useIdempotencyCache(idempotencyCache);
+        }
+        session.advertiseAffinity(affinityHints);
+        return session;
+    }
+
+    /**
+     * Apply one finished session's outcome: reset or advance the backoff,
+     * ramp down or sleep on an empty queue. Returns {@code true} if this
+     * worker ramped down (see {@link #runWorker()}).
+     */
+    private boolean afterSession(WorkStreamSession.Outcome outcome,
+                                 WorkStreamSession<T> session,
+                                 BackoffSchedule backoff) {
+        sessionsCompleted.incrementAndGet();
+        switch (outcome) {
+            case SUCCESS, FAILED_BY_MODULE -> {
+                backoff.reset();
+                if (shedIfOverTarget()) {
+                    return true;
+                }
+            }
+            case NO_WORK_AVAILABLE -> {
+                backoff.reset();
+                // Atomic check-and-decrement: only this worker
+                // exits if doing so still leaves >= minWorkers
+                // alive. Plain `get() > min` + finally-decrement
+                // races when many workers see NO_WORK at once —
+                // all read the same value, all decide to exit,
+                // all decrement, leaving zero workers and a dead
+                // module until restart.
+                int prev = activeWorkers.getAndUpdate(
+                        n -> n > minWorkers ? n - 1 : n);
+                if (prev > minWorkers) {
+                    return true;
+                }
+                if (session.longPollDeclined() && longPoll) {
+                    longPoll = false;
+                    LOG.infof("Engine did not accept long-poll idle mode for module %s; "
+                            + "falling back to polling every %s", config.moduleId(), config.noWorkRetryAfter());
+                }
+                if (session.parked()) {
+                    // Parked the full long-poll timeout on a live stream:
+                    // recycle it straight away, there is nothing to back off from.
+                    return false;
+                }
+                Duration wait = session.suggestedNoWorkRetry();
+                if (wait.isZero() || wait.isNegative()) {
+                    wait = config.noWorkRetryAfter();
+                }
+                sleepInterruptibly(wait);
+            }
+            case STREAM_ERROR -> {
+                streamErrors.incrementAndGet();
+                // A stream error is CALL-scoped: this one bidi Work
+                // stream aborted (engine watchdog close, a slow/missed
+                // first response, a transient transport blip). It does
+                // NOT mean the shared channel is bad. We deliberately do
+                // NOT tear the channel down here.
+                //
+                // The channel is an @ApplicationScoped singleton reused by
+                // every worker virtual thread (HTTP/2 multiplexing). A
+                // ManagedChannel.shutdownNow() cancels ALL in-flight calls
+                // on it — so one worker's stream error would cancel every
+                // sibling's in-flight Work stream, each of which then
+                // reports STREAM_ERROR and reconnects in turn: a
+                // self-amplifying cancellation storm. Under load that storm
+                // re-served the same work unit fast enough to exhaust the
+                // engine's per-record redelivery cap, quarantining a
+                // perfectly good document (observed: 999/1000 at a terminal
+                // node). See SharedModuleWorkEngineClient.
+                //
+                // gRPC's ManagedChannel already re-resolves and reconnects
+                // the transport on its own with backoff, and
+                // SharedModuleWorkEngineClient rebuilds a terminated
+                // pool channel lazily on the next stub() that picks it, so a
+                // genuinely-dead channel still recovers without us forcing
+                // it. Here we just back off and open a fresh stream on the
+                // same channel.
+                Duration wait = backoff.next();
+                LOG.warnf("Stream error; backing off %s before retry "
+                        + "(total stream-errors=%d)", wait, streamErrors.get());
+                sleepInterruptibly(wait);
+            }
         }
         return false;
     }
 
+    /**
+     * Per-unit hook from {@link WorkStreamSession}: every unit the engine
+     * confirmed (success or module-reported failure) proves there is work
+     * queued, so feed its latency to the limiter and try to add one more
+     * worker (up to the limiter's target).
+     */
+    private void onUnitCompleted(WorkStreamSession.Outcome outcome, long processNanos) {
+        unitsCompleted.incrementAndGet();
+        if (processNanos > 0) {
+            // 0 is a unit that never reached process() (answered from
+            // the idempotency cache, or its payload didn't decode): no
+            // latency to learn from.
+            limiter.onSample(processNanos);
+        }
+        tryRampUp();
+    }
+
     private void sleepInterruptibly(Duration d) {
         if (d.isZero() || d.isNegative()) {
             return;
@@ -222,7 +1110,17 @@ public final class ModuleWorkerLoop<T extends Message> {
             int minWorkers,
             int maxWorkers,
             int sessionsCompleted,
-            int streamErrors) {}
+            int unitsCompleted,
+            int streamErrors,
+            int concurrencyLimit,
+            ConcurrencyLimiter.Decision lastLimitDecision,
+            ResourcePressure.Reading pressure,
+            boolean warmingUp) {}
+
+    /** The {@link WorkerLoopConfig#moduleId()} this loop pulls work for. */
+    public String moduleId() {
+        return config.moduleId();
+    }
 
     public Snapshot snapshot() {
         return new Snapshot(
@@ -231,6 +1129,11 @@ public final class ModuleWorkerLoop<T extends Message> {
                 minWorkers,
                 maxWorkers,
                 sessionsCompleted.get(),
-                streamErrors.get());
+                unitsCompleted.get(),
+                streamErrors.get(),
+                targetWorkers(),
+                limiter.lastDecision(),
+                pressure == null ? ResourcePressure.Reading.UNTHROTTLED : pressure.reading(),
+                warmingUp);
     }
 }
@@ -0,0 +1,248 @@
+package ai.pipestream.module.runtime.work;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Chunked transfer encoding for {@code WorkUnit.payload} and
+ * {@code WorkAck.updated_payload}, enabled with
+ * {@link WorkerLoopConfig#chunkedPayloads()}.
+ *
+ * <p>A payload too large for one gRPC message is sent as a run of
+ * consecutive messages for the same {@code work_unit_id}, each carrying
+ * an {@link Any} whose type URL is {@link #TYPE_URL_PREFIX} followed by
+ * the payload's type name and whose value is, on the wire,
+ *
+ * <pre>
+ * message PayloadChunk {
+ *   string type_url = 1;    // the payload's own type URL; first frame only
+ *   uint64 total_size = 2;  // the payload's size in bytes; first frame only
+ *   uint32 index = 3;       // 0, 1, 2, ...
+ *   bool last = 4;
+ *   bytes data = 5;         // the next slice of the payload's value
+ * }
+ * </pre>
+ *
+ * <p>Only the message carrying the {@code last} frame completes the unit:
+ * the engine answers that ack with {@code AckConfirmed}, and the worker
+ * processes a unit once its last frame has arrived. Frames of one payload
+ * are never interleaved with another payload's on the same stream.
+ *
+ * <p>Neither side copies the payload: {@link #split} frames slices of the
+ * payload's {@link ByteString}, and an {@link Assembler} concatenates the
+ * received slices into a rope that the codec parses directly. A stream
+ * therefore never needs a message larger than one frame, and the
+ * channel's {@code max-inbound-message-size} can be sized for frames
+ * rather than for the largest document. What bounds the memory one
+ * payload may take is the {@link Assembler}'s limit
+ * ({@link WorkerLoopConfig#chunkMaxPayloadBytes()}), checked against the
+ * announced {@code total_size} before any data is kept.
+ */
+public final class PayloadChunks {
+
+    /** Type URL prefix marking one frame of a chunked payload. */
+    public static final String TYPE_URL_PREFIX = "type.pipestream.ai/chunk/";
+
+    private static final int TYPE_URL_FIELD = 1;
+    private static final int TOTAL_SIZE_FIELD = 2;
+    private static final int INDEX_FIELD = 3;
+    private static final int LAST_FIELD = 4;
+    private static final int DATA_FIELD = 5;
+
+    private PayloadChunks() {
+    }
+
+    /** @return {@code true} if {@code payload} is a frame produced by {@link #split} */
+    public static boolean isChunk(Any payload) {
+        return payload.getTypeUrl().startsWith(TYPE_URL_PREFIX);
+    }
+
+    /**
+     * Split {@code payload} into frames of at most {@code frameSize} value
+     * bytes each. A payload that fits in one frame still comes back as a
+     * single (last) frame; callers only split payloads above their
+     * threshold.
+     */
+    public static List<Any> split(Any payload, int frameSize) {
+        Objects.requireNonNull(payload, "payload");
+        if (frameSize < 1) {
+            throw new IllegalArgumentException("frameSize must be >= 1, got " + frameSize);
+        }
+        String typeUrl = payload.getTypeUrl();
+        String frameTypeUrl = TYPE_URL_PREFIX + typeUrl.substring(typeUrl.lastIndexOf('/') + 1);
+        ByteString value = payload.getValue();
+        int size = value.size();
+        int count = Math.max(1, (size + frameSize - 1) / frameSize);
+        List<Any> frames = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            int from = index * frameSize;
+            ByteString data = value.substring(from, Math.min(size, from + frameSize));
+            boolean last = index == count - 1;
+            frames.add(Any.newBuilder()
+                    .setTypeUrl(frameTypeUrl)
+                    .setValue(header(index == 0 ? typeUrl : null, size, index, last, data.size()).concat(data))
+                    .build());
+        }
+        return frames;
+    }
+
+    /**
+     * The frame's fields up to and including the tag and length of
+     * {@code data}, so the data slice can be appended without copying it.
+     */
+    private static ByteString header(String typeUrl, long totalSize, int index, boolean last, int dataLength) {
+        try {
+            ByteString.Output out = ByteString.newOutput(64 + (typeUrl == null ? 0 : typeUrl.length() * 3));
+            CodedOutputStream coded = CodedOutputStream.newInstance(out);
+            if (typeUrl != null) {
+                coded.writeString(TYPE_URL_FIELD, typeUrl);
+                coded.writeUInt64(TOTAL_SIZE_FIELD, totalSize);
+            }
+            coded.writeUInt32(INDEX_FIELD, index);
+            coded.writeBool(LAST_FIELD, last);
+            coded.writeTag(DATA_FIELD, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            coded.writeUInt32NoTag(dataLength);
+            coded.flush();
+            return out.toByteString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Thrown by {@link Assembler#accept} for a payload whose announced
+     * {@code total_size} is above the assembler's limit. Nothing of the
+     * payload has been buffered at that point.
+     */
+    public static final class PayloadTooLargeException extends InvalidProtocolBufferException {
+
+        PayloadTooLargeException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Reassembles the frames of one payload at a time, in order. Not
+     * thread-safe; a stream delivers its messages one at a time.
+     */
+    public static final class Assembler {
+
+        private final long maxPayloadBytes;
+        private String key;
+        private String typeUrl;
+        private long totalSize;
+        private int nextIndex;
+        private ByteString received = ByteString.EMPTY;
+
+        /**
+         * @param maxPayloadBytes largest payload accepted; a first frame
+         *                        announcing more is rejected before any
+         *                        data is buffered
+         */
+        public Assembler(long maxPayloadBytes) {
+            this.maxPayloadBytes = maxPayloadBytes;
+        }
+
+        /**
+         * Add the next frame of the payload identified by {@code key}
+         * (the work unit id).
+         *
+         * @return the reassembled payload once {@code frame} was its last
+         *         frame, otherwise {@code null}
+         * @throws PayloadTooLargeException if the first frame announces
+         *         more than the limit
+         * @throws InvalidProtocolBufferException if the frame is malformed,
+         *         out of order, belongs to a different payload than the one
+         *         in progress, or the sizes don't add up
+         */
+        public Any accept(String key, Any frame) throws InvalidProtocolBufferException {
+            CodedInputStream input = frame.getValue().newCodedInput();
+            input.enableAliasing(true);
+            String frameTypeUrl = null;
+            long frameTotalSize = -1;
+            int index = 0;
+            boolean last = false;
+            ByteString data = ByteString.EMPTY;
+            try {
+                int tag;
+                while ((tag = input.readTag()) != 0) {
+                    switch (WireFormat.getTagFieldNumber(tag)) {
+                        case TYPE_URL_FIELD -> frameTypeUrl = input.readStringRequireUtf8();
+                        case TOTAL_SIZE_FIELD -> frameTotalSize = input.readUInt64();
+                        case INDEX_FIELD -> index = input.readUInt32();
+                        case LAST_FIELD -> last = input.readBool();
+                        case DATA_FIELD -> data = input.readBytes();
+                        default -> input.skipField(tag);
+                    }
+                }
+            } catch (InvalidProtocolBufferException e) {
+                throw e;
+            } catch (IOException e) {
+                throw new InvalidProtocolBufferException(e);
+            }
+
+            if (index == 0) {
+                if (this.key != null) {
+                    throw mismatch("new payload for " + key + " before the last frame of " + this.key);
+                }
+                if (frameTypeUrl == null || frameTotalSize < 0) {
+                    throw mismatch("first frame of " + key + " lacks type_url or total_size");
+                }
+                if (frameTotalSize > maxPayloadBytes) {
+                    reset();
+                    throw new PayloadTooLargeException("chunked payload of " + key + " announces "
+                            + frameTotalSize + " bytes, which exceeds the " + maxPayloadBytes + " byte limit");
+                }
+                this.key = key;
+                this.typeUrl = frameTypeUrl;
+                this.totalSize = frameTotalSize;
+            } else if (!key.equals(this.key) || index != nextIndex) {
+                throw mismatch("frame " + index + " of " + key + " out of order (expected frame "
+                        + nextIndex + " of " + this.key + ")");
+            }
+            if (received.size() + (long) data.size() > totalSize) {
+                throw mismatch("frames of " + key + " exceed the announced " + totalSize + " bytes");
+            }
+            received = received.concat(data);
+            nextIndex = index + 1;
+            if (!last) {
+                return null;
+            }
+            if (received.size() != totalSize) {
+                throw mismatch("chunked payload of " + key + " ended at " + received.size()
+                        + " of " + totalSize + " bytes");
+            }
+            Any payload = Any.newBuilder().setTypeUrl(typeUrl).setValue(received).build();
+            reset();
+            return payload;
+        }
+
+        /** @return {@code true} while a payload has frames outstanding */
+        public boolean inProgress() {
+            return key != null;
+        }
+
+        private InvalidProtocolBufferException mismatch(String message) {
+            reset();
+            return new InvalidProtocolBufferException(message);
+        }
+
+        private void reset() {
+            key = null;
+            typeUrl = null;
+            totalSize = 0;
+            nextIndex = 0;
+            received = ByteString.EMPTY;
+        }
+    }
+}
@@ -1,16 +1,34 @@
 package ai.pipestream.module.runtime.work;
 
 import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.Internal;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
 
 import java.util.Objects;
 
 /**
- * Thin wrapper around {@link Any#pack} / {@link Any#unpack} that
- * captures the concrete message class at construction time so the
- * surrounding loop code doesn't have to pass {@code Class<T>} on every
- * call.
+ * Packs and unpacks the module's payload type to and from the
+ * {@link Any} carried on the wire, capturing the concrete message class
+ * at construction time so the surrounding loop code doesn't have to
+ * pass {@code Class<T>} on every call.
+ *
+ * <p>Everything {@link Any#pack} / {@link Any#unpack(Class)} work out per
+ * call — the default instance (a reflective lookup), the
+ * {@link Parser}, the type URL — is resolved once here. Unpacking parses
+ * straight from the {@code Any}'s {@link ByteString} with aliasing
+ * enabled, so {@code bytes} fields of the decoded message share the
+ * wire buffer instead of being copied out of it. That is safe because
+ * {@code ByteString}s are immutable, but it does mean a decoded message
+ * keeps the whole wire payload reachable for as long as one of its
+ * {@code bytes} fields is. Packing serialises into an exactly-sized
+ * buffer ({@link Message#toByteString()} presizes from the memoised
+ * serialized size) that becomes the {@code Any} value without a further
+ * copy.
  *
  * <p>Stateless after construction. Safe to share across threads.
  *
@@ -18,10 +36,20 @@ import java.util.Objects;
  */
 public final class PayloadCodec<T extends Message> {
 
+    private static final String TYPE_URL_PREFIX = "type.googleapis.com/";
+
     private final Class<T> messageClass;
+    private final Parser<T> parser;
+    private final String fullName;
+    private final String typeUrl;
 
+    @SuppressWarnings("unchecked")
     public PayloadCodec(Class<T> messageClass) {
         this.messageClass = Objects.requireNonNull(messageClass, "messageClass");
+        T defaultInstance = Internal.getDefaultInstance(messageClass);
+        this.parser = (Parser<T>) defaultInstance.getParserForType();
+        this.fullName = defaultInstance.getDescriptorForType().getFullName();
+        this.typeUrl = TYPE_URL_PREFIX + fullName;
     }
 
     /**
@@ -31,7 +59,11 @@ public final class PayloadCodec<T extends Message> {
      * @return an {@code Any} carrying the message bytes plus its type URL
      */
     public Any pack(T value) {
-        return Any.pack(Objects.requireNonNull(value, "value"));
+        Objects.requireNonNull(value, "value");
+        return Any.newBuilder()
+                .setTypeUrl(typeUrl)
+                .setValue(value.toByteString())
+                .build();
     }
 
     /**
@@ -40,7 +72,9 @@ public final class PayloadCodec<T extends Message> {
      * the codec's message class or the bytes don't decode as the
      * expected message — the surrounding code treats this as a
      * protocol violation by the sender, since modules are configured
-     * for exactly one payload type.
+     * for exactly one payload type. Like {@link Any#is}, only the type
+     * name after the last {@code '/'} is compared, so senders using a
+     * different URL prefix are still accepted.
      *
      * @param wire the {@code Any} field from a {@code WorkUnit} or
      *             {@code WorkAck}
@@ -49,7 +83,14 @@ public final class PayloadCodec<T extends Message> {
      *         type doesn't match {@code T} or the bytes can't be parsed
      */
     public T unpack(Any wire) throws InvalidProtocolBufferException {
-        return Objects.requireNonNull(wire, "wire").unpack(messageClass);
+        Objects.requireNonNull(wire, "wire");
+        if (!matchesType(wire.getTypeUrl())) {
+            throw new InvalidProtocolBufferException(
+                    "Type of the Any message does not match the given class.");
+        }
+        CodedInputStream input = wire.getValue().newCodedInput();
+        input.enableAliasing(true);
+        return parser.parseFrom(input, ExtensionRegistryLite.getEmptyRegistry());
     }
 
     /**
@@ -59,4 +100,13 @@ public final class PayloadCodec<T extends Message> {
     public Class<T> messageClass() {
         return messageClass;
     }
+
+    private boolean matchesType(String url) {
+        if (url.equals(typeUrl)) {
+            return true;
+        }
+        int slash = url.lastIndexOf('/');
+        return url.length() - slash - 1 == fullName.length()
+                && url.startsWith(fullName, slash + 1);
+    }
 }
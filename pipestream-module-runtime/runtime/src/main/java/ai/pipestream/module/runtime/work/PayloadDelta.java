@@ -0,0 +1,215 @@
+package ai.pipestream.module.runtime.work;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.FieldMask;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.UnsafeByteOperations;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Delta encoding for {@code WorkAck.updated_payload}, enabled with
+ * {@link WorkerLoopConfig#deltaAcks()} and used on streams whose engine
+ * agreed to it.
+ *
+ * <p>Enrichment-style modules (taggers, language detection) change a
+ * handful of top-level fields of a document that can be tens of
+ * megabytes. Instead of the whole output, the worker then acks with an
+ * {@link Any} whose type URL is {@link #TYPE_URL_PREFIX} followed by the
+ * payload's full type name and whose value is, on the wire,
+ *
+ * <pre>
+ * message PayloadDelta {
+ *   google.protobuf.FieldMask mask = 1;  // top-level fields that changed
+ *   bytes partial = 2;                   // output with only those fields set
+ * }
+ * </pre>
+ *
+ * <p>The receiver applies it to the input it handed out with
+ * {@link #apply}: every masked field is replaced by the partial's value,
+ * or cleared if the partial doesn't set it. Fields outside the mask are
+ * left as they were. Because the type URL differs from a packed
+ * payload's, a receiver that doesn't know the format rejects the ack as
+ * a type mismatch instead of misreading it.
+ *
+ * <p>A delta is only sent when it is smaller than the full payload, and
+ * never when the output's unknown fields differ from the input's (they
+ * have no field name to put in a mask).
+ */
+public final class PayloadDelta {
+
+    /** Type URL prefix marking a delta-encoded {@code updated_payload}. */
+    public static final String TYPE_URL_PREFIX = "type.pipestream.ai/delta/";
+
+    private static final int MASK_FIELD = 1;
+    private static final int PARTIAL_FIELD = 2;
+
+    private PayloadDelta() {
+    }
+
+    /**
+     * @return {@code true} if {@code payload} was produced by
+     *         {@link #encode} rather than a plain pack
+     */
+    public static boolean isDelta(Any payload) {
+        return payload.getTypeUrl().startsWith(TYPE_URL_PREFIX);
+    }
+
+    /**
+     * The top-level fields whose value differs between {@code before} and
+     * {@code after}, presence included. Repeated and map fields count as
+     * changed if any element differs.
+     */
+    public static FieldMask changedFields(Message before, Message after) {
+        requireSameType(before, after);
+        FieldMask.Builder mask = FieldMask.newBuilder();
+        for (FieldDescriptor field : after.getDescriptorForType().getFields()) {
+            if (changed(before, after, field)) {
+                mask.addPaths(field.getName());
+            }
+        }
+        return mask.build();
+    }
+
+    /**
+     * Encode {@code after} for the ack: a delta against {@code before} if
+     * that is smaller, otherwise the plain {@code codec.pack(after)}.
+     */
+    static <T extends Message> Any encode(PayloadCodec<T> codec, T before, T after) {
+        return encode(before, after, codec.pack(after));
+    }
+
+    /** {@link #encode(PayloadCodec, Message, Message)} for an {@code after} already packed as {@code full}. */
+    static Any encode(Message before, Message after, Any full) {
+        if (!before.getUnknownFields().equals(after.getUnknownFields())) {
+            return full;
+        }
+        FieldMask mask = changedFields(before, after);
+        Message.Builder partial = after.newBuilderForType();
+        for (String path : mask.getPathsList()) {
+            FieldDescriptor field = after.getDescriptorForType().findFieldByName(path);
+            if (field.isRepeated() || after.hasField(field)) {
+                partial.setField(field, after.getField(field));
+            }
+        }
+        ByteString partialBytes = partial.build().toByteString();
+
+        int size = CodedOutputStream.computeMessageSize(MASK_FIELD, mask)
+                + CodedOutputStream.computeBytesSize(PARTIAL_FIELD, partialBytes);
+        if (size >= full.getValue().size()) {
+            return full;
+        }
+        byte[] buffer = new byte[size];
+        CodedOutputStream out = CodedOutputStream.newInstance(buffer);
+        try {
+            out.writeMessage(MASK_FIELD, mask);
+            out.writeBytes(PARTIAL_FIELD, partialBytes);
+            out.checkNoSpaceLeft();
+        } catch (IOException e) {
+            // Writing to a presized array can't fail short of a size bug.
+            throw new UncheckedIOException(e);
+        }
+        return Any.newBuilder()
+                .setTypeUrl(TYPE_URL_PREFIX + after.getDescriptorForType().getFullName())
+                .setValue(UnsafeByteOperations.unsafeWrap(buffer))
+                .build();
+    }
+
+    /**
+     * Reconstruct a module's output from the payload it was given and the
+     * {@code updated_payload} of its ack. Plain (non-delta) payloads are
+     * simply unpacked, so callers can use this for every ack.
+     *
+     * @param base            the payload the unit was dispatched with
+     * @param updatedPayload  {@code WorkAck.updated_payload}
+     * @param codec           codec for the payload type
+     * @return the module's full output
+     * @throws InvalidProtocolBufferException if the payload is for another
+     *         type, is malformed, or masks a field the type doesn't have
+     */
+    public static <T extends Message> T apply(T base, Any updatedPayload, PayloadCodec<T> codec)
+            throws InvalidProtocolBufferException {
+        Objects.requireNonNull(base, "base");
+        if (!isDelta(Objects.requireNonNull(updatedPayload, "updatedPayload"))) {
+            return codec.unpack(updatedPayload);
+        }
+        String typeName = updatedPayload.getTypeUrl().substring(TYPE_URL_PREFIX.length());
+        if (!typeName.equals(base.getDescriptorForType().getFullName())) {
+            throw new InvalidProtocolBufferException(
+                    "Delta payload is for " + typeName + ", not "
+                            + base.getDescriptorForType().getFullName());
+        }
+
+        FieldMask mask = FieldMask.getDefaultInstance();
+        ByteString partialBytes = ByteString.EMPTY;
+        Message partial;
+        try {
+            CodedInputStream in = updatedPayload.getValue().newCodedInput();
+            in.enableAliasing(true);
+            int tag;
+            while ((tag = in.readTag()) != 0) {
+                switch (WireFormat.getTagFieldNumber(tag)) {
+                    case MASK_FIELD -> mask = in.readMessage(
+                            FieldMask.parser(), ExtensionRegistryLite.getEmptyRegistry());
+                    case PARTIAL_FIELD -> partialBytes = in.readBytes();
+                    default -> in.skipField(tag);
+                }
+            }
+            CodedInputStream partialIn = partialBytes.newCodedInput();
+            partialIn.enableAliasing(true);
+            partial = base.newBuilderForType().mergeFrom(partialIn).build();
+        } catch (InvalidProtocolBufferException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new InvalidProtocolBufferException(e);
+        }
+
+        Message.Builder merged = base.toBuilder();
+        for (String path : mask.getPathsList()) {
+            FieldDescriptor field = base.getDescriptorForType().findFieldByName(path);
+            if (field == null) {
+                throw new InvalidProtocolBufferException(
+                        "Delta mask names unknown field '" + path + "' of "
+                                + base.getDescriptorForType().getFullName());
+            }
+            merged.clearField(field);
+            if (field.isRepeated()) {
+                for (Object element : (List<?>) partial.getField(field)) {
+                    merged.addRepeatedField(field, element);
+                }
+            } else if (partial.hasField(field)) {
+                merged.setField(field, partial.getField(field));
+            }
+        }
+        @SuppressWarnings("unchecked")
+        T result = (T) merged.build();
+        return result;
+    }
+
+    private static boolean changed(Message before, Message after, FieldDescriptor field) {
+        if (field.hasPresence() && before.hasField(field) != after.hasField(field)) {
+            return true;
+        }
+        return !before.getField(field).equals(after.getField(field));
+    }
+
+    private static void requireSameType(Message before, Message after) {
+        Objects.requireNonNull(before, "before");
+        Objects.requireNonNull(after, "after");
+        if (before.getDescriptorForType() != after.getDescriptorForType()) {
+            throw new IllegalArgumentException("before is "
+                    + before.getDescriptorForType().getFullName() + " but after is "
+                    + after.getDescriptorForType().getFullName());
+        }
+    }
+}
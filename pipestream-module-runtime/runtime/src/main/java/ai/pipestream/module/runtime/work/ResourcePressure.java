@@ -0,0 +1,232 @@
+package ai.pipestream.module.runtime.work;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import org.jboss.logging.Logger;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * JVM resource pressure as seen by a {@link ModuleWorkerLoop}, enabled
+ * with {@link WorkerLoopConfig#pressureThrottling()}.
+ *
+ * <p>The loop pulls work whenever it is below its target worker count.
+ * A module chewing through large documents can get there while the heap
+ * is nearly full and the collector is running back to back; every
+ * further unit then only brings the OOM kill, and the mass redelivery
+ * that follows, closer. Before adding a worker, and after every unit,
+ * the loop asks for the current {@link Throttle}:
+ * <ul>
+ *   <li>{@link Throttle#HOLD} — no ramp-up; the workers already running
+ *       carry on. Entered when the heap after the last collection or the
+ *       direct memory in use reaches
+ *       {@link WorkerLoopConfig#pressureMemoryHigh()} of its maximum, the
+ *       collector took {@link WorkerLoopConfig#pressureGcTimeHigh()} of
+ *       the last sampling interval, or the machine's CPU load reaches
+ *       {@link WorkerLoopConfig#pressureCpuHigh()}.</li>
+ *   <li>{@link Throttle#SHED} — the target drops to the minimum, so
+ *       workers above it exit after their current unit. Entered at
+ *       {@link WorkerLoopConfig#pressureMemoryCritical()} of heap or
+ *       direct memory, or at twice the GC time threshold. CPU load alone
+ *       never sheds: a saturated CPU slows units down but doesn't kill
+ *       the process.</li>
+ * </ul>
+ *
+ * <p>Heap occupancy is measured after collection (each heap pool's
+ * collection usage), not live usage, which swings with every young
+ * collection. GC time, rather than the raw allocation rate, is the
+ * thrashing signal: allocating fast is harmless as long as the
+ * collector keeps up.
+ *
+ * <p>The gauges are read at most once per
+ * {@link WorkerLoopConfig#pressureSampleInterval()}; in between every
+ * caller gets the cached {@link Reading}.
+ */
+public final class ResourcePressure {
+
+    private static final Logger LOG = Logger.getLogger(ResourcePressure.class);
+
+    /** What the loop does about the current pressure. */
+    public enum Throttle {
+        /** Ramp up as usual. */
+        NONE,
+        /** Keep the running workers, start no new ones. */
+        HOLD,
+        /** Shed workers down to the minimum. */
+        SHED
+    }
+
+    /**
+     * One sample. Each gauge is a fraction in {@code [0, 1]}, or
+     * {@code -1} if the JVM doesn't report it.
+     *
+     * @param heapAfterGc   heap occupied after the last collection / max heap
+     * @param directMemory  direct buffer memory in use / max direct memory
+     * @param gcTime        share of wall time spent collecting since the previous sample
+     * @param cpuLoad       recent CPU load of the whole machine (container)
+     * @param throttle      the resulting throttle
+     */
+    public record Reading(double heapAfterGc, double directMemory, double gcTime, double cpuLoad,
+                          Throttle throttle) {
+
+        static final Reading UNTHROTTLED = new Reading(-1, -1, -1, -1, Throttle.NONE);
+
+        Reading withThrottle(Throttle t) {
+            return new Reading(heapAfterGc, directMemory, gcTime, cpuLoad, t);
+        }
+    }
+
+    /** Source of raw readings; the throttle it reports is ignored. */
+    @FunctionalInterface
+    interface Probe {
+        Reading read();
+    }
+
+    private final Probe probe;
+    private final double memoryHigh;
+    private final double memoryCritical;
+    private final double gcTimeHigh;
+    private final double cpuHigh;
+    private final long intervalNanos;
+    private final LongSupplier clock;
+
+    private final AtomicLong nextSampleAt;
+    private volatile Reading current = Reading.UNTHROTTLED;
+
+    ResourcePressure(Probe probe, double memoryHigh, double memoryCritical, double gcTimeHigh,
+                     double cpuHigh, Duration interval, LongSupplier clock) {
+        if (!(memoryHigh > 0 && memoryHigh <= memoryCritical && memoryCritical <= 1)) {
+            throw new IllegalArgumentException("Expected 0 < memory-high <= memory-critical <= 1, got "
+                    + memoryHigh + " / " + memoryCritical);
+        }
+        this.probe = Objects.requireNonNull(probe, "probe");
+        this.memoryHigh = memoryHigh;
+        this.memoryCritical = memoryCritical;
+        this.gcTimeHigh = gcTimeHigh;
+        this.cpuHigh = cpuHigh;
+        this.intervalNanos = interval.toNanos();
+        this.clock = clock;
+        this.nextSampleAt = new AtomicLong(clock.getAsLong());
+    }
+
+    /** The pressure tracker {@code config} asks for, or {@code null} if throttling is off. */
+    static ResourcePressure fromConfig(WorkerLoopConfig config) {
+        if (!config.pressureThrottling()) {
+            return null;
+        }
+        return new ResourcePressure(new JvmProbe(), config.pressureMemoryHigh(), config.pressureMemoryCritical(),
+                config.pressureGcTimeHigh(), config.pressureCpuHigh(), config.pressureSampleInterval(),
+                System::nanoTime);
+    }
+
+    /**
+     * The latest reading, re-sampled first if the sampling interval has
+     * passed. Only one caller samples; the rest get the cached reading.
+     */
+    public Reading reading() {
+        long now = clock.getAsLong();
+        long due = nextSampleAt.get();
+        if (now - due >= 0 && nextSampleAt.compareAndSet(due, now + intervalNanos)) {
+            Reading raw = probe.read();
+            Reading classified = raw.withThrottle(classify(raw));
+            if (classified.throttle() != current.throttle()) {
+                LOG.infof("Resource pressure %s -> %s (heapAfterGc=%.2f direct=%.2f gcTime=%.2f cpu=%.2f)",
+                        current.throttle(), classified.throttle(), raw.heapAfterGc(), raw.directMemory(),
+                        raw.gcTime(), raw.cpuLoad());
+            }
+            current = classified;
+        }
+        return current;
+    }
+
+    public Throttle throttle() {
+        return reading().throttle();
+    }
+
+    private Throttle classify(Reading r) {
+        double memory = Math.max(r.heapAfterGc(), r.directMemory());
+        if (memory >= memoryCritical || (gcTimeHigh > 0 && r.gcTime() >= 2 * gcTimeHigh)) {
+            return Throttle.SHED;
+        }
+        if (memory >= memoryHigh || (gcTimeHigh > 0 && r.gcTime() >= gcTimeHigh)
+                || (cpuHigh > 0 && r.cpuLoad() >= cpuHigh)) {
+            return Throttle.HOLD;
+        }
+        return Throttle.NONE;
+    }
+
+    /** Reads the gauges from the platform MXBeans. */
+    static final class JvmProbe implements Probe {
+
+        private final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(p -> p.getType() == MemoryType.HEAP && p.isCollectionUsageThresholdSupported())
+                .toList();
+        private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        private final BufferPoolMXBean directPool = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)
+                .stream().filter(p -> "direct".equals(p.getName())).findFirst().orElse(null);
+        private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        private final long maxHeap = Runtime.getRuntime().maxMemory();
+        private final long maxDirect = maxDirectMemory();
+
+        // Only one thread reads at a time, but not always the same one.
+        private volatile long lastGcMillis = totalGcMillis();
+        private volatile long lastWallNanos = System.nanoTime();
+
+        @Override
+        public Reading read() {
+            long usedAfterGc = 0;
+            for (MemoryPoolMXBean pool : heapPools) {
+                MemoryUsage usage = pool.getCollectionUsage();
+                if (usage != null) {
+                    usedAfterGc += usage.getUsed();
+                }
+            }
+            double heap = heapPools.isEmpty() || maxHeap <= 0 || maxHeap == Long.MAX_VALUE
+                    ? -1 : (double) usedAfterGc / maxHeap;
+            double direct = directPool == null || maxDirect <= 0
+                    ? -1 : (double) directPool.getMemoryUsed() / maxDirect;
+
+            long gcMillis = totalGcMillis();
+            long wallNanos = System.nanoTime();
+            long elapsedMillis = (wallNanos - lastWallNanos) / 1_000_000;
+            double gcTime = elapsedMillis > 0 ? Math.min(1.0, (double) (gcMillis - lastGcMillis) / elapsedMillis) : -1;
+            lastGcMillis = gcMillis;
+            lastWallNanos = wallNanos;
+
+            double cpu = os instanceof com.sun.management.OperatingSystemMXBean sun ? sun.getCpuLoad() : -1;
+            return new Reading(heap, direct, gcTime, cpu < 0 ? -1 : cpu, Throttle.NONE);
+        }
+
+        private long totalGcMillis() {
+            long total = 0;
+            for (GarbageCollectorMXBean gc : collectors) {
+                total += Math.max(0, gc.getCollectionTime());
+            }
+            return total;
+        }
+
+        /** {@code -XX:MaxDirectMemorySize}, which defaults to the max heap when unset. */
+        private static long maxDirectMemory() {
+            try {
+                HotSpotDiagnosticMXBean hotspot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+                long configured = Long.parseLong(hotspot.getVMOption("MaxDirectMemorySize").getValue());
+                if (configured > 0) {
+                    return configured;
+                }
+            } catch (RuntimeException e) {
+                // Not HotSpot, or the option isn't readable: use the default.
+            }
+            return Runtime.getRuntime().maxMemory();
+        }
+    }
+}
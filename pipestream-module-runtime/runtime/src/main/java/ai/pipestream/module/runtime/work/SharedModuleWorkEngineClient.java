@@ -2,56 +2,102 @@ package ai.pipestream.module.runtime.work;
 
 import ai.pipestream.module.work.v1.ModuleWorkServiceGrpc;
 import ai.pipestream.server.grpc.EphemeralGrpcChannelFactory;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ClientInterceptors;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
 import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
 import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.jboss.logging.Logger;
 
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * JVM-scoped engine channel for demand-pull workers. Matches the old
+ * JVM-scoped engine channels for demand-pull workers. Matches the old
  * {@code @GrpcClient("engine")} lifetime.
  *
- * <p>The channel is a process-wide singleton shared by every worker virtual
- * thread, so {@link #reconnect()} ({@code channel.shutdownNow()}) cancels all
- * of their in-flight Work streams at once. It is therefore only invoked on
- * shutdown ({@link #onShutdown()}); the worker loop must NOT call it per
- * stream error (that cascades into a fleet-wide cancellation storm — see
- * {@link ModuleWorkEngineClient}). A channel that genuinely dies is rebuilt
- * lazily by {@link #channel()} on the next {@link #stub()} call.
+ * <p>The client keeps a pool of {@link WorkerLoopConfig#channelPoolSize()}
+ * channels — each its own HTTP/2 connection and Netty event loop — and
+ * hands each {@link #stub()} call the channel with the fewest Work
+ * streams in flight, so a few hundred workers don't queue behind one
+ * connection's {@code MAX_CONCURRENT_STREAMS}. A pool of one is the
+ * original single shared channel.
+ *
+ * <p>With {@link WorkerLoopConfig#chunkedPayloads()} on, the channels'
+ * inbound message limit defaults to
+ * {@link WorkerLoopConfig#chunkMaxPayloadBytes()} rather than 2 GiB, so a
+ * unit sent whole is bounded like a chunked one.
+ *
+ * <p>The channels are process-wide singletons shared by every worker
+ * virtual thread, so {@link #reconnect()} ({@code shutdownNow()} on each)
+ * cancels all of their in-flight Work streams at once. It is therefore
+ * only invoked on shutdown ({@link #onShutdown()}); the worker loop must
+ * NOT call it per stream error (that cascades into a fleet-wide
+ * cancellation storm — see {@link ModuleWorkEngineClient}). A channel
+ * that genuinely dies is rebuilt lazily, on its own, by the next
+ * {@link #stub()} call that picks it; its siblings are left alone.
  */
 @ApplicationScoped
 public class SharedModuleWorkEngineClient implements ModuleWorkEngineClient {
 
     private static final Logger LOG = Logger.getLogger(SharedModuleWorkEngineClient.class);
 
+    /** Room for a {@code WorkResponse}'s own fields around its payload. */
+    private static final int FRAME_OVERHEAD = 64 * 1024;
+
     private final EphemeralGrpcChannelFactory channelFactory;
-    private final WorkerLoopConfig config;
-    private final Object lock = new Object();
-    private volatile ManagedChannel channel;
+    private final String clientName;
+    private final String moduleId;
+    private final int maxInboundMessageSize;
+    private final PooledChannel[] pool;
+    private final AtomicInteger nextStart = new AtomicInteger();
 
     @Inject
     public SharedModuleWorkEngineClient(
             EphemeralGrpcChannelFactory channelFactory,
             WorkerLoopConfig config) {
-        this.channelFactory = channelFactory;
-        this.config = config;
+        this(channelFactory, config.grpcClientName(), config.moduleId(), config.channelPoolSize(),
+                config.chunkedPayloads()
+                        ? (int) Math.min(config.chunkMaxPayloadBytes() + FRAME_OVERHEAD, Integer.MAX_VALUE)
+                        : Integer.MAX_VALUE);
+    }
+
+    SharedModuleWorkEngineClient(EphemeralGrpcChannelFactory channelFactory,
+                                 String clientName, String moduleId, int poolSize) {
+        this(channelFactory, clientName, moduleId, poolSize, Integer.MAX_VALUE);
+    }
+
+    SharedModuleWorkEngineClient(EphemeralGrpcChannelFactory channelFactory,
+                                 String clientName, String moduleId, int poolSize, int maxInboundMessageSize) {
+        this.channelFactory = Objects.requireNonNull(channelFactory, "channelFactory");
+        this.clientName = clientName;
+        this.moduleId = moduleId;
+        this.maxInboundMessageSize = maxInboundMessageSize;
+        this.pool = new PooledChannel[Math.max(1, poolSize)];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = new PooledChannel(i);
+        }
     }
 
     @Override
     public ModuleWorkServiceGrpc.ModuleWorkServiceStub stub() {
-        return ModuleWorkServiceGrpc.newStub(channel());
+        return ModuleWorkServiceGrpc.newStub(leastLoaded().channel());
     }
 
     @Override
     public void reconnect() {
-        synchronized (lock) {
-            ManagedChannel old = channel;
-            channel = null;
-            if (old != null) {
-                LOG.debugf("Reconnecting engine channel for module=%s", config.moduleId());
-                EphemeralGrpcChannelFactory.shutdownNow(old);
-            }
+        for (PooledChannel pooled : pool) {
+            pooled.shutdownNow();
         }
     }
 
@@ -60,19 +106,124 @@ public class SharedModuleWorkEngineClient implements ModuleWorkEngineClient {
         reconnect();
     }
 
-    private ManagedChannel channel() {
-        ManagedChannel current = channel;
-        if (current == null || current.isShutdown() || current.isTerminated()) {
+    /** Work streams currently open on pool channel {@code index}. */
+    int inFlight(int index) {
+        return pool[index].inFlight.get();
+    }
+
+    int poolSize() {
+        return pool.length;
+    }
+
+    /**
+     * The channel with the fewest streams in flight. The scan starts at a
+     * rotating offset so ties (an idle pool, or all equally busy) spread
+     * round-robin rather than piling onto channel 0. The counts are read
+     * without locking; two threads racing may pick the same channel,
+     * which only costs a moment's imbalance.
+     */
+    private PooledChannel leastLoaded() {
+        if (pool.length == 1) {
+            return pool[0];
+        }
+        int start = Math.floorMod(nextStart.getAndIncrement(), pool.length);
+        PooledChannel best = pool[start];
+        int bestLoad = best.inFlight.get();
+        for (int i = 1; i < pool.length && bestLoad > 0; i++) {
+            PooledChannel candidate = pool[(start + i) % pool.length];
+            int load = candidate.inFlight.get();
+            if (load < bestLoad) {
+                best = candidate;
+                bestLoad = load;
+            }
+        }
+        return best;
+    }
+
+    /** A live pool channel and its in-flight-counting view. */
+    private record Open(ManagedChannel raw, Channel counted) {
+        boolean isDead() {
+            return raw.isShutdown() || raw.isTerminated();
+        }
+    }
+
+    /**
+     * One pool slot: a lazily (re)opened channel plus the count of calls
+     * in flight on it, kept by an interceptor that increments on start
+     * and decrements exactly once when the call closes.
+     */
+    private final class PooledChannel {
+        private final int index;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final ClientInterceptor counter = new InFlightCounter();
+        private final Object lock = new Object();
+        private volatile Open open;
+
+        PooledChannel(int index) {
+            this.index = index;
+        }
+
+        Channel channel() {
+            Open current = open;
+            if (current == null || current.isDead()) {
+                synchronized (lock) {
+                    current = open;
+                    if (current == null || current.isDead()) {
+                        ManagedChannel raw = channelFactory.open(clientName, maxInboundMessageSize);
+                        current = new Open(raw, ClientInterceptors.intercept(raw, counter));
+                        open = current;
+                        LOG.debugf("Opened engine channel %d/%d for module=%s client=%s",
+                                index + 1, pool.length, moduleId, clientName);
+                    }
+                }
+            }
+            return current.counted();
+        }
+
+        void shutdownNow() {
             synchronized (lock) {
-                current = channel;
-                if (current == null || current.isShutdown() || current.isTerminated()) {
-                    current = channelFactory.open(config.grpcClientName());
-                    channel = current;
-                    LOG.debugf("Opened engine channel for module=%s client=%s",
-                            config.moduleId(), config.grpcClientName());
+                Open old = open;
+                open = null;
+                if (old != null) {
+                    LOG.debugf("Reconnecting engine channel %d/%d for module=%s",
+                            index + 1, pool.length, moduleId);
+                    EphemeralGrpcChannelFactory.shutdownNow(old.raw());
                 }
             }
         }
-        return current;
+
+        private final class InFlightCounter implements ClientInterceptor {
+            @Override
+            public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+                    MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+                return new ForwardingClientCall.SimpleForwardingClientCall<>(next.newCall(method, callOptions)) {
+                    private final AtomicBoolean released = new AtomicBoolean();
+
+                    @Override
+                    public void start(Listener<RespT> responseListener, Metadata headers) {
+                        inFlight.incrementAndGet();
+                        try {
+                            super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(
+                                    responseListener) {
+                                @Override
+                                public void onClose(Status status, Metadata trailers) {
+                                    release();
+                                    super.onClose(status, trailers);
+                                }
+                            }, headers);
+                        } catch (RuntimeException e) {
+                            release();
+                            throw e;
+                        }
+                    }
+
+                    private void release() {
+                        if (released.compareAndSet(false, true)) {
+                            inFlight.decrementAndGet();
+                        }
+                    }
+                };
+            }
+        }
     }
 }
@@ -0,0 +1,125 @@
+package ai.pipestream.module.runtime.work;
+
+import com.google.protobuf.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Runs the parts of a {@link SplittableModuleProcessor} unit in parallel.
+ *
+ * <p>Parts go to a {@link ForkJoinPool} of
+ * {@link WorkerLoopConfig#splitParallelism()} threads shared by all of
+ * the loop's workers, so a unit that splits wide and a stream of small
+ * ones compete for the same cores rather than each taking their own. With
+ * {@code cpu-bound} {@link WorkerLoopConfig#processExecutor()} the parts
+ * queue on that pool instead, keeping one bound on the module's CPU
+ * threads. The worker waits for its parts on its virtual thread, which
+ * unmounts meanwhile; the stream stays heartbeated.
+ */
+final class SplitExecutor {
+
+    private final ForkJoinPool pool;
+    private final CpuBoundExecutor cpuPool;
+    private volatile WorkerLoopMetrics metrics = WorkerLoopMetrics.NOOP;
+
+    /** Parts on a fork-join pool of {@code parallelism} threads. */
+    SplitExecutor(String moduleId, int parallelism) {
+        ForkJoinPool.ForkJoinWorkerThreadFactory factory = p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("worker-split-" + moduleId + "-" + t.getPoolIndex());
+            return t;
+        };
+        this.pool = new ForkJoinPool(parallelism, factory, null, false);
+        this.cpuPool = null;
+    }
+
+    /** Parts on the loop's {@code cpu-bound} pool. */
+    SplitExecutor(CpuBoundExecutor cpuPool) {
+        this.pool = null;
+        this.cpuPool = cpuPool;
+    }
+
+    /** The executor {@code config} asks for, given the loop's {@code cpu-bound} pool, if any. */
+    static SplitExecutor fromConfig(WorkerLoopConfig config, CpuBoundExecutor cpuPool) {
+        if (cpuPool != null) {
+            return new SplitExecutor(cpuPool);
+        }
+        int parallelism = config.splitParallelism() > 0
+                ? config.splitParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        return new SplitExecutor(config.moduleId(), parallelism);
+    }
+
+    /** Threads parts run on. */
+    int parallelism() {
+        return pool != null ? pool.getParallelism() : cpuPool.threads();
+    }
+
+    void useMetrics(WorkerLoopMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    <T extends Message, P> ModuleProcessor<T> wrap(SplittableModuleProcessor<T, P> processor) {
+        return input -> {
+            List<P> parts = processor.split(input);
+            if (parts == null) {
+                throw new IllegalStateException("split returned null");
+            }
+            metrics.recordSplitParts(parts.size());
+            return processor.merge(input, processAll(processor, parts));
+        };
+    }
+
+    void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Submit every part, then collect the results in order. Whatever a
+     * part throws is rethrown unchanged, so the caller's failure mapping
+     * still applies; the other parts are cancelled.
+     */
+    private <P> List<P> processAll(SplittableModuleProcessor<?, P> processor, List<P> parts) {
+        List<Future<P>> futures = new ArrayList<>(parts.size());
+        boolean collected = false;
+        try {
+            for (P part : parts) {
+                futures.add(submit(() -> processor.processPart(part)));
+            }
+            List<P> processed = new ArrayList<>(parts.size());
+            for (Future<P> future : futures) {
+                processed.add(future.get());
+            }
+            collected = true;
+            return processed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for split parts", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            if (cause instanceof Error err) {
+                throw err;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            if (!collected) {
+                futures.forEach(future -> future.cancel(true));
+            }
+        }
+    }
+
+    private <R> Future<R> submit(Supplier<R> work) {
+        return cpuPool != null ? cpuPool.submit(work) : pool.submit(work::get);
+    }
+}
@@ -0,0 +1,62 @@
+package ai.pipestream.module.runtime.work;
+
+import com.google.protobuf.Message;
+
+import java.util.List;
+
+/**
+ * Variant of {@link ModuleProcessor} for modules whose work on one
+ * payload falls apart into independent pieces — sections of a long
+ * document, chunks to embed, pages to OCR — so that one huge unit can use
+ * every core instead of pinning a single worker. Use it with
+ * {@link ModuleWorkerLoop#splitting}.
+ *
+ * <p>Per unit, the worker calls {@link #split} on its own thread, runs
+ * {@link #processPart} for every part in parallel on the loop's split
+ * pool (see {@link WorkerLoopConfig#splitParallelism()}), then hands the
+ * processed parts, in split order, to {@link #merge}. To the engine it is
+ * still one unit: one stream, one heartbeat the whole time, one ack.
+ *
+ * <p>{@code split} and {@code merge} run on the worker's virtual thread,
+ * so keep them cheap — slicing and reassembling, not the heavy lifting.
+ * A unit that splits into a single part costs one pool hand-off over
+ * {@link ModuleProcessor}.
+ *
+ * <p>Failure mapping is the same as {@link ModuleProcessor}: a
+ * {@link ModuleProcessor.PermanentFailure} from any of the three calls
+ * fails the unit permanently, anything else as retryable. The first
+ * failed part fails the unit; parts not yet started are cancelled.
+ *
+ * @param <T> the module's concrete protobuf payload type
+ * @param <P> the type of one part; need not be a protobuf message
+ */
+public interface SplittableModuleProcessor<T extends Message, P> {
+
+    /**
+     * Cut one unit's input into parts that can be processed independently.
+     *
+     * @param input the unpacked input payload
+     * @return the parts, in the order {@link #merge} wants them back;
+     *         possibly empty, never {@code null}
+     */
+    List<P> split(T input);
+
+    /**
+     * Process one part. Called concurrently for the parts of a unit, and
+     * for parts of other units, so it must be thread-safe.
+     *
+     * @param part one of the parts {@link #split} returned
+     * @return the processed part
+     */
+    P processPart(P part);
+
+    /**
+     * Assemble the unit's output from its processed parts.
+     *
+     * @param input     the payload {@link #split} was given
+     * @param processed the results of {@link #processPart}, one per part,
+     *                  in split order
+     * @return the updated payload for the unit's {@code WorkAck}
+     */
+    T merge(T input, List<P> processed);
+}
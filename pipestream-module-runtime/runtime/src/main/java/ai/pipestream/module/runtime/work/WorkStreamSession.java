@@ -6,17 +6,33 @@ import ai.pipestream.module.work.v1.ProcessingStatus;
 import ai.pipestream.module.work.v1.WorkAck;
 import ai.pipestream.module.work.v1.WorkRequest;
 import ai.pipestream.module.work.v1.WorkResponse;
+import ai.pipestream.module.work.v1.WorkUnit;
+import ai.pipestream.server.util.ChunkSizeCalculator;
+import com.google.protobuf.Any;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
+import io.grpc.ClientInterceptor;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.MetadataUtils;
 import io.grpc.stub.StreamObserver;
 import org.jboss.logging.Logger;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 
 /**
  * One bidi {@code Work} stream's full lifecycle: open → Hello → wait
@@ -25,6 +41,51 @@ import java.util.concurrent.atomic.AtomicReference;
  * how the session ended, so the caller (the loop) can decide whether
  * to reset its backoff or escalate.
  *
+ * <p><b>Persistent streams:</b> when
+ * {@link WorkerLoopConfig#maxUnitsPerStream()} is above {@code 1}, the
+ * session keeps its half of the stream open after {@code AckConfirmed}
+ * and processes the next {@code WorkUnit} the engine serves on the same
+ * stream, repeating until the unit or age limit is reached, the engine
+ * answers {@code NoWorkAvailable}, or the engine completes the stream.
+ * An engine that completes every stream after {@code AckConfirmed}
+ * degrades this to the one-unit lifecycle with no extra cost. Each
+ * finished unit is reported to the {@link UnitListener} so the loop can
+ * ramp up per unit rather than per stream.
+ *
+ * <p><b>Prefetch:</b> {@link #prefetch()} runs only the front half —
+ * open, Hello, wait for the {@code WorkUnit}, decode its payload — so
+ * the loop can fetch the next unit while the current one is still in
+ * {@code process}. A prefetched session carries exactly one unit, keeps
+ * it heartbeated while it waits, and is either {@link #run() run} or
+ * {@link #release(String) released} back to the engine. A batching loop
+ * computes the result elsewhere and finishes a prefetched unit with
+ * {@link #sendResult} and {@link #awaitConfirmation()} instead of
+ * {@link #run()}.
+ *
+ * <p><b>Long-poll:</b> a session told to {@link #parkOnNoWork(BooleanSupplier)} asks the
+ * engine for long-poll idle mode on open. If the engine agrees (echoes
+ * the header) and answers {@code NoWorkAvailable}, the session keeps the
+ * stream open, heartbeated, until a {@code WorkUnit} is pushed or
+ * {@link WorkerLoopConfig#longPollTimeout()} passes, and processes a
+ * pushed unit like any other.
+ *
+ * <p><b>Chunked payloads:</b> with
+ * {@link WorkerLoopConfig#chunkedPayloads()} the session offers
+ * {@link PayloadChunks} framing on open. {@code WorkUnit} frames are
+ * reassembled as they arrive, before the unit is handed on, up to
+ * {@link WorkerLoopConfig#chunkMaxPayloadBytes()}; acks above
+ * {@link WorkerLoopConfig#chunkThreshold()} are split into frames if the
+ * engine agreed, each written only once gRPC flow control reports the
+ * stream ready, so a large ack never piles up in the transport's buffers.
+ *
+ * <p><b>Delta acks:</b> with {@link WorkerLoopConfig#deltaAcks()} the
+ * session offers {@link PayloadDelta} acks on open and sends them only
+ * if the engine echoes the offer; otherwise acks carry the whole output.
+ *
+ * <p><b>Affinity:</b> a session given {@link #advertiseAffinity} sends
+ * the hints' keys as of stream open with its {@code Hello}; a unit
+ * served later on a persistent stream was routed by those keys.
+ *
  * <p>A session is single-use. The {@link ModuleWorkerLoop} constructs
  * one, runs it, and constructs a fresh one for the next iteration.
  *
@@ -34,6 +95,53 @@ final class WorkStreamSession<T extends Message> {
 
     private static final Logger LOG = Logger.getLogger(WorkStreamSession.class);
 
+    private static final WorkerLoopMetrics.Phase[] PHASES = WorkerLoopMetrics.Phase.values();
+
+    /**
+     * Idle-mode negotiation header: sent as {@code long-poll} by a
+     * session willing to park, echoed in the response headers by an
+     * engine that will push work on parked streams.
+     */
+    static final Metadata.Key<String> IDLE_MODE_HEADER =
+            Metadata.Key.of("x-pipestream-idle-mode", Metadata.ASCII_STRING_MARSHALLER);
+    static final String LONG_POLL = "long-poll";
+
+    /**
+     * Chunked-payload negotiation header: sent as {@code v1} by a session
+     * that reassembles {@link PayloadChunks} frames, echoed by an engine
+     * that accepts chunked acks.
+     */
+    static final Metadata.Key<String> CHUNKED_PAYLOADS_HEADER =
+            Metadata.Key.of("x-pipestream-chunked-payloads", Metadata.ASCII_STRING_MARSHALLER);
+    static final String CHUNKED_V1 = "v1";
+
+    /**
+     * Delta-ack negotiation header: sent as {@code v1} by a session
+     * configured for {@link PayloadDelta} acks, echoed by an engine that
+     * applies them. Acks stay whole until the engine echoes it.
+     */
+    static final Metadata.Key<String> DELTA_ACKS_HEADER =
+            Metadata.Key.of("x-pipestream-delta-acks", Metadata.ASCII_STRING_MARSHALLER);
+    static final String DELTA_V1 = "v1";
+
+    private static final ClientInterceptor LONG_POLL_REQUEST;
+    private static final ClientInterceptor CHUNKED_REQUEST;
+    private static final ClientInterceptor DELTA_REQUEST;
+
+    static {
+        Metadata headers = new Metadata();
+        headers.put(IDLE_MODE_HEADER, LONG_POLL);
+        LONG_POLL_REQUEST = MetadataUtils.newAttachHeadersInterceptor(headers);
+        Metadata chunked = new Metadata();
+        chunked.put(CHUNKED_PAYLOADS_HEADER, CHUNKED_V1);
+        CHUNKED_REQUEST = MetadataUtils.newAttachHeadersInterceptor(chunked);
+        Metadata delta = new Metadata();
+        delta.put(DELTA_ACKS_HEADER, DELTA_V1);
+        DELTA_REQUEST = MetadataUtils.newAttachHeadersInterceptor(delta);
+    }
+
+    private static final ChunkSizeCalculator CHUNK_SIZES = new ChunkSizeCalculator();
+
     /** What happened on this session — drives the loop's next decision. */
     enum Outcome {
         /** Work was processed and acked successfully. */
@@ -46,24 +154,111 @@ final class WorkStreamSession<T extends Message> {
         STREAM_ERROR
     }
 
+    /**
+     * Notified after every unit the engine confirmed on this stream,
+     * with {@link Outcome#SUCCESS} or {@link Outcome#FAILED_BY_MODULE}
+     * and the wall time the module spent processing it ({@code 0} for a
+     * unit answered from the {@link IdempotencyCache} or whose payload
+     * didn't decode). Runs on the
+     * session's own thread between units.
+     */
+    @FunctionalInterface
+    interface UnitListener {
+        UnitListener NONE = (outcome, processNanos) -> { };
+
+        void onUnitCompleted(Outcome outcome, long processNanos);
+    }
+
     private final ModuleWorkServiceGrpc.ModuleWorkServiceStub asyncStub;
     private final ModuleProcessor<T> processor;
     private final PayloadCodec<T> codec;
     private final WorkerLoopConfig config;
+    private final UnitListener unitListener;
+    private final WorkerLoopMetrics metrics;
     private final long firstResponseTimeoutMillis;
     private final long ackTimeoutMillis;
+    private final long maxStreamAgeNanos;
+    private int maxUnitsPerStream;
+
+    private final BlockingQueue<WorkResponse> responses = new LinkedBlockingQueue<>();
+    private final AtomicReference<Throwable> streamError = new AtomicReference<>();
+    private final AtomicBoolean serverCompleted = new AtomicBoolean();
+    // Serializes writes to the request observer. A lock rather than a
+    // monitor so heartbeats can try it and skip a beat while a large ack
+    // is being written, instead of blocking the shared wheel thread.
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private StreamObserver<WorkRequest> requestObserver;
     private Duration suggestedNoWorkRetry = Duration.ZERO;
+    private int unitsProcessed;
+    private long openedAtNanos;
+
+    // Prefetch state: set by prefetch(), consumed by run() or release().
+    private boolean opened;
+    private Outcome endedEarly;
+    private WorkResponse firstResponse;
+    private T prefetchedInput;
+    private HeartbeatPump holdPump;
+    private ProcessingStatus sentStatus;
+    private long processNanos;
+
+    // Per-unit phase durations, flushed to the metrics once the unit's
+    // (or session's) outcome is known.
+    private final long[] phaseNanos = new long[PHASES.length];
+
+    // Long-poll state.
+    private boolean parkOnNoWork;
+    private BooleanSupplier keepParking = () -> true;
+    private final AtomicReference<Metadata> responseHeaders = new AtomicReference<>();
+    private final AtomicReference<Metadata> responseTrailers = new AtomicReference<>();
+    private boolean parked;
+    private boolean longPollDeclined;
+
+    private IdempotencyCache idempotencyCache;
+    // The whole packed output of the unit just processed: the cache keeps
+    // it rather than the ack, which may be a delta only this stream agreed to.
+    private Any fullOutput;
+    private AffinityHints affinityHints;
+
+    // Chunked-payload state. The assembler is only touched from gRPC's
+    // serialized onNext callbacks.
+    private final PayloadChunks.Assembler assembler;
+    private volatile long framesReceived;
+    private volatile ClientCallStreamObserver<WorkRequest> callStream;
+    private final ReentrantLock readyLock = new ReentrantLock();
+    private final Condition readyChanged = readyLock.newCondition();
 
     WorkStreamSession(ModuleWorkServiceGrpc.ModuleWorkServiceStub asyncStub,
                       ModuleProcessor<T> processor,
                       PayloadCodec<T> codec,
                       WorkerLoopConfig config) {
+        this(asyncStub, processor, codec, config, UnitListener.NONE);
+    }
+
+    WorkStreamSession(ModuleWorkServiceGrpc.ModuleWorkServiceStub asyncStub,
+                      ModuleProcessor<T> processor,
+                      PayloadCodec<T> codec,
+                      WorkerLoopConfig config,
+                      UnitListener unitListener) {
+        this(asyncStub, processor, codec, config, unitListener, WorkerLoopMetrics.NOOP);
+    }
+
+    WorkStreamSession(ModuleWorkServiceGrpc.ModuleWorkServiceStub asyncStub,
+                      ModuleProcessor<T> processor,
+                      PayloadCodec<T> codec,
+                      WorkerLoopConfig config,
+                      UnitListener unitListener,
+                      WorkerLoopMetrics metrics) {
         this.asyncStub = Objects.requireNonNull(asyncStub, "asyncStub");
         this.processor = Objects.requireNonNull(processor, "processor");
         this.codec = Objects.requireNonNull(codec, "codec");
         this.config = Objects.requireNonNull(config, "config");
+        this.unitListener = Objects.requireNonNull(unitListener, "unitListener");
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
         this.firstResponseTimeoutMillis = config.firstResponseTimeout().toMillis();
         this.ackTimeoutMillis = Math.max(firstResponseTimeoutMillis, Duration.ofSeconds(30).toMillis());
+        this.maxUnitsPerStream = Math.max(1, config.maxUnitsPerStream());
+        this.maxStreamAgeNanos = config.maxStreamAge().toNanos();
+        this.assembler = new PayloadChunks.Assembler(config.chunkMaxPayloadBytes());
     }
 
     /**
@@ -74,31 +269,341 @@ final class WorkStreamSession<T extends Message> {
         return suggestedNoWorkRetry;
     }
 
+    /**
+     * Ask the engine for long-poll idle mode when the stream opens, and
+     * park on {@code NoWorkAvailable} if it agrees. Call before
+     * {@link #run()} or {@link #prefetch()}.
+     *
+     * @param keepParking polled while parked; once it returns
+     *                    {@code false} (the loop is stopping) the session
+     *                    gives up the park and closes the stream
+     */
+    void parkOnNoWork(BooleanSupplier keepParking) {
+        this.parkOnNoWork = true;
+        this.keepParking = Objects.requireNonNull(keepParking, "keepParking");
+    }
+
+    /**
+     * Answer redelivered units from {@code cache} and remember successful
+     * acks in it. Call before {@link #run()} or {@link #prefetch()}.
+     */
+    void useIdempotencyCache(IdempotencyCache cache) {
+        this.idempotencyCache = Objects.requireNonNull(cache, "cache");
+    }
+
+    /**
+     * Send {@code hints}' current keys when the stream opens. Call before
+     * {@link #run()} or {@link #prefetch()}.
+     */
+    void advertiseAffinity(AffinityHints hints) {
+        this.affinityHints = Objects.requireNonNull(hints, "hints");
+    }
+
+    /**
+     * @return {@code true} if the session ended {@code NoWorkAvailable}
+     *         after sitting parked for the whole long-poll timeout — the
+     *         engine is reachable and simply idle, so reconnect at once
+     */
+    boolean parked() {
+        return parked;
+    }
+
+    /**
+     * @return {@code true} if the session asked for long-poll and the
+     *         engine's response headers did not agree to it
+     */
+    boolean longPollDeclined() {
+        return longPollDeclined;
+    }
+
+    /** Work units processed and acked on this stream so far. */
+    int unitsProcessed() {
+        return unitsProcessed;
+    }
+
+    /**
+     * Fetch ahead: open the stream, send Hello, wait for the first
+     * response and decode a {@code WorkUnit} payload, without running the
+     * processor. Heartbeats start as soon as a unit is held so the engine
+     * doesn't mistake the wait for a stuck module. Never throws.
+     *
+     * @return {@code true} if a unit is now held for {@link #run()} or
+     *         {@link #release(String)}; {@code false} if the engine had no
+     *         work or the stream failed — {@link #run()} then returns
+     *         that outcome without touching the wire again
+     */
+    boolean prefetch() {
+        maxUnitsPerStream = 1;
+        opened = true;
+        endedEarly = open();
+        if (endedEarly != null || !firstResponse.hasWorkUnit()) {
+            return false;
+        }
+        metrics.recordPayloadIn(firstResponse.getWorkUnit().getPayload().getValue().size());
+        long unpackStart = System.nanoTime();
+        try {
+            prefetchedInput = codec.unpack(firstResponse.getWorkUnit().getPayload());
+        } catch (InvalidProtocolBufferException e) {
+            // Leave it to run(): processUnit repeats the unpack and acks
+            // the mismatch as a permanent failure.
+            prefetchedInput = null;
+        }
+        addPhase(WorkerLoopMetrics.Phase.UNPACK, unpackStart);
+        holdPump = new HeartbeatPump(requestObserver, writeLock, config.heartbeatInterval());
+        holdPump.start();
+        return true;
+    }
+
+    /** @return {@code true} while a unit from {@link #prefetch()} is held unprocessed */
+    boolean hasPrefetchedUnit() {
+        return holdPump != null;
+    }
+
+    /**
+     * @return {@code true} if the held unit's output is in the idempotency
+     *         cache, so {@link #run()} acks it without calling the processor
+     */
+    boolean heldUnitCached() {
+        return holdPump != null && idempotencyCache != null
+                && idempotencyCache.get(IdempotencyCache.Key.of(firstResponse.getWorkUnit())) != null;
+    }
+
+    /**
+     * @return the decoded payload of the held unit, or {@code null} if no
+     *         unit is held or its payload didn't decode as {@code T} (in
+     *         which case {@link #run()} acks the mismatch itself)
+     */
+    T prefetchedInput() {
+        return prefetchedInput;
+    }
+
+    /**
+     * Ack the held unit with a result computed outside this session — by a
+     * {@link BatchModuleProcessor} covering several sessions at once, or by
+     * an {@link AsyncModuleProcessor} stage. A successful result is cached
+     * like a processed unit's if the session has an idempotency cache. The
+     * hold heartbeat runs until the ack is written. Follow with
+     * {@link #awaitConfirmation()}; splitting the two lets a batch send
+     * every ack before waiting on any confirmation.
+     *
+     * @param result       this unit's item of the batch
+     * @param processNanos wall time of the batch call, reported to the
+     *                     {@link UnitListener}
+     * @return {@code false} if the ack could not be written
+     */
+    boolean sendResult(BatchModuleProcessor.Result<T> result, long processNanos) {
+        this.processNanos = processNanos;
+        phaseNanos[WorkerLoopMetrics.Phase.PROCESS.ordinal()] += processNanos;
+        String workUnitId = firstResponse.getWorkUnit().getWorkUnitId();
+        WorkAck.Builder ack = WorkAck.newBuilder().setWorkUnitId(workUnitId);
+        String errorMessage = result.errorMessage() == null ? "" : result.errorMessage();
+        try {
+            switch (result.status()) {
+                case SUCCESS -> ack.setStatus(ProcessingStatus.PROCESSING_STATUS_SUCCESS)
+                        .setUpdatedPayload(packOutput(prefetchedInput, result.output()));
+                case PERMANENT_FAILURE -> ack.setStatus(ProcessingStatus.PROCESSING_STATUS_PERMANENT_FAILURE)
+                        .setErrorMessage(errorMessage);
+                case RETRYABLE_FAILURE -> ack.setStatus(ProcessingStatus.PROCESSING_STATUS_RETRYABLE_FAILURE)
+                        .setErrorMessage(errorMessage);
+            }
+        } catch (RuntimeException e) {
+            // Packing the output failed: still ack, so the unit is redelivered
+            // rather than held until the engine's watchdog gives up on it.
+            LOG.warnf(e, "Could not pack the batch result for work_unit %s", workUnitId);
+            ack = WorkAck.newBuilder()
+                    .setWorkUnitId(workUnitId)
+                    .setStatus(ProcessingStatus.PROCESSING_STATUS_RETRYABLE_FAILURE)
+                    .setErrorMessage(e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+        }
+        if (idempotencyCache != null && ack.getStatus() == ProcessingStatus.PROCESSING_STATUS_SUCCESS) {
+            idempotencyCache.put(IdempotencyCache.Key.of(firstResponse.getWorkUnit()), fullOutput);
+        }
+        fullOutput = null;
+        if (holdPump != null) {
+            holdPump.close();
+            holdPump = null;
+        }
+        prefetchedInput = null;
+        unitsProcessed = 1;
+        sentStatus = ack.getStatus();
+        try {
+            writeAck(ack.build());
+            return true;
+        } catch (RuntimeException e) {
+            LOG.debugf(e, "WorkAck send failed");
+            closeQuietly(requestObserver);
+            endedEarly = Outcome.STREAM_ERROR;
+            return false;
+        }
+    }
+
+    /**
+     * Wait for the {@code AckConfirmed} of an ack written by
+     * {@link #sendResult}, close the stream and report the unit's outcome
+     * (also to the {@link UnitListener}).
+     */
+    Outcome awaitConfirmation() {
+        if (endedEarly != null) {
+            return endSession(endedEarly);
+        }
+        Outcome outcome = finalizeOutcome(drainAckConfirmed(true), sentStatus);
+        if (outcome != Outcome.STREAM_ERROR) {
+            unitListener.onUnitCompleted(outcome, processNanos);
+        }
+        return endSession(outcome);
+    }
+
+    /**
+     * Hand a prefetched, never-processed unit back to the engine with a
+     * {@code RETRYABLE_FAILURE} ack and close the stream, so it is
+     * redelivered at once instead of waiting for the engine's watchdog.
+     * No-op unless {@link #prefetch()} returned {@code true} and
+     * {@link #run()} hasn't been called.
+     */
+    void release(String reason) {
+        if (holdPump == null) {
+            return;
+        }
+        holdPump.close();
+        holdPump = null;
+        sendAck(firstResponse.getWorkUnit().getWorkUnitId(),
+                ProcessingStatus.PROCESSING_STATUS_RETRYABLE_FAILURE, reason);
+        closeQuietly(requestObserver);
+        endedEarly = Outcome.STREAM_ERROR;
+    }
+
+    /**
+     * Give up on a session a batch could not finish: {@link #release} a
+     * still-held unit, otherwise close whatever stream is open. Safe on a
+     * session that has already ended.
+     */
+    void abandon(String reason) {
+        if (holdPump != null) {
+            release(reason);
+        } else if (requestObserver != null && endedEarly == null) {
+            closeQuietly(requestObserver);
+            endedEarly = Outcome.STREAM_ERROR;
+        }
+    }
+
     /**
      * Run the session to completion. Blocks the calling (virtual)
      * thread until the stream terminates one way or another. Never
      * throws — abnormal outcomes are returned as
      * {@link Outcome#STREAM_ERROR}.
+     *
+     * <p>On a persistent stream the returned outcome is that of the
+     * last unit processed, unless the stream ended on
+     * {@code NoWorkAvailable} or an error.
      */
     Outcome run() {
-        BlockingQueue<WorkResponse> responses = new LinkedBlockingQueue<>();
-        AtomicReference<Throwable> streamError = new AtomicReference<>();
-        AtomicReference<Boolean> serverCompleted = new AtomicReference<>(Boolean.FALSE);
-        Object writeLock = new Object();
-
-        StreamObserver<WorkResponse> responseObserver = new StreamObserver<>() {
-            @Override public void onNext(WorkResponse value) { responses.add(value); }
-            @Override public void onError(Throwable t) { streamError.set(t); serverCompleted.set(Boolean.TRUE); }
-            @Override public void onCompleted() { serverCompleted.set(Boolean.TRUE); }
+        return endSession(runStream());
+    }
+
+    private Outcome runStream() {
+        if (!opened) {
+            opened = true;
+            endedEarly = open();
+        }
+        if (endedEarly != null) {
+            return endedEarly;
+        }
+        WorkResponse response = firstResponse;
+        while (true) {
+            if (response.hasNoWork()) {
+                long retryMs = response.getNoWork().getRetryAfterMs();
+                if (retryMs > 0) {
+                    suggestedNoWorkRetry = Duration.ofMillis(retryMs);
+                }
+                WorkResponse pushed = parkOnNoWork && unitsProcessed == 0 ? awaitPushedUnit() : null;
+                if (pushed != null) {
+                    response = pushed;
+                    continue;
+                }
+                closeQuietly(requestObserver);
+                return Outcome.NO_WORK_AVAILABLE;
+            }
+            if (!response.hasWorkUnit()) {
+                LOG.warnf("WorkResponse must be WorkUnit or NoWorkAvailable; got %s",
+                        response.getPayloadCase());
+                closeQuietly(requestObserver);
+                return Outcome.STREAM_ERROR;
+            }
+
+            unitsProcessed++;
+            boolean lastUnit = unitsProcessed >= maxUnitsPerStream
+                    || System.nanoTime() - openedAtNanos >= maxStreamAgeNanos;
+            Outcome outcome = processUnit(response.getWorkUnit(), lastUnit);
+            if (outcome == Outcome.STREAM_ERROR) {
+                return outcome;
+            }
+            flushPhases(outcome);
+            unitListener.onUnitCompleted(outcome, processNanos);
+            if (lastUnit) {
+                return outcome;
+            }
+
+            // --- Persistent stream: wait for the next unit on the same stream ---
+            long awaitStart = System.nanoTime();
+            response = awaitNextUnit();
+            addPhase(WorkerLoopMetrics.Phase.AWAIT_UNIT, awaitStart);
+            if (response == null) {
+                closeQuietly(requestObserver);
+                if (streamError.get() != null) {
+                    LOG.debugf(streamError.get(), "persistent Work stream failed after %d unit(s)",
+                            unitsProcessed);
+                    return Outcome.STREAM_ERROR;
+                }
+                return outcome;
+            }
+        }
+    }
+
+    /**
+     * Open the stream, send Hello and wait for the first response, leaving
+     * it in {@link #firstResponse}. Returns {@code null} on success, or
+     * the outcome the session ended with.
+     */
+    private Outcome open() {
+        long openStart = System.nanoTime();
+        ClientResponseObserver<WorkRequest, WorkResponse> responseObserver = new ClientResponseObserver<>() {
+            @Override public void beforeStart(ClientCallStreamObserver<WorkRequest> requestStream) {
+                callStream = requestStream;
+                if (config.chunkedPayloads()) {
+                    requestStream.setOnReadyHandler(WorkStreamSession.this::signalReady);
+                }
+            }
+            @Override public void onNext(WorkResponse value) { onResponse(value); }
+            @Override public void onError(Throwable t) { streamError.compareAndSet(null, t); serverCompleted.set(true); signalReady(); }
+            @Override public void onCompleted() { serverCompleted.set(true); }
         };
 
-        StreamObserver<WorkRequest> requestObserver;
         try {
-            requestObserver = asyncStub.work(responseObserver);
+            ModuleWorkServiceGrpc.ModuleWorkServiceStub stub = asyncStub;
+            ClientInterceptor affinity = affinityHints == null ? null : affinityHints.interceptor();
+            if (parkOnNoWork || config.chunkedPayloads() || config.deltaAcks() || affinity != null) {
+                List<ClientInterceptor> interceptors = new ArrayList<>(5);
+                if (parkOnNoWork) {
+                    interceptors.add(LONG_POLL_REQUEST);
+                }
+                if (config.chunkedPayloads()) {
+                    interceptors.add(CHUNKED_REQUEST);
+                }
+                if (config.deltaAcks()) {
+                    interceptors.add(DELTA_REQUEST);
+                }
+                if (affinity != null) {
+                    interceptors.add(affinity);
+                }
+                interceptors.add(MetadataUtils.newCaptureMetadataInterceptor(responseHeaders, responseTrailers));
+                stub = asyncStub.withInterceptors(interceptors.toArray(ClientInterceptor[]::new));
+            }
+            requestObserver = stub.work(responseObserver);
         } catch (RuntimeException e) {
             LOG.debugf(e, "failed to open Work stream");
             return Outcome.STREAM_ERROR;
         }
+        openedAtNanos = System.nanoTime();
 
         // --- Send Hello ---
         // Engine routes by module_id only (topic pipestream.module.<module_id>);
@@ -111,68 +616,238 @@ final class WorkStreamSession<T extends Message> {
                         .setInstanceId(instanceId())
                         .build())
                 .build();
-        synchronized (writeLock) {
-            try {
-                requestObserver.onNext(hello);
-            } catch (RuntimeException e) {
-                LOG.debugf(e, "Hello send failed");
-                return Outcome.STREAM_ERROR;
-            }
+        try {
+            write(hello);
+        } catch (RuntimeException e) {
+            LOG.debugf(e, "Hello send failed");
+            return Outcome.STREAM_ERROR;
         }
 
+        addPhase(WorkerLoopMetrics.Phase.OPEN, openStart);
+
         // --- Receive WorkUnit (or NoWorkAvailable) ---
-        WorkResponse first = awaitFirstResponse(responses, streamError, requestObserver);
-        if (first == null) {
-            return Outcome.STREAM_ERROR;
+        long awaitStart = System.nanoTime();
+        firstResponse = awaitFirstResponse();
+        addPhase(WorkerLoopMetrics.Phase.AWAIT_UNIT, awaitStart);
+        return firstResponse == null ? Outcome.STREAM_ERROR : null;
+    }
+
+    /**
+     * Queue a response for the session thread, reassembling chunked
+     * {@code WorkUnit}s first: frames are collected until the last one,
+     * which is queued as a single unit carrying the whole payload. A
+     * malformed frame run fails the stream with {@code INVALID_ARGUMENT},
+     * an oversized payload with {@code RESOURCE_EXHAUSTED}.
+     */
+    private void onResponse(WorkResponse value) {
+        if (!config.chunkedPayloads() || !value.hasWorkUnit()
+                || !PayloadChunks.isChunk(value.getWorkUnit().getPayload())) {
+            responses.add(value);
+            return;
         }
-        if (first.hasNoWork()) {
-            long retryMs = first.getNoWork().getRetryAfterMs();
-            if (retryMs > 0) {
-                suggestedNoWorkRetry = Duration.ofMillis(retryMs);
+        WorkUnit unit = value.getWorkUnit();
+        try {
+            Any payload = assembler.accept(unit.getWorkUnitId(), unit.getPayload());
+            framesReceived++;
+            if (payload != null) {
+                responses.add(WorkResponse.newBuilder()
+                        .setWorkUnit(unit.toBuilder().setPayload(payload))
+                        .build());
             }
-            closeQuietly(requestObserver);
-            return Outcome.NO_WORK_AVAILABLE;
+        } catch (PayloadChunks.PayloadTooLargeException e) {
+            LOG.errorf("Rejecting chunked WorkUnit %s: %s (raise "
+                    + "pipestream.module.worker-loop.chunk-max-payload-bytes to accept it)",
+                    unit.getWorkUnitId(), e.getMessage());
+            failStream(Status.RESOURCE_EXHAUSTED, e);
+        } catch (InvalidProtocolBufferException e) {
+            LOG.warnf("Malformed chunked WorkUnit %s: %s", unit.getWorkUnitId(), e.getMessage());
+            failStream(Status.INVALID_ARGUMENT, e);
         }
-        if (!first.hasWorkUnit()) {
-            LOG.warnf("first WorkResponse must be WorkUnit or NoWorkAvailable; got %s",
-                    first.getPayloadCase());
-            closeQuietly(requestObserver);
-            return Outcome.STREAM_ERROR;
+    }
+
+    /** End the stream from the client side, recording why as the stream's error. */
+    private void failStream(Status status, Exception cause) {
+        StatusRuntimeException error = status.withDescription(cause.getMessage()).withCause(cause).asRuntimeException();
+        streamError.compareAndSet(null, error);
+        serverCompleted.set(true);
+        callStream.cancel(error.getMessage(), error);
+    }
+
+    /**
+     * Write {@code ack}, as a run of {@link PayloadChunks} frames if its
+     * payload is above {@link WorkerLoopConfig#chunkThreshold()} and the
+     * engine agreed to chunking. Each frame waits for the stream to be
+     * ready, and the write lock is held per frame so heartbeats can
+     * still get through. Throws like {@code onNext} if the stream is gone.
+     */
+    private void writeAck(WorkAck ack) {
+        int size = ack.getUpdatedPayload().getValue().size();
+        if (size <= config.chunkThreshold() || !chunkingAgreed()) {
+            write(WorkRequest.newBuilder().setAck(ack).build());
+            return;
         }
+        int frameSize = Math.min(CHUNK_SIZES.calculateChunkSize(size), config.chunkThreshold());
+        for (Any frame : PayloadChunks.split(ack.getUpdatedPayload(), frameSize)) {
+            awaitReady();
+            write(WorkRequest.newBuilder()
+                    .setAck(ack.toBuilder().setUpdatedPayload(frame))
+                    .build());
+        }
+    }
+
+    /** Write one message under the write lock. Throws like {@code onNext}. */
+    private void write(WorkRequest request) {
+        writeLock.lock();
+        try {
+            requestObserver.onNext(request);
+        } finally {
+            writeLock.unlock();
+        }
+    }
 
+    private boolean chunkingAgreed() {
+        return config.chunkedPayloads() && engineEchoed(CHUNKED_PAYLOADS_HEADER, CHUNKED_V1);
+    }
+
+    private boolean deltaAcksAgreed() {
+        return config.deltaAcks() && engineEchoed(DELTA_ACKS_HEADER, DELTA_V1);
+    }
+
+    private boolean engineEchoed(Metadata.Key<String> header, String value) {
+        Metadata headers = responseHeaders.get();
+        return headers != null && value.equals(headers.get(header));
+    }
+
+    /** Block until gRPC flow control accepts another message on the stream. */
+    private void awaitReady() {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ackTimeoutMillis);
+        readyLock.lock();
+        try {
+            while (!callStream.isReady()) {
+                if (streamError.get() != null) {
+                    throw new IllegalStateException("Work stream failed while sending chunks", streamError.get());
+                }
+                long remainingNanos = deadlineNanos - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    throw new IllegalStateException(
+                            "Work stream not ready for the next chunk within " + ackTimeoutMillis + "ms");
+                }
+                readyChanged.awaitNanos(Math.min(remainingNanos, TimeUnit.MILLISECONDS.toNanos(200)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted sending chunks", e);
+        } finally {
+            readyLock.unlock();
+        }
+    }
+
+    private void signalReady() {
+        readyLock.lock();
+        try {
+            readyChanged.signalAll();
+        } finally {
+            readyLock.unlock();
+        }
+    }
+
+    /**
+     * Unpack, process and ack one unit, then wait for its
+     * {@code AckConfirmed}. Closes the stream afterwards only if
+     * {@code closeAfter} is set (or the exchange failed).
+     */
+    private Outcome processUnit(WorkUnit unit, boolean closeAfter) {
         // --- Process while heartbeating ---
-        String workUnitId = first.getWorkUnit().getWorkUnitId();
-        T input;
+        String workUnitId = unit.getWorkUnitId();
+        // Units that never reach process() (payload mismatch, cache hit)
+        // report 0, not the previous unit's latency on this stream.
+        processNanos = 0L;
+        T input = prefetchedInput;
+        prefetchedInput = null;
+        if (holdPump != null) {
+            holdPump.close();
+            holdPump = null;
+        } else {
+            metrics.recordPayloadIn(unit.getPayload().getValue().size());
+        }
+        IdempotencyCache.Key cacheKey = null;
+        if (idempotencyCache != null) {
+            cacheKey = IdempotencyCache.Key.of(unit);
+            Any cached = idempotencyCache.get(cacheKey);
+            metrics.recordIdempotencyLookup(cached != null);
+            if (cached != null) {
+                return sendCachedAck(unit, input, cached, closeAfter);
+            }
+        }
+        long unpackStart = System.nanoTime();
         try {
-            input = codec.unpack(first.getWorkUnit().getPayload());
+            if (input == null) {
+                input = codec.unpack(unit.getPayload());
+            }
+            addPhase(WorkerLoopMetrics.Phase.UNPACK, unpackStart);
         } catch (InvalidProtocolBufferException e) {
             LOG.errorf(e, "WorkUnit payload could not be unpacked as %s (typeUrl=%s)",
                     codec.messageClass().getSimpleName(),
-                    first.getWorkUnit().getPayload().getTypeUrl());
+                    unit.getPayload().getTypeUrl());
             // Tell the engine the payload was unprocessable. The engine
             // records permanent failure and moves on; the module didn't
             // do anything wrong — the engine sent the wrong type.
-            sendAckPermanent(requestObserver, writeLock, workUnitId,
+            sendAck(workUnitId, ProcessingStatus.PROCESSING_STATUS_PERMANENT_FAILURE,
                     "WorkUnit payload type mismatch: " + e.getMessage());
             return finalizeOutcome(
-                    drainAckConfirmed(responses, requestObserver, streamError),
+                    drainAckConfirmed(closeAfter),
                     ProcessingStatus.PROCESSING_STATUS_PERMANENT_FAILURE);
         }
 
-        WorkAck ack = runProcessor(requestObserver, writeLock, workUnitId, input);
-        synchronized (writeLock) {
+        WorkAck ack = runProcessor(workUnitId, input);
+        if (cacheKey != null && ack.getStatus() == ProcessingStatus.PROCESSING_STATUS_SUCCESS) {
+            idempotencyCache.put(cacheKey, fullOutput);
+        }
+        fullOutput = null;
+        try {
+            writeAck(ack);
+        } catch (RuntimeException e) {
+            LOG.debugf(e, "WorkAck send failed");
+            return Outcome.STREAM_ERROR;
+        }
+
+        // --- Wait for AckConfirmed (+ clean close on the last unit) ---
+        return finalizeOutcome(drainAckConfirmed(closeAfter), ack.getStatus());
+    }
+
+    /**
+     * Ack a redelivered unit with the output it was acked with before,
+     * without processing it. The cache holds the whole output; it is
+     * re-encoded as a delta only if this stream agreed to deltas, which
+     * costs unpacking both payloads.
+     */
+    private Outcome sendCachedAck(WorkUnit unit, T input, Any cached, boolean closeAfter) {
+        processNanos = 0L;
+        Any payload = cached;
+        if (deltaAcksAgreed()) {
+            long packStart = System.nanoTime();
             try {
-                requestObserver.onNext(WorkRequest.newBuilder().setAck(ack).build());
-            } catch (RuntimeException e) {
-                LOG.debugf(e, "WorkAck send failed");
-                return Outcome.STREAM_ERROR;
+                T before = input != null ? input : codec.unpack(unit.getPayload());
+                payload = PayloadDelta.encode(before, codec.unpack(cached), cached);
+            } catch (InvalidProtocolBufferException e) {
+                // The whole output is a valid ack on any stream.
+                LOG.debugf(e, "cached output for work_unit %s not re-encoded as a delta", unit.getWorkUnitId());
             }
+            addPhase(WorkerLoopMetrics.Phase.PACK, packStart);
         }
-
-        // --- Wait for AckConfirmed + clean close ---
-        return finalizeOutcome(
-                drainAckConfirmed(responses, requestObserver, streamError),
-                ack.getStatus());
+        WorkAck ack = WorkAck.newBuilder()
+                .setWorkUnitId(unit.getWorkUnitId())
+                .setStatus(ProcessingStatus.PROCESSING_STATUS_SUCCESS)
+                .setUpdatedPayload(payload)
+                .build();
+        metrics.recordPayloadOut(payload.getValue().size());
+        try {
+            writeAck(ack);
+        } catch (RuntimeException e) {
+            LOG.debugf(e, "WorkAck send failed");
+            return Outcome.STREAM_ERROR;
+        }
+        return finalizeOutcome(drainAckConfirmed(closeAfter), ack.getStatus());
     }
 
     /**
@@ -196,13 +871,11 @@ final class WorkStreamSession<T extends Message> {
      * Invoke the module's processor with heartbeats running. Maps
      * thrown exceptions to the appropriate {@link ProcessingStatus}.
      */
-    private WorkAck runProcessor(StreamObserver<WorkRequest> requestObserver,
-                                 Object writeLock,
-                                 String workUnitId,
-                                 T input) {
+    private WorkAck runProcessor(String workUnitId, T input) {
         try (HeartbeatPump pump = new HeartbeatPump(requestObserver, writeLock, config.heartbeatInterval())) {
             pump.start();
             T output;
+            long startNanos = System.nanoTime();
             try {
                 output = processor.process(input);
             } catch (ModuleProcessor.PermanentFailure pf) {
@@ -220,54 +893,112 @@ final class WorkStreamSession<T extends Message> {
                                 ? retryable.getClass().getSimpleName()
                                 : retryable.getMessage())
                         .build();
+            } finally {
+                processNanos = System.nanoTime() - startNanos;
+                phaseNanos[WorkerLoopMetrics.Phase.PROCESS.ordinal()] += processNanos;
             }
             return WorkAck.newBuilder()
                     .setWorkUnitId(workUnitId)
                     .setStatus(ProcessingStatus.PROCESSING_STATUS_SUCCESS)
-                    .setUpdatedPayload(codec.pack(output))
+                    .setUpdatedPayload(packOutput(input, output))
                     .build();
         }
     }
 
-    private void sendAckPermanent(StreamObserver<WorkRequest> requestObserver,
-                                  Object writeLock,
-                                  String workUnitId,
-                                  String message) {
-        synchronized (writeLock) {
-            try {
-                requestObserver.onNext(WorkRequest.newBuilder()
-                        .setAck(WorkAck.newBuilder()
-                                .setWorkUnitId(workUnitId)
-                                .setStatus(ProcessingStatus.PROCESSING_STATUS_PERMANENT_FAILURE)
-                                .setErrorMessage(message)
-                                .build())
-                        .build());
-            } catch (RuntimeException ignored) {
-                // already closed; the surrounding code path handles cleanup
+    /** The ack payload for {@code output}: a {@link PayloadDelta} when enabled and agreed. */
+    private Any packOutput(T input, T output) {
+        long packStart = System.nanoTime();
+        Any full = codec.pack(output);
+        fullOutput = full;
+        Any payload = input != null && deltaAcksAgreed()
+                ? PayloadDelta.encode(input, output, full)
+                : full;
+        addPhase(WorkerLoopMetrics.Phase.PACK, packStart);
+        metrics.recordPayloadOut(payload.getValue().size());
+        return payload;
+    }
+
+    private void addPhase(WorkerLoopMetrics.Phase phase, long startNanos) {
+        phaseNanos[phase.ordinal()] += System.nanoTime() - startNanos;
+    }
+
+    /** Report the phases accumulated since the last flush under {@code outcome}. */
+    private void flushPhases(Outcome outcome) {
+        for (int i = 0; i < phaseNanos.length; i++) {
+            if (phaseNanos[i] > 0) {
+                metrics.recordPhase(PHASES[i], outcome, phaseNanos[i]);
+                phaseNanos[i] = 0;
             }
         }
     }
 
+    private Outcome endSession(Outcome outcome) {
+        flushPhases(outcome);
+        metrics.recordSessionEnd(outcome);
+        return outcome;
+    }
+
+    private void sendAck(String workUnitId, ProcessingStatus status, String message) {
+        try {
+            write(WorkRequest.newBuilder()
+                    .setAck(WorkAck.newBuilder()
+                            .setWorkUnitId(workUnitId)
+                            .setStatus(status)
+                            .setErrorMessage(message)
+                            .build())
+                    .build());
+        } catch (RuntimeException ignored) {
+            // already closed; the surrounding code path handles cleanup
+        }
+    }
+
     /**
      * Wait for the engine's {@code AckConfirmed} (or stream close) and
-     * tell the loop how the session ended.
+     * tell the loop how the unit ended. The stream is closed on any
+     * failure, and on success only when {@code closeAfter} is set.
      */
-    private Outcome drainAckConfirmed(BlockingQueue<WorkResponse> responses,
-                                       StreamObserver<WorkRequest> requestObserver,
-                                       AtomicReference<Throwable> streamError) {
+    private Outcome drainAckConfirmed(boolean closeAfter) {
         try {
-            WorkResponse confirmation = responses.poll(ackTimeoutMillis, TimeUnit.MILLISECONDS);
-            closeQuietly(requestObserver);
+            long confirmStart = System.nanoTime();
+            long deadlineNanos = confirmStart + TimeUnit.MILLISECONDS.toNanos(ackTimeoutMillis);
+            WorkResponse confirmation = null;
+            // Poll in slices: a reset or completed stream never delivers
+            // the confirmation, and shouldn't hold the worker for the
+            // whole ack timeout.
+            while (confirmation == null && streamError.get() == null) {
+                boolean completed = serverCompleted.get();
+                long remainingNanos = deadlineNanos - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    break;
+                }
+                long pollMs = completed ? 0L : Math.min(200L, TimeUnit.NANOSECONDS.toMillis(remainingNanos));
+                confirmation = responses.poll(pollMs, TimeUnit.MILLISECONDS);
+                if (confirmation == null && completed) {
+                    break;
+                }
+            }
+            addPhase(WorkerLoopMetrics.Phase.ACK_CONFIRM, confirmStart);
+            if (closeAfter) {
+                closeQuietly(requestObserver);
+            }
             if (streamError.get() != null) {
                 LOG.debugf(streamError.get(), "stream errored before AckConfirmed");
+                closeQuietly(requestObserver);
+                return Outcome.STREAM_ERROR;
+            }
+            if (confirmation == null && serverCompleted.get()) {
+                LOG.warnf("Work stream completed before AckConfirmed");
+                closeQuietly(requestObserver);
                 return Outcome.STREAM_ERROR;
             }
             if (confirmation == null) {
                 LOG.warnf("AckConfirmed not received within %dms", ackTimeoutMillis);
+                closeQuietly(requestObserver);
                 return Outcome.STREAM_ERROR;
             }
             if (!confirmation.hasAckConfirmed()) {
                 LOG.warnf("expected AckConfirmed, got %s", confirmation.getPayloadCase());
+                closeQuietly(requestObserver);
                 return Outcome.STREAM_ERROR;
             }
             return Outcome.SUCCESS;
@@ -285,12 +1016,21 @@ final class WorkStreamSession<T extends Message> {
      * (e.g. engine does not serve this {@code module_id}), return immediately
      * instead of blocking the full {@link WorkerLoopConfig#firstResponseTimeout()}.
      */
-    private WorkResponse awaitFirstResponse(BlockingQueue<WorkResponse> responses,
-                                            AtomicReference<Throwable> streamError,
-                                            StreamObserver<WorkRequest> requestObserver) {
-        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(firstResponseTimeoutMillis);
+    private WorkResponse awaitFirstResponse() {
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(firstResponseTimeoutMillis);
+        long deadlineNanos = System.nanoTime() + timeoutNanos;
+        long frames = framesReceived;
         try {
-            while (System.nanoTime() < deadlineNanos) {
+            while (true) {
+                if (framesReceived != frames) {
+                    // A chunked unit is still arriving; the timeout covers
+                    // silence, not the transfer of a large payload.
+                    frames = framesReceived;
+                    deadlineNanos = System.nanoTime() + timeoutNanos;
+                }
+                if (System.nanoTime() >= deadlineNanos) {
+                    break;
+                }
                 Throwable err = streamError.get();
                 if (err != null) {
                     LOG.debugf(err, "Work stream failed before first response (check engine "
@@ -319,6 +1059,91 @@ final class WorkStreamSession<T extends Message> {
         }
     }
 
+    /**
+     * Park after {@code NoWorkAvailable} if the engine agreed to
+     * long-poll: keep the stream open and heartbeated until the engine
+     * pushes a {@code WorkUnit} (returned), or the stream ends or
+     * {@link WorkerLoopConfig#longPollTimeout()} passes ({@code null}).
+     * Further {@code NoWorkAvailable}s while parked are keep-alives.
+     */
+    private WorkResponse awaitPushedUnit() {
+        Metadata headers = responseHeaders.get();
+        if (headers == null || !LONG_POLL.equals(headers.get(IDLE_MODE_HEADER))) {
+            longPollDeclined = true;
+            return null;
+        }
+        long parkStart = System.nanoTime();
+        long deadlineNanos = parkStart + config.longPollTimeout().toNanos();
+        try (HeartbeatPump pump = new HeartbeatPump(requestObserver, writeLock, config.heartbeatInterval())) {
+            pump.start();
+            while (streamError.get() == null && keepParking.getAsBoolean()) {
+                boolean completed = serverCompleted.get();
+                long remainingNanos = deadlineNanos - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    parked = true;
+                    return null;
+                }
+                long pollMs = completed ? 0L : Math.min(200L, TimeUnit.NANOSECONDS.toMillis(remainingNanos));
+                WorkResponse r = responses.poll(pollMs, TimeUnit.MILLISECONDS);
+                if (r != null && !r.hasNoWork()) {
+                    return r;
+                }
+                if (r == null && completed) {
+                    return null;
+                }
+            }
+            return null;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            addPhase(WorkerLoopMetrics.Phase.AWAIT_UNIT, parkStart);
+        }
+    }
+
+    /**
+     * Wait for the next {@code WorkResponse} on a persistent stream.
+     * Returns {@code null} when the engine completes the stream (an engine
+     * that serves one unit per stream), errors it, or stays silent past
+     * {@link WorkerLoopConfig#firstResponseTimeout()} — the caller tells
+     * those apart via {@link #streamError}.
+     */
+    private WorkResponse awaitNextUnit() {
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(firstResponseTimeoutMillis);
+        long deadlineNanos = System.nanoTime() + timeoutNanos;
+        long frames = framesReceived;
+        try {
+            while (streamError.get() == null) {
+                if (framesReceived != frames) {
+                    frames = framesReceived;
+                    deadlineNanos = System.nanoTime() + timeoutNanos;
+                }
+                // Read the completion flag before polling: onNext always
+                // lands in the queue before onCompleted flips the flag, so
+                // an empty queue after a completed read means no more units.
+                boolean completed = serverCompleted.get();
+                long remainingNanos = deadlineNanos - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    LOG.debugf("no further WorkUnit within %dms after %d unit(s); recycling stream",
+                            firstResponseTimeoutMillis, unitsProcessed);
+                    return null;
+                }
+                long pollMs = completed ? 0L : Math.min(200L, TimeUnit.NANOSECONDS.toMillis(remainingNanos));
+                WorkResponse r = responses.poll(pollMs, TimeUnit.MILLISECONDS);
+                if (r != null) {
+                    return r;
+                }
+                if (completed) {
+                    return null;
+                }
+            }
+            return null;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
     private static void closeQuietly(StreamObserver<WorkRequest> requestObserver) {
         try {
             requestObserver.onCompleted();
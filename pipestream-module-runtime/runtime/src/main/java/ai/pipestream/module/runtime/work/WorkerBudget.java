@@ -0,0 +1,178 @@
+package ai.pipestream.module.runtime.work;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Global worker budget shared by several {@link ModuleWorkerLoop}s hosted
+ * in one JVM (say parser, chunker and echo), so they draw on one pool of
+ * worker virtual threads instead of each sizing for its own peak.
+ *
+ * <p>Each loop joins with {@link ModuleWorkerLoop#useWorkerBudget}. Its
+ * minimum workers are reserved up front — an idle module keeps its
+ * pollers no matter how busy the others are — and everything above the
+ * minimum is borrowed from the shared remainder:
+ * <ul>
+ *   <li>Without contention a busy module may grow to its own maximum,
+ *       taking slots idle modules aren't using. Workers ramp down on
+ *       {@code NoWorkAvailable}, which returns the slots.</li>
+ *   <li>Once another module has been refused a slot within the last
+ *       {@link #CONTENTION_WINDOW}, every member's ceiling drops to its
+ *       fair share ({@code total / members}, never below its minimum).
+ *       Members above it shed workers after their current unit, and the
+ *       refused module picks up the freed slots on its next ramp-up.</li>
+ * </ul>
+ *
+ * <p>Slots above the minimum are granted under a lock, so the budget is
+ * never overshot; releasing a slot is just the loop's own worker count
+ * going down. The lock is only taken on ramp-up attempts that look like
+ * they fit, never per unit of work or to refuse one.
+ */
+public final class WorkerBudget {
+
+    /** How long a refused ramp-up counts as contention. */
+    static final Duration CONTENTION_WINDOW = Duration.ofSeconds(1);
+
+    private final int totalWorkers;
+    private final List<Member> members = new CopyOnWriteArrayList<>();
+    // ReentrantLock, not synchronized: callers are virtual threads.
+    private final ReentrantLock grantLock = new ReentrantLock();
+
+    /**
+     * @param totalWorkers worker virtual threads shared by every member
+     *                     loop; must cover the sum of their minimums
+     */
+    public WorkerBudget(int totalWorkers) {
+        if (totalWorkers < 1) {
+            throw new IllegalArgumentException("totalWorkers must be >= 1, got " + totalWorkers);
+        }
+        this.totalWorkers = totalWorkers;
+    }
+
+    /** The configured size of the budget. */
+    public int totalWorkers() {
+        return totalWorkers;
+    }
+
+    /** Slots currently taken: every member's live workers, or its reserved minimum if more. */
+    public int usedWorkers() {
+        int used = 0;
+        for (Member m : members) {
+            used += m.held();
+        }
+        return used;
+    }
+
+    /**
+     * Join the budget. {@code active} is the loop's own live-worker
+     * counter; the budget increments it when it grants a slot and reads
+     * it to see what the member holds.
+     *
+     * @throws IllegalStateException if the members' minimums would no
+     *         longer fit in the budget
+     */
+    Member join(String moduleId, int minWorkers, int maxWorkers, AtomicInteger active) {
+        Member member = new Member(moduleId, minWorkers, maxWorkers, active);
+        grantLock.lock();
+        try {
+            int reserved = minWorkers;
+            for (Member m : members) {
+                reserved += m.minWorkers;
+            }
+            if (reserved > totalWorkers) {
+                throw new IllegalStateException("Worker budget of " + totalWorkers
+                        + " can't reserve min-concurrency " + minWorkers + " for module " + moduleId
+                        + " (" + (reserved - minWorkers) + " already reserved)");
+            }
+            members.add(member);
+        } finally {
+            grantLock.unlock();
+        }
+        return member;
+    }
+
+    /** One loop's membership. */
+    final class Member {
+        private final String moduleId;
+        private final int minWorkers;
+        private final int maxWorkers;
+        private final AtomicInteger active;
+        private volatile long refusedAtNanos;
+        private volatile boolean everRefused;
+
+        private Member(String moduleId, int minWorkers, int maxWorkers, AtomicInteger active) {
+            this.moduleId = Objects.requireNonNull(moduleId, "moduleId");
+            this.minWorkers = minWorkers;
+            this.maxWorkers = maxWorkers;
+            this.active = active;
+        }
+
+        private int held() {
+            return Math.max(active.get(), minWorkers);
+        }
+
+        /**
+         * Take a slot for one more worker: increments the loop's worker
+         * count and returns the new value, or returns {@code -1} if the
+         * budget is exhausted (which marks this member as contending).
+         */
+        int admit() {
+            // Refuse a full budget without the lock: busy members retry
+            // on every completed unit, and lock traffic from refusals
+            // would starve the member that actually has room.
+            if (full()) {
+                return refuse();
+            }
+            grantLock.lock();
+            try {
+                if (full()) {
+                    return refuse();
+                }
+                return active.incrementAndGet();
+            } finally {
+                grantLock.unlock();
+            }
+        }
+
+        private boolean full() {
+            return active.get() >= minWorkers && usedWorkers() >= totalWorkers;
+        }
+
+        private int refuse() {
+            refusedAtNanos = System.nanoTime();
+            everRefused = true;
+            return -1;
+        }
+
+        /**
+         * Most workers this member should run right now: its maximum, or
+         * its fair share while another member is being refused slots.
+         */
+        int ceiling() {
+            for (Member other : members) {
+                if (other != this && other.contending()) {
+                    return Math.max(minWorkers, Math.min(maxWorkers, totalWorkers / members.size()));
+                }
+            }
+            return maxWorkers;
+        }
+
+        private boolean contending() {
+            return everRefused && System.nanoTime() - refusedAtNanos < CONTENTION_WINDOW.toNanos();
+        }
+
+        /** Leave the budget (loop stopped); its reserved minimum is freed. */
+        void leave() {
+            members.remove(this);
+        }
+
+        @Override
+        public String toString() {
+            return "WorkerBudget.Member[" + moduleId + " " + minWorkers + ".." + maxWorkers + "]";
+        }
+    }
+}
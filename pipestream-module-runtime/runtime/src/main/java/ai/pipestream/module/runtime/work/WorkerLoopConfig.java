@@ -4,6 +4,8 @@ import io.smallrye.config.ConfigMapping;
 import io.smallrye.config.WithDefault;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Configuration for the {@link ModuleWorkerLoop} client framework.
@@ -58,6 +60,20 @@ public interface WorkerLoopConfig {
     @WithDefault("engine")
     String grpcClientName();
 
+    /**
+     * Number of engine channels (HTTP/2 connections) the worker threads'
+     * Work streams are spread over. Each new stream goes to the channel
+     * with the fewest streams in flight.
+     *
+     * <p>One channel is right for a handful of workers. At high
+     * {@link #concurrency()} a single connection runs into the engine's
+     * {@code MAX_CONCURRENT_STREAMS} and a single Netty event loop, and
+     * streams stall behind each other; a few channels (rule of thumb:
+     * one per ~25 workers) avoid that.
+     */
+    @WithDefault("1")
+    int channelPoolSize();
+
     /**
      * Maximum concurrent open streams when work is available. The
      * loop starts at {@link #minConcurrency()} and adds workers after
@@ -123,4 +139,316 @@ public interface WorkerLoopConfig {
      */
     @WithDefault("15s")
     Duration firstResponseTimeout();
+
+    /**
+     * Work units one {@code Work} stream may carry before the worker
+     * recycles it. {@code 1} (the default) is the classic lifecycle:
+     * open → Hello → WorkUnit → Ack → AckConfirmed → close, one stream
+     * per unit.
+     *
+     * <p>Above {@code 1} the worker keeps its half of the stream open
+     * after {@code AckConfirmed} and processes the next {@code WorkUnit}
+     * the engine serves on it, skipping stream setup and the Hello round
+     * trip. The stream is recycled on error, on {@code NoWorkAvailable},
+     * or once this limit or {@link #maxStreamAge()} is reached. An engine
+     * that completes the stream after {@code AckConfirmed} simply gets a
+     * fresh stream next iteration, so raising this is safe against either.
+     */
+    @WithDefault("1")
+    int maxUnitsPerStream();
+
+    /**
+     * Age after which a persistent stream is recycled even if
+     * {@link #maxUnitsPerStream()} has not been reached. Bounds how long
+     * one stream stays pinned to one engine instance, so a scaled-out
+     * engine starts receiving this worker's demand. Checked between
+     * units; irrelevant when {@link #maxUnitsPerStream()} is {@code 1}.
+     */
+    @WithDefault("5m")
+    Duration maxStreamAge();
+
+    /**
+     * Units each worker fetches ahead while its current unit is in
+     * {@link ModuleProcessor#process}. {@code 0} (the default) disables
+     * prefetch: a worker asks for its next unit only after the engine
+     * confirmed the previous ack.
+     *
+     * <p>With {@code N > 0} a worker holds up to {@code N} extra open
+     * streams, each with a unit already received and decoded, so the next
+     * {@code process} call starts without an engine round trip. Units are
+     * processed and acked in the order they were requested; prefetched
+     * units are heartbeated while they wait and released back to the
+     * engine if the worker stops first. Prefetched streams always carry a
+     * single unit, whatever {@link #maxUnitsPerStream()} says.
+     */
+    @WithDefault("0")
+    int prefetchCredits();
+
+    /**
+     * Most units handed to one {@link BatchModuleProcessor#processBatch}
+     * call. Only used when the loop is built with a
+     * {@link BatchModuleProcessor}; each unit in a batch holds its own
+     * open stream until it is acked.
+     */
+    @WithDefault("16")
+    int maxBatchSize();
+
+    /**
+     * Longest a batch waits for more units after its first one arrived
+     * before it is processed as-is. Trades a bounded amount of latency on
+     * the first unit for fuller batches under load. Only used with a
+     * {@link BatchModuleProcessor}.
+     */
+    @WithDefault("50ms")
+    Duration maxBatchDelay();
+
+    /**
+     * How the loop picks its worker count between
+     * {@link #minConcurrency()} and {@link #concurrency()}:
+     * <ul>
+     *   <li>{@code ramp} (default) — one more worker per processed unit up
+     *       to the maximum, down only on {@code NoWorkAvailable}.</li>
+     *   <li>{@code aimd} — {@link AimdConcurrencyLimiter}: add a worker
+     *       while {@code process()} latency stays within
+     *       {@link #limiterLatencyTolerance()} of its baseline and the
+     *       measured throughput keeps the workers busy, cut by 10% when
+     *       latency doesn't.</li>
+     *   <li>{@code gradient} — {@link GradientConcurrencyLimiter}: scale the
+     *       worker count by how far latency has risen above its baseline.</li>
+     * </ul>
+     * Use {@code aimd} or {@code gradient} for modules where extra workers
+     * can add contention (CPU-bound embedders, a slowing downstream).
+     */
+    @WithDefault("ramp")
+    String concurrencyLimiter();
+
+    /**
+     * For the {@code aimd} limiter: how many times its baseline
+     * {@code process()} latency a window's mean may reach before the
+     * worker count is cut. Must be above {@code 1}.
+     */
+    @WithDefault("2.0")
+    double limiterLatencyTolerance();
+
+    /**
+     * Ack successful units with only the top-level fields the module
+     * changed (see {@link PayloadDelta}) instead of the whole output,
+     * whenever that is smaller. Cuts ack bandwidth and engine-side parse
+     * cost for enrichment-style modules that touch a few fields of large
+     * documents. Offered to the engine with the
+     * {@code x-pipestream-delta-acks} request header; acks are only
+     * delta-encoded on streams where the engine echoes it, so an engine
+     * that doesn't apply {@link PayloadDelta#TYPE_URL_PREFIX} payloads
+     * keeps getting whole outputs.
+     */
+    @WithDefault("false")
+    boolean deltaAcks();
+
+    /**
+     * What a worker at the minimum does when the engine answers
+     * {@code NoWorkAvailable}:
+     * <ul>
+     *   <li>{@code poll} (default) — close the stream, sleep
+     *       {@link #noWorkRetryAfter()}, reconnect.</li>
+     *   <li>{@code long-poll} — keep the stream parked (heartbeated) so
+     *       the engine can push the next {@code WorkUnit} the moment it
+     *       arrives, instead of it waiting for the next poll. The worker
+     *       announces this with the {@code x-pipestream-idle-mode}
+     *       request header and only parks if the engine echoes it in its
+     *       response headers; otherwise the loop falls back to
+     *       {@code poll}.</li>
+     * </ul>
+     */
+    @WithDefault("poll")
+    String idleMode();
+
+    /**
+     * Where the module's {@code process()} / {@code processBatch()} runs:
+     * <ul>
+     *   <li>{@code virtual} (default) — on the worker's virtual thread.
+     *       Right for modules that mostly wait on I/O.</li>
+     *   <li>{@code cpu-bound} — on a bounded pool of
+     *       {@link #cpuBoundThreads()} platform threads, while the stream
+     *       I/O stays on virtual threads. For CPU-heavy modules, whose
+     *       work would otherwise hog the carrier threads that heartbeats
+     *       and gRPC callbacks need. Worker ramp-up is capped at twice
+     *       the pool size.</li>
+     * </ul>
+     */
+    @WithDefault("virtual")
+    String processExecutor();
+
+    /**
+     * Platform threads for {@code cpu-bound} {@link #processExecutor()};
+     * {@code 0} (default) means one per available processor.
+     */
+    @WithDefault("0")
+    int cpuBoundThreads();
+
+    /**
+     * Fork-join threads that run the parts of a
+     * {@link SplittableModuleProcessor}'s units, shared by all workers;
+     * {@code 0} (default) means one per available processor. Ignored with
+     * {@code cpu-bound} {@link #processExecutor()}, where the parts run on
+     * that pool.
+     */
+    @WithDefault("0")
+    int splitParallelism();
+
+    /**
+     * Entries kept by the idempotency cache, which answers redelivered
+     * units (same {@code work_unit_id}, same payload bytes) with the
+     * output acked last time instead of calling {@code process()} again.
+     * {@code 0} (default) disables it. Batch processors don't use it.
+     */
+    @WithDefault("0")
+    int idempotencyCacheMaxEntries();
+
+    /**
+     * Upper bound on the output bytes the idempotency cache holds; least
+     * recently used entries are evicted beyond it, and a single output
+     * larger than this is never cached.
+     */
+    @WithDefault("67108864")
+    long idempotencyCacheMaxBytes();
+
+    /**
+     * How long a cached output answers redeliveries. Should cover the
+     * engine's redelivery window; after it the unit is processed again.
+     */
+    @WithDefault("10m")
+    Duration idempotencyCacheTtl();
+
+    /**
+     * Hold cached outputs in direct (off-heap) buffers rather than on the
+     * heap. Worth it when outputs are large; counts against
+     * {@code -XX:MaxDirectMemorySize}.
+     */
+    @WithDefault("false")
+    boolean idempotencyCacheOffHeap();
+
+    /**
+     * In {@code long-poll} idle mode, how long a stream stays parked
+     * without a pushed unit before it is recycled (closed and reopened
+     * at once, without the poll sleep).
+     */
+    @WithDefault("60s")
+    Duration longPollTimeout();
+
+    /**
+     * Offer chunked transfer of large payloads (see {@link PayloadChunks})
+     * with the {@code x-pipestream-chunked-payloads} request header. The
+     * worker always reassembles chunked {@code WorkUnit}s; it only splits
+     * its own acks above {@link #chunkThreshold()} if the engine echoes
+     * the header in its response headers. Once both sides chunk, the
+     * {@code max-inbound-message-size} of the engine client no longer has
+     * to cover the largest document; with this on, the engine channel's
+     * inbound limit defaults to {@link #chunkMaxPayloadBytes()} instead of
+     * 2 GiB (an explicit
+     * {@code quarkus.grpc.clients.<name>.max-inbound-message-size} still
+     * wins).
+     */
+    @WithDefault("false")
+    boolean chunkedPayloads();
+
+    /**
+     * Ack payloads larger than this many bytes are split into frames when
+     * chunking was negotiated. Frames are sized by
+     * {@code ChunkSizeCalculator} for the payload's total size, and never
+     * above this threshold, so it also bounds each message on the wire.
+     */
+    @WithDefault("8388608")
+    int chunkThreshold();
+
+    /**
+     * Largest chunked {@code WorkUnit} payload the worker reassembles. A
+     * unit whose first frame announces more fails the stream with
+     * {@code RESOURCE_EXHAUSTED} before any of it is buffered, so a peer
+     * can't make the worker hold an arbitrarily large payload by spreading
+     * it over frames. Also the default inbound message limit of the engine
+     * channel when {@link #chunkedPayloads()} is on, which bounds a unit
+     * sent whole the same way.
+     */
+    @WithDefault("268435456")
+    long chunkMaxPayloadBytes();
+
+    /**
+     * Stop ramping up, and shed workers down to {@link #minConcurrency()},
+     * when the JVM runs short of memory or CPU (see
+     * {@link ResourcePressure}). Keeps a module working through large
+     * documents from pulling itself into an OOM kill.
+     *
+     * <p>Off by default, so an upgrade never changes how far an existing
+     * module ramps up; enable it per module once its thresholds below
+     * suit its heap.
+     */
+    @WithDefault("false")
+    boolean pressureThrottling();
+
+    /**
+     * Fraction of the max heap still occupied after garbage collection
+     * (or of max direct memory in use) at which ramp-up pauses.
+     */
+    @WithDefault("0.85")
+    double pressureMemoryHigh();
+
+    /**
+     * Fraction of heap after GC or of direct memory at which workers above
+     * {@link #minConcurrency()} are shed after their current unit.
+     */
+    @WithDefault("0.95")
+    double pressureMemoryCritical();
+
+    /**
+     * Share of wall time spent in GC over the last sampling interval at
+     * which ramp-up pauses; twice this sheds workers. {@code 0} ignores
+     * GC time.
+     */
+    @WithDefault("0.25")
+    double pressureGcTimeHigh();
+
+    /**
+     * Machine (container) CPU load at which ramp-up pauses. CPU load never
+     * sheds workers. {@code 0} ignores CPU load.
+     */
+    @WithDefault("0.95")
+    double pressureCpuHigh();
+
+    /** How often the pressure gauges are re-read. */
+    @WithDefault("1s")
+    Duration pressureSampleInterval();
+
+    /**
+     * Most {@code process()} calls the warm-up runs on the module's
+     * sample inputs before the first {@code Hello}; only used when the
+     * module supplies inputs with {@link ModuleWorkerLoop#useWarmup}.
+     * Warm-up ends at this count or after {@link #warmupDuration()},
+     * whichever comes first. {@code 0} leaves only the time limit.
+     */
+    @WithDefault("1000")
+    int warmupIterations();
+
+    /**
+     * Longest the warm-up may run; readiness stays {@code DOWN} for at
+     * most this long. {@code 0} leaves only the iteration limit.
+     */
+    @WithDefault("30s")
+    Duration warmupDuration();
+
+    /**
+     * Most affinity keys the loop advertises to the engine at once (see
+     * {@link AffinityHints}); beyond it the oldest key is dropped. Each
+     * key costs up to 129 bytes of header on every stream open. {@code 0}
+     * turns affinity hints off.
+     */
+    @WithDefault("32")
+    int affinityMaxKeys();
+
+    /**
+     * Affinity keys advertised from startup, for instances pinned to a
+     * slice of the work (e.g. {@code lang:ja}). The module can add and
+     * remove keys at runtime through {@link ModuleWorkerLoop#affinityHints()};
+     * these are subject to the same limit and eviction.
+     */
+    Optional<List<String>> affinityKeys();
 }
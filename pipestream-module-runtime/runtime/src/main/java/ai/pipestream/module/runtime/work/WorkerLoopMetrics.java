@@ -0,0 +1,271 @@
+package ai.pipestream.module.runtime.work;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Micrometer instrumentation of the {@code Work} stream lifecycle for one
+ * {@link ModuleWorkerLoop}.
+ *
+ * <p>Every meter is registered once, up front: phase timers are held in a
+ * {@code [phase][outcome]} table, so recording on the hot path is an
+ * array lookup plus {@link Timer#record(long, TimeUnit)} — no builder, no
+ * registry lookup, no allocation. (Micrometer's registry lookup is
+ * lock-protected and can pin carrier threads under virtual-thread load;
+ * see {@code DynamicGrpcMetrics} for the same reasoning.)
+ *
+ * <p>Meters, all tagged {@code module_id}:
+ * <ul>
+ *   <li>{@code pipestream.module.worker.phase} — timer per {@link Phase},
+ *       tagged {@code phase} and {@code outcome}</li>
+ *   <li>{@code pipestream.module.worker.no_work} /
+ *       {@code pipestream.module.worker.stream_errors} — counters</li>
+ *   <li>{@code pipestream.module.worker.budget.denied} — counter of
+ *       ramp-ups refused by a shared {@link WorkerBudget}</li>
+ *   <li>{@code pipestream.module.worker.idempotency.lookups} — counter
+ *       tagged {@code result} ({@code hit} / {@code miss}) of
+ *       {@link IdempotencyCache} lookups, and
+ *       {@code pipestream.module.worker.idempotency.cache} — gauge tagged
+ *       {@code kind} ({@code entries}, {@code bytes})</li>
+ *   <li>{@code pipestream.module.worker.payload.bytes} — distribution
+ *       summary tagged {@code direction} ({@code in} / {@code out})</li>
+ *   <li>{@code pipestream.module.worker.cpu_pool.queue_wait} — timer of
+ *       how long units waited for a {@link CpuBoundExecutor} thread, and
+ *       {@code pipestream.module.worker.cpu_pool} — gauge tagged
+ *       {@code kind} ({@code threads}, {@code active}, {@code queued})</li>
+ *   <li>{@code pipestream.module.worker.split.parts} — distribution
+ *       summary of how many parts a {@link SplittableModuleProcessor}
+ *       cut each unit into</li>
+ *   <li>{@code pipestream.module.worker.pressure} — gauge tagged
+ *       {@code kind} ({@code heap_after_gc}, {@code direct_memory},
+ *       {@code gc_time}, {@code cpu_load}, and {@code throttle}: the
+ *       {@link ResourcePressure.Throttle} ordinal)</li>
+ *   <li>{@code pipestream.module.worker.workers} — gauge tagged
+ *       {@code kind} ({@code active}, {@code min}, {@code max},
+ *       {@code limit})</li>
+ * </ul>
+ *
+ * <p>{@link #NOOP} records nothing; it is what a loop uses until
+ * {@link ModuleWorkerLoop#useMeterRegistry} is called.
+ */
+final class WorkerLoopMetrics {
+
+    static final String METRIC_PREFIX = "pipestream.module.worker";
+
+    /** Where a session's time goes, in lifecycle order. */
+    enum Phase {
+        /** Opening the stream and writing {@code Hello}. */
+        OPEN,
+        /** Waiting for a {@code WorkUnit} / {@code NoWorkAvailable}. */
+        AWAIT_UNIT,
+        /** Decoding the unit's payload. */
+        UNPACK,
+        /** The module's {@code process} (or batch) call. */
+        PROCESS,
+        /** Encoding the output into the ack. */
+        PACK,
+        /** Waiting for {@code AckConfirmed}. */
+        ACK_CONFIRM
+    }
+
+    static final WorkerLoopMetrics NOOP = new WorkerLoopMetrics();
+
+    private final Timer[][] phaseTimers;
+    private final Counter noWork;
+    private final Counter streamErrors;
+    private final Counter budgetDenied;
+    private final Timer cpuQueueWait;
+    private final Counter idempotencyHits;
+    private final Counter idempotencyMisses;
+    private final DistributionSummary payloadIn;
+    private final DistributionSummary payloadOut;
+    private final DistributionSummary splitParts;
+    private final MeterRegistry registry;
+    private final String moduleId;
+
+    private WorkerLoopMetrics() {
+        this.phaseTimers = null;
+        this.noWork = null;
+        this.streamErrors = null;
+        this.budgetDenied = null;
+        this.cpuQueueWait = null;
+        this.idempotencyHits = null;
+        this.idempotencyMisses = null;
+        this.payloadIn = null;
+        this.payloadOut = null;
+        this.splitParts = null;
+        this.registry = null;
+        this.moduleId = null;
+    }
+
+    WorkerLoopMetrics(MeterRegistry registry, String moduleId) {
+        this.registry = Objects.requireNonNull(registry, "registry");
+        this.moduleId = Objects.requireNonNull(moduleId, "moduleId");
+        WorkStreamSession.Outcome[] outcomes = WorkStreamSession.Outcome.values();
+        this.phaseTimers = new Timer[Phase.values().length][outcomes.length];
+        for (Phase phase : Phase.values()) {
+            for (WorkStreamSession.Outcome outcome : outcomes) {
+                phaseTimers[phase.ordinal()][outcome.ordinal()] = Timer.builder(METRIC_PREFIX + ".phase")
+                        .tag("module_id", moduleId)
+                        .tag("phase", phase.name().toLowerCase(Locale.ROOT))
+                        .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                        .description("Time spent in each Work stream phase, by how the unit or session ended")
+                        .register(registry);
+            }
+        }
+        this.noWork = Counter.builder(METRIC_PREFIX + ".no_work")
+                .tag("module_id", moduleId)
+                .description("Sessions the engine answered with NoWorkAvailable")
+                .register(registry);
+        this.streamErrors = Counter.builder(METRIC_PREFIX + ".stream_errors")
+                .tag("module_id", moduleId)
+                .description("Sessions that ended in a stream error")
+                .register(registry);
+        this.budgetDenied = Counter.builder(METRIC_PREFIX + ".budget.denied")
+                .tag("module_id", moduleId)
+                .description("Worker ramp-ups refused because the shared worker budget was exhausted")
+                .register(registry);
+        this.cpuQueueWait = Timer.builder(METRIC_PREFIX + ".cpu_pool.queue_wait")
+                .tag("module_id", moduleId)
+                .description("Time units waited for a thread of the cpu-bound process() pool")
+                .register(registry);
+        this.idempotencyHits = idempotencyCounter(registry, moduleId, "hit");
+        this.idempotencyMisses = idempotencyCounter(registry, moduleId, "miss");
+        this.payloadIn = payloadSummary(registry, moduleId, "in");
+        this.payloadOut = payloadSummary(registry, moduleId, "out");
+        this.splitParts = DistributionSummary.builder(METRIC_PREFIX + ".split.parts")
+                .tag("module_id", moduleId)
+                .description("Parts each unit of a splittable processor was cut into")
+                .register(registry);
+    }
+
+    private static Counter idempotencyCounter(MeterRegistry registry, String moduleId, String result) {
+        return Counter.builder(METRIC_PREFIX + ".idempotency.lookups")
+                .tag("module_id", moduleId)
+                .tag("result", result)
+                .description("Idempotency cache lookups for served work units; hits skip process()")
+                .register(registry);
+    }
+
+    private static DistributionSummary payloadSummary(MeterRegistry registry, String moduleId, String direction) {
+        return DistributionSummary.builder(METRIC_PREFIX + ".payload.bytes")
+                .tag("module_id", moduleId)
+                .tag("direction", direction)
+                .baseUnit("bytes")
+                .description("Serialized WorkUnit (in) and WorkAck (out) payload sizes")
+                .register(registry);
+    }
+
+    /**
+     * Register a worker-count gauge. The supplier is sampled on scrape,
+     * so it must be cheap and thread-safe.
+     */
+    void registerWorkerGauge(String kind, IntSupplier value) {
+        if (registry == null) {
+            return;
+        }
+        Gauge.builder(METRIC_PREFIX + ".workers", value, v -> v.getAsInt())
+                .tag("module_id", moduleId)
+                .tag("kind", kind)
+                .description("Worker virtual threads: live count, configured bounds and limiter target")
+                .register(registry);
+    }
+
+    /** Register a gauge of the {@link CpuBoundExecutor} pool; same rules as {@link #registerWorkerGauge}. */
+    void registerCpuPoolGauge(String kind, IntSupplier value) {
+        if (registry == null) {
+            return;
+        }
+        Gauge.builder(METRIC_PREFIX + ".cpu_pool", value, v -> v.getAsInt())
+                .tag("module_id", moduleId)
+                .tag("kind", kind)
+                .description("cpu-bound process() pool: thread count, busy threads and queued units")
+                .register(registry);
+    }
+
+    /** Register a gauge of the {@link IdempotencyCache}; same rules as {@link #registerWorkerGauge}. */
+    void registerIdempotencyGauge(String kind, LongSupplier value) {
+        if (registry == null) {
+            return;
+        }
+        Gauge.builder(METRIC_PREFIX + ".idempotency.cache", value, v -> v.getAsLong())
+                .tag("module_id", moduleId)
+                .tag("kind", kind)
+                .description("Idempotency cache occupancy: entries and counted bytes")
+                .register(registry);
+    }
+
+    /** Register a {@link ResourcePressure} gauge; same rules as {@link #registerWorkerGauge}. */
+    void registerPressureGauge(String kind, DoubleSupplier value) {
+        if (registry == null) {
+            return;
+        }
+        Gauge.builder(METRIC_PREFIX + ".pressure", value, v -> v.getAsDouble())
+                .tag("module_id", moduleId)
+                .tag("kind", kind)
+                .description("JVM resource pressure the loop throttles on, and the resulting throttle")
+                .register(registry);
+    }
+
+    void recordPhase(Phase phase, WorkStreamSession.Outcome outcome, long nanos) {
+        if (phaseTimers != null) {
+            phaseTimers[phase.ordinal()][outcome.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /** Count how a whole session ended; only the non-unit outcomes have counters. */
+    void recordSessionEnd(WorkStreamSession.Outcome outcome) {
+        if (outcome == WorkStreamSession.Outcome.NO_WORK_AVAILABLE && noWork != null) {
+            noWork.increment();
+        } else if (outcome == WorkStreamSession.Outcome.STREAM_ERROR && streamErrors != null) {
+            streamErrors.increment();
+        }
+    }
+
+    void recordBudgetDenied() {
+        if (budgetDenied != null) {
+            budgetDenied.increment();
+        }
+    }
+
+    void recordCpuQueueWait(long nanos) {
+        if (cpuQueueWait != null) {
+            cpuQueueWait.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void recordIdempotencyLookup(boolean hit) {
+        Counter counter = hit ? idempotencyHits : idempotencyMisses;
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    void recordPayloadIn(int bytes) {
+        if (payloadIn != null) {
+            payloadIn.record(bytes);
+        }
+    }
+
+    void recordPayloadOut(int bytes) {
+        if (payloadOut != null) {
+            payloadOut.record(bytes);
+        }
+    }
+
+    void recordSplitParts(int parts) {
+        if (splitParts != null) {
+            splitParts.record(parts);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ai.pipestream.module.runtime.work;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
+import org.eclipse.microprofile.health.Readiness;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Readiness check for the {@link ModuleWorkerLoop}s running in this JVM.
+ * <p>
+ * Reports DOWN while any loop is still warming up (see
+ * {@link ModuleWorkerLoop#useWarmup}), so a rolling deploy doesn't route
+ * to, or count on, an instance whose processor is still being compiled.
+ * Reports UP otherwise, including when no loop is running.
+ * <p>
+ * Loops are constructed by the module rather than by CDI, so they
+ * register themselves here from {@code onStart} and leave on
+ * {@code onStop}.
+ */
+@Readiness
+@ApplicationScoped
+public class WorkerLoopReadinessCheck implements HealthCheck {
+
+    private static final String CHECK_NAME = "pipestream-worker-loop";
+
+    private static final Set<ModuleWorkerLoop<?>> LOOPS = ConcurrentHashMap.newKeySet();
+
+    static void register(ModuleWorkerLoop<?> loop) {
+        LOOPS.add(loop);
+    }
+
+    static void deregister(ModuleWorkerLoop<?> loop) {
+        LOOPS.remove(loop);
+    }
+
+    @Override
+    public HealthCheckResponse call() {
+        HealthCheckResponseBuilder response = HealthCheckResponse.named(CHECK_NAME);
+        boolean warming = false;
+        for (ModuleWorkerLoop<?> loop : LOOPS) {
+            boolean loopWarming = loop.snapshot().warmingUp();
+            response.withData(loop.moduleId(), loopWarming ? "warming-up" : "pulling");
+            warming |= loopWarming;
+        }
+        return warming ? response.down().build() : response.up().build();
+    }
+}
@@ -0,0 +1,67 @@
+package ai.pipestream.module.runtime.work;
+
+import io.grpc.ClientInterceptor;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AffinityHintsTest {
+
+    @Test
+    void evictsTheKeyAddedLongestAgo_beyondMaxKeys() {
+        AffinityHints hints = new AffinityHints(2);
+        hints.add("tenant:a");
+        hints.add("tenant:b");
+        hints.add("tenant:a");
+        hints.add("tenant:c");
+
+        assertThat(hints.keys()).as("re-adding a refreshes it, so b is the oldest")
+                .containsExactly("tenant:a", "tenant:c");
+    }
+
+    @Test
+    void refreshingAnAdvertisedKey_keepsTheHeader() {
+        AffinityHints hints = new AffinityHints(4);
+        hints.add("lang:de");
+        hints.add("lang:ja");
+        ClientInterceptor before = hints.interceptor();
+
+        hints.add("lang:de");
+
+        assertThat(hints.interceptor()).isSameAs(before);
+        hints.add("lang:fr");
+        assertThat(hints.interceptor()).isNotSameAs(before);
+    }
+
+    @Test
+    void noHeader_whileNoKeyIsAdvertised() {
+        AffinityHints hints = new AffinityHints(4);
+        assertThat(hints.interceptor()).isNull();
+
+        hints.add("lang:de");
+        assertThat(hints.interceptor()).isNotNull();
+        hints.remove("lang:de");
+        assertThat(hints.interceptor()).isNull();
+        assertThat(hints.keys()).isEmpty();
+    }
+
+    @Test
+    void zeroMaxKeys_turnsHintsOff() {
+        AffinityHints hints = new AffinityHints(0);
+        hints.add("tenant:acme");
+
+        assertThat(hints.keys()).isEmpty();
+        assertThat(hints.interceptor()).isNull();
+    }
+
+    @Test
+    void rejectsKeysThatCannotTravelInTheHeader() {
+        AffinityHints hints = new AffinityHints(4);
+
+        assertThatThrownBy(() -> hints.add("a,b")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> hints.add("")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> hints.add("k".repeat(129))).isInstanceOf(IllegalArgumentException.class);
+        assertThat(hints.keys()).isEmpty();
+    }
+}
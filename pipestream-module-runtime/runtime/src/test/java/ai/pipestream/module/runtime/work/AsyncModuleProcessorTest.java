@@ -0,0 +1,79 @@
+package ai.pipestream.module.runtime.work;
+
+import ai.pipestream.module.work.v1.Hello;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncModuleProcessorTest {
+
+    private static final Hello INPUT = Hello.newBuilder().setModuleId("in").build();
+
+    @Test
+    void awaitsTheStageCompletedElsewhere() {
+        ModuleProcessor<Hello> processor = AsyncModuleProcessor.awaiting(input ->
+                CompletableFuture.supplyAsync(() -> input.toBuilder().setModuleId("out").build(),
+                        CompletableFuture.delayedExecutor(20, TimeUnit.MILLISECONDS)));
+
+        assertThat(processor.process(INPUT).getModuleId()).isEqualTo("out");
+    }
+
+    @Test
+    void permanentFailureSurvivesCompletionWrapping() {
+        ModuleProcessor<Hello> processor = AsyncModuleProcessor.awaiting(input ->
+                CompletableFuture.<Hello>supplyAsync(() -> {
+                    throw new ModuleProcessor.PermanentFailure("bad document");
+                }).thenApply(h -> h));
+
+        assertThatThrownBy(() -> processor.process(INPUT))
+                .isInstanceOf(ModuleProcessor.PermanentFailure.class)
+                .hasMessage("bad document");
+    }
+
+    @Test
+    void otherFailuresStayRetryable() {
+        ModuleProcessor<Hello> processor = AsyncModuleProcessor.awaiting(input ->
+                CompletableFuture.failedFuture(new IllegalStateException("embedding server down")));
+
+        assertThatThrownBy(() -> processor.process(INPUT))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("embedding server down");
+    }
+
+    @Test
+    void uniAdapter() {
+        ModuleProcessor<Hello> processor = AsyncModuleProcessor.awaiting(AsyncModuleProcessor.ofUni(input ->
+                Uni.createFrom().item(input.toBuilder().setModuleId("uni").build())
+                        .onItem().delayIt().by(Duration.ofMillis(10))));
+
+        assertThat(processor.process(INPUT).getModuleId()).isEqualTo("uni");
+    }
+
+    @Test
+    void interruptCancelsThePendingStage() throws Exception {
+        CompletableFuture<Hello> pending = new CompletableFuture<>();
+        ModuleProcessor<Hello> processor = AsyncModuleProcessor.awaiting(input -> pending);
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+
+        Thread worker = Thread.ofVirtual().start(() -> {
+            try {
+                processor.process(INPUT);
+            } catch (RuntimeException e) {
+                thrown.set(e);
+            }
+        });
+        Thread.sleep(50);
+        worker.interrupt();
+        worker.join(2000);
+
+        assertThat(pending).isCancelled();
+        assertThat(thrown.get()).isInstanceOf(IllegalStateException.class);
+    }
+}
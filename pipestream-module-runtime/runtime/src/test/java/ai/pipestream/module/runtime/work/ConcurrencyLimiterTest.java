@@ -0,0 +1,122 @@
+package ai.pipestream.module.runtime.work;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConcurrencyLimiterTest {
+
+    private static final long FAST = 10_000_000L;  // 10ms
+    private static final long SLOW = 100_000_000L; // 100ms
+
+    /** Feed whole windows (one window = current limit) of the same latency. */
+    private static void feedWindows(ConcurrencyLimiter limiter, int windows, long latencyNanos) {
+        for (int w = 0; w < windows; w++) {
+            int samples = limiter.limit();
+            for (int i = 0; i < samples; i++) {
+                limiter.onSample(latencyNanos);
+            }
+        }
+    }
+
+    /**
+     * Feed whole windows, advancing {@code clock} between samples so the
+     * window keeps {@code busyWorkers} of the current limit busy.
+     */
+    private static void feedWindows(ConcurrencyLimiter limiter, AtomicLong clock, int windows,
+                                    long latencyNanos, double busyWorkers) {
+        for (int w = 0; w < windows; w++) {
+            int samples = limiter.limit();
+            for (int i = 0; i < samples; i++) {
+                clock.addAndGet((long) (latencyNanos / busyWorkers));
+                limiter.onSample(latencyNanos);
+            }
+        }
+    }
+
+    @Test
+    void aimd_flatLatency_growsToMax() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(1, 8, 2.0);
+        feedWindows(limiter, 20, FAST);
+        assertThat(limiter.limit()).as("flat latency must ramp all the way up").isEqualTo(8);
+        assertThat(limiter.lastDecision()).isEqualTo(ConcurrencyLimiter.Decision.HOLD);
+    }
+
+    @Test
+    void aimd_latencyAboveTolerance_cutsLimit() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(1, 16, 2.0);
+        feedWindows(limiter, 10, FAST);
+        int before = limiter.limit();
+
+        feedWindows(limiter, 1, SLOW);
+
+        assertThat(limiter.lastDecision()).isEqualTo(ConcurrencyLimiter.Decision.DECREASE);
+        assertThat(limiter.limit()).isLessThan(before);
+    }
+
+    @Test
+    void aimd_neverDropsBelowMin() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(3, 8, 2.0);
+        feedWindows(limiter, 4, FAST);
+        feedWindows(limiter, 5, SLOW);
+        assertThat(limiter.limit()).isEqualTo(3);
+    }
+
+    @Test
+    void aimd_rejectsToleranceAtOrBelowOne() {
+        assertThatThrownBy(() -> new AimdConcurrencyLimiter(1, 4, 1.0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void aimd_throughputThatLeavesWorkersIdle_holdsTheLimit() {
+        AtomicLong clock = new AtomicLong();
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(2, 8, 2.0, clock::get);
+
+        // Units arrive at a rate that keeps only one of two workers busy.
+        feedWindows(limiter, clock, 20, FAST, 0.9);
+        assertThat(limiter.limit()).as("flat latency alone doesn't grow the limit past what is used").isEqualTo(2);
+
+        feedWindows(limiter, clock, 1, FAST, 2.0);
+        assertThat(limiter.lastDecision()).isEqualTo(ConcurrencyLimiter.Decision.INCREASE);
+    }
+
+    @Test
+    void gradient_flatLatency_growsToMax() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(1, 8);
+        feedWindows(limiter, 100, FAST);
+        assertThat(limiter.limit()).isEqualTo(8);
+    }
+
+    @Test
+    void gradient_risingLatency_shrinksLimit() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(1, 32);
+        feedWindows(limiter, 100, FAST);
+        int before = limiter.limit();
+
+        feedWindows(limiter, 10, SLOW);
+
+        assertThat(limiter.limit()).isLessThan(before).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void gradient_throughputThatLeavesWorkersIdle_stopsProbingUpwards() {
+        AtomicLong clock = new AtomicLong();
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(2, 32, clock::get);
+
+        feedWindows(limiter, clock, 100, FAST, 0.9);
+
+        assertThat(limiter.limit()).isEqualTo(2);
+    }
+
+    @Test
+    void fixed_pinsLimitAtMax() {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.fixed(6);
+        feedWindows(limiter, 3, SLOW);
+        assertThat(limiter.limit()).isEqualTo(6);
+        assertThat(limiter.lastDecision()).isEqualTo(ConcurrencyLimiter.Decision.HOLD);
+    }
+}
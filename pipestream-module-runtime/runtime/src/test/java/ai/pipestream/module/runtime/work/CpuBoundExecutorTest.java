@@ -0,0 +1,88 @@
+package ai.pipestream.module.runtime.work;
+
+import ai.pipestream.module.work.v1.Hello;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CpuBoundExecutorTest {
+
+    private final CpuBoundExecutor executor = new CpuBoundExecutor("tok", 2);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void runsOnNamedPlatformThreads() {
+        ModuleProcessor<Hello> processor = executor.wrapProcessor(
+                input -> input.toBuilder()
+                        .setModuleId(Thread.currentThread().getName())
+                        .build());
+
+        Hello out = processor.process(Hello.getDefaultInstance());
+
+        assertThat(out.getModuleId()).startsWith("worker-cpu-tok-");
+        assertThat(executor.threads()).isEqualTo(2);
+        assertThat(executor.capacity()).isEqualTo(4);
+    }
+
+    @Test
+    void failuresPropagateUnchanged() {
+        ModuleProcessor<Hello> permanent = executor.wrapProcessor(input -> {
+            throw new ModuleProcessor.PermanentFailure("bad input");
+        });
+        BatchModuleProcessor<Hello> retryable = executor.wrapBatch(inputs -> {
+            throw new IllegalArgumentException("model not loaded");
+        });
+
+        assertThatThrownBy(() -> permanent.process(Hello.getDefaultInstance()))
+                .isInstanceOf(ModuleProcessor.PermanentFailure.class)
+                .hasMessage("bad input");
+        assertThatThrownBy(() -> retryable.processBatch(List.of(Hello.getDefaultInstance())))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("model not loaded");
+    }
+
+    @Test
+    void neverRunsMoreThanItsThreads_restQueue() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ModuleProcessor<Hello> processor = executor.wrapProcessor(input -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return input;
+        });
+
+        CountDownLatch done = new CountDownLatch(6);
+        for (int i = 0; i < 6; i++) {
+            Thread.ofVirtual().start(() -> {
+                processor.process(Hello.getDefaultInstance());
+                done.countDown();
+            });
+        }
+        for (int i = 0; i < 100 && executor.queued() < 4; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(executor.active()).isEqualTo(2);
+        assertThat(executor.queued()).isEqualTo(4);
+
+        release.countDown();
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(peak.get()).isEqualTo(2);
+    }
+}
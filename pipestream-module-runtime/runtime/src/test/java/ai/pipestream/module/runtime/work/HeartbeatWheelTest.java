@@ -0,0 +1,199 @@
+package ai.pipestream.module.runtime.work;
+
+import ai.pipestream.module.work.v1.WorkRequest;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HeartbeatWheelTest {
+
+    private static HeartbeatWheel newWheel() {
+        return new HeartbeatWheel(Duration.ofMillis(5), 8, "test-heartbeat");
+    }
+
+    @Test
+    void firesRepeatedly_untilClosed() throws Exception {
+        HeartbeatWheel wheel = newWheel();
+        CountDownLatch threeFires = new CountDownLatch(3);
+        AtomicInteger fires = new AtomicInteger();
+        HeartbeatWheel.Timer timer = wheel.schedule(() -> {
+            fires.incrementAndGet();
+            threeFires.countDown();
+        }, Duration.ofMillis(20));
+
+        assertThat(threeFires.await(5, TimeUnit.SECONDS)).isTrue();
+        timer.close();
+        int afterClose = fires.get();
+        Thread.sleep(100);
+        assertThat(fires.get())
+                .as("a closed timer must not fire again (allowing one in-flight run)")
+                .isLessThanOrEqualTo(afterClose + 1);
+    }
+
+    @Test
+    void periodLongerThanOneRevolution_waitsForItsRound() throws Exception {
+        HeartbeatWheel wheel = newWheel();
+        // 8 slots x 5ms = 40ms per revolution; 100ms needs several rounds.
+        long start = System.nanoTime();
+        CountDownLatch fired = new CountDownLatch(1);
+        HeartbeatWheel.Timer timer = wheel.schedule(fired::countDown, Duration.ofMillis(100));
+        try {
+            assertThat(fired.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            timer.close();
+        }
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(95));
+    }
+
+    @Test
+    void periodOfExactlyOneRevolution_waitsTheWholeRevolution() throws Exception {
+        // 512 slots x 1ms: the period maps back onto the slot being inserted
+        // from, which must count as a full round rather than fire at once.
+        HeartbeatWheel wheel = new HeartbeatWheel(Duration.ofMillis(1), 512, "test-heartbeat");
+        long start = System.nanoTime();
+        CountDownLatch fired = new CountDownLatch(1);
+        HeartbeatWheel.Timer timer = wheel.schedule(fired::countDown, Duration.ofMillis(512));
+        try {
+            assertThat(fired.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            timer.close();
+        }
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(505));
+    }
+
+    @Test
+    void manyTimers_shareOneThread_andCancelIndependently() throws Exception {
+        HeartbeatWheel wheel = newWheel();
+        int count = 200;
+        CountDownLatch allFired = new CountDownLatch(count);
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        List<HeartbeatWheel.Timer> timers = new ArrayList<>();
+        AtomicInteger cancelledFires = new AtomicInteger();
+        for (int i = 0; i < count; i++) {
+            CountDownLatch once = new CountDownLatch(1);
+            timers.add(wheel.schedule(() -> {
+                threads.add(Thread.currentThread().getName());
+                if (once.getCount() > 0) {
+                    once.countDown();
+                    allFired.countDown();
+                }
+            }, Duration.ofMillis(10 + i % 7)));
+        }
+        HeartbeatWheel.Timer cancelledEarly = wheel.schedule(cancelledFires::incrementAndGet, Duration.ofMillis(30));
+        cancelledEarly.close();
+
+        assertThat(allFired.await(5, TimeUnit.SECONDS)).isTrue();
+        timers.forEach(HeartbeatWheel.Timer::close);
+        assertThat(threads).containsOnly("test-heartbeat");
+        Thread.sleep(60);
+        assertThat(cancelledFires.get()).as("timer closed before its first tick never fires").isZero();
+    }
+
+    @Test
+    void pump_writesHeartbeatsUnderWriteLock() throws Exception {
+        HeartbeatWheel wheel = newWheel();
+        ReentrantLock writeLock = new ReentrantLock();
+        CountDownLatch twoBeats = new CountDownLatch(2);
+        AtomicInteger unlockedWrites = new AtomicInteger();
+        StreamObserver<WorkRequest> observer = new StreamObserver<>() {
+            @Override public void onNext(WorkRequest value) {
+                if (!writeLock.isHeldByCurrentThread()) {
+                    unlockedWrites.incrementAndGet();
+                }
+                if (value.hasHeartbeat()) {
+                    twoBeats.countDown();
+                }
+            }
+            @Override public void onError(Throwable t) { }
+            @Override public void onCompleted() { }
+        };
+
+        try (HeartbeatPump pump = new HeartbeatPump(observer, writeLock, Duration.ofMillis(10), wheel)) {
+            pump.start();
+            assertThat(twoBeats.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+        assertThat(unlockedWrites.get()).isZero();
+    }
+
+    @Test
+    void blockedWriter_skipsOnlyItsOwnBeats() throws Exception {
+        HeartbeatWheel wheel = newWheel();
+        ReentrantLock stalledLock = new ReentrantLock();
+        AtomicInteger stalledBeats = new AtomicInteger();
+        CountDownLatch healthyBeats = new CountDownLatch(5);
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // A session stuck mid-write: holds its write lock until released.
+        Thread writer = Thread.ofVirtual().start(() -> {
+            stalledLock.lock();
+            try {
+                held.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                stalledLock.unlock();
+            }
+        });
+        assertThat(held.await(5, TimeUnit.SECONDS)).isTrue();
+
+        try (HeartbeatPump stalled = new HeartbeatPump(counting(stalledBeats::incrementAndGet), stalledLock,
+                     Duration.ofMillis(10), wheel);
+             HeartbeatPump healthy = new HeartbeatPump(counting(healthyBeats::countDown), new ReentrantLock(),
+                     Duration.ofMillis(10), wheel)) {
+            stalled.start();
+            healthy.start();
+
+            assertThat(healthyBeats.await(2, TimeUnit.SECONDS))
+                    .as("the other session keeps beating while one writer is stuck")
+                    .isTrue();
+            assertThat(stalledBeats.get()).as("the stuck session's beats are skipped").isZero();
+
+            release.countDown();
+            writer.join(5_000);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while (stalledBeats.get() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertThat(stalledBeats.get()).as("beats resume once the lock is free").isPositive();
+        }
+    }
+
+    @Test
+    void taskThrowingAnError_doesNotStopTheWheel() throws Exception {
+        HeartbeatWheel wheel = newWheel();
+        CountDownLatch threeFires = new CountDownLatch(3);
+        HeartbeatWheel.Timer failing = wheel.schedule(() -> {
+            throw new AssertionError("boom");
+        }, Duration.ofMillis(10));
+        HeartbeatWheel.Timer healthy = wheel.schedule(threeFires::countDown, Duration.ofMillis(10));
+        try {
+            assertThat(threeFires.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            failing.close();
+            healthy.close();
+        }
+    }
+
+    private static StreamObserver<WorkRequest> counting(Runnable onHeartbeat) {
+        return new StreamObserver<>() {
+            @Override public void onNext(WorkRequest value) {
+                if (value.hasHeartbeat()) {
+                    onHeartbeat.run();
+                }
+            }
+            @Override public void onError(Throwable t) { }
+            @Override public void onCompleted() { }
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package ai.pipestream.module.runtime.work;
+
+import ai.pipestream.module.work.v1.Hello;
+import ai.pipestream.module.work.v1.WorkUnit;
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void keyedByUnitIdAndPayloadBytes() {
+        IdempotencyCache cache = cache(10, 1 << 20, false);
+        IdempotencyCache.Key key = IdempotencyCache.Key.of(unit("wu-1", "doc"));
+        cache.put(key, output("tagged"));
+
+        assertThat(cache.get(IdempotencyCache.Key.of(unit("wu-1", "doc")))).isEqualTo(output("tagged"));
+        assertThat(cache.get(IdempotencyCache.Key.of(unit("wu-1", "doc v2"))))
+                .as("same unit, changed payload").isNull();
+        assertThat(cache.get(IdempotencyCache.Key.of(unit("wu-2", "doc"))))
+                .as("same payload, different unit").isNull();
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondMaxEntries() {
+        IdempotencyCache cache = cache(2, 1 << 20, false);
+        IdempotencyCache.Key a = IdempotencyCache.Key.of(unit("a", "x"));
+        IdempotencyCache.Key b = IdempotencyCache.Key.of(unit("b", "x"));
+        IdempotencyCache.Key c = IdempotencyCache.Key.of(unit("c", "x"));
+        cache.put(a, output("a"));
+        cache.put(b, output("b"));
+        cache.get(a);
+        cache.put(c, output("c"));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(b)).isNull();
+        assertThat(cache.get(a)).isNotNull();
+        assertThat(cache.get(c)).isNotNull();
+    }
+
+    @Test
+    void boundedByOutputBytes() {
+        IdempotencyCache cache = cache(100, 3 * 1024, false);
+        for (int i = 0; i < 10; i++) {
+            cache.put(IdempotencyCache.Key.of(unit("wu-" + i, "x")), bigOutput(1000));
+        }
+        assertThat(cache.bytes()).isLessThanOrEqualTo(3 * 1024);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(IdempotencyCache.Key.of(unit("wu-9", "x")))).isNotNull();
+
+        cache.put(IdempotencyCache.Key.of(unit("huge", "x")), bigOutput(4096));
+        assertThat(cache.get(IdempotencyCache.Key.of(unit("huge", "x"))))
+                .as("an output over the byte bound is never cached").isNull();
+    }
+
+    @Test
+    void entriesExpireAfterTtl() {
+        IdempotencyCache cache = cache(10, 1 << 20, false);
+        IdempotencyCache.Key key = IdempotencyCache.Key.of(unit("wu-1", "doc"));
+        cache.put(key, output("tagged"));
+
+        now.addAndGet(Duration.ofMinutes(9).toNanos());
+        assertThat(cache.get(key)).isNotNull();
+        now.addAndGet(Duration.ofMinutes(1).toNanos());
+        assertThat(cache.get(key)).isNull();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.bytes()).isZero();
+    }
+
+    @Test
+    void offHeapEntriesReadBackIntact() {
+        IdempotencyCache cache = cache(10, 1 << 20, true);
+        IdempotencyCache.Key key = IdempotencyCache.Key.of(unit("wu-1", "doc"));
+        Any output = bigOutput(8192);
+        cache.put(key, output);
+
+        Any cached = cache.get(key);
+        assertThat(cached).isEqualTo(output);
+        assertThat(cached.getValue().asReadOnlyByteBuffer().isDirect()).isTrue();
+    }
+
+    private IdempotencyCache cache(int maxEntries, long maxBytes, boolean offHeap) {
+        return new IdempotencyCache(maxEntries, maxBytes, Duration.ofMinutes(10), offHeap, now::get);
+    }
+
+    private static WorkUnit unit(String id, String payload) {
+        return WorkUnit.newBuilder()
+                .setWorkUnitId(id)
+                .setPayload(Any.pack(Hello.newBuilder().setModuleId(payload).build()))
+                .build();
+    }
+
+    private static Any output(String moduleId) {
+        return Any.pack(Hello.newBuilder().setModuleId(moduleId).build());
+    }
+
+    private static Any bigOutput(int bytes) {
+        return Any.newBuilder()
+                .setTypeUrl("type.googleapis.com/test.Blob")
+                .setValue(ByteString.copyFrom(new byte[bytes]))
+                .build();
+    }
+}
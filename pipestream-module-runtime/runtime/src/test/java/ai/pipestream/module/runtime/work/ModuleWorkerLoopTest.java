@@ -10,22 +10,45 @@ import ai.pipestream.module.work.v1.WorkRequest;
 import ai.pipestream.module.work.v1.WorkResponse;
 import ai.pipestream.module.work.v1.WorkUnit;
 import com.google.protobuf.Any;
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.ForwardingServerCall;
 import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
 import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
 import io.grpc.inprocess.InProcessChannelBuilder;
 import io.grpc.inprocess.InProcessServerBuilder;
 import io.grpc.stub.StreamObserver;
 import io.quarkus.runtime.ShutdownEvent;
 import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.health.HealthCheckResponse;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -154,14 +177,495 @@ class ModuleWorkerLoopTest {
                 .isZero();
     }
 
+    @Test
+    void prefetchCredits_keepProcessingWork_andAckEveryUnit() throws Exception {
+        server.shutdownNow().awaitTermination(2, TimeUnit.SECONDS);
+        server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(new AlwaysWorkEngine(workUnitsServed))
+                .build()
+                .start();
+
+        ModuleWorkerLoop<Hello> loop = newLoop(rampConfig(minWorkers(1), maxWorkers(2), 2),
+                new AtomicInteger());
+        loop.onStart(new StartupEvent());
+        for (int i = 0; i < 200 && loop.snapshot().unitsCompleted() < 10; i++) {
+            Thread.sleep(20);
+        }
+        loop.onStop(new ShutdownEvent());
+
+        assertThat(loop.snapshot().unitsCompleted())
+                .as("a prefetching worker processes units back to back")
+                .isGreaterThanOrEqualTo(10);
+        assertThat(loop.snapshot().streamErrors()).isZero();
+    }
+
+    @Test
+    void batchProcessor_getsMultiUnitBatches_andEachUnitIsAckedWithItsOwnStatus() throws Exception {
+        server.shutdownNow().awaitTermination(2, TimeUnit.SECONDS);
+        AlwaysWorkEngine engine = new AlwaysWorkEngine(workUnitsServed);
+        server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(engine)
+                .build()
+                .start();
+
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        BatchModuleProcessor<Hello> batchProcessor = inputs -> {
+            batchSizes.add(inputs.size());
+            List<BatchModuleProcessor.Result<Hello>> results = new ArrayList<>();
+            for (int i = 0; i < inputs.size(); i++) {
+                results.add(i == 0
+                        ? BatchModuleProcessor.Result.permanentFailure("first item rejected")
+                        : BatchModuleProcessor.Result.success(inputs.get(i)));
+            }
+            return results;
+        };
+        ModuleWorkerLoop<Hello> loop = ModuleWorkerLoop.batching(Hello.class, batchProcessor,
+                channelClient(new AtomicInteger()),
+                rampConfig(minWorkers(1), maxWorkers(1), 0, 4, Duration.ofMillis(200)));
+        loop.onStart(new StartupEvent());
+        for (int i = 0; i < 200 && workUnitsServed.get() < 12; i++) {
+            Thread.sleep(20);
+        }
+        loop.onStop(new ShutdownEvent());
+
+        assertThat(batchSizes).as("units are grouped into batches").isNotEmpty();
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).max().orElse(0))
+                .as("a single worker with prefetched units should fill batches beyond one unit")
+                .isGreaterThan(1);
+        assertThat(batchSizes).allSatisfy(size -> assertThat(size).isLessThanOrEqualTo(4));
+        assertThat(engine.acks)
+                .as("every unit in a batch is acked with its own per-item status")
+                .extracting(WorkAck::getStatus)
+                .contains(ProcessingStatus.PROCESSING_STATUS_PERMANENT_FAILURE,
+                        ProcessingStatus.PROCESSING_STATUS_SUCCESS);
+    }
+
+    @Test
+    void batchProcessor_missingResults_areAckedRetryable_andTheWorkerKeepsGoing() throws Exception {
+        server.shutdownNow().awaitTermination(2, TimeUnit.SECONDS);
+        AlwaysWorkEngine engine = new AlwaysWorkEngine(workUnitsServed);
+        server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(engine)
+                .build()
+                .start();
+
+        AtomicInteger calls = new AtomicInteger();
+        BatchModuleProcessor<Hello> batchProcessor = inputs -> switch (calls.getAndIncrement() % 3) {
+            case 0 -> null;
+            case 1 -> inputs.size() == 1 ? List.of() : List.of(BatchModuleProcessor.Result.success(inputs.get(0)));
+            default -> {
+                List<BatchModuleProcessor.Result<Hello>> results = new ArrayList<>();
+                for (int i = 0; i < inputs.size(); i++) {
+                    results.add(null);
+                }
+                yield results;
+            }
+        };
+        ModuleWorkerLoop<Hello> loop = ModuleWorkerLoop.batching(Hello.class, batchProcessor,
+                channelClient(new AtomicInteger()),
+                rampConfig(minWorkers(1), maxWorkers(1), 0, 4, Duration.ofMillis(50)));
+        loop.onStart(new StartupEvent());
+        for (int i = 0; i < 200 && calls.get() < 6; i++) {
+            Thread.sleep(20);
+        }
+        loop.onStop(new ShutdownEvent());
+
+        assertThat(calls.get())
+                .as("the worker survives batches with missing results and keeps processing")
+                .isGreaterThanOrEqualTo(6);
+        assertThat(engine.acks)
+                .as("units without a result are handed back for redelivery, not dropped")
+                .extracting(WorkAck::getStatus)
+                .containsOnly(ProcessingStatus.PROCESSING_STATUS_RETRYABLE_FAILURE);
+    }
+
+    @Test
+    void asyncProcessor_holdsMoreUnitsInFlightThanWorkers_upToTheLimit() throws Exception {
+        server.shutdownNow().awaitTermination(2, TimeUnit.SECONDS);
+        AlwaysWorkEngine engine = new AlwaysWorkEngine(workUnitsServed);
+        server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(engine)
+                .build()
+                .start();
+
+        // Stages stay pending until released, like calls to a slow remote service.
+        List<CompletableFuture<Hello>> pending = new ArrayList<>();
+        AtomicBoolean released = new AtomicBoolean();
+        AsyncModuleProcessor<Hello> processor = input -> {
+            synchronized (pending) {
+                if (released.get()) {
+                    return CompletableFuture.completedFuture(input);
+                }
+                CompletableFuture<Hello> stage = new CompletableFuture<>();
+                pending.add(stage);
+                return stage;
+            }
+        };
+        ModuleWorkerLoop<Hello> loop = ModuleWorkerLoop.async(Hello.class, processor,
+                channelClient(new AtomicInteger()), rampConfig(minWorkers(1), maxWorkers(8)));
+        loop.onStart(new StartupEvent());
+        try {
+            for (int i = 0; i < 250 && loop.asyncInFlight() < 8; i++) {
+                Thread.sleep(20);
+            }
+            Thread.sleep(100);
+
+            assertThat(loop.asyncInFlight()).as("the limiter's target bounds units in flight").isEqualTo(8);
+            synchronized (pending) {
+                assertThat(pending).hasSize(8);
+            }
+            assertThat(loop.snapshot().activeWorkers())
+                    .as("8 outstanding stages need no more than the one dispatching worker")
+                    .isEqualTo(1);
+            assertThat(engine.acks).as("nothing is acked before its stage completes").isEmpty();
+
+            synchronized (pending) {
+                released.set(true);
+                pending.forEach(stage -> stage.complete(Hello.newBuilder().setModuleId("done").build()));
+            }
+            for (int i = 0; i < 250 && engine.acks.size() < 8; i++) {
+                Thread.sleep(20);
+            }
+            assertThat(engine.acks).hasSizeGreaterThanOrEqualTo(8)
+                    .extracting(WorkAck::getStatus)
+                    .containsOnly(ProcessingStatus.PROCESSING_STATUS_SUCCESS);
+        } finally {
+            synchronized (pending) {
+                released.set(true);
+                pending.forEach(stage -> stage.complete(Hello.getDefaultInstance()));
+            }
+            loop.onStop(new ShutdownEvent());
+        }
+        assertThat(loop.snapshot().streamErrors()).isZero();
+    }
+
+    @Test
+    void batchFills_backOffOnNoWorkAvailable_insteadOfPollingEveryBatch() throws Exception {
+        server.shutdownNow().awaitTermination(2, TimeUnit.SECONDS);
+        EveryNthWorkEngine engine = new EveryNthWorkEngine(4, 200);
+        server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(engine)
+                .build()
+                .start();
+
+        BatchModuleProcessor<Hello> batchProcessor = inputs -> inputs.stream()
+                .map(BatchModuleProcessor.Result::success)
+                .toList();
+        ModuleWorkerLoop<Hello> loop = ModuleWorkerLoop.batching(Hello.class, batchProcessor,
+                channelClient(new AtomicInteger()),
+                rampConfig(minWorkers(1), maxWorkers(1), 0, 4, Duration.ofMillis(20)));
+        loop.onStart(new StartupEvent());
+        Thread.sleep(1000);
+        loop.onStop(new ShutdownEvent());
+
+        assertThat(engine.served.get()).as("the worker still gets work").isGreaterThan(0);
+        assertThat(engine.hellos.get())
+                .as("fills that find no work honour retry_after_ms (200ms) rather than re-polling per batch")
+                .isLessThan(40);
+    }
+
+    @Test
+    void splittableProcessor_partsRunOnTheSplitPool_andEachUnitIsAckedOnce() throws Exception {
+        server.shutdownNow().awaitTermination(2, TimeUnit.SECONDS);
+        AlwaysWorkEngine engine = new AlwaysWorkEngine(workUnitsServed);
+        server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(engine)
+                .build()
+                .start();
+
+        Set<String> partThreads = ConcurrentHashMap.newKeySet();
+        SplittableModuleProcessor<Hello, String> splittable = new SplittableModuleProcessor<>() {
+            @Override
+            public List<String> split(Hello input) {
+                return List.of(input.getModuleId().split(""));
+            }
+
+            @Override
+            public String processPart(String part) {
+                partThreads.add(Thread.currentThread().getName());
+                return part.toUpperCase(Locale.ROOT);
+            }
+
+            @Override
+            public Hello merge(Hello input, List<String> processed) {
+                return input.toBuilder().setModuleId(String.join("", processed)).build();
+            }
+        };
+        ModuleWorkerLoop<Hello> loop = ModuleWorkerLoop.splitting(Hello.class, splittable,
+                channelClient(new AtomicInteger()), rampConfig(minWorkers(1), maxWorkers(2)));
+        loop.onStart(new StartupEvent());
+        for (int i = 0; i < 200 && workUnitsServed.get() < 5; i++) {
+            Thread.sleep(20);
+        }
+        loop.onStop(new ShutdownEvent());
+
+        assertThat(engine.acks).hasSizeGreaterThanOrEqualTo(5);
+        assertThat(engine.acks).extracting(WorkAck::getWorkUnitId).doesNotHaveDuplicates();
+        assertThat(engine.acks).allSatisfy(ack ->
+                assertThat(ack.getUpdatedPayload().unpack(Hello.class).getModuleId()).isEqualTo("ECHO"));
+        assertThat(partThreads).allSatisfy(name -> assertThat(name).startsWith("worker-split-"));
+    }
+
+    @Test
+    void longPollIdleMode_pushedUnitBeatsThePollInterval() throws Exception {
+        Duration pollLatency = idleLatency("poll", true);
+        Duration longPollLatency = idleLatency("long-poll", true);
+
+        assertThat(pollLatency)
+                .as("a poller only sees the unit after its noWorkRetryAfter sleep")
+                .isGreaterThanOrEqualTo(Duration.ofMillis(400));
+        assertThat(longPollLatency)
+                .as("a parked stream gets the unit pushed as soon as it is submitted")
+                .isLessThan(Duration.ofMillis(250))
+                .isLessThan(pollLatency);
+    }
+
+    @Test
+    void longPollIdleMode_fallsBackToPolling_whenEngineDoesNotAgree() throws Exception {
+        Duration latency = idleLatency("long-poll", false);
+        assertThat(latency)
+                .as("without the engine's header echo the worker must not park, just poll")
+                .isGreaterThanOrEqualTo(Duration.ofMillis(400))
+                .isLessThan(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void sharedBudget_busyModulesSplitItFairly() throws Exception {
+        server.shutdownNow().awaitTermination(2, TimeUnit.SECONDS);
+        server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(new AlwaysWorkEngine(workUnitsServed))
+                .build()
+                .start();
+
+        WorkerBudget budget = new WorkerBudget(4);
+        ModuleWorkEngineClient shared = channelClient(new AtomicInteger());
+        // A little blocking work per unit, so one module's workers can't
+        // monopolize the carrier threads on a small test machine.
+        ModuleProcessor<Hello> work = input -> {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            return input;
+        };
+        ModuleWorkerLoop<Hello> parser = new ModuleWorkerLoop<>(Hello.class, work, shared,
+                rampConfig(minWorkers(1), maxWorkers(4)));
+        ModuleWorkerLoop<Hello> chunker = new ModuleWorkerLoop<>(Hello.class, work, shared,
+                rampConfig(minWorkers(1), maxWorkers(4)));
+        parser.useWorkerBudget(budget);
+        chunker.useWorkerBudget(budget);
+
+        parser.onStart(new StartupEvent());
+        Thread.sleep(200); // parser borrows everything chunker isn't using
+        chunker.onStart(new StartupEvent());
+
+        int peakTotal = 0;
+        boolean split = false;
+        for (int i = 0; i < 200 && !split; i++) {
+            int p = parser.snapshot().activeWorkers();
+            int c = chunker.snapshot().activeWorkers();
+            peakTotal = Math.max(peakTotal, p + c);
+            split = p == 2 && c == 2;
+            Thread.sleep(10);
+        }
+        parser.onStop(new ShutdownEvent());
+        chunker.onStop(new ShutdownEvent());
+
+        assertThat(split).as("contending modules settle at an equal share").isTrue();
+        assertThat(peakTotal).as("the shared budget is never overshot").isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    void cpuBoundMode_processesOnThePoolAndCapsRampUp() throws Exception {
+        server.shutdownNow().awaitTermination(2, TimeUnit.SECONDS);
+        server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(new AlwaysWorkEngine(workUnitsServed))
+                .build()
+                .start();
+
+        List<Thread> processThreads = new CopyOnWriteArrayList<>();
+        ModuleWorkerLoop<Hello> loop = new ModuleWorkerLoop<>(Hello.class, input -> {
+            processThreads.add(Thread.currentThread());
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(2));
+            return input;
+        }, channelClient(new AtomicInteger()), cpuBoundConfig(minWorkers(1), maxWorkers(8)));
+        loop.onStart(new StartupEvent());
+
+        int peak = 0;
+        for (int i = 0; i < 40; i++) {
+            peak = Math.max(peak, loop.snapshot().activeWorkers());
+            Thread.sleep(10);
+        }
+        loop.onStop(new ShutdownEvent());
+
+        assertThat(workUnitsServed.get()).isGreaterThanOrEqualTo(2);
+        assertThat(processThreads)
+                .as("process() runs on the bounded platform pool")
+                .allSatisfy(t -> {
+                    assertThat(t.isVirtual()).isFalse();
+                    assertThat(t.getName()).startsWith("worker-cpu-echo-");
+                });
+        assertThat(peak)
+                .as("one pool thread: one unit running plus one queued")
+                .isEqualTo(2);
+    }
+
+    @Test
+    void resourcePressure_holdsRampUp_andShedsBackToTheMinimum() throws Exception {
+        server.shutdownNow().awaitTermination(2, TimeUnit.SECONDS);
+        server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(new AlwaysWorkEngine(workUnitsServed))
+                .build()
+                .start();
+        AtomicReference<ResourcePressure.Reading> gauges = new AtomicReference<>(
+                new ResourcePressure.Reading(0.90, 0.10, 0.05, 0.50, ResourcePressure.Throttle.NONE));
+        ResourcePressure pressure = new ResourcePressure(gauges::get, 0.85, 0.95, 0.25, 0.95,
+                Duration.ZERO, System::nanoTime);
+
+        ModuleWorkerLoop<Hello> loop = new ModuleWorkerLoop<>(Hello.class, input -> {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            return input;
+        }, channelClient(new AtomicInteger()), rampConfig(minWorkers(1), maxWorkers(4)));
+        loop.useResourcePressure(pressure);
+        loop.onStart(new StartupEvent());
+        try {
+            int peak = 0;
+            for (int i = 0; i < 20; i++) {
+                peak = Math.max(peak, loop.snapshot().activeWorkers());
+                Thread.sleep(10);
+            }
+            assertThat(workUnitsServed.get()).isGreaterThanOrEqualTo(2);
+            assertThat(peak).as("heap after GC above the high mark holds ramp-up").isEqualTo(1);
+            assertThat(loop.snapshot().pressure().throttle()).isEqualTo(ResourcePressure.Throttle.HOLD);
+
+            gauges.set(new ResourcePressure.Reading(0.50, 0.10, 0.05, 0.50, ResourcePressure.Throttle.NONE));
+            for (int i = 0; i < 100 && loop.snapshot().activeWorkers() < 2; i++) {
+                Thread.sleep(10);
+            }
+            assertThat(loop.snapshot().activeWorkers()).as("ramps up once the pressure is gone").isGreaterThanOrEqualTo(2);
+
+            gauges.set(new ResourcePressure.Reading(0.97, 0.10, 0.05, 0.50, ResourcePressure.Throttle.NONE));
+            for (int i = 0; i < 100 && loop.snapshot().activeWorkers() > 1; i++) {
+                Thread.sleep(10);
+            }
+            ModuleWorkerLoop.Snapshot shed = loop.snapshot();
+            assertThat(shed.activeWorkers()).as("critical heap sheds to the minimum").isEqualTo(1);
+            assertThat(shed.concurrencyLimit()).isEqualTo(1);
+            assertThat(shed.pressure().throttle()).isEqualTo(ResourcePressure.Throttle.SHED);
+            assertThat(shed.pressure().heapAfterGc()).isEqualTo(0.97);
+        } finally {
+            loop.onStop(new ShutdownEvent());
+        }
+    }
+
+    @Test
+    void warmup_runsBeforeTheFirstHello_withReadinessDown() throws Exception {
+        AtomicInteger streams = new AtomicInteger();
+        ModuleWorkEngineClient counting = channelClient(new AtomicInteger());
+        ModuleWorkEngineClient client = new ModuleWorkEngineClient() {
+            @Override
+            public ModuleWorkServiceGrpc.ModuleWorkServiceStub stub() {
+                streams.incrementAndGet();
+                return counting.stub();
+            }
+
+            @Override
+            public void reconnect() {
+                counting.reconnect();
+            }
+        };
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger warmupCalls = new AtomicInteger();
+        ModuleWorkerLoop<Hello> loop = new ModuleWorkerLoop<>(Hello.class, input -> {
+            warmupCalls.incrementAndGet();
+            if (input.getModuleId().equals("slow")) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return input;
+        }, client, rampConfig(minWorkers(1), maxWorkers(1)));
+        loop.useWarmup(List.of(Hello.newBuilder().setModuleId("fast").build(),
+                Hello.newBuilder().setModuleId("slow").build()));
+        WorkerLoopReadinessCheck readiness = new WorkerLoopReadinessCheck();
+
+        loop.onStart(new StartupEvent());
+        try {
+            Thread.sleep(100);
+            assertThat(loop.snapshot().warmingUp()).isTrue();
+            assertThat(readiness.call().getStatus()).isEqualTo(HealthCheckResponse.Status.DOWN);
+            assertThat(streams.get()).as("no stream opened while warming up").isZero();
+            assertThat(warmupCalls.get()).isEqualTo(2);
+
+            release.countDown();
+            for (int i = 0; i < 100 && streams.get() == 0; i++) {
+                Thread.sleep(10);
+            }
+            assertThat(loop.snapshot().warmingUp()).isFalse();
+            assertThat(readiness.call().getStatus()).isEqualTo(HealthCheckResponse.Status.UP);
+            assertThat(warmupCalls.get()).as("warmup-iterations caps the warm-up").isEqualTo(1000);
+            assertThat(streams.get()).as("workers start once warm").isPositive();
+        } finally {
+            release.countDown();
+            loop.onStop(new ShutdownEvent());
+        }
+    }
+
+    /**
+     * Submit one unit to an idle engine right after it told the only
+     * worker there is no work, and measure submit-to-ack latency.
+     */
+    private Duration idleLatency(String idleMode, boolean engineSupportsLongPoll) throws Exception {
+        server.shutdownNow().awaitTermination(2, TimeUnit.SECONDS);
+        OnDemandEngine engine = new OnDemandEngine(engineSupportsLongPoll);
+        server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(ServerInterceptors.intercept(engine, engine.idleModeInterceptor()))
+                .build()
+                .start();
+
+        ModuleWorkerLoop<Hello> loop = newLoop(idleConfig(idleMode, Duration.ofMillis(500)), new AtomicInteger());
+        loop.onStart(new StartupEvent());
+        try {
+            assertThat(engine.noWorkSent.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+            Thread.sleep(20); // let a long-poll worker settle into its park
+            engine.submit("wu-idle");
+            Long latencyNanos = engine.ackLatencies.poll(5, TimeUnit.SECONDS);
+            assertThat(latencyNanos).as("the submitted unit must be processed").isNotNull();
+            return Duration.ofNanos(latencyNanos);
+        } finally {
+            loop.onStop(new ShutdownEvent());
+        }
+    }
+
     private ModuleWorkerLoop<Hello> newLoop(int min, int max) {
         return newLoop(min, max, new AtomicInteger());
     }
 
     private ModuleWorkerLoop<Hello> newLoop(int min, int max, AtomicInteger reconnects) {
+        return newLoop(rampConfig(min, max), reconnects);
+    }
+
+    private ModuleWorkerLoop<Hello> newLoop(WorkerLoopConfig config, AtomicInteger reconnects) {
+        return new ModuleWorkerLoop<>(
+                Hello.class,
+                input -> input,
+                channelClient(reconnects),
+                config);
+    }
+
+    private ModuleWorkEngineClient channelClient(AtomicInteger reconnects) {
         AtomicReference<ManagedChannel> channelRef = new AtomicReference<>(
                 InProcessChannelBuilder.forName(serverName).directExecutor().build());
-        ModuleWorkEngineClient engineClient = new ModuleWorkEngineClient() {
+        return new ModuleWorkEngineClient() {
             @Override
             public ModuleWorkServiceGrpc.ModuleWorkServiceStub stub() {
                 return ModuleWorkServiceGrpc.newStub(channelRef.get());
@@ -177,25 +681,77 @@ class ModuleWorkerLoopTest {
                 }
             }
         };
-        return new ModuleWorkerLoop<>(
-                Hello.class,
-                input -> input,
-                engineClient,
-                rampConfig(min, max));
     }
 
     private static WorkerLoopConfig rampConfig(int min, int max) {
+        return rampConfig(min, max, 0);
+    }
+
+    private static WorkerLoopConfig rampConfig(int min, int max, int prefetchCredits) {
+        return rampConfig(min, max, prefetchCredits, 16, Duration.ofMillis(50));
+    }
+
+    private static WorkerLoopConfig rampConfig(int min, int max, int prefetchCredits,
+                                               int maxBatchSize, Duration maxBatchDelay) {
+        return rampConfig(min, max, prefetchCredits, maxBatchSize, maxBatchDelay, "poll", Duration.ofMillis(50),
+                "virtual");
+    }
+
+    private static WorkerLoopConfig idleConfig(String idleMode, Duration noWorkRetryAfter) {
+        return rampConfig(minWorkers(1), maxWorkers(1), 0, 16, Duration.ofMillis(50), idleMode, noWorkRetryAfter,
+                "virtual");
+    }
+
+    private static WorkerLoopConfig cpuBoundConfig(int min, int max) {
+        return rampConfig(min, max, 0, 16, Duration.ofMillis(50), "poll", Duration.ofMillis(50), "cpu-bound");
+    }
+
+    private static WorkerLoopConfig rampConfig(int min, int max, int prefetchCredits,
+                                               int maxBatchSize, Duration maxBatchDelay,
+                                               String idleMode, Duration noWorkRetryAfter,
+                                               String processExecutor) {
         return new WorkerLoopConfig() {
             @Override public boolean enabled() { return true; }
             @Override public String moduleId() { return "echo"; }
             @Override public String grpcClientName() { return "engine"; }
+            @Override public int channelPoolSize() { return 1; }
             @Override public int concurrency() { return max; }
             @Override public int minConcurrency() { return min; }
             @Override public Duration heartbeatInterval() { return Duration.ofMinutes(5); }
             @Override public Duration reconnectInitialDelay() { return Duration.ofMillis(10); }
             @Override public Duration reconnectMaxDelay() { return Duration.ofMillis(100); }
-            @Override public Duration noWorkRetryAfter() { return Duration.ofMillis(50); }
+            @Override public Duration noWorkRetryAfter() { return noWorkRetryAfter; }
             @Override public Duration firstResponseTimeout() { return Duration.ofSeconds(5); }
+            @Override public int maxUnitsPerStream() { return 1; }
+            @Override public Duration maxStreamAge() { return Duration.ofMinutes(5); }
+            @Override public int prefetchCredits() { return prefetchCredits; }
+            @Override public int maxBatchSize() { return maxBatchSize; }
+            @Override public Duration maxBatchDelay() { return maxBatchDelay; }
+            @Override public String concurrencyLimiter() { return "ramp"; }
+            @Override public double limiterLatencyTolerance() { return 2.0; }
+            @Override public boolean deltaAcks() { return false; }
+            @Override public String idleMode() { return idleMode; }
+            @Override public String processExecutor() { return processExecutor; }
+            @Override public int cpuBoundThreads() { return 1; }
+            @Override public int splitParallelism() { return 0; }
+            @Override public int idempotencyCacheMaxEntries() { return 0; }
+            @Override public long idempotencyCacheMaxBytes() { return 64L << 20; }
+            @Override public Duration idempotencyCacheTtl() { return Duration.ofMinutes(10); }
+            @Override public boolean idempotencyCacheOffHeap() { return false; }
+            @Override public Duration longPollTimeout() { return Duration.ofSeconds(60); }
+            @Override public boolean chunkedPayloads() { return false; }
+            @Override public int chunkThreshold() { return 8 << 20; }
+            @Override public long chunkMaxPayloadBytes() { return 256L << 20; }
+            @Override public boolean pressureThrottling() { return false; }
+            @Override public double pressureMemoryHigh() { return 0.85; }
+            @Override public double pressureMemoryCritical() { return 0.95; }
+            @Override public double pressureGcTimeHigh() { return 0.25; }
+            @Override public double pressureCpuHigh() { return 0.95; }
+            @Override public Duration pressureSampleInterval() { return Duration.ofSeconds(1); }
+            @Override public int warmupIterations() { return 1000; }
+            @Override public Duration warmupDuration() { return Duration.ofSeconds(30); }
+            @Override public int affinityMaxKeys() { return 32; }
+            @Override public Optional<List<String>> affinityKeys() { return Optional.empty(); }
         };
     }
 
@@ -295,8 +851,174 @@ class ModuleWorkerLoopTest {
         }
     }
 
+    /**
+     * Idle engine that serves units only when the test submits them. An
+     * engine "supporting" long-poll echoes the worker's
+     * {@code x-pipestream-idle-mode} header and, instead of completing a
+     * stream after {@code NoWorkAvailable}, parks it and pushes the next
+     * submitted unit onto it.
+     */
+    private static final class OnDemandEngine extends ModuleWorkServiceGrpc.ModuleWorkServiceImplBase {
+        private static final Context.Key<Boolean> LONG_POLL = Context.key("long-poll");
+
+        private final boolean supportsLongPoll;
+        private final ConcurrentLinkedQueue<String> queued =
+                new ConcurrentLinkedQueue<>();
+        private final ConcurrentLinkedQueue<StreamObserver<WorkResponse>> parked =
+                new ConcurrentLinkedQueue<>();
+        private final ConcurrentHashMap<String, Long> submittedAt =
+                new ConcurrentHashMap<>();
+        final Semaphore noWorkSent = new Semaphore(0);
+        final LinkedBlockingQueue<Long> ackLatencies = new LinkedBlockingQueue<>();
+
+        OnDemandEngine(boolean supportsLongPoll) {
+            this.supportsLongPoll = supportsLongPoll;
+        }
+
+        ServerInterceptor idleModeInterceptor() {
+            return new ServerInterceptor() {
+                @Override
+                public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+                        ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+                    boolean longPoll = supportsLongPoll && WorkStreamSession.LONG_POLL.equals(
+                            headers.get(WorkStreamSession.IDLE_MODE_HEADER));
+                    ServerCall<ReqT, RespT> echoing = new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+                        @Override
+                        public void sendHeaders(Metadata responseHeaders) {
+                            if (longPoll) {
+                                responseHeaders.put(WorkStreamSession.IDLE_MODE_HEADER, WorkStreamSession.LONG_POLL);
+                            }
+                            super.sendHeaders(responseHeaders);
+                        }
+                    };
+                    return Contexts.interceptCall(
+                            Context.current().withValue(LONG_POLL, longPoll), echoing, headers, next);
+                }
+            };
+        }
+
+        void submit(String workUnitId) {
+            submittedAt.put(workUnitId, System.nanoTime());
+            StreamObserver<WorkResponse> stream = parked.poll();
+            if (stream != null) {
+                stream.onNext(unit(workUnitId));
+            } else {
+                queued.add(workUnitId);
+            }
+        }
+
+        private static WorkResponse unit(String workUnitId) {
+            return WorkResponse.newBuilder()
+                    .setWorkUnit(WorkUnit.newBuilder()
+                            .setWorkUnitId(workUnitId)
+                            .setPayload(Any.pack(Hello.newBuilder().setModuleId("echo").build()))
+                            .build())
+                    .build();
+        }
+
+        @Override
+        public StreamObserver<WorkRequest> work(StreamObserver<WorkResponse> responses) {
+            boolean longPoll = Boolean.TRUE.equals(LONG_POLL.get());
+            return new StreamObserver<>() {
+                @Override
+                public void onNext(WorkRequest req) {
+                    if (req.hasHello()) {
+                        String next = queued.poll();
+                        if (next != null) {
+                            responses.onNext(unit(next));
+                            return;
+                        }
+                        responses.onNext(WorkResponse.newBuilder()
+                                .setNoWork(NoWorkAvailable.newBuilder().build())
+                                .build());
+                        if (longPoll) {
+                            parked.add(responses);
+                        } else {
+                            responses.onCompleted();
+                        }
+                        noWorkSent.release();
+                    } else if (req.hasAck()) {
+                        Long submitted = submittedAt.remove(req.getAck().getWorkUnitId());
+                        if (submitted != null) {
+                            ackLatencies.add(System.nanoTime() - submitted);
+                        }
+                        responses.onNext(WorkResponse.newBuilder()
+                                .setAckConfirmed(AckConfirmed.newBuilder()
+                                        .setWorkUnitId(req.getAck().getWorkUnitId())
+                                        .setAccepted(true)
+                                        .build())
+                                .build());
+                        responses.onCompleted();
+                    }
+                }
+
+                @Override public void onError(Throwable t) { parked.remove(responses); }
+                @Override public void onCompleted() {
+                    if (parked.remove(responses)) {
+                        responses.onCompleted();
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * Serves a unit on every {@code n}th Hello and {@code NoWorkAvailable}
+     * with {@code retryAfterMs} on the rest; counts Hellos.
+     */
+    private static final class EveryNthWorkEngine extends ModuleWorkServiceGrpc.ModuleWorkServiceImplBase {
+        final AtomicInteger hellos = new AtomicInteger();
+        final AtomicInteger served = new AtomicInteger();
+        private final int n;
+        private final long retryAfterMs;
+
+        EveryNthWorkEngine(int n, long retryAfterMs) {
+            this.n = n;
+            this.retryAfterMs = retryAfterMs;
+        }
+
+        @Override
+        public StreamObserver<WorkRequest> work(StreamObserver<WorkResponse> responses) {
+            return new StreamObserver<>() {
+                @Override
+                public void onNext(WorkRequest req) {
+                    if (req.hasHello()) {
+                        if (hellos.incrementAndGet() % n != 1) {
+                            responses.onNext(WorkResponse.newBuilder()
+                                    .setNoWork(NoWorkAvailable.newBuilder().setRetryAfterMs(retryAfterMs).build())
+                                    .build());
+                            responses.onCompleted();
+                            return;
+                        }
+                        responses.onNext(WorkResponse.newBuilder()
+                                .setWorkUnit(WorkUnit.newBuilder()
+                                        .setWorkUnitId("wu-" + UUID.randomUUID())
+                                        .setPayload(Any.pack(Hello.newBuilder().setModuleId("echo").build()))
+                                        .build())
+                                .build());
+                        return;
+                    }
+                    if (req.hasAck()) {
+                        responses.onNext(WorkResponse.newBuilder()
+                                .setAckConfirmed(AckConfirmed.newBuilder()
+                                        .setWorkUnitId(req.getAck().getWorkUnitId())
+                                        .setAccepted(true)
+                                        .build())
+                                .build());
+                        responses.onCompleted();
+                        served.incrementAndGet();
+                    }
+                }
+
+                @Override public void onError(Throwable t) { }
+                @Override public void onCompleted() { }
+            };
+        }
+    }
+
     private static final class AlwaysWorkEngine extends ModuleWorkServiceGrpc.ModuleWorkServiceImplBase {
         private final AtomicInteger served;
+        final List<WorkAck> acks = new CopyOnWriteArrayList<>();
 
         AlwaysWorkEngine(AtomicInteger served) {
             this.served = served;
@@ -320,6 +1042,7 @@ class ModuleWorkerLoopTest {
                         return;
                     }
                     if (req.hasAck()) {
+                        acks.add(req.getAck());
                         responses.onNext(WorkResponse.newBuilder()
                                 .setAckConfirmed(AckConfirmed.newBuilder()
                                         .setWorkUnitId(req.getAck().getWorkUnitId())
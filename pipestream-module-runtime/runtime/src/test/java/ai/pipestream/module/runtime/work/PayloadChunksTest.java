@@ -0,0 +1,139 @@
+package ai.pipestream.module.runtime.work;
+
+import ai.pipestream.module.work.v1.Hello;
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Unit tests for {@link PayloadChunks}. */
+class PayloadChunksTest {
+
+    private static Any payload(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return Any.newBuilder()
+                .setTypeUrl("type.googleapis.com/example.Body")
+                .setValue(ByteString.copyFrom(bytes))
+                .build();
+    }
+
+    @Test
+    void split_boundsEveryFrame_andAssemblerRebuildsThePayload() throws Exception {
+        Any payload = payload(10_000);
+
+        List<Any> frames = PayloadChunks.split(payload, 1024);
+
+        assertThat(frames).hasSize(10);
+        assertThat(frames).allSatisfy(frame -> {
+            assertThat(PayloadChunks.isChunk(frame)).isTrue();
+            assertThat(frame.getTypeUrl()).isEqualTo(PayloadChunks.TYPE_URL_PREFIX + "example.Body");
+            assertThat(frame.getValue().size()).isLessThan(1024 + 64);
+        });
+        PayloadChunks.Assembler assembler = new PayloadChunks.Assembler(Integer.MAX_VALUE);
+        for (int i = 0; i < frames.size() - 1; i++) {
+            assertThat(assembler.accept("wu-1", frames.get(i))).isNull();
+            assertThat(assembler.inProgress()).isTrue();
+        }
+        assertThat(assembler.accept("wu-1", frames.get(frames.size() - 1))).isEqualTo(payload);
+        assertThat(assembler.inProgress()).isFalse();
+    }
+
+    @Test
+    void reassembledPayload_unpacksLikeTheOriginal() throws Exception {
+        Hello document = Hello.newBuilder().setModuleId("m".repeat(5000)).setInstanceId("i").build();
+        PayloadCodec<Hello> codec = new PayloadCodec<>(Hello.class);
+        PayloadChunks.Assembler assembler = new PayloadChunks.Assembler(Integer.MAX_VALUE);
+
+        Any rebuilt = null;
+        for (Any frame : PayloadChunks.split(codec.pack(document), 777)) {
+            rebuilt = assembler.accept("wu-1", frame);
+        }
+
+        assertThat(codec.unpack(rebuilt)).isEqualTo(document);
+    }
+
+    @Test
+    void outOfOrderOrForeignFrames_areRejected() throws Exception {
+        List<Any> frames = PayloadChunks.split(payload(3000), 1000);
+        PayloadChunks.Assembler assembler = new PayloadChunks.Assembler(Integer.MAX_VALUE);
+
+        assembler.accept("wu-1", frames.get(0));
+        assertThatThrownBy(() -> assembler.accept("wu-1", frames.get(2)))
+                .isInstanceOf(InvalidProtocolBufferException.class)
+                .hasMessageContaining("out of order");
+
+        assembler.accept("wu-1", frames.get(0));
+        assertThatThrownBy(() -> assembler.accept("wu-2", frames.get(1)))
+                .isInstanceOf(InvalidProtocolBufferException.class);
+        assertThat(assembler.inProgress()).isFalse();
+    }
+
+    @Test
+    void payloadAboveTheLimit_isRejectedOnTheFirstFrame() {
+        List<Any> frames = PayloadChunks.split(payload(3000), 1000);
+        PayloadChunks.Assembler assembler = new PayloadChunks.Assembler(2000);
+
+        assertThatThrownBy(() -> assembler.accept("wu-1", frames.get(0)))
+                .isInstanceOf(InvalidProtocolBufferException.class)
+                .hasMessageContaining("exceeds");
+    }
+
+    @Test
+    void announcedTwoGigabytes_isRejectedBeforeAnyDataIsBuffered() {
+        Any frame = firstFrame("type.googleapis.com/example.Body", 2L << 30, ByteString.copyFrom(new byte[1024]));
+        PayloadChunks.Assembler assembler = new PayloadChunks.Assembler(1 << 20);
+
+        assertThatThrownBy(() -> assembler.accept("wu-1", frame))
+                .isInstanceOf(PayloadChunks.PayloadTooLargeException.class)
+                .hasMessageContaining("2147483648 bytes");
+        assertThat(assembler.inProgress()).as("nothing of the payload is kept").isFalse();
+    }
+
+    @Test
+    void deltaPayloads_keepTheirTypeUrl() throws Exception {
+        Any delta = payload(2500).toBuilder()
+                .setTypeUrl(PayloadDelta.TYPE_URL_PREFIX + "example.Body")
+                .build();
+        PayloadChunks.Assembler assembler = new PayloadChunks.Assembler(Integer.MAX_VALUE);
+
+        Any rebuilt = null;
+        for (Any frame : PayloadChunks.split(delta, 1000)) {
+            rebuilt = assembler.accept("wu-1", frame);
+        }
+
+        assertThat(PayloadDelta.isDelta(rebuilt)).isTrue();
+        assertThat(rebuilt).isEqualTo(delta);
+    }
+
+    /**
+     * A hand-built first frame, so a test can announce a {@code total_size}
+     * without producing that much data.
+     */
+    static Any firstFrame(String typeUrl, long totalSize, ByteString data) {
+        try {
+            ByteString.Output out = ByteString.newOutput();
+            CodedOutputStream coded = CodedOutputStream.newInstance(out);
+            coded.writeString(1, typeUrl);
+            coded.writeUInt64(2, totalSize);
+            coded.writeUInt32(3, 0);
+            coded.writeBool(4, false);
+            coded.writeBytes(5, data);
+            coded.flush();
+            return Any.newBuilder()
+                    .setTypeUrl(PayloadChunks.TYPE_URL_PREFIX + typeUrl.substring(typeUrl.lastIndexOf('/') + 1))
+                    .setValue(out.toByteString())
+                    .build();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -3,9 +3,12 @@ package ai.pipestream.module.runtime.work;
 import ai.pipestream.module.work.v1.Hello;
 import ai.pipestream.module.work.v1.WorkAck;
 import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
@@ -46,6 +49,41 @@ class PayloadCodecTest {
                 .endsWith("ai.pipestream.module.work.v1.Hello");
     }
 
+    @Test
+    void packMatchesAnyPack() {
+        Hello hello = Hello.newBuilder().setModuleId("x").setInstanceId("y").build();
+        assertThat(new PayloadCodec<>(Hello.class).pack(hello))
+                .as("the cached type URL and presized value must be wire-identical to Any.pack")
+                .isEqualTo(Any.pack(hello));
+    }
+
+    @Test
+    void unpackAcceptsForeignTypeUrlPrefix() throws InvalidProtocolBufferException {
+        Hello hello = Hello.newBuilder().setModuleId("x").build();
+        Any foreign = Any.pack(hello, "example.com/types");
+
+        assertThat(new PayloadCodec<>(Hello.class).unpack(foreign))
+                .as("only the type name after the last '/' is significant, as with Any.is")
+                .isEqualTo(hello);
+    }
+
+    @Test
+    void unpackOfNestedBytesRoundTrips() throws InvalidProtocolBufferException {
+        // WorkAck.updated_payload is an Any, i.e. a bytes field — exercises
+        // the aliased parse path on a payload with a large nested value.
+        byte[] bulk = new byte[256 * 1024];
+        Arrays.fill(bulk, (byte) 7);
+        WorkAck ack = WorkAck.newBuilder()
+                .setWorkUnitId("u-1")
+                .setUpdatedPayload(Any.newBuilder()
+                        .setTypeUrl("type.googleapis.com/example.Blob")
+                        .setValue(ByteString.copyFrom(bulk)))
+                .build();
+
+        PayloadCodec<WorkAck> codec = new PayloadCodec<>(WorkAck.class);
+        assertThat(codec.unpack(codec.pack(ack))).isEqualTo(ack);
+    }
+
     @Test
     void unpackWithWrongTypeThrows() {
         // Pack a Hello, try to unpack as a different message type.
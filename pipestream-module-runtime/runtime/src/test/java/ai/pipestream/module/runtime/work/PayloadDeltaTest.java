@@ -0,0 +1,87 @@
+package ai.pipestream.module.runtime.work;
+
+import ai.pipestream.module.work.v1.Hello;
+import ai.pipestream.module.work.v1.ProcessingStatus;
+import ai.pipestream.module.work.v1.WorkAck;
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.FieldMask;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link PayloadDelta}. Like {@link PayloadCodecTest},
+ * uses module-worker messages as stand-in payloads: {@code WorkAck} has
+ * a large nested field ({@code updated_payload}) to leave untouched.
+ */
+class PayloadDeltaTest {
+
+    private static final PayloadCodec<WorkAck> CODEC = new PayloadCodec<>(WorkAck.class);
+
+    private static WorkAck document() {
+        return WorkAck.newBuilder()
+                .setWorkUnitId("doc-1")
+                .setErrorMessage("old note")
+                .setUpdatedPayload(Any.newBuilder()
+                        .setTypeUrl("type.googleapis.com/example.Body")
+                        .setValue(ByteString.copyFrom(new byte[64 * 1024])))
+                .build();
+    }
+
+    @Test
+    void changedFields_listsOnlyTopLevelFieldsThatDiffer() {
+        WorkAck before = document();
+        WorkAck after = before.toBuilder()
+                .setStatus(ProcessingStatus.PROCESSING_STATUS_SUCCESS)
+                .clearErrorMessage()
+                .build();
+
+        assertThat(PayloadDelta.changedFields(before, after))
+                .isEqualTo(FieldMask.newBuilder().addPaths("status").addPaths("error_message").build());
+    }
+
+    @Test
+    void encode_smallChange_isDelta_andApplyRoundTrips() throws InvalidProtocolBufferException {
+        WorkAck before = document();
+        WorkAck after = before.toBuilder()
+                .setStatus(ProcessingStatus.PROCESSING_STATUS_SUCCESS)
+                .clearErrorMessage()
+                .build();
+
+        Any delta = PayloadDelta.encode(CODEC, before, after);
+
+        assertThat(PayloadDelta.isDelta(delta)).isTrue();
+        assertThat(delta.getValue().size()).isLessThan(100);
+        assertThat(PayloadDelta.apply(before, delta, CODEC))
+                .as("masked fields are replaced or cleared; the rest comes from the base")
+                .isEqualTo(after);
+    }
+
+    @Test
+    void encode_whenDeltaIsNotSmaller_fallsBackToFullPayload() throws InvalidProtocolBufferException {
+        Hello before = Hello.newBuilder().setModuleId("a").build();
+        Hello after = Hello.newBuilder().setModuleId("b").setInstanceId("c").build();
+        PayloadCodec<Hello> codec = new PayloadCodec<>(Hello.class);
+
+        Any encoded = PayloadDelta.encode(codec, before, after);
+
+        assertThat(PayloadDelta.isDelta(encoded)).isFalse();
+        assertThat(encoded).isEqualTo(codec.pack(after));
+        assertThat(PayloadDelta.apply(before, encoded, codec))
+                .as("apply accepts plain payloads too")
+                .isEqualTo(after);
+    }
+
+    @Test
+    void apply_rejectsDeltaForAnotherType() {
+        WorkAck before = document();
+        Any delta = PayloadDelta.encode(CODEC, before, before.toBuilder().setErrorMessage("x").build());
+        Hello otherBase = Hello.getDefaultInstance();
+
+        assertThatThrownBy(() -> PayloadDelta.apply(otherBase, delta, new PayloadCodec<>(Hello.class)))
+                .isInstanceOf(InvalidProtocolBufferException.class);
+    }
+}
@@ -0,0 +1,81 @@
+package ai.pipestream.module.runtime.work;
+
+import ai.pipestream.module.runtime.work.ResourcePressure.Reading;
+import ai.pipestream.module.runtime.work.ResourcePressure.Throttle;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResourcePressureTest {
+
+    private static Reading gauges(double heap, double direct, double gc, double cpu) {
+        return new Reading(heap, direct, gc, cpu, Throttle.NONE);
+    }
+
+    private static ResourcePressure pressure(AtomicReference<Reading> gauges) {
+        return new ResourcePressure(gauges::get, 0.85, 0.95, 0.25, 0.95, Duration.ZERO, System::nanoTime);
+    }
+
+    @Test
+    void classifiesEachGauge() {
+        AtomicReference<Reading> gauges = new AtomicReference<>(gauges(0.5, 0.1, 0.02, 0.4));
+        ResourcePressure pressure = pressure(gauges);
+        assertThat(pressure.throttle()).isEqualTo(Throttle.NONE);
+
+        gauges.set(gauges(0.86, 0.1, 0.02, 0.4));
+        assertThat(pressure.throttle()).as("heap after GC").isEqualTo(Throttle.HOLD);
+        gauges.set(gauges(0.5, 0.96, 0.02, 0.4));
+        assertThat(pressure.throttle()).as("direct memory").isEqualTo(Throttle.SHED);
+        gauges.set(gauges(0.5, 0.1, 0.3, 0.4));
+        assertThat(pressure.throttle()).as("GC time").isEqualTo(Throttle.HOLD);
+        gauges.set(gauges(0.5, 0.1, 0.6, 0.4));
+        assertThat(pressure.throttle()).as("GC thrashing").isEqualTo(Throttle.SHED);
+        gauges.set(gauges(0.5, 0.1, 0.02, 1.0));
+        assertThat(pressure.throttle()).as("CPU holds but never sheds").isEqualTo(Throttle.HOLD);
+        gauges.set(gauges(-1, -1, -1, -1));
+        assertThat(pressure.throttle()).as("unknown gauges don't throttle").isEqualTo(Throttle.NONE);
+    }
+
+    @Test
+    void samplesAtMostOncePerInterval() {
+        AtomicInteger reads = new AtomicInteger();
+        AtomicLong clock = new AtomicLong();
+        ResourcePressure pressure = new ResourcePressure(() -> {
+            reads.incrementAndGet();
+            return gauges(0.9, 0, 0, 0);
+        }, 0.85, 0.95, 0.25, 0.95, Duration.ofSeconds(1), clock::get);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(pressure.throttle()).isEqualTo(Throttle.HOLD);
+        }
+        assertThat(reads.get()).isEqualTo(1);
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        pressure.reading();
+        assertThat(reads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsInvertedMemoryThresholds() {
+        assertThatThrownBy(() -> new ResourcePressure(() -> gauges(0, 0, 0, 0), 0.95, 0.85, 0.25, 0.95,
+                Duration.ZERO, System::nanoTime))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void jvmProbe_readsPlausibleFractions() {
+        ResourcePressure.JvmProbe probe = new ResourcePressure.JvmProbe();
+        System.gc();
+        Reading reading = probe.read();
+
+        assertThat(reading.heapAfterGc()).isBetween(-1.0, 1.0);
+        assertThat(reading.directMemory()).isBetween(-1.0, 1.0);
+        assertThat(reading.gcTime()).isBetween(-1.0, 1.0);
+        assertThat(reading.cpuLoad()).isBetween(-1.0, 1.0);
+    }
+}
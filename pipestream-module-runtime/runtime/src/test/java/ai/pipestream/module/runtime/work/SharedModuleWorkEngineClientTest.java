@@ -0,0 +1,182 @@
+package ai.pipestream.module.runtime.work;
+
+import ai.pipestream.module.work.v1.Hello;
+import ai.pipestream.module.work.v1.ModuleWorkServiceGrpc;
+import ai.pipestream.module.work.v1.WorkRequest;
+import ai.pipestream.module.work.v1.WorkResponse;
+import ai.pipestream.server.grpc.EphemeralGrpcChannelFactory;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Channel pool: least-loaded stream placement, and the rule that one
+ * stream's error never shuts down a channel other workers share.
+ */
+class SharedModuleWorkEngineClientTest {
+
+    private String serverName;
+    private Server server;
+    private final LinkedBlockingQueue<StreamObserver<WorkResponse>> openStreams = new LinkedBlockingQueue<>();
+    private final List<ManagedChannel> opened = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void startServer() throws Exception {
+        serverName = "shared-engine-client-" + UUID.randomUUID();
+        server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(new ModuleWorkServiceGrpc.ModuleWorkServiceImplBase() {
+                    @Override
+                    public StreamObserver<WorkRequest> work(StreamObserver<WorkResponse> responses) {
+                        // Hold every stream open until the test ends it.
+                        openStreams.add(responses);
+                        return new StreamObserver<>() {
+                            @Override public void onNext(WorkRequest value) { }
+                            @Override public void onError(Throwable t) { }
+                            @Override public void onCompleted() { }
+                        };
+                    }
+                })
+                .build()
+                .start();
+    }
+
+    @AfterEach
+    void stopServer() throws Exception {
+        server.shutdownNow().awaitTermination(2, TimeUnit.SECONDS);
+        opened.forEach(ManagedChannel::shutdownNow);
+    }
+
+    @Test
+    void spreadsStreamsOverTheLeastLoadedChannels() throws Exception {
+        SharedModuleWorkEngineClient client = newClient(3);
+
+        List<StreamObserver<WorkRequest>> calls = new ArrayList<>();
+        List<StreamObserver<WorkResponse>> serverSides = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            calls.add(openStream(client));
+            serverSides.add(openStreams.poll(2, TimeUnit.SECONDS));
+        }
+
+        assertThat(opened).hasSize(3);
+        for (int i = 0; i < 3; i++) {
+            assertThat(client.inFlight(i)).as("channel %d", i).isEqualTo(2);
+        }
+
+        // Finish streams until one channel is idle: the next stream goes
+        // there, whatever the round-robin offset says.
+        int freed = indexOfLeastLoadedAfterCompleting(client, serverSides, calls);
+        for (int i = 0; i < 3; i++) {
+            openStream(client);
+            assertThat(client.inFlight(freed)).isEqualTo(1);
+            openStreams.poll(2, TimeUnit.SECONDS).onCompleted();
+            awaitTotalInFlight(client, 2);
+        }
+        assertThat(opened).as("no extra channels for a busy pool").hasSize(3);
+
+        client.reconnect();
+    }
+
+    @Test
+    void streamErrorLeavesSharedChannelsUp() throws Exception {
+        SharedModuleWorkEngineClient client = newClient(2);
+        openStream(client);
+        openStream(client);
+        StreamObserver<WorkResponse> first = openStreams.poll(2, TimeUnit.SECONDS);
+        openStreams.poll(2, TimeUnit.SECONDS);
+
+        first.onError(Status.UNAVAILABLE.withDescription("engine watchdog").asRuntimeException());
+
+        awaitTotalInFlight(client, 1);
+        assertThat(opened).hasSize(2).noneMatch(ManagedChannel::isShutdown);
+
+        client.reconnect();
+        assertThat(opened).allMatch(ManagedChannel::isShutdown);
+    }
+
+    @Test
+    void deadChannelIsReopenedAlone() throws Exception {
+        SharedModuleWorkEngineClient client = newClient(2);
+        openStream(client);
+        openStream(client);
+        assertThat(opened).hasSize(2);
+
+        ManagedChannel dead = opened.get(0);
+        dead.shutdownNow();
+        for (int i = 0; i < 4; i++) {
+            openStream(client);
+        }
+
+        assertThat(opened).hasSize(3);
+        assertThat(opened.get(1).isShutdown()).as("the healthy sibling is untouched").isFalse();
+        client.reconnect();
+    }
+
+    private SharedModuleWorkEngineClient newClient(int poolSize) {
+        EphemeralGrpcChannelFactory factory = new EphemeralGrpcChannelFactory() {
+            @Override
+            public ManagedChannel open(String clientName, int defaultMaxInboundMessageSize) {
+                ManagedChannel channel = InProcessChannelBuilder.forName(serverName).directExecutor().build();
+                opened.add(channel);
+                return channel;
+            }
+        };
+        return new SharedModuleWorkEngineClient(factory, "engine", "test-module", poolSize);
+    }
+
+    private static StreamObserver<WorkRequest> openStream(SharedModuleWorkEngineClient client) {
+        StreamObserver<WorkRequest> requests = client.stub().work(new StreamObserver<>() {
+            @Override public void onNext(WorkResponse value) { }
+            @Override public void onError(Throwable t) { }
+            @Override public void onCompleted() { }
+        });
+        requests.onNext(WorkRequest.newBuilder().setHello(Hello.newBuilder().setModuleId("test-module")).build());
+        return requests;
+    }
+
+    /** Complete streams until one channel is idle; return its index. */
+    private static int indexOfLeastLoadedAfterCompleting(SharedModuleWorkEngineClient client,
+                                                         List<StreamObserver<WorkResponse>> serverSides,
+                                                         List<StreamObserver<WorkRequest>> calls) throws Exception {
+        for (int i = 0; i < serverSides.size(); i++) {
+            serverSides.get(i).onCompleted();
+            calls.get(i).onCompleted();
+            for (int c = 0; c < client.poolSize(); c++) {
+                if (client.inFlight(c) == 0) {
+                    return c;
+                }
+            }
+        }
+        throw new AssertionError("no channel went idle");
+    }
+
+    private static void awaitTotalInFlight(SharedModuleWorkEngineClient client, int expected) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (System.nanoTime() < deadline) {
+            int total = 0;
+            for (int c = 0; c < client.poolSize(); c++) {
+                total += client.inFlight(c);
+            }
+            if (total == expected) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("in-flight streams never settled at " + expected);
+    }
+}
@@ -0,0 +1,125 @@
+package ai.pipestream.module.runtime.work;
+
+import ai.pipestream.module.work.v1.Hello;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SplitExecutorTest {
+
+    private final SplitExecutor executor = new SplitExecutor("ocr", 4);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void partsRunInParallel_andMergeInSplitOrder() {
+        CountDownLatch allStarted = new CountDownLatch(4);
+        ModuleProcessor<Hello> processor = executor.wrap(new Words() {
+            @Override
+            public String processPart(String part) {
+                // Only completes if all four parts are running at once.
+                allStarted.countDown();
+                try {
+                    assertThat(allStarted.await(5, TimeUnit.SECONDS)).isTrue();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                assertThat(Thread.currentThread().getName()).startsWith("worker-split-ocr-");
+                return part.toUpperCase();
+            }
+        });
+
+        Hello out = processor.process(Hello.newBuilder().setModuleId("a b c d").build());
+
+        assertThat(out.getModuleId()).isEqualTo("A B C D");
+        assertThat(executor.parallelism()).isEqualTo(4);
+    }
+
+    @Test
+    void failedPart_failsTheUnitUnchanged_andLaterPartsAreCancelled() throws Exception {
+        AtomicInteger processed = new AtomicInteger();
+        SplitExecutor single = new SplitExecutor("ocr", 1);
+        try {
+            ModuleProcessor<Hello> processor = single.wrap(new Words() {
+                @Override
+                public String processPart(String part) {
+                    if (part.equals("bad")) {
+                        throw new ModuleProcessor.PermanentFailure("unreadable page");
+                    }
+                    processed.incrementAndGet();
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return part;
+                }
+            });
+
+            assertThatThrownBy(() -> processor.process(Hello.newBuilder().setModuleId("bad a b c").build()))
+                    .isInstanceOf(ModuleProcessor.PermanentFailure.class)
+                    .hasMessage("unreadable page");
+            Thread.sleep(500);
+            assertThat(processed.get()).as("at most the part already picked up runs").isLessThanOrEqualTo(1);
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    void onTheCpuBoundPool_partsShareItsThreads() {
+        CpuBoundExecutor cpuPool = new CpuBoundExecutor("ocr", 2);
+        SplitExecutor onCpuPool = new SplitExecutor(cpuPool);
+        try {
+            ModuleProcessor<Hello> processor = onCpuPool.wrap(new Words() {
+                @Override
+                public String processPart(String part) {
+                    return Thread.currentThread().getName().startsWith("worker-cpu-ocr-") ? part : "wrong-pool";
+                }
+            });
+
+            assertThat(processor.process(Hello.newBuilder().setModuleId("a b c").build()).getModuleId())
+                    .isEqualTo("a b c");
+            assertThat(onCpuPool.parallelism()).isEqualTo(2);
+        } finally {
+            cpuPool.shutdown();
+        }
+    }
+
+    @Test
+    void emptySplit_mergesWithoutParts() {
+        ModuleProcessor<Hello> processor = executor.wrap(new Words() {
+            @Override
+            public String processPart(String part) {
+                throw new AssertionError("no parts to process");
+            }
+        });
+
+        assertThat(processor.process(Hello.getDefaultInstance())).isEqualTo(Hello.getDefaultInstance());
+    }
+
+    /** Splits the module id on spaces and joins the processed words back. */
+    private abstract static class Words implements SplittableModuleProcessor<Hello, String> {
+
+        @Override
+        public List<String> split(Hello input) {
+            return input.getModuleId().isEmpty() ? List.of() : Arrays.asList(input.getModuleId().split(" "));
+        }
+
+        @Override
+        public Hello merge(Hello input, List<String> processed) {
+            return input.toBuilder().setModuleId(String.join(" ", processed)).build();
+        }
+    }
+}
@@ -10,22 +10,36 @@ import ai.pipestream.module.work.v1.WorkRequest;
 import ai.pipestream.module.work.v1.WorkResponse;
 import ai.pipestream.module.work.v1.WorkUnit;
 import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.grpc.ForwardingServerCall;
 import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
 import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.ServerServiceDefinition;
 import io.grpc.inprocess.InProcessChannelBuilder;
 import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -251,15 +265,589 @@ class WorkStreamSessionTest {
         assertThat(outcome).isEqualTo(WorkStreamSession.Outcome.STREAM_ERROR);
     }
 
+    @Test
+    void streamErrorBeforeAckConfirmed_ReturnsStreamError_WithoutWaitingOutTheAckTimeout() {
+        fakeEngine.respondTo(Hello.class, hello -> unitResponse("wu-reset"));
+        fakeEngine.respondTo(WorkAck.class, ack -> WorkResponse.newBuilder().build());
+        fakeEngine.simulateErrorAfterAck = true;
+
+        long start = System.nanoTime();
+        WorkStreamSession.Outcome outcome = newSession(input -> input).run();
+
+        assertThat(outcome).isEqualTo(WorkStreamSession.Outcome.STREAM_ERROR);
+        assertThat(Duration.ofNanos(System.nanoTime() - start))
+                .as("a reset stream must end the wait for AckConfirmed")
+                .isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void persistentStream_ProcessesSeveralUnitsOnOneStream_WithSingleHello() throws Exception {
+        AtomicInteger served = new AtomicInteger();
+        fakeEngine.respondTo(Hello.class, hello -> unitResponse("wu-" + served.incrementAndGet()));
+        fakeEngine.respondTo(WorkAck.class, ack ->
+                WorkResponse.newBuilder()
+                        .setAckConfirmed(AckConfirmed.newBuilder()
+                                .setWorkUnitId(ack.getWorkUnitId()).setAccepted(true).build())
+                        .build());
+        fakeEngine.nextAfterAck = () -> unitResponse("wu-" + served.incrementAndGet());
+
+        List<WorkStreamSession.Outcome> unitOutcomes = new CopyOnWriteArrayList<>();
+        WorkStreamSession<Hello> session = new WorkStreamSession<>(asyncStub, input -> input,
+                new PayloadCodec<>(Hello.class), testConfig(3),
+                (unitOutcome, processNanos) -> unitOutcomes.add(unitOutcome));
+        WorkStreamSession.Outcome outcome = session.run();
+
+        assertThat(outcome).isEqualTo(WorkStreamSession.Outcome.SUCCESS);
+        assertThat(session.unitsProcessed())
+                .as("stream is recycled once max-units-per-stream is reached")
+                .isEqualTo(3);
+        assertThat(unitOutcomes)
+                .as("the loop is told about every unit so it can ramp up per unit")
+                .containsExactly(WorkStreamSession.Outcome.SUCCESS,
+                        WorkStreamSession.Outcome.SUCCESS,
+                        WorkStreamSession.Outcome.SUCCESS);
+        assertThat(fakeEngine.requests.stream().filter(WorkRequest::hasHello).count())
+                .as("one Hello per stream, not per unit").isEqualTo(1);
+        assertThat(fakeEngine.requests.stream().filter(WorkRequest::hasAck)
+                .map(r -> r.getAck().getWorkUnitId()))
+                .containsExactly("wu-1", "wu-2", "wu-3");
+    }
+
+    @Test
+    void persistentStream_UnitThatNeverReachesProcess_ReportsNoLatency() {
+        fakeEngine.respondTo(Hello.class, hello -> unitResponse("wu-1"));
+        fakeEngine.respondTo(WorkAck.class, ack ->
+                WorkResponse.newBuilder()
+                        .setAckConfirmed(AckConfirmed.newBuilder()
+                                .setWorkUnitId(ack.getWorkUnitId()).setAccepted(true).build())
+                        .build());
+        fakeEngine.nextAfterAck = () -> WorkResponse.newBuilder()
+                .setWorkUnit(WorkUnit.newBuilder()
+                        .setWorkUnitId("wu-mismatched")
+                        .setPayload(Any.pack(WorkAck.newBuilder().setWorkUnitId("bogus").build()))
+                        .build())
+                .build();
+
+        List<Long> processNanos = new CopyOnWriteArrayList<>();
+        ModuleProcessor<Hello> slowProcessor = input -> {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return input;
+        };
+        WorkStreamSession<Hello> session = new WorkStreamSession<>(asyncStub, slowProcessor,
+                new PayloadCodec<>(Hello.class), testConfig(2), (o, nanos) -> processNanos.add(nanos));
+        session.run();
+
+        assertThat(processNanos).hasSize(2);
+        assertThat(processNanos.get(0)).isPositive();
+        assertThat(processNanos.get(1))
+                .as("an undecodable unit must not repeat the previous unit's latency to the limiter")
+                .isZero();
+    }
+
+    @Test
+    void persistentStream_EngineCompletesAfterAck_FallsBackToOneUnit() {
+        fakeEngine.respondTo(Hello.class, hello -> unitResponse("wu-only"));
+        fakeEngine.respondTo(WorkAck.class, ack ->
+                WorkResponse.newBuilder()
+                        .setAckConfirmed(AckConfirmed.newBuilder()
+                                .setWorkUnitId(ack.getWorkUnitId()).setAccepted(true).build())
+                        .build());
+
+        WorkStreamSession<Hello> session = new WorkStreamSession<>(asyncStub, input -> input,
+                new PayloadCodec<>(Hello.class), testConfig(10));
+        long start = System.nanoTime();
+        WorkStreamSession.Outcome outcome = session.run();
+
+        assertThat(outcome)
+                .as("an engine that closes the stream after AckConfirmed is not an error")
+                .isEqualTo(WorkStreamSession.Outcome.SUCCESS);
+        assertThat(session.unitsProcessed()).isEqualTo(1);
+        assertThat(Duration.ofNanos(System.nanoTime() - start))
+                .as("the session must notice the engine's close instead of waiting out the timeout")
+                .isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void persistentStream_NoWorkAfterUnits_ReturnsNoWork() {
+        AtomicInteger served = new AtomicInteger();
+        fakeEngine.respondTo(Hello.class, hello -> unitResponse("wu-" + served.incrementAndGet()));
+        fakeEngine.respondTo(WorkAck.class, ack ->
+                WorkResponse.newBuilder()
+                        .setAckConfirmed(AckConfirmed.newBuilder()
+                                .setWorkUnitId(ack.getWorkUnitId()).setAccepted(true).build())
+                        .build());
+        fakeEngine.nextAfterAck = () -> served.get() < 2
+                ? unitResponse("wu-" + served.incrementAndGet())
+                : WorkResponse.newBuilder().setNoWork(NoWorkAvailable.getDefaultInstance()).build();
+
+        WorkStreamSession<Hello> session = new WorkStreamSession<>(asyncStub, input -> input,
+                new PayloadCodec<>(Hello.class), testConfig(100));
+
+        assertThat(session.run()).isEqualTo(WorkStreamSession.Outcome.NO_WORK_AVAILABLE);
+        assertThat(session.unitsProcessed()).isEqualTo(2);
+    }
+
+    @Test
+    void prefetch_HoldsDecodedUnit_ThenRunProcessesIt() {
+        fakeEngine.respondTo(Hello.class, hello -> unitResponse("wu-pre"));
+        fakeEngine.respondTo(WorkAck.class, ack ->
+                WorkResponse.newBuilder()
+                        .setAckConfirmed(AckConfirmed.newBuilder()
+                                .setWorkUnitId(ack.getWorkUnitId()).setAccepted(true).build())
+                        .build());
+
+        List<Hello> seen = new CopyOnWriteArrayList<>();
+        WorkStreamSession<Hello> session = newSession(input -> {
+            seen.add(input);
+            return input;
+        });
+
+        assertThat(session.prefetch()).as("a unit was served, so it is held").isTrue();
+        assertThat(session.hasPrefetchedUnit()).isTrue();
+        assertThat(seen).as("prefetch must not run the processor").isEmpty();
+
+        assertThat(session.run()).isEqualTo(WorkStreamSession.Outcome.SUCCESS);
+        assertThat(seen).extracting(Hello::getModuleId).containsExactly("wu-pre");
+        assertThat(fakeEngine.requests.stream().filter(WorkRequest::hasHello).count()).isEqualTo(1);
+    }
+
+    @Test
+    void prefetch_ReleasedUnit_IsAckedRetryable_WithoutProcessing() {
+        fakeEngine.respondTo(Hello.class, hello -> unitResponse("wu-released"));
+
+        boolean[] processorWasCalled = {false};
+        WorkStreamSession<Hello> session = newSession(input -> {
+            processorWasCalled[0] = true;
+            return input;
+        });
+        assertThat(session.prefetch()).isTrue();
+        session.release("shutting down");
+
+        assertThat(processorWasCalled[0]).isFalse();
+        assertThat(session.hasPrefetchedUnit()).isFalse();
+        WorkAck observed = fakeEngine.requests.stream()
+                .filter(WorkRequest::hasAck).findFirst().orElseThrow().getAck();
+        assertThat(observed.getWorkUnitId()).isEqualTo("wu-released");
+        assertThat(observed.getStatus())
+                .as("a released unit goes straight back to the engine for redelivery")
+                .isEqualTo(ProcessingStatus.PROCESSING_STATUS_RETRYABLE_FAILURE);
+        assertThat(session.run())
+                .as("a released session never touches the wire again")
+                .isEqualTo(WorkStreamSession.Outcome.STREAM_ERROR);
+    }
+
+    @Test
+    void prefetch_NoWork_ReturnsFalse_AndRunReportsNoWork() {
+        fakeEngine.respondTo(Hello.class, hello ->
+                WorkResponse.newBuilder()
+                        .setNoWork(NoWorkAvailable.newBuilder().setRetryAfterMs(250).build())
+                        .build());
+
+        WorkStreamSession<Hello> session = newSession(input -> input);
+
+        assertThat(session.prefetch()).isFalse();
+        assertThat(session.run()).isEqualTo(WorkStreamSession.Outcome.NO_WORK_AVAILABLE);
+        assertThat(session.suggestedNoWorkRetry()).isEqualTo(Duration.ofMillis(250));
+    }
+
+    @Test
+    void deltaAcks_SendOnlyChangedFields_AndApplyRebuildsOutput() throws Exception {
+        Hello inputPayload = Hello.newBuilder()
+                .setModuleId("m".repeat(4096)) // large, untouched by the module
+                .setInstanceId("before")
+                .build();
+        respondWithUnit(inputPayload);
+        HeaderEcho negotiation = new HeaderEcho(WorkStreamSession.DELTA_ACKS_HEADER, true);
+        ManagedChannel deltaChannel = startEngine(ServerInterceptors.intercept(fakeEngine, negotiation));
+        try {
+            PayloadCodec<Hello> codec = new PayloadCodec<>(Hello.class);
+            WorkStreamSession<Hello> session = new WorkStreamSession<>(ModuleWorkServiceGrpc.newStub(deltaChannel),
+                    input -> input.toBuilder().setInstanceId("after").build(),
+                    codec, testConfig(1, true));
+
+            assertThat(session.run()).isEqualTo(WorkStreamSession.Outcome.SUCCESS);
+            assertThat(negotiation.offered).isEqualTo(WorkStreamSession.DELTA_V1);
+            Any updated = fakeEngine.requests.stream()
+                    .filter(WorkRequest::hasAck).findFirst().orElseThrow()
+                    .getAck().getUpdatedPayload();
+            assertThat(PayloadDelta.isDelta(updated)).isTrue();
+            assertThat(updated.getValue().size())
+                    .as("the untouched 4 KiB field must not be re-sent")
+                    .isLessThan(64);
+            assertThat(PayloadDelta.apply(inputPayload, updated, codec))
+                    .isEqualTo(inputPayload.toBuilder().setInstanceId("after").build());
+        } finally {
+            deltaChannel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void deltaAcks_EngineDoesNotEchoTheOffer_AckCarriesTheWholeOutput() throws Exception {
+        Hello inputPayload = Hello.newBuilder()
+                .setModuleId("m".repeat(4096))
+                .setInstanceId("before")
+                .build();
+        respondWithUnit(inputPayload);
+        HeaderEcho negotiation = new HeaderEcho(WorkStreamSession.DELTA_ACKS_HEADER, false);
+        ManagedChannel deltaChannel = startEngine(ServerInterceptors.intercept(fakeEngine, negotiation));
+        try {
+            WorkStreamSession<Hello> session = new WorkStreamSession<>(ModuleWorkServiceGrpc.newStub(deltaChannel),
+                    input -> input.toBuilder().setInstanceId("after").build(),
+                    new PayloadCodec<>(Hello.class), testConfig(1, true));
+
+            assertThat(session.run()).isEqualTo(WorkStreamSession.Outcome.SUCCESS);
+            assertThat(negotiation.offered).as("the session still offers delta acks").isEqualTo(WorkStreamSession.DELTA_V1);
+            Any updated = fakeEngine.requests.stream()
+                    .filter(WorkRequest::hasAck).findFirst().orElseThrow()
+                    .getAck().getUpdatedPayload();
+            assertThat(PayloadDelta.isDelta(updated))
+                    .as("an engine that didn't agree must never see a delta payload")
+                    .isFalse();
+            assertThat(updated.unpack(Hello.class))
+                    .isEqualTo(inputPayload.toBuilder().setInstanceId("after").build());
+        } finally {
+            deltaChannel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    /** Serve {@code payload} as the unit on Hello and confirm its ack. */
+    private void respondWithUnit(Hello payload) {
+        fakeEngine.respondTo(Hello.class, hello ->
+                WorkResponse.newBuilder()
+                        .setWorkUnit(WorkUnit.newBuilder()
+                                .setWorkUnitId("wu-delta")
+                                .setPayload(Any.pack(payload))
+                                .build())
+                        .build());
+        fakeEngine.respondTo(WorkAck.class, ack ->
+                WorkResponse.newBuilder()
+                        .setAckConfirmed(AckConfirmed.newBuilder()
+                                .setWorkUnitId(ack.getWorkUnitId())
+                                .setAccepted(true)
+                                .build())
+                        .build());
+    }
+
+    @Test
+    void metrics_RecordEveryPhaseOfAUnit_TaggedWithItsOutcome() {
+        fakeEngine.respondTo(Hello.class, hello -> unitResponse("wu-metrics"));
+        fakeEngine.respondTo(WorkAck.class, ack ->
+                WorkResponse.newBuilder()
+                        .setAckConfirmed(AckConfirmed.newBuilder()
+                                .setWorkUnitId(ack.getWorkUnitId())
+                                .setAccepted(true)
+                                .build())
+                        .build());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        WorkStreamSession<Hello> session = new WorkStreamSession<>(asyncStub, input -> input,
+                new PayloadCodec<>(Hello.class), testConfig(1),
+                WorkStreamSession.UnitListener.NONE, new WorkerLoopMetrics(registry, "test-m"));
+
+        assertThat(session.run()).isEqualTo(WorkStreamSession.Outcome.SUCCESS);
+
+        for (String phase : List.of("open", "await_unit", "unpack", "process", "pack", "ack_confirm")) {
+            assertThat(registry.get("pipestream.module.worker.phase")
+                    .tags("module_id", "test-m", "phase", phase, "outcome", "success")
+                    .timer().count())
+                    .as("phase %s recorded once under outcome=success", phase)
+                    .isEqualTo(1);
+        }
+        assertThat(registry.get("pipestream.module.worker.payload.bytes")
+                .tags("direction", "in").summary().count()).isEqualTo(1);
+        assertThat(registry.get("pipestream.module.worker.payload.bytes")
+                .tags("direction", "out").summary().count()).isEqualTo(1);
+        assertThat(registry.get("pipestream.module.worker.no_work").counter().count()).isZero();
+    }
+
+    @Test
+    void metrics_NoWork_CountsSession_AndTagsWaitWithNoWork() {
+        fakeEngine.respondTo(Hello.class, hello ->
+                WorkResponse.newBuilder()
+                        .setNoWork(NoWorkAvailable.newBuilder().build())
+                        .build());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        WorkStreamSession<Hello> session = new WorkStreamSession<>(asyncStub, input -> input,
+                new PayloadCodec<>(Hello.class), testConfig(1),
+                WorkStreamSession.UnitListener.NONE, new WorkerLoopMetrics(registry, "test-m"));
+
+        assertThat(session.run()).isEqualTo(WorkStreamSession.Outcome.NO_WORK_AVAILABLE);
+
+        assertThat(registry.get("pipestream.module.worker.no_work").counter().count()).isEqualTo(1);
+        assertThat(registry.get("pipestream.module.worker.phase")
+                .tags("phase", "await_unit", "outcome", "no_work_available")
+                .timer().count()).isEqualTo(1);
+    }
+
+    private static WorkResponse unitResponse(String workUnitId) {
+        return WorkResponse.newBuilder()
+                .setWorkUnit(WorkUnit.newBuilder()
+                        .setWorkUnitId(workUnitId)
+                        .setPayload(Any.pack(Hello.newBuilder().setModuleId(workUnitId).build()))
+                        .build())
+                .build();
+    }
+
+    @Test
+    void idempotencyCache_RedeliveredUnitIsAckedWithoutProcessing() {
+        Hello inputPayload = Hello.newBuilder().setModuleId("payload-in").build();
+        fakeEngine.respondTo(Hello.class, hello ->
+                WorkResponse.newBuilder()
+                        .setWorkUnit(WorkUnit.newBuilder()
+                                .setWorkUnitId("wu-redelivered")
+                                .setPayload(Any.pack(inputPayload))
+                                .build())
+                        .build());
+        fakeEngine.respondTo(WorkAck.class, ack ->
+                WorkResponse.newBuilder()
+                        .setAckConfirmed(AckConfirmed.newBuilder()
+                                .setWorkUnitId(ack.getWorkUnitId())
+                                .setAccepted(true)
+                                .build())
+                        .build());
+
+        AtomicInteger calls = new AtomicInteger();
+        ModuleProcessor<Hello> processor = input -> input.toBuilder()
+                .setModuleId("processed-" + calls.incrementAndGet())
+                .build();
+        IdempotencyCache cache = new IdempotencyCache(16, 1 << 20, Duration.ofMinutes(1), false);
+        List<Long> processNanos = new CopyOnWriteArrayList<>();
+
+        for (int delivery = 0; delivery < 2; delivery++) {
+            WorkStreamSession<Hello> session = new WorkStreamSession<>(asyncStub, processor,
+                    new PayloadCodec<>(Hello.class), testConfig(1), (o, nanos) -> processNanos.add(nanos));
+            session.useIdempotencyCache(cache);
+            assertThat(session.run()).isEqualTo(WorkStreamSession.Outcome.SUCCESS);
+        }
+
+        List<WorkAck> acks = fakeEngine.requests.stream()
+                .filter(WorkRequest::hasAck).map(WorkRequest::getAck).toList();
+        assertThat(calls.get()).as("the redelivery must not reach process()").isEqualTo(1);
+        assertThat(acks).hasSize(2);
+        assertThat(acks.get(1)).isEqualTo(acks.get(0));
+        assertThat(processNanos.get(1)).as("no process() latency for a cache hit").isZero();
+    }
+
+    @Test
+    void idempotencyCache_DeltaAckedUnitRedeliveredToAnEngineWithoutDeltas_IsAckedWithTheWholeOutput()
+            throws Exception {
+        Hello inputPayload = Hello.newBuilder()
+                .setModuleId("m".repeat(4096))
+                .setInstanceId("before")
+                .build();
+        Hello expected = inputPayload.toBuilder().setInstanceId("after").build();
+        respondWithUnit(inputPayload);
+        HeaderEcho negotiation = new HeaderEcho(WorkStreamSession.DELTA_ACKS_HEADER, true);
+        ManagedChannel deltaChannel = startEngine(ServerInterceptors.intercept(fakeEngine, negotiation));
+        try {
+            PayloadCodec<Hello> codec = new PayloadCodec<>(Hello.class);
+            AtomicInteger calls = new AtomicInteger();
+            ModuleProcessor<Hello> processor = input -> {
+                calls.incrementAndGet();
+                return input.toBuilder().setInstanceId("after").build();
+            };
+            IdempotencyCache cache = new IdempotencyCache(16, 1 << 20, Duration.ofMinutes(1), false);
+
+            // Acked as a delta, then redelivered after a restart to an engine
+            // that no longer agrees to deltas, then to one that does again.
+            for (boolean agree : new boolean[] {true, false, true}) {
+                negotiation.agree = agree;
+                WorkStreamSession<Hello> session = new WorkStreamSession<>(
+                        ModuleWorkServiceGrpc.newStub(deltaChannel), processor, codec, testConfig(1, true));
+                session.useIdempotencyCache(cache);
+                assertThat(session.run()).isEqualTo(WorkStreamSession.Outcome.SUCCESS);
+            }
+
+            List<Any> payloads = fakeEngine.requests.stream()
+                    .filter(WorkRequest::hasAck).map(r -> r.getAck().getUpdatedPayload()).toList();
+            assertThat(calls.get()).as("both redeliveries are cache hits").isEqualTo(1);
+            assertThat(payloads).hasSize(3);
+            assertThat(PayloadDelta.isDelta(payloads.get(0))).isTrue();
+            assertThat(PayloadDelta.isDelta(payloads.get(1)))
+                    .as("an engine that didn't agree must never see a delta payload")
+                    .isFalse();
+            assertThat(payloads.get(1).unpack(Hello.class)).isEqualTo(expected);
+            assertThat(payloads.get(2)).as("re-encoded for the agreeing engine").isEqualTo(payloads.get(0));
+            assertThat(PayloadDelta.apply(inputPayload, payloads.get(2), codec)).isEqualTo(expected);
+        } finally {
+            deltaChannel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void chunkedPayloads_UnitIsReassembled_AndLargeAckIsSentInFrames() throws Exception {
+        Hello inputPayload = Hello.newBuilder().setModuleId("m".repeat(10_000)).build();
+        ChunkingEngine engine = new ChunkingEngine(true, inputPayload, 1024);
+        ManagedChannel chunkChannel = startChunkingEngine(engine);
+        try {
+            WorkStreamSession<Hello> session = new WorkStreamSession<>(ModuleWorkServiceGrpc.newStub(chunkChannel),
+                    input -> input.toBuilder().setInstanceId("after").build(),
+                    new PayloadCodec<>(Hello.class), testConfig(1, false, 2048));
+
+            assertThat(session.run()).isEqualTo(WorkStreamSession.Outcome.SUCCESS);
+            assertThat(engine.ackMessages).as("a ~10 KiB ack over a 2 KiB threshold").hasSizeGreaterThan(4);
+            assertThat(engine.ackMessages).allSatisfy(ack ->
+                    assertThat(ack.getUpdatedPayload().getValue().size()).isLessThanOrEqualTo(2048 + 128));
+            assertThat(engine.ackedPayload.unpack(Hello.class))
+                    .isEqualTo(inputPayload.toBuilder().setInstanceId("after").build());
+        } finally {
+            chunkChannel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void chunkedPayloads_EngineDeclines_AckIsSentWhole() throws Exception {
+        Hello inputPayload = Hello.newBuilder().setModuleId("m".repeat(10_000)).build();
+        ChunkingEngine engine = new ChunkingEngine(false, inputPayload, 1024);
+        ManagedChannel chunkChannel = startChunkingEngine(engine);
+        try {
+            WorkStreamSession<Hello> session = new WorkStreamSession<>(ModuleWorkServiceGrpc.newStub(chunkChannel),
+                    input -> input, new PayloadCodec<>(Hello.class), testConfig(1, false, 2048));
+
+            assertThat(session.run()).isEqualTo(WorkStreamSession.Outcome.SUCCESS);
+            assertThat(engine.ackMessages).hasSize(1);
+            assertThat(engine.ackedPayload.unpack(Hello.class)).isEqualTo(inputPayload);
+        } finally {
+            chunkChannel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void chunkedPayloads_OversizedUnit_FailsTheStreamBeforeBuffering() throws Exception {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        ModuleWorkServiceGrpc.ModuleWorkServiceImplBase engine = new ModuleWorkServiceGrpc.ModuleWorkServiceImplBase() {
+            @Override
+            public StreamObserver<WorkRequest> work(StreamObserver<WorkResponse> responseObserver) {
+                ((ServerCallStreamObserver<WorkResponse>) responseObserver).setOnCancelHandler(cancelled::countDown);
+                return new StreamObserver<>() {
+                    @Override
+                    public void onNext(WorkRequest req) {
+                        if (req.hasHello()) {
+                            // Announces 2 GiB; only the first KiB is ever sent.
+                            Any frame = PayloadChunksTest.firstFrame(
+                                    "type.googleapis.com/" + Hello.getDescriptor().getFullName(),
+                                    2L << 30, ByteString.copyFrom(new byte[1024]));
+                            responseObserver.onNext(WorkResponse.newBuilder()
+                                    .setWorkUnit(WorkUnit.newBuilder().setWorkUnitId("wu-huge").setPayload(frame))
+                                    .build());
+                        }
+                    }
+
+                    @Override public void onError(Throwable t) {}
+                    @Override public void onCompleted() {}
+                };
+            }
+        };
+        ManagedChannel chunkChannel = startEngine(engine.bindService());
+        try {
+            boolean[] processorWasCalled = {false};
+            WorkStreamSession<Hello> session = new WorkStreamSession<>(ModuleWorkServiceGrpc.newStub(chunkChannel),
+                    input -> {
+                        processorWasCalled[0] = true;
+                        return input;
+                    },
+                    new PayloadCodec<>(Hello.class), testConfig(1, false, 2048, 1 << 20));
+
+            long start = System.nanoTime();
+            assertThat(session.run()).isEqualTo(WorkStreamSession.Outcome.STREAM_ERROR);
+
+            assertThat(Duration.ofNanos(System.nanoTime() - start))
+                    .as("rejected on the first frame, not after the first-response timeout")
+                    .isLessThan(Duration.ofSeconds(2));
+            assertThat(cancelled.await(5, TimeUnit.SECONDS)).as("the worker cancels the stream").isTrue();
+            assertThat(processorWasCalled[0]).isFalse();
+        } finally {
+            chunkChannel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void affinityHints_AreSentOnStreamOpen_AndOmittedOnceCleared() throws Exception {
+        fakeEngine.respondTo(Hello.class, hello ->
+                WorkResponse.newBuilder()
+                        .setNoWork(NoWorkAvailable.newBuilder().setRetryAfterMs(1).build())
+                        .build());
+        List<Optional<String>> advertised = new CopyOnWriteArrayList<>();
+        String name = serverName + "-affinity";
+        Server affinityServer = InProcessServerBuilder.forName(name)
+                .directExecutor()
+                .addService(ServerInterceptors.intercept(fakeEngine, new ServerInterceptor() {
+                    @Override
+                    public <Q, R> ServerCall.Listener<Q> interceptCall(ServerCall<Q, R> call, Metadata headers,
+                                                                      ServerCallHandler<Q, R> next) {
+                        advertised.add(Optional.ofNullable(headers.get(AffinityHints.HEADER)));
+                        return next.startCall(call, headers);
+                    }
+                }))
+                .build()
+                .start();
+        ManagedChannel affinityChannel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        try {
+            AffinityHints hints = new AffinityHints(2);
+            hints.add("tenant:acme");
+            hints.add("lang:de");
+            for (int stream = 0; stream < 2; stream++) {
+                WorkStreamSession<Hello> session = new WorkStreamSession<>(ModuleWorkServiceGrpc.newStub(affinityChannel),
+                        input -> input, new PayloadCodec<>(Hello.class), testConfig(1));
+                session.advertiseAffinity(hints);
+                assertThat(session.run()).isEqualTo(WorkStreamSession.Outcome.NO_WORK_AVAILABLE);
+                hints.clear();
+            }
+
+            assertThat(advertised).containsExactly(Optional.of("tenant:acme,lang:de"), Optional.empty());
+        } finally {
+            affinityChannel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            affinityServer.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private ManagedChannel startChunkingEngine(ChunkingEngine engine) throws Exception {
+        return startEngine(ServerInterceptors.intercept(engine, engine.negotiation()));
+    }
+
+    /** Replace the shared fake engine with {@code engine}; returns a channel to it. */
+    private ManagedChannel startEngine(ServerServiceDefinition engine) throws Exception {
+        String name = serverName + "-chunked";
+        Server chunkServer = InProcessServerBuilder.forName(name)
+                .directExecutor()
+                .addService(engine)
+                .build()
+                .start();
+        ManagedChannel chunkChannel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        // Torn down with the shared server.
+        Server previous = server;
+        server = chunkServer;
+        previous.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        return chunkChannel;
+    }
+
     private WorkStreamSession<Hello> newSession(ModuleProcessor<Hello> processor) {
-        return new WorkStreamSession<>(asyncStub, processor, new PayloadCodec<>(Hello.class), testConfig());
+        return new WorkStreamSession<>(asyncStub, processor, new PayloadCodec<>(Hello.class), testConfig(1));
+    }
+
+    private static WorkerLoopConfig testConfig(int maxUnitsPerStream) {
+        return testConfig(maxUnitsPerStream, false);
+    }
+
+    private static WorkerLoopConfig testConfig(int maxUnitsPerStream, boolean deltaAcks) {
+        return testConfig(maxUnitsPerStream, deltaAcks, 0);
+    }
+
+    private static WorkerLoopConfig testConfig(int maxUnitsPerStream, boolean deltaAcks, int chunkThreshold) {
+        return testConfig(maxUnitsPerStream, deltaAcks, chunkThreshold, 256L << 20);
     }
 
-    private static WorkerLoopConfig testConfig() {
+    /** {@code chunkThreshold > 0} enables chunked payloads with that threshold. */
+    private static WorkerLoopConfig testConfig(int maxUnitsPerStream, boolean deltaAcks, int chunkThreshold,
+                                               long chunkMaxPayloadBytes) {
         return new WorkerLoopConfig() {
             @Override public boolean enabled() { return true; }
             @Override public String moduleId() { return "test-m"; }
             @Override public String grpcClientName() { return "engine"; }
+            @Override public int channelPoolSize() { return 1; }
             @Override public int concurrency() { return 1; }
             @Override public int minConcurrency() { return 1; }
             @Override public Duration heartbeatInterval() { return Duration.ofSeconds(60); } // suppress heartbeats in tests
@@ -267,9 +855,155 @@ class WorkStreamSessionTest {
             @Override public Duration reconnectMaxDelay() { return Duration.ofSeconds(1); }
             @Override public Duration noWorkRetryAfter() { return Duration.ofMillis(10); }
             @Override public Duration firstResponseTimeout() { return Duration.ofSeconds(5); }
+            @Override public int maxUnitsPerStream() { return maxUnitsPerStream; }
+            @Override public Duration maxStreamAge() { return Duration.ofMinutes(5); }
+            @Override public int prefetchCredits() { return 0; }
+            @Override public int maxBatchSize() { return 16; }
+            @Override public Duration maxBatchDelay() { return Duration.ofMillis(50); }
+            @Override public String concurrencyLimiter() { return "ramp"; }
+            @Override public double limiterLatencyTolerance() { return 2.0; }
+            @Override public boolean deltaAcks() { return deltaAcks; }
+            @Override public String idleMode() { return "poll"; }
+            @Override public String processExecutor() { return "virtual"; }
+            @Override public int cpuBoundThreads() { return 0; }
+            @Override public int splitParallelism() { return 0; }
+            @Override public int idempotencyCacheMaxEntries() { return 0; }
+            @Override public long idempotencyCacheMaxBytes() { return 64L << 20; }
+            @Override public Duration idempotencyCacheTtl() { return Duration.ofMinutes(10); }
+            @Override public boolean idempotencyCacheOffHeap() { return false; }
+            @Override public Duration longPollTimeout() { return Duration.ofSeconds(60); }
+            @Override public boolean chunkedPayloads() { return chunkThreshold > 0; }
+            @Override public int chunkThreshold() { return chunkThreshold > 0 ? chunkThreshold : 8 << 20; }
+            @Override public long chunkMaxPayloadBytes() { return chunkMaxPayloadBytes; }
+            @Override public boolean pressureThrottling() { return false; }
+            @Override public double pressureMemoryHigh() { return 0.85; }
+            @Override public double pressureMemoryCritical() { return 0.95; }
+            @Override public double pressureGcTimeHigh() { return 0.25; }
+            @Override public double pressureCpuHigh() { return 0.95; }
+            @Override public Duration pressureSampleInterval() { return Duration.ofSeconds(1); }
+            @Override public int warmupIterations() { return 1000; }
+            @Override public Duration warmupDuration() { return Duration.ofSeconds(30); }
+            @Override public int affinityMaxKeys() { return 32; }
+            @Override public Optional<List<String>> affinityKeys() { return Optional.empty(); }
         };
     }
 
+    /**
+     * Records the value a session offered in {@code header} and, when
+     * {@code agree}, echoes it in the response headers like an engine
+     * that supports the feature. {@code agree} may change between calls.
+     */
+    private static final class HeaderEcho implements ServerInterceptor {
+        private final Metadata.Key<String> header;
+        volatile boolean agree;
+        volatile String offered;
+
+        HeaderEcho(Metadata.Key<String> header, boolean agree) {
+            this.header = header;
+            this.agree = agree;
+        }
+
+        @Override
+        public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+                ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+            String value = headers.get(header);
+            offered = value;
+            return next.startCall(new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+                @Override
+                public void sendHeaders(Metadata responseHeaders) {
+                    if (agree && value != null) {
+                        responseHeaders.put(header, value);
+                    }
+                    super.sendHeaders(responseHeaders);
+                }
+            }, headers);
+        }
+    }
+
+    /**
+     * Fake engine speaking {@link PayloadChunks}: serves one unit split
+     * into frames if the worker offered chunking, reassembles the ack
+     * frames and confirms after the last one. {@code agree} controls
+     * whether it echoes the negotiation header.
+     */
+    private static final class ChunkingEngine extends ModuleWorkServiceGrpc.ModuleWorkServiceImplBase {
+        final List<WorkAck> ackMessages = new CopyOnWriteArrayList<>();
+        volatile Any ackedPayload;
+        private final boolean agree;
+        private final Hello unitPayload;
+        private final int frameSize;
+        private volatile boolean offered;
+
+        ChunkingEngine(boolean agree, Hello unitPayload, int frameSize) {
+            this.agree = agree;
+            this.unitPayload = unitPayload;
+            this.frameSize = frameSize;
+        }
+
+        ServerInterceptor negotiation() {
+            return new ServerInterceptor() {
+                @Override
+                public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+                        ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+                    offered = WorkStreamSession.CHUNKED_V1.equals(headers.get(WorkStreamSession.CHUNKED_PAYLOADS_HEADER));
+                    return next.startCall(new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+                        @Override
+                        public void sendHeaders(Metadata responseHeaders) {
+                            if (agree && offered) {
+                                responseHeaders.put(WorkStreamSession.CHUNKED_PAYLOADS_HEADER, WorkStreamSession.CHUNKED_V1);
+                            }
+                            super.sendHeaders(responseHeaders);
+                        }
+                    }, headers);
+                }
+            };
+        }
+
+        @Override
+        public StreamObserver<WorkRequest> work(StreamObserver<WorkResponse> responseObserver) {
+            PayloadChunks.Assembler assembler = new PayloadChunks.Assembler(Integer.MAX_VALUE);
+            return new StreamObserver<>() {
+                @Override
+                public void onNext(WorkRequest req) {
+                    if (req.hasHello()) {
+                        Any packed = Any.pack(unitPayload);
+                        List<Any> payloads = agree && offered ? PayloadChunks.split(packed, frameSize) : List.of(packed);
+                        for (Any payload : payloads) {
+                            responseObserver.onNext(WorkResponse.newBuilder()
+                                    .setWorkUnit(WorkUnit.newBuilder().setWorkUnitId("wu-big").setPayload(payload))
+                                    .build());
+                        }
+                    } else if (req.hasAck()) {
+                        WorkAck ack = req.getAck();
+                        ackMessages.add(ack);
+                        Any payload = ack.getUpdatedPayload();
+                        if (PayloadChunks.isChunk(payload)) {
+                            try {
+                                payload = assembler.accept(ack.getWorkUnitId(), payload);
+                            } catch (InvalidProtocolBufferException e) {
+                                responseObserver.onError(e);
+                                return;
+                            }
+                            if (payload == null) {
+                                return;
+                            }
+                        }
+                        ackedPayload = payload;
+                        responseObserver.onNext(WorkResponse.newBuilder()
+                                .setAckConfirmed(AckConfirmed.newBuilder()
+                                        .setWorkUnitId(ack.getWorkUnitId())
+                                        .setAccepted(true))
+                                .build());
+                        responseObserver.onCompleted();
+                    }
+                }
+
+                @Override public void onError(Throwable t) {}
+                @Override public void onCompleted() {}
+            };
+        }
+    }
+
     /**
      * In-process fake of the engine's {@code ModuleWorkService}. Tests
      * register response factories keyed by the inbound request type;
@@ -281,6 +1015,9 @@ class WorkStreamSessionTest {
         volatile java.util.function.Function<Hello, WorkResponse> onHello;
         volatile java.util.function.Function<WorkAck, WorkResponse> onAck;
         volatile boolean simulateErrorAfterHello = false;
+        volatile boolean simulateErrorAfterAck = false;
+        /** When set, sent after each AckConfirmed instead of completing the stream. */
+        volatile java.util.function.Supplier<WorkResponse> nextAfterAck;
 
         @SuppressWarnings("unchecked")
         <T> void respondTo(Class<T> requestType, java.util.function.Function<T, WorkResponse> handler) {
@@ -306,8 +1043,16 @@ class WorkStreamSessionTest {
                         }
                         responseObserver.onNext(onHello.apply(req.getHello()));
                     } else if (req.hasAck() && onAck != null) {
+                        if (simulateErrorAfterAck) {
+                            responseObserver.onError(new RuntimeException("simulated"));
+                            return;
+                        }
                         responseObserver.onNext(onAck.apply(req.getAck()));
-                        responseObserver.onCompleted();
+                        if (nextAfterAck != null) {
+                            responseObserver.onNext(nextAfterAck.get());
+                        } else {
+                            responseObserver.onCompleted();
+                        }
                     }
                     // Heartbeats are silently accepted (no response).
                 }
@@ -0,0 +1,80 @@
+package ai.pipestream.module.runtime.work;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WorkerBudgetTest {
+
+    @Test
+    void minimumsMustFitTheBudget() {
+        WorkerBudget budget = new WorkerBudget(4);
+        budget.join("parser", 2, 4, new AtomicInteger());
+        budget.join("chunker", 2, 4, new AtomicInteger());
+
+        assertThatThrownBy(() -> budget.join("echo", 1, 2, new AtomicInteger()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("echo");
+    }
+
+    @Test
+    void busyModuleBorrowsWhatIdleModulesDoNotUse() {
+        WorkerBudget budget = new WorkerBudget(6);
+        AtomicInteger parser = new AtomicInteger();
+        AtomicInteger echo = new AtomicInteger();
+        WorkerBudget.Member busy = budget.join("parser", 1, 8, parser);
+        WorkerBudget.Member idle = budget.join("echo", 1, 8, echo);
+        idle.admit();
+
+        for (int i = 1; i <= 5; i++) {
+            assertThat(busy.admit()).isEqualTo(i);
+        }
+        assertThat(busy.admit()).as("echo's reserved minimum is not up for grabs").isEqualTo(-1);
+        assertThat(budget.usedWorkers()).isEqualTo(6);
+        assertThat(busy.ceiling()).as("nobody else is contending").isEqualTo(8);
+
+        // Idle workers ramping down hand their slots back.
+        parser.addAndGet(-2);
+        assertThat(busy.admit()).isEqualTo(4);
+    }
+
+    @Test
+    void contentionDropsOthersToTheirFairShare() {
+        WorkerBudget budget = new WorkerBudget(6);
+        AtomicInteger parser = new AtomicInteger();
+        AtomicInteger chunker = new AtomicInteger();
+        WorkerBudget.Member hog = budget.join("parser", 1, 8, parser);
+        WorkerBudget.Member starved = budget.join("chunker", 1, 8, chunker);
+        starved.admit();
+        while (hog.admit() > 0) {
+            // take everything that is free
+        }
+        assertThat(parser.get()).isEqualTo(5);
+        assertThat(hog.ceiling()).as("the hog's own refusal is not contention").isEqualTo(8);
+
+        assertThat(starved.admit()).isEqualTo(-1);
+        assertThat(hog.ceiling()).isEqualTo(3);
+        assertThat(starved.ceiling()).as("the hog was refused too: both contend").isEqualTo(3);
+
+        // The hog sheds down to its share; the starved module takes the slots.
+        parser.set(3);
+        assertThat(starved.admit()).isEqualTo(2);
+        assertThat(starved.admit()).isEqualTo(3);
+        assertThat(starved.admit()).isEqualTo(-1);
+    }
+
+    @Test
+    void leavingFreesTheReservedMinimum() {
+        WorkerBudget budget = new WorkerBudget(4);
+        WorkerBudget.Member echo = budget.join("echo", 2, 2, new AtomicInteger());
+        WorkerBudget.Member parser = budget.join("parser", 2, 4, new AtomicInteger(2));
+        assertThat(parser.admit()).isEqualTo(-1);
+
+        echo.leave();
+        assertThat(parser.admit()).isEqualTo(3);
+        assertThat(budget.usedWorkers()).isEqualTo(3);
+    }
+}
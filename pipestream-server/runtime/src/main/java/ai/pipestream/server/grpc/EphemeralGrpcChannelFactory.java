@@ -14,8 +14,8 @@ import java.util.concurrent.TimeUnit;
 /**
  * Opens a {@link ManagedChannel} using the same {@code quarkus.grpc.clients.*}
  * keys as {@code @GrpcClient}. Used by {@code ai.pipestream.module.runtime.work.SharedModuleWorkEngineClient}
- * (in the pipestream-module-runtime extension) for the worker loop — one
- * channel per JVM, reconnect on stream error — and by one-shot callers such
+ * (in the pipestream-module-runtime extension) for the worker loop — a small
+ * pool of channels per JVM, each rebuilt only once it is dead — and by one-shot callers such
  * as echo-loop graph registration.
  */
 @ApplicationScoped
@@ -28,15 +28,28 @@ public class EphemeralGrpcChannelFactory {
 
     /**
      * Builds a fresh channel for the named Quarkus gRPC client
-     * ({@code quarkus.grpc.clients.<clientName>.*}).
+     * ({@code quarkus.grpc.clients.<clientName>.*}). Without a configured
+     * {@code max-inbound-message-size} the channel accepts messages up to
+     * 2 GiB.
      */
     public ManagedChannel open(String clientName) {
+        return open(clientName, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #open(String)}, but with {@code defaultMaxInboundMessageSize}
+     * as the inbound limit when the client doesn't configure
+     * {@code max-inbound-message-size}. For callers whose protocol bounds
+     * message size (e.g. chunked payloads), so a peer can't have one
+     * message buffered whole up to the 2 GiB default.
+     */
+    public ManagedChannel open(String clientName, int defaultMaxInboundMessageSize) {
         Config config = ConfigProvider.getConfig();
         String prefix = "quarkus.grpc.clients." + clientName + ".";
         String host = config.getOptionalValue(prefix + "host", String.class).orElse(clientName);
         String resolver = config.getOptionalValue(prefix + "name-resolver", String.class).orElse("dns");
         int maxInbound = config.getOptionalValue(prefix + "max-inbound-message-size", Integer.class)
-                .orElse(Integer.MAX_VALUE);
+                .orElse(defaultMaxInboundMessageSize);
 
         String target = "stork".equalsIgnoreCase(resolver)
                 ? Stork.STORK + "://" + host
@@ -0,0 +1,91 @@
+package ai.pipestream.test.support.work;
+
+import ai.pipestream.module.runtime.work.ModuleWorkerLoop;
+import ai.pipestream.module.runtime.work.WorkerLoopConfig;
+import com.google.protobuf.BytesValue;
+import io.quarkus.runtime.configuration.DurationConverter;
+import io.smallrye.config.SmallRyeConfig;
+import io.smallrye.config.SmallRyeConfigBuilder;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+
+/**
+ * Command-line {@link WorkerLoopThroughputBenchmark}: an echo module on
+ * {@link BytesValue} payloads against an {@link InProcessWorkEngine}.
+ * Every setting is a system property:
+ * <ul>
+ *   <li>{@code pipestream.module.worker-loop.*} — the loop's config, as
+ *       in {@code application.properties} (the loop is enabled);</li>
+ *   <li>{@code bench.warmup} / {@code bench.duration} — warm-up and
+ *       measurement periods (defaults {@code 5s} / {@code 20s});</li>
+ *   <li>{@code bench.units-per-second}, {@code bench.payload-bytes}
+ *       ({@code 1024} or a uniform range {@code 1024..65536}),
+ *       {@code bench.no-work-probability}, {@code bench.ack-delay},
+ *       {@code bench.stream-reset-probability} — the engine, see
+ *       {@link InProcessWorkEngine.Builder};</li>
+ *   <li>{@code bench.process-time} — how long the module sleeps per
+ *       unit, standing in for I/O-bound work (default {@code 0}).</li>
+ * </ul>
+ * Run it with {@code ./gradlew :pipestream-test-support:workerLoopBenchmark
+ * -Pbench.duration=30s -Ppipestream.module.worker-loop.concurrency=64}.
+ * The result is logged at INFO.
+ */
+public final class EchoWorkerLoopBenchmark {
+
+    private static final Logger LOG = Logger.getLogger(EchoWorkerLoopBenchmark.class);
+
+    private EchoWorkerLoopBenchmark() {
+    }
+
+    /**
+     * Run the echo benchmark configured by system properties and log
+     * the result.
+     *
+     * @param args ignored
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static void main(String[] args) throws InterruptedException {
+        SmallRyeConfig config = new SmallRyeConfigBuilder()
+                .addDefaultSources()
+                .withConverter(Duration.class, 200, new DurationConverter())
+                .withDefaultValue("pipestream.module.worker-loop.enabled", "true")
+                .withDefaultValue("pipestream.module.worker-loop.module-id", "bench")
+                .withMapping(WorkerLoopConfig.class)
+                .build();
+        WorkerLoopConfig loopConfig = config.getConfigMapping(WorkerLoopConfig.class);
+
+        InProcessWorkEngine.Builder engine = InProcessWorkEngine.builder()
+                .unitsPerSecond(config.getOptionalValue("bench.units-per-second", Double.class).orElse(0.0))
+                .noWorkProbability(config.getOptionalValue("bench.no-work-probability", Double.class).orElse(0.0))
+                .ackDelay(config.getOptionalValue("bench.ack-delay", Duration.class).orElse(Duration.ZERO))
+                .streamResetProbability(
+                        config.getOptionalValue("bench.stream-reset-probability", Double.class).orElse(0.0));
+        String sizes = config.getOptionalValue("bench.payload-bytes", String.class).orElse("1024");
+        int range = sizes.indexOf("..");
+        if (range < 0) {
+            engine.payloadSize(Integer.parseInt(sizes.trim()));
+        } else {
+            engine.payloadSizes(Integer.parseInt(sizes.substring(0, range).trim()),
+                    Integer.parseInt(sizes.substring(range + 2).trim()));
+        }
+        Duration processTime = config.getOptionalValue("bench.process-time", Duration.class).orElse(Duration.ZERO);
+        Duration warmup = config.getOptionalValue("bench.warmup", Duration.class).orElse(Duration.ofSeconds(5));
+        Duration measurement = config.getOptionalValue("bench.duration", Duration.class).orElse(Duration.ofSeconds(20));
+
+        InProcessWorkEngine.Stats stats = WorkerLoopThroughputBenchmark.run(engine,
+                client -> new ModuleWorkerLoop<>(BytesValue.class, input -> {
+                    if (!processTime.isZero()) {
+                        try {
+                            Thread.sleep(processTime);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    return input;
+                }, client, loopConfig), warmup, measurement);
+
+        LOG.infof("workers=%d..%d payload-bytes=%s process-time=%s%n%s",
+                loopConfig.minConcurrency(), loopConfig.concurrency(), sizes, processTime, stats);
+    }
+}
@@ -0,0 +1,658 @@
+package ai.pipestream.test.support.work;
+
+import ai.pipestream.module.runtime.work.AffinityHints;
+import ai.pipestream.module.runtime.work.ModuleWorkEngineClient;
+import ai.pipestream.module.work.v1.AckConfirmed;
+import ai.pipestream.module.work.v1.ModuleWorkServiceGrpc;
+import ai.pipestream.module.work.v1.NoWorkAvailable;
+import ai.pipestream.module.work.v1.ProcessingStatus;
+import ai.pipestream.module.work.v1.WorkAck;
+import ai.pipestream.module.work.v1.WorkRequest;
+import ai.pipestream.module.work.v1.WorkResponse;
+import ai.pipestream.module.work.v1.WorkUnit;
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.BytesValue;
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * In-process stand-in for the engine's {@code ModuleWorkService}, for
+ * measuring a {@code ModuleWorkerLoop} without an engine or Kafka.
+ *
+ * <p>The engine serves synthetic {@link WorkUnit}s, one per stream
+ * (Hello → WorkUnit → WorkAck → AckConfirmed → complete), and can be
+ * told to misbehave the way a loaded engine does:
+ * <ul>
+ *   <li>serve at most {@link Builder#unitsPerSecond(double)} units, and
+ *       answer {@code NoWorkAvailable} in between;</li>
+ *   <li>answer a share of Hellos with {@code NoWorkAvailable} even when
+ *       work is due ({@link Builder#noWorkProbability(double)});</li>
+ *   <li>hold each {@code AckConfirmed} back ({@link Builder#ackDelay(Duration)});</li>
+ *   <li>reset a share of streams instead of confirming their ack
+ *       ({@link Builder#streamResetProbability(double)}); the unit is
+ *       redelivered, as the engine would after its lease expired.</li>
+ * </ul>
+ * Payload sizes follow {@link Builder#payloadSizes(IntSupplier)}. Every
+ * acked unit's dispatch-to-ack latency is recorded; {@link #stats()}
+ * reports throughput and percentiles since start or the last
+ * {@link #resetStats()}.
+ *
+ * <p>With {@link Builder#affinityKeys(Supplier)} each unit carries an
+ * affinity key, and the engine routes by the keys a stream advertises in
+ * its {@link AffinityHints#HEADER} header: out of the
+ * {@link Builder#backlog(int)} units it has ready, it serves the oldest
+ * one whose key the stream advertised, else the oldest.
+ * {@link Stats#affinityMatches()} counts the units that matched.
+ *
+ * <p>The stand-in doesn't negotiate long-poll idle mode or chunked
+ * payloads; a loop configured for either falls back as it would against
+ * an engine that doesn't support them.
+ *
+ * <pre>{@code
+ * try (InProcessWorkEngine engine = InProcessWorkEngine.builder()
+ *         .unitsPerSecond(5_000)
+ *         .payloadSizes(1024, 64 * 1024)
+ *         .ackDelay(Duration.ofMillis(2))
+ *         .start()) {
+ *     ModuleWorkerLoop<BytesValue> loop =
+ *             new ModuleWorkerLoop<>(BytesValue.class, processor, engine.client(), config);
+ *     ...
+ * }
+ * }</pre>
+ */
+public final class InProcessWorkEngine implements AutoCloseable {
+
+    private final Builder settings;
+    private final String serverName = "in-process-work-engine-" + UUID.randomUUID();
+    private final Server server;
+    private final ScheduledExecutorService confirmer;
+    private final AtomicReference<ManagedChannel> channel = new AtomicReference<>();
+
+    private final AtomicLong nextUnitId = new AtomicLong();
+    private final AtomicLong nextReleaseAt = new AtomicLong(System.nanoTime());
+    private final long releaseIntervalNanos;
+    private final ConcurrentLinkedQueue<Pending> redeliveries = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock backlogLock = new ReentrantLock();
+    private final ArrayDeque<Pending> backlog = new ArrayDeque<>();
+
+    private final LatencyRecorder latencies = new LatencyRecorder();
+    private final AtomicLong unitsServed = new AtomicLong();
+    private final AtomicLong unitsAcked = new AtomicLong();
+    private final AtomicLong unitsFailed = new AtomicLong();
+    private final AtomicLong noWorkSent = new AtomicLong();
+    private final AtomicLong streamResets = new AtomicLong();
+    private final AtomicLong unitsRedelivered = new AtomicLong();
+    private final AtomicLong affinityMatches = new AtomicLong();
+    private volatile long statsSince = System.nanoTime();
+
+    private InProcessWorkEngine(Builder settings) throws IOException {
+        this.settings = settings;
+        this.releaseIntervalNanos = settings.unitsPerSecond > 0
+                ? (long) (TimeUnit.SECONDS.toNanos(1) / settings.unitsPerSecond) : 0;
+        this.confirmer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, serverName + "-confirm");
+            t.setDaemon(true);
+            return t;
+        });
+        this.server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(ServerInterceptors.intercept(new Service(), new AffinityHeader()))
+                .build()
+                .start();
+        this.channel.set(newChannel());
+    }
+
+    /** @return a builder with the defaults: unlimited rate, 1 KiB payloads, no faults */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * A client for a {@code ModuleWorkerLoop}. All clients share one
+     * in-process channel; {@code reconnect()} replaces it.
+     *
+     * @return a client connected to this engine
+     */
+    public ModuleWorkEngineClient client() {
+        return new ModuleWorkEngineClient() {
+            @Override
+            public ModuleWorkServiceGrpc.ModuleWorkServiceStub stub() {
+                return ModuleWorkServiceGrpc.newStub(channel.get());
+            }
+
+            @Override
+            public void reconnect() {
+                ManagedChannel old = channel.getAndSet(newChannel());
+                if (old != null) {
+                    old.shutdownNow();
+                }
+            }
+        };
+    }
+
+    /** @return the in-process server name, for building further channels */
+    public String serverName() {
+        return serverName;
+    }
+
+    /** @return counters and latency percentiles since start or the last {@link #resetStats()} */
+    public Stats stats() {
+        LatencyRecorder.Percentiles p = latencies.percentiles();
+        return new Stats(unitsServed.get(), unitsAcked.get(), unitsFailed.get(), noWorkSent.get(),
+                streamResets.get(), unitsRedelivered.get(), affinityMatches.get(),
+                Duration.ofNanos(System.nanoTime() - statsSince),
+                Duration.ofNanos(p.p50()), Duration.ofNanos(p.p99()), Duration.ofNanos(p.max()));
+    }
+
+    /** Zero the counters and latencies, e.g. at the end of a warm-up period. */
+    public void resetStats() {
+        latencies.reset();
+        unitsServed.set(0);
+        unitsAcked.set(0);
+        unitsFailed.set(0);
+        noWorkSent.set(0);
+        streamResets.set(0);
+        unitsRedelivered.set(0);
+        affinityMatches.set(0);
+        statsSince = System.nanoTime();
+    }
+
+    @Override
+    public void close() {
+        ManagedChannel current = channel.getAndSet(null);
+        if (current != null) {
+            current.shutdownNow();
+        }
+        server.shutdownNow();
+        confirmer.shutdownNow();
+        try {
+            server.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ManagedChannel newChannel() {
+        return InProcessChannelBuilder.forName(serverName).directExecutor().build();
+    }
+
+    /**
+     * The next unit to serve: a redelivery if there is one, otherwise the
+     * oldest backlogged unit whose key is in {@code hints}, otherwise the
+     * oldest backlogged unit. The backlog is first topped up with fresh
+     * units as far as the rate allows. Returns {@code null} and sets
+     * {@code retryAfterNanos[0]} when nothing is due.
+     */
+    private Pending takeUnit(Set<String> hints, long[] retryAfterNanos) {
+        Pending redelivery = redeliveries.poll();
+        if (redelivery != null) {
+            return redelivery;
+        }
+        backlogLock.lock();
+        try {
+            while (backlog.size() < settings.backlog) {
+                Pending fresh = releaseFresh(retryAfterNanos);
+                if (fresh == null) {
+                    break;
+                }
+                backlog.add(fresh);
+            }
+            if (!hints.isEmpty()) {
+                for (Iterator<Pending> it = backlog.iterator(); it.hasNext(); ) {
+                    Pending pending = it.next();
+                    if (pending.key() != null && hints.contains(pending.key())) {
+                        it.remove();
+                        return pending;
+                    }
+                }
+            }
+            return backlog.poll();
+        } finally {
+            backlogLock.unlock();
+        }
+    }
+
+    /** A fresh unit if the rate and total allow one, else {@code null} with {@code retryAfterNanos[0]} set. */
+    private Pending releaseFresh(long[] retryAfterNanos) {
+        if (settings.totalUnits > 0 && nextUnitId.get() >= settings.totalUnits) {
+            retryAfterNanos[0] = settings.noWorkRetryAfter.toNanos();
+            return null;
+        }
+        if (releaseIntervalNanos > 0) {
+            while (true) {
+                long now = System.nanoTime();
+                long due = nextReleaseAt.get();
+                if (now - due < 0) {
+                    retryAfterNanos[0] = due - now;
+                    return null;
+                }
+                // Catch up on at most a second of missed releases.
+                long base = Math.max(due, now - TimeUnit.SECONDS.toNanos(1));
+                if (nextReleaseAt.compareAndSet(due, base + releaseIntervalNanos)) {
+                    break;
+                }
+            }
+        }
+        long id = nextUnitId.getAndIncrement();
+        if (settings.totalUnits > 0 && id >= settings.totalUnits) {
+            retryAfterNanos[0] = settings.noWorkRetryAfter.toNanos();
+            return null;
+        }
+        String key = settings.affinityKeys == null ? null : settings.affinityKeys.get();
+        WorkUnit unit = WorkUnit.newBuilder()
+                .setWorkUnitId("wu-" + id)
+                .setPayload(settings.payloads.apply(key, settings.payloadSizes.getAsInt()))
+                .build();
+        return new Pending(unit, key);
+    }
+
+    /** Hands each stream the keys it advertised on open. */
+    private static final class AffinityHeader implements ServerInterceptor {
+
+        static final Context.Key<Set<String>> KEYS = Context.key("pipestream-affinity-keys");
+
+        @Override
+        public <Q, R> ServerCall.Listener<Q> interceptCall(ServerCall<Q, R> call, Metadata headers,
+                                                          ServerCallHandler<Q, R> next) {
+            String advertised = headers.get(AffinityHints.HEADER);
+            Set<String> keys = advertised == null || advertised.isEmpty()
+                    ? Set.of() : Set.of(advertised.split(","));
+            return Contexts.interceptCall(Context.current().withValue(KEYS, keys), call, headers, next);
+        }
+    }
+
+    private final class Service extends ModuleWorkServiceGrpc.ModuleWorkServiceImplBase {
+
+        @Override
+        public StreamObserver<WorkRequest> work(StreamObserver<WorkResponse> responses) {
+            Set<String> hints = AffinityHeader.KEYS.get();
+            return new Stream(responses, hints == null ? Set.of() : hints);
+        }
+    }
+
+    /** One Work stream: the keys it advertised, the unit it holds and when it was handed out. */
+    private final class Stream implements StreamObserver<WorkRequest> {
+
+        private final StreamObserver<WorkResponse> responses;
+        private final Set<String> hints;
+        private final ConcurrentHashMap<String, Leased> leased = new ConcurrentHashMap<>();
+
+        Stream(StreamObserver<WorkResponse> responses, Set<String> hints) {
+            this.responses = responses;
+            this.hints = hints;
+        }
+
+        @Override
+        public void onNext(WorkRequest request) {
+            if (request.hasHello()) {
+                serve();
+            } else if (request.hasAck()) {
+                acked(request.getAck());
+            }
+            // Heartbeats need no answer.
+        }
+
+        private void serve() {
+            long[] retryAfter = {settings.noWorkRetryAfter.toNanos()};
+            Pending unit = ThreadLocalRandom.current().nextDouble() < settings.noWorkProbability
+                    ? null : takeUnit(hints, retryAfter);
+            if (unit == null) {
+                noWorkSent.incrementAndGet();
+                send(WorkResponse.newBuilder()
+                        .setNoWork(NoWorkAvailable.newBuilder()
+                                .setRetryAfterMs(Math.max(1, TimeUnit.NANOSECONDS.toMillis(retryAfter[0]))))
+                        .build());
+                complete();
+                return;
+            }
+            leased.put(unit.unit().getWorkUnitId(), new Leased(unit, System.nanoTime()));
+            unitsServed.incrementAndGet();
+            if (unit.key() != null && hints.contains(unit.key())) {
+                affinityMatches.incrementAndGet();
+            }
+            send(WorkResponse.newBuilder().setWorkUnit(unit.unit()).build());
+        }
+
+        private void acked(WorkAck ack) {
+            if (ThreadLocalRandom.current().nextDouble() < settings.streamResetProbability) {
+                streamResets.incrementAndGet();
+                redeliverLeased();
+                try {
+                    responses.onError(Status.UNAVAILABLE
+                            .withDescription("injected stream reset")
+                            .asRuntimeException());
+                } catch (RuntimeException e) {
+                    // Client already gone.
+                }
+                return;
+            }
+            Leased lease = leased.remove(ack.getWorkUnitId());
+            if (lease != null) {
+                latencies.record(System.nanoTime() - lease.servedAt());
+                if (ack.getStatus() == ProcessingStatus.PROCESSING_STATUS_SUCCESS) {
+                    unitsAcked.incrementAndGet();
+                } else {
+                    unitsFailed.incrementAndGet();
+                }
+            }
+            WorkResponse confirmed = WorkResponse.newBuilder()
+                    .setAckConfirmed(AckConfirmed.newBuilder()
+                            .setWorkUnitId(ack.getWorkUnitId())
+                            .setAccepted(true))
+                    .build();
+            if (settings.ackDelay.isZero()) {
+                send(confirmed);
+                complete();
+            } else {
+                confirmer.schedule(() -> {
+                    send(confirmed);
+                    complete();
+                }, settings.ackDelay.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            redeliverLeased();
+        }
+
+        @Override
+        public void onCompleted() {
+            redeliverLeased();
+        }
+
+        /** A stream that ends with an unacked unit loses its lease. */
+        private void redeliverLeased() {
+            for (Leased lease : leased.values()) {
+                if (leased.remove(lease.unit().unit().getWorkUnitId()) != null) {
+                    unitsRedelivered.incrementAndGet();
+                    redeliveries.add(lease.unit());
+                }
+            }
+        }
+
+        private void send(WorkResponse response) {
+            try {
+                responses.onNext(response);
+            } catch (RuntimeException e) {
+                // Cancelled by the client; the lease is returned in onError.
+            }
+        }
+
+        private void complete() {
+            try {
+                responses.onCompleted();
+            } catch (RuntimeException e) {
+                // Cancelled by the client.
+            }
+        }
+    }
+
+    /** A unit and the affinity key it was tagged with, if any. */
+    private record Pending(WorkUnit unit, String key) {
+    }
+
+    private record Leased(Pending unit, long servedAt) {
+    }
+
+    /**
+     * Counters and dispatch-to-ack latencies over a measurement period.
+     *
+     * @param unitsServed      units handed to a worker, including redeliveries
+     * @param unitsAcked       units acked with {@code PROCESSING_STATUS_SUCCESS}
+     * @param unitsFailed      units acked with any other status
+     * @param noWorkSent       Hellos answered with {@code NoWorkAvailable}
+     * @param streamResets     streams reset instead of confirming their ack
+     * @param unitsRedelivered units returned to the queue because their stream ended unacked
+     * @param affinityMatches  units served to a stream that advertised their affinity key
+     * @param elapsed          length of the period
+     * @param p50              median dispatch-to-ack latency
+     * @param p99              99th percentile dispatch-to-ack latency
+     * @param max              slowest dispatch-to-ack latency
+     */
+    public record Stats(long unitsServed, long unitsAcked, long unitsFailed, long noWorkSent,
+                        long streamResets, long unitsRedelivered, long affinityMatches, Duration elapsed,
+                        Duration p50, Duration p99, Duration max) {
+
+        /** @return successfully acked units per second over {@link #elapsed()} */
+        public double unitsPerSecond() {
+            long nanos = elapsed.toNanos();
+            return nanos <= 0 ? 0 : unitsAcked * 1e9 / nanos;
+        }
+
+        /** @return share of {@link #unitsServed()} that went to a stream advertising their affinity key */
+        public double affinityMatchRate() {
+            return unitsServed == 0 ? 0 : (double) affinityMatches / unitsServed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f units/s (acked=%d failed=%d served=%d noWork=%d resets=%d redelivered=%d"
+                            + " affinityMatches=%d in %s) p50=%.3fms p99=%.3fms max=%.3fms",
+                    unitsPerSecond(), unitsAcked, unitsFailed, unitsServed, noWorkSent, streamResets,
+                    unitsRedelivered, affinityMatches, elapsed, p50.toNanos() / 1e6, p99.toNanos() / 1e6, max.toNanos() / 1e6);
+        }
+    }
+
+    /** Settings for an {@link InProcessWorkEngine}. */
+    public static final class Builder {
+
+        private static final AtomicReference<ByteString> RANDOM_BYTES = new AtomicReference<>(ByteString.EMPTY);
+
+        private double unitsPerSecond;
+        private IntSupplier payloadSizes = () -> 1024;
+        private BiFunction<String, Integer, Any> payloads = (key, size) -> randomBytes(size);
+        private Supplier<String> affinityKeys;
+        private int backlog = 1;
+        private double noWorkProbability;
+        private Duration noWorkRetryAfter = Duration.ofMillis(50);
+        private Duration ackDelay = Duration.ZERO;
+        private double streamResetProbability;
+        private long totalUnits;
+
+        private Builder() {
+        }
+
+        /**
+         * @param unitsPerSecond most fresh units served per second; {@code 0} (the default) is unlimited
+         * @return this builder
+         */
+        public Builder unitsPerSecond(double unitsPerSecond) {
+            if (unitsPerSecond < 0) {
+                throw new IllegalArgumentException("unitsPerSecond must be >= 0, got " + unitsPerSecond);
+            }
+            this.unitsPerSecond = unitsPerSecond;
+            return this;
+        }
+
+        /**
+         * @param bytes size of every payload
+         * @return this builder
+         */
+        public Builder payloadSize(int bytes) {
+            return payloadSizes(() -> bytes);
+        }
+
+        /**
+         * @param minBytes smallest payload
+         * @param maxBytes largest payload; sizes are uniform in between
+         * @return this builder
+         */
+        public Builder payloadSizes(int minBytes, int maxBytes) {
+            if (minBytes < 0 || maxBytes < minBytes) {
+                throw new IllegalArgumentException("Expected 0 <= minBytes <= maxBytes, got "
+                        + minBytes + " / " + maxBytes);
+            }
+            return payloadSizes(() -> ThreadLocalRandom.current().nextInt(minBytes, maxBytes + 1));
+        }
+
+        /**
+         * @param sizes draws the size of each payload, in bytes
+         * @return this builder
+         */
+        public Builder payloadSizes(IntSupplier sizes) {
+            this.payloadSizes = Objects.requireNonNull(sizes, "sizes");
+            return this;
+        }
+
+        /**
+         * Replace the default payload, a {@link BytesValue} of random
+         * bytes, with the module's own message type.
+         *
+         * @param payloads builds a payload of (about) the given size
+         * @return this builder
+         */
+        public Builder payloads(IntFunction<Any> payloads) {
+            Objects.requireNonNull(payloads, "payloads");
+            return keyedPayloads((key, size) -> payloads.apply(size));
+        }
+
+        /**
+         * Like {@link #payloads(IntFunction)}, for payloads that carry the
+         * unit's affinity key the way real documents carry their tenant or
+         * language.
+         *
+         * @param payloads builds a payload from the unit's affinity key
+         *                 ({@code null} without {@link #affinityKeys}) and
+         *                 (about) the given size
+         * @return this builder
+         */
+        public Builder keyedPayloads(BiFunction<String, Integer, Any> payloads) {
+            this.payloads = Objects.requireNonNull(payloads, "payloads");
+            return this;
+        }
+
+        /**
+         * @param keys draws the affinity key of each fresh unit, e.g. a
+         *             skewed choice among tenants
+         * @return this builder
+         */
+        public Builder affinityKeys(Supplier<String> keys) {
+            this.affinityKeys = Objects.requireNonNull(keys, "keys");
+            return this;
+        }
+
+        /**
+         * @param units fresh units held ready for affinity routing to
+         *              choose from; {@code 1} (the default) serves in
+         *              arrival order
+         * @return this builder
+         */
+        public Builder backlog(int units) {
+            if (units < 1) {
+                throw new IllegalArgumentException("backlog must be >= 1, got " + units);
+            }
+            this.backlog = units;
+            return this;
+        }
+
+        /**
+         * @param probability share of Hellos answered with {@code NoWorkAvailable} even when work is due
+         * @return this builder
+         */
+        public Builder noWorkProbability(double probability) {
+            this.noWorkProbability = probability(probability);
+            return this;
+        }
+
+        /**
+         * @param retryAfter {@code retry_after_ms} sent with {@code NoWorkAvailable}
+         *                   when no unit is due for another reason than the rate
+         * @return this builder
+         */
+        public Builder noWorkRetryAfter(Duration retryAfter) {
+            this.noWorkRetryAfter = Objects.requireNonNull(retryAfter, "retryAfter");
+            return this;
+        }
+
+        /**
+         * @param delay how long each {@code AckConfirmed} is held back
+         * @return this builder
+         */
+        public Builder ackDelay(Duration delay) {
+            this.ackDelay = Objects.requireNonNull(delay, "delay");
+            return this;
+        }
+
+        /**
+         * @param probability share of acks answered by resetting the stream; the unit is redelivered
+         * @return this builder
+         */
+        public Builder streamResetProbability(double probability) {
+            this.streamResetProbability = probability(probability);
+            return this;
+        }
+
+        /**
+         * @param totalUnits fresh units to serve before answering only
+         *                   {@code NoWorkAvailable}; {@code 0} (the default) is unlimited
+         * @return this builder
+         */
+        public Builder totalUnits(long totalUnits) {
+            this.totalUnits = totalUnits;
+            return this;
+        }
+
+        /** @return the running engine */
+        public InProcessWorkEngine start() {
+            try {
+                return new InProcessWorkEngine(this);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static double probability(double p) {
+            if (!(p >= 0 && p <= 1)) {
+                throw new IllegalArgumentException("Probability must be in [0, 1], got " + p);
+            }
+            return p;
+        }
+
+        /** Slices of one shared random buffer, grown to the largest size asked for. */
+        private static Any randomBytes(int size) {
+            ByteString pool = RANDOM_BYTES.get();
+            while (pool.size() < size) {
+                byte[] bytes = new byte[Math.max(size, pool.size() * 2)];
+                ThreadLocalRandom.current().nextBytes(bytes);
+                ByteString grown = ByteString.copyFrom(bytes);
+                pool = RANDOM_BYTES.compareAndSet(pool, grown) ? grown : RANDOM_BYTES.get();
+            }
+            return Any.pack(BytesValue.newBuilder().setValue(pool.substring(0, size)).build());
+        }
+    }
+}
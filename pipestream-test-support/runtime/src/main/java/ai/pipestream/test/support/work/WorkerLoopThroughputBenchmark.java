@@ -0,0 +1,55 @@
+package ai.pipestream.test.support.work;
+
+import ai.pipestream.module.runtime.work.ModuleWorkEngineClient;
+import ai.pipestream.module.runtime.work.ModuleWorkerLoop;
+import ai.pipestream.module.runtime.work.WorkerLoopConfig;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Throughput of a {@link ModuleWorkerLoop} against an
+ * {@link InProcessWorkEngine}: units per second and dispatch-to-ack
+ * p50 / p99 for a given {@link WorkerLoopConfig}.
+ *
+ * <p>Hand {@link #run} an engine and a factory for the loop under test.
+ * The command-line echo benchmark built on it lives in the
+ * {@code benchmark} source set and is not part of this jar; run it with
+ * {@code ./gradlew :pipestream-test-support:workerLoopBenchmark}.
+ */
+public final class WorkerLoopThroughputBenchmark {
+
+    private WorkerLoopThroughputBenchmark() {
+    }
+
+    /**
+     * Start {@code engine} and the loop {@code loopFactory} builds on its
+     * client, discard the first {@code warmup}, then measure for
+     * {@code measurement}.
+     *
+     * @param engine      the engine to run against
+     * @param loopFactory builds the loop under test on the engine's client
+     * @param warmup      period run but not measured
+     * @param measurement period measured
+     * @return the engine's stats over the measurement period
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static InProcessWorkEngine.Stats run(InProcessWorkEngine.Builder engine,
+                                                Function<ModuleWorkEngineClient, ModuleWorkerLoop<?>> loopFactory,
+                                                Duration warmup, Duration measurement) throws InterruptedException {
+        try (InProcessWorkEngine running = engine.start()) {
+            ModuleWorkerLoop<?> loop = loopFactory.apply(running.client());
+            loop.onStart(new StartupEvent());
+            try {
+                Thread.sleep(warmup);
+                running.resetStats();
+                Thread.sleep(measurement);
+                return running.stats();
+            } finally {
+                loop.onStop(new ShutdownEvent());
+            }
+        }
+    }
+}
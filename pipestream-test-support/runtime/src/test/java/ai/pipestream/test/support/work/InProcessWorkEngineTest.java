@@ -0,0 +1,218 @@
+package ai.pipestream.test.support.work;
+
+import ai.pipestream.module.runtime.work.AffinityHints;
+import ai.pipestream.module.runtime.work.ModuleProcessor;
+import ai.pipestream.module.runtime.work.ModuleWorkerLoop;
+import ai.pipestream.module.runtime.work.WorkerLoopConfig;
+import com.google.protobuf.Any;
+import com.google.protobuf.BytesValue;
+import com.google.protobuf.StringValue;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InProcessWorkEngineTest {
+
+    @Test
+    void servesAndRecordsUnits_atTheConfiguredSizes() throws Exception {
+        Set<Integer> sizes = ConcurrentHashMap.newKeySet();
+        InProcessWorkEngine.Stats stats = WorkerLoopThroughputBenchmark.run(
+                InProcessWorkEngine.builder().payloadSizes(100, 200),
+                client -> new ModuleWorkerLoop<>(BytesValue.class, input -> {
+                    sizes.add(input.getValue().size());
+                    return input;
+                }, client, config(4)),
+                Duration.ofMillis(100), Duration.ofMillis(300));
+
+        assertThat(stats.unitsAcked()).isPositive();
+        assertThat(stats.unitsPerSecond()).isPositive();
+        assertThat(stats.p50()).isPositive().isLessThanOrEqualTo(stats.p99());
+        assertThat(stats.p99()).isLessThanOrEqualTo(stats.max());
+        assertThat(sizes).allSatisfy(size -> assertThat(size).isBetween(100, 200));
+    }
+
+    @Test
+    void rateLimit_capsThroughput_andAnswersNoWorkInBetween() throws Exception {
+        InProcessWorkEngine.Stats stats = WorkerLoopThroughputBenchmark.run(
+                InProcessWorkEngine.builder().unitsPerSecond(50),
+                client -> new ModuleWorkerLoop<>(BytesValue.class, input -> input, client, config(4)),
+                Duration.ofMillis(100), Duration.ofMillis(500));
+
+        assertThat(stats.unitsAcked()).isBetween(10L, 40L);
+        assertThat(stats.noWorkSent()).isPositive();
+    }
+
+    @Test
+    void streamResets_redeliverTheUnit_andEveryUnitIsEventuallyAcked() throws Exception {
+        try (InProcessWorkEngine engine = InProcessWorkEngine.builder()
+                .totalUnits(20)
+                .streamResetProbability(0.3)
+                .ackDelay(Duration.ofMillis(1))
+                .start()) {
+            ModuleWorkerLoop<BytesValue> loop =
+                    new ModuleWorkerLoop<>(BytesValue.class, input -> input, engine.client(), config(2));
+            loop.onStart(new StartupEvent());
+            try {
+                for (int i = 0; i < 500 && engine.stats().unitsAcked() < 20; i++) {
+                    Thread.sleep(10);
+                }
+            } finally {
+                loop.onStop(new ShutdownEvent());
+            }
+            InProcessWorkEngine.Stats stats = engine.stats();
+            assertThat(stats.unitsAcked()).isEqualTo(20);
+            assertThat(stats.streamResets()).isPositive();
+            assertThat(stats.unitsRedelivered()).isEqualTo(stats.streamResets());
+            assertThat(stats.unitsServed()).isEqualTo(20 + stats.unitsRedelivered());
+        }
+    }
+
+    @Test
+    void affinityHints_steerUnitsToTheInstanceWithTheKeyWarm() throws Exception {
+        double withoutHints = warmHitRate(0);
+        double withHints = warmHitRate(32);
+
+        assertThat(withHints).isGreaterThan(withoutHints + 0.2);
+    }
+
+    /**
+     * Two instances, each keeping 4 of 8 keys warm, drain 400 units with
+     * uniformly drawn keys; returns the share of units that found their
+     * key warm.
+     */
+    private static double warmHitRate(int affinityMaxKeys) throws Exception {
+        try (InProcessWorkEngine engine = InProcessWorkEngine.builder()
+                .totalUnits(400)
+                .backlog(16)
+                .affinityKeys(() -> "tenant:" + ThreadLocalRandom.current().nextInt(8))
+                .keyedPayloads((key, size) -> Any.pack(StringValue.of(key)))
+                .start()) {
+            List<WarmKeys> instances = List.of(new WarmKeys(4), new WarmKeys(4));
+            List<ModuleWorkerLoop<StringValue>> loops = new ArrayList<>();
+            for (WarmKeys instance : instances) {
+                ModuleWorkerLoop<StringValue> loop = new ModuleWorkerLoop<>(StringValue.class, instance,
+                        engine.client(), config(2, affinityMaxKeys));
+                instance.hints = loop.affinityHints();
+                loops.add(loop);
+            }
+            loops.forEach(loop -> loop.onStart(new StartupEvent()));
+            try {
+                for (int i = 0; i < 1000 && engine.stats().unitsAcked() < 400; i++) {
+                    Thread.sleep(10);
+                }
+            } finally {
+                loops.forEach(loop -> loop.onStop(new ShutdownEvent()));
+            }
+            InProcessWorkEngine.Stats stats = engine.stats();
+            assertThat(stats.unitsAcked()).isEqualTo(400);
+            if (affinityMaxKeys == 0) {
+                assertThat(stats.affinityMatches()).isZero();
+            } else {
+                assertThat(stats.affinityMatchRate()).isGreaterThan(0.5);
+            }
+            long hits = instances.stream().mapToLong(instance -> instance.hits).sum();
+            long misses = instances.stream().mapToLong(instance -> instance.misses).sum();
+            return (double) hits / (hits + misses);
+        }
+    }
+
+    /** An instance's LRU of warm keys, advertised through its loop's hints. */
+    private static final class WarmKeys implements ModuleProcessor<StringValue> {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<String, Boolean> warm = new LinkedHashMap<>(16, 0.75f, true);
+        private final int capacity;
+        volatile AffinityHints hints;
+        long hits;
+        long misses;
+
+        WarmKeys(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public StringValue process(StringValue input) {
+            String key = input.getValue();
+            lock.lock();
+            try {
+                if (warm.get(key) != null) {
+                    hits++;
+                    return input;
+                }
+                misses++;
+                warm.put(key, Boolean.TRUE);
+                hints.add(key);
+                if (warm.size() > capacity) {
+                    String coldest = warm.keySet().iterator().next();
+                    warm.remove(coldest);
+                    hints.remove(coldest);
+                }
+                return input;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static WorkerLoopConfig config(int workers) {
+        return config(workers, 32);
+    }
+
+    private static WorkerLoopConfig config(int workers, int affinityMaxKeys) {
+        return new WorkerLoopConfig() {
+            @Override public boolean enabled() { return true; }
+            @Override public String moduleId() { return "bench"; }
+            @Override public String grpcClientName() { return "engine"; }
+            @Override public int channelPoolSize() { return 1; }
+            @Override public int concurrency() { return workers; }
+            @Override public int minConcurrency() { return workers; }
+            @Override public Duration heartbeatInterval() { return Duration.ofMinutes(5); }
+            @Override public Duration reconnectInitialDelay() { return Duration.ofMillis(1); }
+            @Override public Duration reconnectMaxDelay() { return Duration.ofMillis(5); }
+            @Override public Duration noWorkRetryAfter() { return Duration.ofMillis(5); }
+            @Override public Duration firstResponseTimeout() { return Duration.ofSeconds(5); }
+            @Override public int maxUnitsPerStream() { return 1; }
+            @Override public Duration maxStreamAge() { return Duration.ofMinutes(5); }
+            @Override public int prefetchCredits() { return 0; }
+            @Override public int maxBatchSize() { return 16; }
+            @Override public Duration maxBatchDelay() { return Duration.ofMillis(50); }
+            @Override public String concurrencyLimiter() { return "ramp"; }
+            @Override public double limiterLatencyTolerance() { return 2.0; }
+            @Override public boolean deltaAcks() { return false; }
+            @Override public String idleMode() { return "poll"; }
+            @Override public String processExecutor() { return "virtual"; }
+            @Override public int cpuBoundThreads() { return 1; }
+            @Override public int splitParallelism() { return 0; }
+            @Override public int idempotencyCacheMaxEntries() { return 0; }
+            @Override public long idempotencyCacheMaxBytes() { return 64L << 20; }
+            @Override public Duration idempotencyCacheTtl() { return Duration.ofMinutes(10); }
+            @Override public boolean idempotencyCacheOffHeap() { return false; }
+            @Override public Duration longPollTimeout() { return Duration.ofSeconds(60); }
+            @Override public boolean chunkedPayloads() { return false; }
+            @Override public int chunkThreshold() { return 8 << 20; }
+            @Override public long chunkMaxPayloadBytes() { return 256L << 20; }
+            @Override public boolean pressureThrottling() { return false; }
+            @Override public double pressureMemoryHigh() { return 0.85; }
+            @Override public double pressureMemoryCritical() { return 0.95; }
+            @Override public double pressureGcTimeHigh() { return 0.25; }
+            @Override public double pressureCpuHigh() { return 0.95; }
+            @Override public Duration pressureSampleInterval() { return Duration.ofSeconds(1); }
+            @Override public int warmupIterations() { return 1000; }
+            @Override public Duration warmupDuration() { return Duration.ofSeconds(30); }
+            @Override public int affinityMaxKeys() { return affinityMaxKeys; }
+            @Override public Optional<List<String>> affinityKeys() { return Optional.empty(); }
+        };
+    }
+}
@@ -2,6 +2,7 @@ package ai.pipestream.quarkus.dynamicgrpc;
 
 import ai.pipestream.quarkus.dynamicgrpc.base.ConsulServiceRegistration;
 import ai.pipestream.test.support.ConsulTestResource;
+import ai.pipestream.quarkus.dynamicgrpc.it.proto.GreeterGrpc;
 import ai.pipestream.quarkus.dynamicgrpc.it.proto.HelloReply;
 import ai.pipestream.quarkus.dynamicgrpc.it.proto.HelloRequest;
 import ai.pipestream.quarkus.dynamicgrpc.it.proto.MutinyGreeterGrpc;
@@ -20,6 +21,7 @@ import java.net.ServerSocket;
 import java.time.Duration;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
@@ -105,6 +107,87 @@ public class ChannelLifecycleTest {
             .isEqualTo(afterFirst);
     }
 
+    @Test
+    @DisplayName("Warm calls return the cached channel; eviction forces discovery of a new one")
+    void testWarmCallsReturnCachedChannelUntilEvicted() {
+        consulRegistration.registerService(serviceName, serviceName + "-1", "127.0.0.1", lifecyclePort);
+
+        var first = clientFactory.getChannel(serviceName).await().atMost(Duration.ofSeconds(10));
+        for (int i = 0; i < 100; i++) {
+            assertThat(clientFactory.getChannel(serviceName).await().atMost(Duration.ofSeconds(1)))
+                .as("a warm call must hand back the channel already built")
+                .isSameAs(first);
+        }
+        assertThat(clientFactory.getBlockingClient(serviceName, channel -> channel))
+            .as("the synchronous path takes the same shortcut")
+            .isSameAs(first);
+
+        clientFactory.evictChannel(serviceName);
+        var rebuilt = clientFactory.getChannel(serviceName).await().atMost(Duration.ofSeconds(10));
+        assertThat(rebuilt)
+            .as("after eviction the next call builds a new channel")
+            .isNotSameAs(first);
+    }
+
+    @Test
+    @DisplayName("Cached stubs are shared per service and stub type until the channel is evicted")
+    void testCachedStubsSharedUntilEvicted() {
+        consulRegistration.registerService(serviceName, serviceName + "-1", "127.0.0.1", lifecyclePort);
+
+        var mutiny = clientFactory.getCachedClient(serviceName,
+                MutinyGreeterGrpc.MutinyGreeterStub.class, MutinyGreeterGrpc::newMutinyStub)
+            .await().atMost(Duration.ofSeconds(10));
+        var blocking = clientFactory.getCachedStub(serviceName,
+                GreeterGrpc.GreeterBlockingStub.class, GreeterGrpc::newBlockingStub);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(clientFactory.getCachedStub(serviceName,
+                    MutinyGreeterGrpc.MutinyGreeterStub.class, MutinyGreeterGrpc::newMutinyStub))
+                .isSameAs(mutiny);
+            assertThat(clientFactory.getCachedStub(serviceName,
+                    GreeterGrpc.GreeterBlockingStub.class, GreeterGrpc::newBlockingStub))
+                .isSameAs(blocking);
+        }
+
+        // Per-call options are views on the shared stub.
+        HelloReply reply = blocking.withDeadlineAfter(3, TimeUnit.SECONDS)
+            .sayHello(HelloRequest.newBuilder().setName("Cached").build());
+        assertThat(reply.getMessage()).contains("Cached");
+        assertThat(blocking.getCallOptions().getDeadline()).isNull();
+
+        clientFactory.evictChannel(serviceName);
+        assertThat(clientFactory.getCachedStub(serviceName,
+                GreeterGrpc.GreeterBlockingStub.class, GreeterGrpc::newBlockingStub))
+            .as("eviction drops the stubs with their channel")
+            .isNotSameAs(blocking);
+    }
+
+    @Test
+    @DisplayName("A pooled service is still one cached channel and serves concurrent calls")
+    void testPooledServiceServesConcurrentCalls() {
+        // pool-size=3 for this name in src/test/resources/application.properties
+        serviceName = "pooled-lifecycle-test";
+        consulRegistration.registerService(serviceName, serviceName + "-1", "127.0.0.1", lifecyclePort);
+        int initialCount = clientFactory.getActiveServiceCount();
+
+        var stub = clientFactory.getCachedClient(serviceName,
+                MutinyGreeterGrpc.MutinyGreeterStub.class, MutinyGreeterGrpc::newMutinyStub)
+            .await().atMost(Duration.ofSeconds(10));
+        var replies = Uni.join().all(IntStream.range(0, 30)
+                .mapToObj(i -> stub.sayHello(HelloRequest.newBuilder().setName("pooled-" + i).build()))
+                .toList())
+            .andFailFast()
+            .await().atMost(Duration.ofSeconds(10));
+
+        assertThat(replies).hasSize(30)
+            .allSatisfy(reply -> assertThat(reply.getMessage()).startsWith("Hello pooled-"));
+        assertThat(clientFactory.getActiveServiceCount())
+            .as("the pool counts as one service channel")
+            .isEqualTo(initialCount + 1);
+
+        clientFactory.evictChannel(serviceName);
+    }
+
     @Test
     @DisplayName("Manual eviction should remove channel from cache")
     void testManualEviction() {
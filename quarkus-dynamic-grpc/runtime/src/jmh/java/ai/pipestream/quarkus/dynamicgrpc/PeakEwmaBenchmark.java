@@ -0,0 +1,222 @@
+package ai.pipestream.quarkus.dynamicgrpc;
+
+import io.grpc.CallOptions;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.NameResolver;
+import io.grpc.NameResolverProvider;
+import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.inprocess.InProcessSocketAddress;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ServerCalls;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@link PeakEwmaLoadBalancer} adds to each call: the pick (two
+ * random endpoints, two cost reads), the latency bookkeeping on close
+ * (alone and with eight threads sharing one endpoint), and a whole unary
+ * call over an in-process channel with three servers, against
+ * {@code round_robin} on the same setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PeakEwmaBenchmark {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final MethodDescriptor.Marshaller<String> UTF8 = new MethodDescriptor.Marshaller<>() {
+        @Override
+        public InputStream stream(String value) {
+            return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String parse(InputStream stream) {
+            try {
+                return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private static final MethodDescriptor<String, String> ECHO = MethodDescriptor.<String, String>newBuilder()
+            .setType(MethodDescriptor.MethodType.UNARY)
+            .setFullMethodName("bench.Echo/Echo")
+            .setRequestMarshaller(UTF8)
+            .setResponseMarshaller(UTF8)
+            .build();
+
+    private PeakEwma[] three;
+    private PeakEwma[] sixteen;
+    private PeakEwma shared;
+
+    @Setup
+    public void setup() {
+        three = seeded(3);
+        sixteen = seeded(16);
+        shared = seeded(1)[0];
+    }
+
+    /** A channel over three in-process servers, balanced by {@code policy}. */
+    @State(Scope.Benchmark)
+    public static class Calls {
+
+        @Param({"round_robin", PeakEwmaLoadBalancerProvider.POLICY_NAME})
+        public String policy;
+
+        private final List<Server> servers = new ArrayList<>();
+        private ManagedChannel channel;
+
+        @Setup
+        @SuppressWarnings("deprecation") // nameResolverFactory, as ChannelManager uses it
+        public void setup() throws IOException {
+            PeakEwmaLoadBalancerProvider.register();
+            List<SocketAddress> addresses = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                String name = "peak-ewma-benchmark-" + UUID.randomUUID();
+                servers.add(InProcessServerBuilder.forName(name)
+                        .directExecutor()
+                        .addService(ServerServiceDefinition.builder("bench.Echo")
+                                .addMethod(ECHO, ServerCalls.asyncUnaryCall((request, response) -> {
+                                    response.onNext(request);
+                                    response.onCompleted();
+                                }))
+                                .build())
+                        .build()
+                        .start());
+                addresses.add(new InProcessSocketAddress(name));
+            }
+            channel = InProcessChannelBuilder.forTarget("fixed:///bench")
+                    .nameResolverFactory(new FixedAddresses(addresses))
+                    .defaultLoadBalancingPolicy(policy)
+                    .directExecutor()
+                    .build();
+        }
+
+        @TearDown
+        public void tearDown() {
+            channel.shutdownNow();
+            servers.forEach(Server::shutdownNow);
+        }
+    }
+
+    @Benchmark
+    public int chooseOfThree() {
+        return PeakEwmaLoadBalancer.choose(three);
+    }
+
+    @Benchmark
+    public int chooseOfSixteen() {
+        return PeakEwmaLoadBalancer.choose(sixteen);
+    }
+
+    @Benchmark
+    public void startFinish() {
+        shared.start();
+        shared.finish(2 * MS, false);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void startFinishContended() {
+        shared.start();
+        shared.finish(2 * MS, false);
+    }
+
+    @Benchmark
+    public String unaryCall(Calls calls) {
+        return ClientCalls.blockingUnaryCall(calls.channel, ECHO, CallOptions.DEFAULT, "ping");
+    }
+
+    private static PeakEwma[] seeded(int n) {
+        PeakEwma[] stats = new PeakEwma[n];
+        for (int i = 0; i < n; i++) {
+            stats[i] = new PeakEwma(PeakEwmaLoadBalancerProvider.DECAY.toNanos(), System::nanoTime);
+            stats[i].start();
+            stats[i].finish((i + 1) * MS, false);
+        }
+        return stats;
+    }
+
+    /** Resolves {@code fixed:///...} to the given addresses, one group each. */
+    private static final class FixedAddresses extends NameResolverProvider {
+
+        private final List<EquivalentAddressGroup> groups;
+
+        FixedAddresses(List<SocketAddress> addresses) {
+            this.groups = addresses.stream().map(EquivalentAddressGroup::new).toList();
+        }
+
+        @Override
+        public NameResolver newNameResolver(URI targetUri, NameResolver.Args args) {
+            return new NameResolver() {
+                @Override
+                public String getServiceAuthority() {
+                    return "bench";
+                }
+
+                @Override
+                public void start(Listener2 listener) {
+                    listener.onResult(ResolutionResult.newBuilder().setAddresses(groups).build());
+                }
+
+                @Override
+                public void shutdown() {
+                }
+            };
+        }
+
+        @Override
+        public String getDefaultScheme() {
+            return "fixed";
+        }
+
+        @Override
+        protected boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        protected int priority() {
+            return 5;
+        }
+
+        @Override
+        public Collection<Class<? extends SocketAddress>> getProducedSocketAddressTypes() {
+            return List.of(InProcessSocketAddress.class);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package ai.pipestream.quarkus.dynamicgrpc;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientInterceptors;
+import io.grpc.ManagedChannel;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.stub.AbstractBlockingStub;
+import io.smallrye.mutiny.Uni;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a caller pays per RPC to get its stub, before the call itself:
+ * building one per request ({@code getClient}, {@code getBlockingClient})
+ * against taking the shared one from {@link StubCache}
+ * ({@code getCachedClient}, {@code getCachedStub}), bare, through a
+ * {@code Uni}, and with a per-call deadline view on top. Compare
+ * {@code gc.alloc.rate.norm}: a cache hit allocates nothing, so what is
+ * left per call is only the view for whatever options the call sets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StubCacheBenchmark {
+
+    private ManagedChannel managed;
+    private Channel channel;
+    private StubCache stubs;
+
+    @Setup
+    public void setup() {
+        managed = InProcessChannelBuilder.forName("stub-cache-benchmark").directExecutor().build();
+        // Same interceptor wrapping ChannelManager puts on every channel.
+        channel = ClientInterceptors.intercept(managed, new ContextDetachingInterceptor());
+        stubs = new StubCache(channel, () -> { });
+    }
+
+    @TearDown
+    public void tearDown() {
+        managed.shutdownNow();
+    }
+
+    @Benchmark
+    public EchoStub newStubPerCall() {
+        return EchoStub.newStub(channel);
+    }
+
+    @Benchmark
+    public EchoStub cachedStub() {
+        return stubs.get(EchoStub.class, EchoStub::newStub);
+    }
+
+    @Benchmark
+    public EchoStub newStubPerCallViaUni() {
+        // getClient's shape: the channel Uni mapped through the creator.
+        return Uni.createFrom().item(channel)
+                .map(EchoStub::newStub)
+                .await().indefinitely();
+    }
+
+    @Benchmark
+    public EchoStub cachedStubViaUni() {
+        // getCachedClient's shape on a hit.
+        return Uni.createFrom().item(stubs.get(EchoStub.class, EchoStub::newStub))
+                .await().indefinitely();
+    }
+
+    @Benchmark
+    public EchoStub newStubPerCallWithDeadline() {
+        return EchoStub.newStub(channel).withDeadlineAfter(15, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public EchoStub cachedStubWithDeadline() {
+        return stubs.get(EchoStub.class, EchoStub::newStub).withDeadlineAfter(15, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public EchoStub cachedStubContended() {
+        return stubs.get(EchoStub.class, EchoStub::newStub);
+    }
+
+    /** Stands in for a generated blocking stub; the base class does the work. */
+    public static final class EchoStub extends AbstractBlockingStub<EchoStub> {
+
+        private EchoStub(Channel channel, CallOptions callOptions) {
+            super(channel, callOptions);
+        }
+
+        static EchoStub newStub(Channel channel) {
+            return new EchoStub(channel, CallOptions.DEFAULT);
+        }
+
+        @Override
+        protected EchoStub build(Channel channel, CallOptions callOptions) {
+            return new EchoStub(channel, callOptions);
+        }
+    }
+}
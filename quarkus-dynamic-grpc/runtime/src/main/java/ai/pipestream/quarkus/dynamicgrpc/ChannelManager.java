@@ -9,6 +9,7 @@ import ai.pipestream.quarkus.dynamicgrpc.metrics.DynamicGrpcMetrics;
 import io.grpc.Channel;
 import io.grpc.ClientInterceptor;
 import io.grpc.ClientInterceptors;
+import io.grpc.LoadBalancerRegistry;
 import io.grpc.ManagedChannel;
 import io.grpc.netty.GrpcSslContexts;
 import io.grpc.netty.NegotiationType;
@@ -22,14 +23,17 @@ import org.jboss.logging.Logger;
 
 import javax.net.ssl.SSLException;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 /**
- * One {@link ManagedChannel} per logical service for the JVM lifetime.
+ * One {@link ManagedChannel} — or a small {@link ChannelPool} of them —
+ * per logical service for the JVM lifetime.
  * <p>
  * Backed by a plain {@link ConcurrentHashMap} — no Caffeine, no idle TTL,
  * no eviction listener. There are roughly a dozen logical services in this
@@ -42,11 +46,24 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * <p>Channels are built with
  * {@code NettyChannelBuilder.forTarget("stork:///<name>")} and explicitly
  * configured with {@link StorkNameResolverProvider} as the resolver
- * factory plus {@code round_robin} as the load-balancing policy. Stork
+ * factory plus the service's {@code load-balancer} policy —
+ * {@code round_robin} unless configured otherwise, or
+ * {@link PeakEwmaLoadBalancerProvider peak_ewma} to steer calls away
+ * from slow instances. Stork
  * handles instance discovery (Consul / static / Kubernetes), instance
  * health, and refresh cadence; grpc-java handles connection management
  * and per-call instance rotation.
  *
+ * <h2>Channel pools</h2>
+ *
+ * <p>With {@code round_robin}, one channel holds one HTTP/2 connection per
+ * backend address, so every call to an instance shares one TCP
+ * connection and one event loop. A service configured with
+ * {@code pool-size} N &gt; 1 gets N channels instead, behind a
+ * {@link ChannelPool} that sends each call to the member with the fewest
+ * in flight. Pool size and per-member load are reported through
+ * {@link DynamicGrpcMetrics#registerChannelPool}.
+ *
  * <h2>Why every channel goes through {@link ContextDetachingInterceptor}</h2>
  *
  * <p>Calls made from inside a Caffeine async-cache loader or other
@@ -79,14 +96,56 @@ public class ChannelManager {
 
     /**
      * One per service. {@code channel} is what callers use (carries the
-     * client-interceptor chain); {@code managed} is the underlying
-     * {@link ManagedChannel} we own the lifecycle of.
+     * client-interceptor chain); {@code managed} are the underlying
+     * {@link ManagedChannel}s we own the lifecycle of, one unless the
+     * service is pooled; {@code stubs} are the stubs built on
+     * {@code channel}, dropped with it on eviction.
      */
-    private record Entry(Channel channel, ManagedChannel managed) {}
+    private record Entry(Channel channel, List<ManagedChannel> managed, StubCache stubs) {}
 
     private final Map<String, Entry> channels = new ConcurrentHashMap<>();
     private final AtomicBoolean shuttingDown = new AtomicBoolean(false);
 
+    /**
+     * The channel already built for {@code serviceName}, if any — a single
+     * map read, for callers' hot path. Counts a cache hit when found; a
+     * {@code null} means the caller must go through discovery and
+     * {@link #getOrCreateChannel}, which counts the miss.
+     *
+     * @param serviceName logical service name
+     * @return the cached channel, or {@code null} if none has been built
+     *         yet or it was evicted
+     */
+    public Channel getCachedChannel(String serviceName) {
+        Entry entry = channels.get(serviceName);
+        if (entry == null) {
+            return null;
+        }
+        metrics.recordCacheHit(serviceName);
+        return entry.channel();
+    }
+
+    /**
+     * The cached stub of {@code stubType} on {@code serviceName}'s channel,
+     * built with {@code stubCreator} the first time that type is asked
+     * for. Like {@link #getCachedChannel}, {@code null} means there is no
+     * channel yet and the caller must go through discovery first.
+     *
+     * @param serviceName logical service name
+     * @param stubType    the stub class, used as the cache key
+     * @param stubCreator builds the stub on the channel, on first use only
+     * @param <T>         the stub type
+     * @return the shared stub, or {@code null} if no channel is built yet
+     */
+    public <T> T getCachedStub(String serviceName, Class<T> stubType, Function<Channel, T> stubCreator) {
+        Entry entry = channels.get(serviceName);
+        if (entry == null) {
+            return null;
+        }
+        metrics.recordCacheHit(serviceName);
+        return entry.stubs().get(stubType, stubCreator);
+    }
+
     /**
      * Gets or creates a gRPC Channel for the given service. Channels are
      * built once per service and reused for the JVM lifetime — gRPC's own
@@ -118,13 +177,69 @@ public class ChannelManager {
     }
 
     private Entry createEntry(String serviceName) {
-        LOG.infof("Creating Stork-resolved gRPC channel for service: %s", serviceName);
+        int poolSize = poolSize(serviceName);
+        LOG.infof("Creating Stork-resolved gRPC channel for service: %s (pool size %d)", serviceName, poolSize);
         metrics.recordCacheMiss(serviceName);
 
+        List<ManagedChannel> managed = new ArrayList<>(poolSize);
+        try {
+            for (int i = 0; i < poolSize; i++) {
+                managed.add(buildChannel(serviceName));
+            }
+        } catch (RuntimeException e) {
+            managed.forEach(ManagedChannel::shutdownNow);
+            throw e;
+        }
+
+        Channel base;
+        if (poolSize == 1) {
+            base = managed.get(0);
+        } else {
+            ChannelPool pool = new ChannelPool(managed);
+            metrics.registerChannelPool(serviceName, pool.size(), pool::outstanding);
+            base = pool;
+        }
+        Channel intercepted = ClientInterceptors.intercept(base, buildInterceptors());
+        metrics.recordChannelCreated(serviceName);
+        return new Entry(intercepted, List.copyOf(managed),
+                new StubCache(intercepted, () -> metrics.recordClientCreationSuccess(serviceName)));
+    }
+
+    /**
+     * Channels to build for {@code serviceName}: its
+     * {@code services."<name>".pool-size}, else the channel default.
+     */
+    private int poolSize(String serviceName) {
+        DynamicGrpcConfig.ServiceConfig service = config.services().get(serviceName);
+        int size = service != null && service.poolSize().isPresent()
+                ? service.poolSize().getAsInt()
+                : config.channel().poolSize();
+        return Math.max(1, size);
+    }
+
+    /**
+     * Load-balancing policy for {@code serviceName}: its
+     * {@code services."<name>".load-balancer}, else the channel default.
+     * Checked against grpc-java's registry here, since an unknown policy
+     * would otherwise only surface as failing calls.
+     */
+    private String loadBalancer(String serviceName) {
+        DynamicGrpcConfig.ServiceConfig service = config.services().get(serviceName);
+        String policy = service != null && service.loadBalancer().isPresent()
+                ? service.loadBalancer().get()
+                : config.channel().loadBalancer();
+        if (LoadBalancerRegistry.getDefaultRegistry().getProvider(policy) == null) {
+            throw new IllegalArgumentException(
+                    "Unknown load-balancing policy '" + policy + "' for dynamic-grpc service " + serviceName);
+        }
+        return policy;
+    }
+
+    private ManagedChannel buildChannel(String serviceName) {
         NettyChannelBuilder builder = NettyChannelBuilder
                 .forTarget(StorkNameResolverProvider.SCHEME + ":///" + serviceName)
                 .nameResolverFactory(STORK_RESOLVER_FACTORY)
-                .defaultLoadBalancingPolicy("round_robin")
+                .defaultLoadBalancingPolicy(loadBalancer(serviceName))
                 .flowControlWindow(config.channel().flowControlWindow())
                 .maxInboundMessageSize(config.channel().maxInboundMessageSize())
                 .keepAliveTime(30, TimeUnit.SECONDS)
@@ -147,10 +262,7 @@ public class ChannelManager {
             builder.negotiationType(NegotiationType.PLAINTEXT);
         }
 
-        ManagedChannel managed = builder.build();
-        Channel intercepted = ClientInterceptors.intercept(managed, buildInterceptors());
-        metrics.recordChannelCreated(serviceName);
-        return new Entry(intercepted, managed);
+        return builder.build();
     }
 
     /**
@@ -200,6 +312,10 @@ public class ChannelManager {
     private static final StorkNameResolverProvider STORK_RESOLVER_FACTORY =
             new StorkNameResolverProvider();
 
+    static {
+        PeakEwmaLoadBalancerProvider.register();
+    }
+
     /**
      * Removes a channel for a service. Mostly retained for backwards
      * compatibility — callers shouldn't normally need to evict, since
@@ -208,7 +324,9 @@ public class ChannelManager {
     public void evictChannel(String serviceName) {
         Entry removed = channels.remove(serviceName);
         if (removed != null) {
-            shutdownChannel(removed.managed(), serviceName);
+            metrics.recordChannelEvicted(serviceName, "manual");
+            metrics.removeChannelPool(serviceName);
+            shutdownChannels(removed.managed(), serviceName);
         }
     }
 
@@ -230,21 +348,30 @@ public class ChannelManager {
     void cleanup() {
         shuttingDown.set(true);
         LOG.infof("Shutting down %d gRPC channels on application exit", channels.size());
-        channels.forEach((name, entry) -> shutdownChannel(entry.managed(), name));
+        channels.forEach((name, entry) -> shutdownChannels(entry.managed(), name));
         channels.clear();
     }
 
-    private static void shutdownChannel(ManagedChannel mc, String serviceName) {
-        try {
-            mc.shutdown();
-            if (!mc.awaitTermination(5, TimeUnit.SECONDS)) {
+    /** Shuts all of a service's channels down together, then waits for each. */
+    private static void shutdownChannels(List<ManagedChannel> managed, String serviceName) {
+        for (ManagedChannel mc : managed) {
+            try {
+                mc.shutdown();
+            } catch (RuntimeException e) {
+                LOG.tracef("Error closing channel for %s: %s", serviceName, e.getMessage());
+            }
+        }
+        for (ManagedChannel mc : managed) {
+            try {
+                if (!mc.awaitTermination(5, TimeUnit.SECONDS)) {
+                    mc.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
                 mc.shutdownNow();
+            } catch (RuntimeException e) {
+                LOG.tracef("Error closing channel for %s: %s", serviceName, e.getMessage());
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            mc.shutdownNow();
-        } catch (RuntimeException e) {
-            LOG.tracef("Error closing channel for %s: %s", serviceName, e.getMessage());
         }
     }
 }
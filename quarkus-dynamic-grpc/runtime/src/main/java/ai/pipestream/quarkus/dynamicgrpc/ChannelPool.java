@@ -0,0 +1,128 @@
+package ai.pipestream.quarkus.dynamicgrpc;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Several {@link ManagedChannel}s to one service behind a single
+ * {@link Channel}; each call goes to the member with the fewest calls in
+ * flight.
+ * <p>
+ * Every member resolves and balances across the service's instances on
+ * its own, so with a pool of N each backend address gets N HTTP/2
+ * connections instead of one — and, since grpc-netty registers each new
+ * connection on the next event loop of its shared group, N event loops.
+ * That is what lets several large transfers to the same instance proceed
+ * side by side rather than queue behind one TCP connection's flow-control
+ * window.
+ * <p>
+ * A call counts as outstanding from {@link ClientCall#start} until its
+ * {@code onClose}. Selection scans all members starting from a random
+ * one, so members that are tied share the load instead of the first one
+ * taking every call.
+ */
+final class ChannelPool extends Channel {
+
+    private final ManagedChannel[] members;
+    private final AtomicIntegerArray outstanding;
+
+    ChannelPool(List<ManagedChannel> members) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("A channel pool needs at least one member");
+        }
+        this.members = members.toArray(new ManagedChannel[0]);
+        this.outstanding = new AtomicIntegerArray(this.members.length);
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> method,
+                                                         CallOptions callOptions) {
+        int member = leastOutstanding();
+        return new CountedCall<>(members[member].newCall(method, callOptions), outstanding, member);
+    }
+
+    @Override
+    public String authority() {
+        return members[0].authority();
+    }
+
+    /** Number of member channels. */
+    int size() {
+        return members.length;
+    }
+
+    /** Calls in flight on {@code member}. */
+    int outstanding(int member) {
+        return outstanding.get(member);
+    }
+
+    /** The member the next call goes to. */
+    int leastOutstanding() {
+        int n = members.length;
+        int best = n == 1 ? 0 : ThreadLocalRandom.current().nextInt(n);
+        int bestCount = outstanding.get(best);
+        for (int i = 1; i < n && bestCount > 0; i++) {
+            int member = (best + i) % n;
+            int count = outstanding.get(member);
+            if (count < bestCount) {
+                best = member;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    /** Keeps its member's outstanding count from start to close. */
+    private static final class CountedCall<ReqT, RespT>
+            extends ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT> {
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<CountedCall> RELEASED =
+                AtomicIntegerFieldUpdater.newUpdater(CountedCall.class, "released");
+
+        private final AtomicIntegerArray outstanding;
+        private final int member;
+        private volatile int released;
+
+        CountedCall(ClientCall<ReqT, RespT> delegate, AtomicIntegerArray outstanding, int member) {
+            super(delegate);
+            this.outstanding = outstanding;
+            this.member = member;
+        }
+
+        @Override
+        public void start(Listener<RespT> responseListener, Metadata headers) {
+            outstanding.incrementAndGet(member);
+            try {
+                super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(responseListener) {
+                    @Override
+                    public void onClose(Status status, Metadata trailers) {
+                        release();
+                        super.onClose(status, trailers);
+                    }
+                }, headers);
+            } catch (RuntimeException | Error e) {
+                release();
+                throw e;
+            }
+        }
+
+        private void release() {
+            if (RELEASED.compareAndSet(this, 0, 1)) {
+                outstanding.decrementAndGet(member);
+            }
+        }
+    }
+}
@@ -18,6 +18,17 @@ import java.util.function.Function;
  * This factory ensures the service is defined in Stork, discovers instances,
  * obtains a Channel from ChannelManager, and produces Mutiny stubs on demand.
  * </p>
+ * <p>
+ * Defining and discovering only happen when {@link ChannelManager} has no
+ * channel for the service yet (first use, or after {@link #evictChannel}).
+ * Once built, the channel's own {@link StorkNameResolverProvider} keeps its
+ * instance list current, so every later call is a single map read.
+ * </p>
+ * <p>
+ * {@link #getClient} and friends still build a new stub per call; the
+ * {@link #getCachedClient} / {@link #getCachedStub} variants hand back one
+ * shared stub per service and stub type instead (see {@link StubCache}).
+ * </p>
  */
 @ApplicationScoped
 public class DynamicGrpcClientFactory implements GrpcClientFactory {
@@ -83,9 +94,9 @@ public class DynamicGrpcClientFactory implements GrpcClientFactory {
         }
         // Resolve the channel synchronously. Virtual-thread callers tolerate
         // the block; it pins only a carrier briefly during Stork resolution
-        // on first access (subsequent calls hit the Caffeine cache).
+        // on first access (subsequent calls hit the channel map directly).
         try {
-            Channel channel = getChannel(serviceName).await().indefinitely();
+            Channel channel = awaitChannel(serviceName);
             T stub = stubCreator.apply(channel);
             metrics.recordClientCreationSuccess(serviceName);
             return stub;
@@ -113,7 +124,7 @@ public class DynamicGrpcClientFactory implements GrpcClientFactory {
         // stubCreator reference. Channel acquisition is identical. Keeping
         // a distinct method makes caller intent explicit at the call site.
         try {
-            Channel channel = getChannel(serviceName).await().indefinitely();
+            Channel channel = awaitChannel(serviceName);
             T stub = stubCreator.apply(channel);
             metrics.recordClientCreationSuccess(serviceName);
             return stub;
@@ -128,6 +139,110 @@ public class DynamicGrpcClientFactory implements GrpcClientFactory {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends MutinyStub> Uni<T> getCachedClient(String serviceName, Class<T> stubType,
+                                                         Function<Channel, T> stubCreator) {
+        if (stubType == null || stubCreator == null) {
+            return Uni.createFrom().failure(
+                    new DynamicGrpcException("Stub type and creator function must not be null")
+            );
+        }
+        if (serviceName != null) {
+            try {
+                T cached = channelManager.getCachedStub(serviceName, stubType, stubCreator);
+                if (cached != null) {
+                    return Uni.createFrom().item(cached);
+                }
+            } catch (RuntimeException e) {
+                return Uni.createFrom().failure(stubCreationFailed(serviceName, e));
+            }
+        }
+        return stubAfterDiscovery(serviceName, stubType, stubCreator, true)
+                .onFailure().invoke(throwable -> {
+                    if (!(throwable instanceof DynamicGrpcException)) {
+                        metrics.recordClientCreationFailure(serviceName, throwable.getClass().getSimpleName());
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T getCachedStub(String serviceName, Class<T> stubType, Function<Channel, T> stubCreator) {
+        if (stubType == null || stubCreator == null) {
+            throw new DynamicGrpcException("Stub type and creator function must not be null");
+        }
+        try {
+            if (serviceName != null) {
+                T cached = channelManager.getCachedStub(serviceName, stubType, stubCreator);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            getChannel(serviceName).await().indefinitely();
+            T stub = channelManager.getCachedStub(serviceName, stubType, stubCreator);
+            if (stub == null) {
+                // Evicted during discovery: rediscover rather than build on the shut-down channel.
+                getChannel(serviceName).await().indefinitely();
+                stub = channelManager.getCachedStub(serviceName, stubType, stubCreator);
+            }
+            if (stub == null) {
+                throw evictedTwice(serviceName);
+            }
+            return stub;
+        } catch (DynamicGrpcException e) {
+            metrics.recordClientCreationFailure(serviceName, e.getClass().getSimpleName());
+            throw e;
+        } catch (RuntimeException e) {
+            throw stubCreationFailed(serviceName, e);
+        }
+    }
+
+    /**
+     * {@link #getCachedClient}'s path through discovery: the cached stub
+     * once discovery has built the service's channel. If
+     * that channel is evicted before the stub is looked up, discovery runs
+     * once more so the stub is built on the new channel, never on the
+     * evicted (shut down) one; a second eviction in a row fails the call.
+     */
+    private <T> Uni<T> stubAfterDiscovery(String serviceName, Class<T> stubType,
+                                          Function<Channel, T> stubCreator, boolean retryOnEviction) {
+        return getChannel(serviceName).onItem().transformToUni(channel -> {
+            T stub;
+            try {
+                stub = channelManager.getCachedStub(serviceName, stubType, stubCreator);
+            } catch (RuntimeException e) {
+                return Uni.createFrom().failure(stubCreationFailed(serviceName, e));
+            }
+            if (stub != null) {
+                return Uni.createFrom().item(stub);
+            }
+            if (retryOnEviction) {
+                LOG.debugf("Channel for service %s was evicted during discovery; rediscovering", serviceName);
+                return stubAfterDiscovery(serviceName, stubType, stubCreator, false);
+            }
+            DynamicGrpcException evicted = evictedTwice(serviceName);
+            metrics.recordClientCreationFailure(serviceName, evicted.getClass().getSimpleName());
+            return Uni.createFrom().failure(evicted);
+        });
+    }
+
+    private static DynamicGrpcException evictedTwice(String serviceName) {
+        return new DynamicGrpcException(
+                "Channel for service " + serviceName + " was evicted twice while its stub was being created");
+    }
+
+    private DynamicGrpcException stubCreationFailed(String serviceName, RuntimeException e) {
+        LOG.errorf(e, "Failed to create cached stub for service: %s", serviceName);
+        metrics.recordException(e.getClass().getSimpleName(), serviceName, "stub_creation");
+        metrics.recordClientCreationFailure(serviceName, e.getClass().getSimpleName());
+        return new DynamicGrpcException("Failed to create gRPC stub for service: " + serviceName, e);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -145,7 +260,12 @@ public class DynamicGrpcClientFactory implements GrpcClientFactory {
             return Uni.createFrom().failure(ex);
         }
 
-        LOG.tracef("Getting channel for service: %s", serviceName);
+        Channel cached = channelManager.getCachedChannel(serviceName);
+        if (cached != null) {
+            return Uni.createFrom().item(cached);
+        }
+
+        LOG.tracef("No channel yet for service %s, discovering", serviceName);
 
         return serviceDiscoveryManager.ensureServiceDefined(serviceName)
                 .chain(ignored -> {
@@ -158,6 +278,21 @@ public class DynamicGrpcClientFactory implements GrpcClientFactory {
                 });
     }
 
+    /**
+     * The channel for the synchronous client methods: the cached one
+     * without building a {@code Uni}, else the full {@link #getChannel}
+     * path, which also validates the name.
+     */
+    private Channel awaitChannel(String serviceName) {
+        if (serviceName != null) {
+            Channel cached = channelManager.getCachedChannel(serviceName);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        return getChannel(serviceName).await().indefinitely();
+    }
+
     /**
      * {@inheritDoc}
      */
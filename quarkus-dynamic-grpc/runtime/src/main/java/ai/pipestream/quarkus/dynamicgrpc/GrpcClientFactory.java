@@ -67,6 +67,42 @@ public interface GrpcClientFactory {
      */
     <T> T getAsyncClient(String serviceName, Function<Channel, T> stubCreator);
 
+    /**
+     * Get the shared Mutiny stub of {@code stubType} for a service.
+     * <p>
+     * Unlike {@link #getClient}, which builds a new stub on every call, the
+     * stub is built once per service channel and the same instance is
+     * returned until the channel is evicted. Stubs are immutable, so apply
+     * per-call options as views on the shared one —
+     * {@code stub.withDeadlineAfter(...)}, {@code withCompression(...)},
+     * {@code withInterceptors(MetadataUtils.newAttachHeadersInterceptor(md))}
+     * — rather than building it again.
+     *
+     * @param <T>         The Mutiny stub type (must extend MutinyStub)
+     * @param serviceName The logical service name for discovery
+     * @param stubType    The stub class; together with the service name it is the cache key
+     * @param stubCreator Method reference to create the stub, called only on a cache miss
+     * @return A Uni emitting the shared stub
+     */
+    <T extends MutinyStub> Uni<T> getCachedClient(String serviceName, Class<T> stubType, Function<Channel, T> stubCreator);
+
+    /**
+     * Get the shared stub of {@code stubType} for a service — blocking,
+     * async or Mutiny alike.
+     * <p>
+     * The synchronous counterpart of {@link #getCachedClient}: the caller
+     * blocks only on first use, while the channel is discovered and built
+     * (as with {@link #getBlockingClient}). After that it is two map reads
+     * and no allocation, so it is fine to call per request.
+     *
+     * @param <T>         The stub type
+     * @param serviceName The logical service name for discovery
+     * @param stubType    The stub class; together with the service name it is the cache key
+     * @param stubCreator Method reference like {@code MyServiceGrpc::newBlockingStub}, called only on a cache miss
+     * @return The shared stub
+     */
+    <T> T getCachedStub(String serviceName, Class<T> stubType, Function<Channel, T> stubCreator);
+
     /**
      * Get a raw Channel for advanced use cases.
      *
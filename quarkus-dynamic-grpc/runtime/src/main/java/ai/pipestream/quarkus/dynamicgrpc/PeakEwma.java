@@ -0,0 +1,111 @@
+package ai.pipestream.quarkus.dynamicgrpc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Load estimate for one backend: a peak-sensitive, exponentially weighted
+ * moving average of call latency, times the calls in flight.
+ * <p>
+ * A latency above the average replaces it outright, so one slow call — a
+ * GC pause, a cold cache — makes the backend look slow at once. Lower
+ * latencies pull the average down gradually, weighted by how long it has
+ * been since the previous sample, and with no samples at all the
+ * average decays towards zero, so a backend that was slow gets probed
+ * again after a while instead of being starved forever. Multiplying by
+ * {@code pending + 1} makes a backend that is busy right now look
+ * proportionally worse.
+ * <p>
+ * A backend with calls in flight but no latency yet costs {@link #PENALTY},
+ * so a freshly connected one is not flooded before its first reply.
+ */
+final class PeakEwma {
+
+    /** Cost of a backend with calls in flight and no latency measured yet. */
+    static final double PENALTY = Long.MAX_VALUE >> 16;
+
+    private final double decayNanos;
+    private final LongSupplier clock;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /** The average as of its last sample; replaced whole, so reads need no lock. */
+    private record Sample(double latencyNanos, long stampNanos) {}
+
+    // Written under this, one update per call completion; the picker reads
+    // it lock-free and decays it to the present without writing back.
+    private volatile Sample sample;
+
+    /**
+     * @param decayNanos time over which an old latency sample loses most
+     *                   of its weight
+     * @param clock      nanosecond clock, {@code System::nanoTime} outside tests
+     */
+    PeakEwma(long decayNanos, LongSupplier clock) {
+        if (decayNanos <= 0) {
+            throw new IllegalArgumentException("decay must be positive: " + decayNanos);
+        }
+        this.decayNanos = decayNanos;
+        this.clock = clock;
+        this.sample = new Sample(0, clock.getAsLong());
+    }
+
+    /** A call to this backend started. */
+    void start() {
+        pending.incrementAndGet();
+    }
+
+    /**
+     * A call to this backend finished.
+     *
+     * @param rttNanos its latency
+     * @param failed   whether it failed in a way that says the backend is in
+     *                 trouble; such a call counts as at least twice the
+     *                 current average, so a backend that fails fast does
+     *                 not look fast
+     */
+    void finish(long rttNanos, boolean failed) {
+        pending.decrementAndGet();
+        long now = clock.getAsLong();
+        synchronized (this) {
+            Sample last = sample;
+            double w = weight(last, now);
+            double current = last.latencyNanos() * w;
+            double rtt = Math.max(rttNanos, 0);
+            if (failed) {
+                rtt = Math.max(rtt, current * 2);
+            }
+            sample = new Sample(rtt > current ? rtt : current + rtt * (1 - w), now);
+        }
+    }
+
+    /** The backend's current load estimate; lower is better. */
+    double cost() {
+        int inFlight = pending.get();
+        double latency = latencyNanos();
+        if (latency == 0 && inFlight > 0) {
+            return PENALTY + inFlight;
+        }
+        return latency * (inFlight + 1);
+    }
+
+    /** Calls in flight. */
+    int pending() {
+        return pending.get();
+    }
+
+    /** The latency average as of now, in nanoseconds. */
+    double latencyNanos() {
+        Sample last = sample;
+        return last.latencyNanos() == 0 ? 0 : last.latencyNanos() * weight(last, clock.getAsLong());
+    }
+
+    /**
+     * Weight {@code w = exp(-elapsed / decay)} the average keeps after the
+     * time since {@code last}: it decays by {@code w} towards zero, and a
+     * sample taken now that does not exceed it gets weight {@code 1 - w}.
+     */
+    private double weight(Sample last, long now) {
+        long elapsed = Math.max(now - last.stampNanos(), 0);
+        return elapsed == 0 ? 1 : Math.exp(-elapsed / decayNanos);
+    }
+}
@@ -0,0 +1,262 @@
+package ai.pipestream.quarkus.dynamicgrpc;
+
+import io.grpc.ClientStreamTracer;
+import io.grpc.ConnectivityState;
+import io.grpc.ConnectivityStateInfo;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.LoadBalancer;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Balances calls across a service's instances by measured latency and
+ * load rather than in turn: for each call it samples two ready instances
+ * at random and takes the one with the lower {@link PeakEwma} cost
+ * ("power of two choices"). A slow or GC-pausing instance sees its cost
+ * jump with its first slow reply and gets a share of traffic that shrinks
+ * with it, instead of the equal share {@code round_robin} would keep
+ * sending it. Sampling two rather than scanning all keeps the pick O(1)
+ * and avoids every client herding onto the single best-looking instance.
+ * <p>
+ * Latency comes from a {@link ClientStreamTracer} attached at pick time,
+ * which times each call from stream creation to close. A client
+ * interceptor would see the same calls but not which instance served
+ * them; the tracer is the per-call hook that does.
+ * <p>
+ * Only unary calls are timed and counted. A streaming call lives as long
+ * as its caller keeps it open — a bidi watch can run for minutes — so its
+ * duration says nothing about how fast the instance answers, and counting
+ * it as in flight would keep that instance looking busy for as long. Such
+ * calls are still placed by the instances' unary costs, so a service used
+ * only through streams is spread at random by the two choices.
+ * <p>
+ * One subchannel per resolved address group, connected eagerly and
+ * reconnected when it drops to idle, as with {@code round_robin}.
+ * Selected with {@code load-balancer=peak_ewma}; see
+ * {@link PeakEwmaLoadBalancerProvider}.
+ */
+final class PeakEwmaLoadBalancer extends LoadBalancer {
+
+    private final Helper helper;
+    private final long decayNanos;
+    private final LongSupplier clock;
+    private final Map<EquivalentAddressGroup, Endpoint> endpoints = new HashMap<>();
+    private Status lastError = Status.UNAVAILABLE.withDescription("No addresses resolved yet");
+
+    PeakEwmaLoadBalancer(Helper helper, long decayNanos, LongSupplier clock) {
+        this.helper = helper;
+        this.decayNanos = decayNanos;
+        this.clock = clock;
+    }
+
+    @Override
+    public Status acceptResolvedAddresses(ResolvedAddresses resolvedAddresses) {
+        List<EquivalentAddressGroup> groups = resolvedAddresses.getAddresses();
+        if (groups.isEmpty()) {
+            Status unavailable = Status.UNAVAILABLE.withDescription(
+                    "Name resolver returned no addresses: " + resolvedAddresses);
+            handleNameResolutionError(unavailable);
+            return unavailable;
+        }
+
+        Map<EquivalentAddressGroup, EquivalentAddressGroup> latest = new HashMap<>();
+        for (EquivalentAddressGroup group : groups) {
+            // Key on the addresses alone; attributes change between resolutions.
+            latest.put(new EquivalentAddressGroup(group.getAddresses()), group);
+        }
+        endpoints.entrySet().removeIf(entry -> {
+            if (latest.containsKey(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().subchannel.shutdown();
+            return true;
+        });
+        latest.forEach((key, group) -> {
+            Endpoint existing = endpoints.get(key);
+            if (existing != null) {
+                existing.subchannel.updateAddresses(List.of(group));
+                return;
+            }
+            Subchannel subchannel = helper.createSubchannel(CreateSubchannelArgs.newBuilder()
+                    .setAddresses(group)
+                    .build());
+            Endpoint endpoint = new Endpoint(key, subchannel, new PeakEwma(decayNanos, clock), clock);
+            endpoints.put(key, endpoint);
+            subchannel.start(state -> onStateChange(endpoint, state));
+            subchannel.requestConnection();
+        });
+        updateBalancingState();
+        return Status.OK;
+    }
+
+    @Override
+    public void handleNameResolutionError(Status error) {
+        lastError = error;
+        if (endpoints.values().stream().noneMatch(Endpoint::ready)) {
+            helper.updateBalancingState(ConnectivityState.TRANSIENT_FAILURE,
+                    new FixedResultPicker(PickResult.withError(error)));
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        endpoints.values().forEach(endpoint -> endpoint.subchannel.shutdown());
+        endpoints.clear();
+    }
+
+    private void onStateChange(Endpoint endpoint, ConnectivityStateInfo state) {
+        if (endpoints.get(endpoint.key) != endpoint) {
+            return; // removed by a later resolution
+        }
+        if (state.getState() == ConnectivityState.IDLE) {
+            endpoint.subchannel.requestConnection();
+        }
+        if (state.getState() == ConnectivityState.TRANSIENT_FAILURE) {
+            lastError = state.getStatus();
+        }
+        endpoint.state = state.getState();
+        updateBalancingState();
+    }
+
+    private void updateBalancingState() {
+        List<Endpoint> ready = new ArrayList<>();
+        boolean connecting = false;
+        for (Endpoint endpoint : endpoints.values()) {
+            if (endpoint.ready()) {
+                ready.add(endpoint);
+            } else if (endpoint.state != ConnectivityState.TRANSIENT_FAILURE) {
+                connecting = true;
+            }
+        }
+        if (!ready.isEmpty()) {
+            helper.updateBalancingState(ConnectivityState.READY, new Picker(ready));
+        } else if (connecting) {
+            helper.updateBalancingState(ConnectivityState.CONNECTING,
+                    new FixedResultPicker(PickResult.withNoResult()));
+        } else {
+            helper.updateBalancingState(ConnectivityState.TRANSIENT_FAILURE,
+                    new FixedResultPicker(PickResult.withError(lastError)));
+        }
+    }
+
+    /**
+     * Of two distinct endpoints picked at random, the one with the lower
+     * cost; the only one if there is one.
+     */
+    static int choose(PeakEwma[] stats) {
+        int n = stats.length;
+        if (n == 1) {
+            return 0;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = random.nextInt(n);
+        int b = random.nextInt(n - 1);
+        if (b >= a) {
+            b++;
+        }
+        return stats[a].cost() <= stats[b].cost() ? a : b;
+    }
+
+    /**
+     * Whether a call that ended with {@code status} says the instance is
+     * in trouble, rather than the request being refused or cancelled.
+     */
+    static boolean backendFailure(Status status) {
+        return switch (status.getCode()) {
+            case UNAVAILABLE, DEADLINE_EXCEEDED, INTERNAL, UNKNOWN, RESOURCE_EXHAUSTED -> true;
+            default -> false;
+        };
+    }
+
+    /** One instance: its subchannel, connectivity and load estimate. */
+    private static final class Endpoint {
+
+        final EquivalentAddressGroup key;
+        final Subchannel subchannel;
+        final PeakEwma stats;
+        final ClientStreamTracer.Factory tracer;
+        ConnectivityState state = ConnectivityState.IDLE;
+
+        Endpoint(EquivalentAddressGroup key, Subchannel subchannel, PeakEwma stats, LongSupplier clock) {
+            this.key = key;
+            this.subchannel = subchannel;
+            this.stats = stats;
+            this.tracer = new LatencyTracer.Factory(stats, clock);
+        }
+
+        boolean ready() {
+            return state == ConnectivityState.READY;
+        }
+    }
+
+    /** Picks among the endpoints that were ready when it was built. */
+    private static final class Picker extends SubchannelPicker {
+
+        private final Endpoint[] endpoints;
+        private final PeakEwma[] stats;
+
+        Picker(List<Endpoint> ready) {
+            this.endpoints = ready.toArray(new Endpoint[0]);
+            this.stats = new PeakEwma[endpoints.length];
+            for (int i = 0; i < endpoints.length; i++) {
+                stats[i] = endpoints[i].stats;
+            }
+        }
+
+        @Override
+        public PickResult pickSubchannel(PickSubchannelArgs args) {
+            Endpoint endpoint = endpoints[choose(stats)];
+            if (args.getMethodDescriptor().getType() != MethodDescriptor.MethodType.UNARY) {
+                return PickResult.withSubchannel(endpoint.subchannel);
+            }
+            return PickResult.withSubchannel(endpoint.subchannel, endpoint.tracer);
+        }
+    }
+
+    /**
+     * Times one unary call on one endpoint, from stream creation to close,
+     * on the same clock as the endpoint's {@link PeakEwma}.
+     */
+    private static final class LatencyTracer extends ClientStreamTracer {
+
+        private final PeakEwma stats;
+        private final LongSupplier clock;
+        private final long startNanos;
+
+        LatencyTracer(PeakEwma stats, LongSupplier clock) {
+            this.stats = stats;
+            this.clock = clock;
+            stats.start();
+            this.startNanos = clock.getAsLong();
+        }
+
+        @Override
+        public void streamClosed(Status status) {
+            stats.finish(clock.getAsLong() - startNanos, backendFailure(status));
+        }
+
+        private static final class Factory extends ClientStreamTracer.Factory {
+
+            private final PeakEwma stats;
+            private final LongSupplier clock;
+
+            Factory(PeakEwma stats, LongSupplier clock) {
+                this.stats = stats;
+                this.clock = clock;
+            }
+
+            @Override
+            public ClientStreamTracer newClientStreamTracer(StreamInfo info, Metadata headers) {
+                return new LatencyTracer(stats, clock);
+            }
+        }
+    }
+}
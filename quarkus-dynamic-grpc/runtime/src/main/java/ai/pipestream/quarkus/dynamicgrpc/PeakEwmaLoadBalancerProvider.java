@@ -0,0 +1,64 @@
+package ai.pipestream.quarkus.dynamicgrpc;
+
+import io.grpc.LoadBalancer;
+import io.grpc.LoadBalancerProvider;
+import io.grpc.LoadBalancerRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Makes {@link PeakEwmaLoadBalancer} available to grpc-java under the
+ * policy name {@value #POLICY_NAME}, for
+ * {@code quarkus.dynamic-grpc.channel.load-balancer} or a service's
+ * {@code services."<name>".load-balancer}.
+ *
+ * <p>Like {@link StorkNameResolverProvider}, it is wired in explicitly
+ * rather than through {@code META-INF/services}: {@link ChannelManager}
+ * calls {@link #register()} before building its first channel.
+ */
+public class PeakEwmaLoadBalancerProvider extends LoadBalancerProvider {
+
+    /** Policy name to select this balancer by. */
+    public static final String POLICY_NAME = "peak_ewma";
+
+    /**
+     * How long an old latency sample keeps most of its weight. Ten seconds
+     * lets a slow instance win traffic back within a few seconds of
+     * recovering, without one fast reply undoing a pause.
+     */
+    static final Duration DECAY = Duration.ofSeconds(10);
+
+    private static final AtomicBoolean REGISTERED = new AtomicBoolean();
+
+    /** Default constructor, for the load-balancer registry. */
+    public PeakEwmaLoadBalancerProvider() {}
+
+    /** Adds this provider to grpc-java's default registry, once per JVM. */
+    public static void register() {
+        if (REGISTERED.compareAndSet(false, true)) {
+            LoadBalancerRegistry.getDefaultRegistry().register(new PeakEwmaLoadBalancerProvider());
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public int getPriority() {
+        // 5 is the standard priority; no built-in policy shares the name.
+        return 5;
+    }
+
+    @Override
+    public String getPolicyName() {
+        return POLICY_NAME;
+    }
+
+    @Override
+    public LoadBalancer newLoadBalancer(LoadBalancer.Helper helper) {
+        return new PeakEwmaLoadBalancer(helper, DECAY.toNanos(), System::nanoTime);
+    }
+}
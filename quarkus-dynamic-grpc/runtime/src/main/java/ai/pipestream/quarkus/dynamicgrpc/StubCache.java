@@ -0,0 +1,68 @@
+package ai.pipestream.quarkus.dynamicgrpc;
+
+import io.grpc.Channel;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The stubs built on one service's channel, one per stub type.
+ * <p>
+ * gRPC stubs are immutable: every {@code withDeadlineAfter},
+ * {@code withCompression}, {@code withInterceptors} and friends returns a
+ * new stub sharing the channel and differing only in its
+ * {@link io.grpc.CallOptions}. So a stub built once can serve every call
+ * for the life of its channel, and per-call options are applied as a
+ * cheap view on top of it rather than by building the stub again.
+ * <p>
+ * Lives alongside its channel in {@link ChannelManager}; evicting the
+ * channel drops its stubs with it, so a stub is never handed out for a
+ * channel that has been shut down.
+ */
+final class StubCache {
+
+    private final Channel channel;
+    private final Runnable onCreate;
+    private final Map<Class<?>, Object> stubs = new ConcurrentHashMap<>();
+
+    /**
+     * @param channel  the channel stubs are built on
+     * @param onCreate run each time a stub is actually built, for metrics
+     */
+    StubCache(Channel channel, Runnable onCreate) {
+        this.channel = channel;
+        this.onCreate = onCreate;
+    }
+
+    /**
+     * The stub of {@code stubType} for this channel, building it with
+     * {@code stubCreator} on first use.
+     *
+     * @throws IllegalArgumentException if {@code stubCreator} builds
+     *                                  something other than a {@code stubType}
+     */
+    <T> T get(Class<T> stubType, Function<Channel, T> stubCreator) {
+        Object stub = stubs.get(stubType);
+        if (stub == null) {
+            stub = stubs.computeIfAbsent(stubType, type -> create(type, stubCreator));
+        }
+        return stubType.cast(stub);
+    }
+
+    /** Number of stub types built so far. */
+    int size() {
+        return stubs.size();
+    }
+
+    private Object create(Class<?> stubType, Function<Channel, ?> stubCreator) {
+        Object stub = stubCreator.apply(channel);
+        if (!stubType.isInstance(stub)) {
+            throw new IllegalArgumentException("Stub creator built "
+                    + (stub == null ? "null" : stub.getClass().getName())
+                    + ", not a " + stubType.getName());
+        }
+        onCreate.run();
+        return stub;
+    }
+}
@@ -6,7 +6,9 @@ import io.smallrye.config.ConfigMapping;
 import io.smallrye.config.WithDefault;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
 
 /**
  * Configuration for the Dynamic gRPC extension.
@@ -43,6 +45,15 @@ public interface DynamicGrpcConfig {
      */
     ConsulConfig consul();
 
+    /**
+     * Per-service overrides, keyed by logical service name, e.g.
+     * {@code quarkus.dynamic-grpc.services."repository".pool-size=4}.
+     * Services without an entry use the {@link #channel()} defaults.
+     *
+     * @return the per-service configuration
+     */
+    Map<String, ServiceConfig> services();
+
     /**
      * Channel cache and lifecycle configuration.
      */
@@ -74,6 +85,9 @@ public interface DynamicGrpcConfig {
         /**
          * Maximum inbound message size in bytes.
          * Default is 2GB (Integer.MAX_VALUE) for large payload support.
+         * A peer can then make the client buffer up to 2GB for one
+         * message; services that never return large payloads should
+         * lower it.
          *
          * @return the maximum inbound message size in bytes
          */
@@ -134,6 +148,60 @@ public interface DynamicGrpcConfig {
          */
         @WithDefault("1")
         int storkRetries();
+
+        /**
+         * Channels kept per service. Each is a separate
+         * {@link io.grpc.ManagedChannel} balancing across the service's
+         * instances, so every backend address gets this many HTTP/2
+         * connections; calls go to whichever has the fewest in flight.
+         * <p>
+         * Default is 1. Raise it for services that move large payloads to
+         * few instances, where one connection's flow-control window and
+         * event loop become the bottleneck. Override per service with
+         * {@code services."<name>".pool-size}.
+         *
+         * @return channels per service (minimum 1)
+         */
+        @WithDefault("1")
+        int poolSize();
+
+        /**
+         * grpc-java load-balancing policy spreading each channel's calls
+         * across the service's instances.
+         * <ul>
+         *   <li>{@code round_robin} (default) — every ready instance in turn.</li>
+         *   <li>{@code peak_ewma} — of two random instances, the one with the
+         *       lower recent latency times calls in flight, so a slow or
+         *       pausing instance gets less traffic. Only unary calls are
+         *       measured; streaming calls are placed by those costs.</li>
+         *   <li>{@code pick_first}, or any other policy registered with
+         *       grpc-java.</li>
+         * </ul>
+         * Override per service with {@code services."<name>".load-balancer}.
+         *
+         * @return the load-balancing policy name
+         */
+        @WithDefault("round_robin")
+        String loadBalancer();
+    }
+
+    /**
+     * Settings for one logical service, overriding the channel defaults.
+     */
+    interface ServiceConfig {
+        /**
+         * Channels kept for this service; see {@link ChannelConfig#poolSize()}.
+         *
+         * @return the pool size, or empty to use the channel default
+         */
+        OptionalInt poolSize();
+
+        /**
+         * Load-balancing policy for this service; see {@link ChannelConfig#loadBalancer()}.
+         *
+         * @return the policy name, or empty to use the channel default
+         */
+        Optional<String> loadBalancer();
     }
 
     /**
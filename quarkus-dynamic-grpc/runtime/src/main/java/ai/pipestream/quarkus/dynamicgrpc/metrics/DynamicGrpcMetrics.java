@@ -1,6 +1,8 @@
 package ai.pipestream.quarkus.dynamicgrpc.metrics;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -8,9 +10,12 @@ import jakarta.enterprise.inject.Instance;
 import jakarta.inject.Inject;
 import org.jboss.logging.Logger;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
 import java.util.function.Supplier;
 
 /**
@@ -51,10 +56,14 @@ public class DynamicGrpcMetrics {
     private final ConcurrentHashMap<String, Counter> cacheHitCounters = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, Counter> cacheMissCounters = new ConcurrentHashMap<>();
 
+    // Gauges of each pooled service's channel pool, removed again when the
+    // pool is evicted so a rebuilt pool does not report through stale ones.
+    private final ConcurrentHashMap<String, List<Meter>> channelPoolGauges = new ConcurrentHashMap<>();
+
     /**
      * Returns the MeterRegistry if available, or null if metrics are disabled.
      */
-    private MeterRegistry getRegistry() {
+    MeterRegistry getRegistry() {
         return registryInstance.isResolvable() ? registryInstance.get() : null;
     }
 
@@ -140,6 +149,13 @@ public class DynamicGrpcMetrics {
      * @param serviceName the service name
      */
     public void recordCacheHit(String serviceName) {
+        // Called on every warm channel lookup: once the counter exists,
+        // skip the CDI registry resolution too.
+        Counter counter = cacheHitCounters.get(serviceName);
+        if (counter != null) {
+            counter.increment();
+            return;
+        }
         MeterRegistry registry = getRegistry();
         if (registry == null) return;
 
@@ -240,6 +256,58 @@ public class DynamicGrpcMetrics {
         return timer.recordCallable(callable);
     }
 
+    /**
+     * Registers the gauges for a service's channel pool: its size, and the
+     * calls in flight on each member, tagged {@code member}. An even spread
+     * across members means the least-outstanding selection is doing its job.
+     *
+     * @param serviceName the service name
+     * @param size number of channels in the pool
+     * @param outstanding calls in flight on the given member index
+     */
+    public void registerChannelPool(String serviceName, int size, IntUnaryOperator outstanding) {
+        MeterRegistry registry = getRegistry();
+        if (registry == null) return;
+
+        // Remove the previous pool's gauges before registering: register()
+        // hands back an existing meter with the same id, so removing them
+        // afterwards would remove the new pool's gauges too.
+        channelPoolGauges.compute(serviceName, (name, previous) -> {
+            if (previous != null) {
+                previous.forEach(registry::remove);
+            }
+            List<Meter> gauges = new ArrayList<>(size + 1);
+            gauges.add(Gauge.builder(METRIC_PREFIX + ".channel.pool.size", () -> size)
+                    .tag("service", name)
+                    .description("Number of channels pooled for the service")
+                    .register(registry));
+            for (int i = 0; i < size; i++) {
+                int member = i;
+                gauges.add(Gauge.builder(METRIC_PREFIX + ".channel.pool.outstanding",
+                                () -> outstanding.applyAsInt(member))
+                        .tag("service", name)
+                        .tag("member", Integer.toString(member))
+                        .description("Calls in flight on one pooled channel")
+                        .register(registry));
+            }
+            return gauges;
+        });
+    }
+
+    /**
+     * Removes the gauges {@link #registerChannelPool} registered for a service.
+     *
+     * @param serviceName the service name
+     */
+    public void removeChannelPool(String serviceName) {
+        List<Meter> gauges = channelPoolGauges.remove(serviceName);
+        if (gauges == null) return;
+        MeterRegistry registry = getRegistry();
+        if (registry == null) return;
+
+        gauges.forEach(registry::remove);
+    }
+
     /**
      * Returns the current number of active channels.
      *
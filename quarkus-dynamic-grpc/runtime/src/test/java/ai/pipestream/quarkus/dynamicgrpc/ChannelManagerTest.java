@@ -0,0 +1,376 @@
+package ai.pipestream.quarkus.dynamicgrpc;
+
+import ai.pipestream.quarkus.dynamicgrpc.config.DynamicGrpcConfig;
+import ai.pipestream.quarkus.dynamicgrpc.config.DynamicGrpcTlsAdapter;
+import ai.pipestream.quarkus.dynamicgrpc.exception.ChannelCreationException;
+import ai.pipestream.quarkus.dynamicgrpc.metrics.RegistryMetrics;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.Grpc;
+import io.grpc.InsecureServerCredentials;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ServerCalls;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.stork.Stork;
+import io.smallrye.stork.api.ServiceDefinition;
+import io.smallrye.stork.api.ServiceInstance;
+import io.smallrye.stork.servicediscovery.staticlist.StaticConfiguration;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link ChannelManager} on real Netty channels, resolved through Stork's
+ * static-list discovery to local servers.
+ */
+class ChannelManagerTest {
+
+    private static final MethodDescriptor<String, String> ECHO = EchoMethod.of("test.Managed");
+    private static final Function<Channel, StubCacheTest.BlockingStub> BLOCKING =
+            ch -> new StubCacheTest.BlockingStub(ch, CallOptions.DEFAULT);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<Server> servers = new ArrayList<>();
+    private final List<ChannelManager> managers = new ArrayList<>();
+
+    @BeforeAll
+    static void initStork() {
+        Stork.initialize();
+    }
+
+    @AfterAll
+    static void shutdownStork() {
+        Stork.shutdown();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        managers.forEach(ChannelManager::cleanup);
+        for (Server server : servers) {
+            server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void cachedStub_isBuiltOnceOnTheServicesChannel() throws IOException {
+        String service = serviceOn(startServer("a"));
+        ChannelManager manager = manager();
+
+        assertThat(manager.getCachedStub(service, StubCacheTest.BlockingStub.class, BLOCKING))
+                .as("no stub before the channel is built")
+                .isNull();
+        Channel channel = manager.getOrCreateChannel(service, instances(service)).await().indefinitely();
+        StubCacheTest.BlockingStub stub = manager.getCachedStub(service, StubCacheTest.BlockingStub.class, BLOCKING);
+
+        assertThat(stub.getChannel()).isSameAs(channel);
+        assertThat(manager.getCachedStub(service, StubCacheTest.BlockingStub.class, BLOCKING)).isSameAs(stub);
+        assertThat(echo(stub)).isEqualTo("a");
+        assertThat(registry.get("dynamic.grpc.client.created").tag("service", service).counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void evictChannel_dropsItsStubs_andShutsTheChannelDown() throws IOException {
+        String service = serviceOn(startServer("a"));
+        ChannelManager manager = manager();
+        manager.getOrCreateChannel(service, instances(service)).await().indefinitely();
+        StubCacheTest.BlockingStub evicted = manager.getCachedStub(service, StubCacheTest.BlockingStub.class, BLOCKING);
+        assertThat(echo(evicted)).isEqualTo("a");
+
+        manager.evictChannel(service);
+
+        assertThat(manager.getCachedStub(service, StubCacheTest.BlockingStub.class, BLOCKING)).isNull();
+        assertShutDown(evicted.getChannel());
+
+        manager.getOrCreateChannel(service, instances(service)).await().indefinitely();
+        StubCacheTest.BlockingStub rebuilt = manager.getCachedStub(service, StubCacheTest.BlockingStub.class, BLOCKING);
+        assertThat(rebuilt).isNotSameAs(evicted);
+        assertThat(echo(rebuilt)).isEqualTo("a");
+    }
+
+    private static String echo(StubCacheTest.BlockingStub stub) {
+        return echo(stub.getChannel());
+    }
+
+    private static String echo(Channel channel) {
+        return ClientCalls.blockingUnaryCall(channel, ECHO,
+                CallOptions.DEFAULT.withDeadlineAfter(5, TimeUnit.SECONDS), "ping");
+    }
+
+    private static void assertShutDown(Channel channel) {
+        assertThatThrownBy(() -> echo(channel))
+                .isInstanceOf(StatusRuntimeException.class)
+                .extracting(e -> ((StatusRuntimeException) e).getStatus().getCode())
+                .isEqualTo(Status.Code.UNAVAILABLE);
+    }
+
+    @Test
+    void pooledService_reportsItsPoolUntilEvicted() throws IOException {
+        String service = serviceOn(startServer("a"));
+        ChannelManager manager = manager(Map.of(service, new Service(OptionalInt.of(3), Optional.empty())));
+
+        Channel pooled = manager.getOrCreateChannel(service, instances(service)).await().indefinitely();
+        for (int i = 0; i < 10; i++) {
+            assertThat(echo(pooled)).isEqualTo("a");
+        }
+        assertThat(registry.get("dynamic.grpc.channel.pool.size").tag("service", service).gauge().value())
+                .isEqualTo(3.0);
+        assertThat(registry.get("dynamic.grpc.channel.pool.outstanding").tag("service", service).gauges())
+                .hasSize(3)
+                .allSatisfy(g -> assertThat(g.value()).isZero());
+
+        manager.evictChannel(service);
+
+        assertThat(registry.find("dynamic.grpc.channel.pool.size").tag("service", service).gauge()).isNull();
+        assertThat(registry.find("dynamic.grpc.channel.pool.outstanding").tag("service", service).gauges())
+                .isEmpty();
+        for (int i = 0; i < 3; i++) {
+            assertShutDown(pooled);
+        }
+
+        Channel rebuilt = manager.getOrCreateChannel(service, instances(service)).await().indefinitely();
+        assertThat(echo(rebuilt)).isEqualTo("a");
+        assertThat(registry.get("dynamic.grpc.channel.pool.outstanding").tag("service", service).gauges())
+                .hasSize(3);
+    }
+
+    @Test
+    void unpooledService_hasNoPoolGauges() throws IOException {
+        String service = serviceOn(startServer("a"));
+        ChannelManager manager = manager();
+
+        assertThat(echo(manager.getOrCreateChannel(service, instances(service)).await().indefinitely()))
+                .isEqualTo("a");
+
+        assertThat(registry.find("dynamic.grpc.channel.pool.size").tag("service", service).gauge()).isNull();
+    }
+
+    @Test
+    void cleanup_shutsEveryChannelDown_andRefusesNewOnes() throws IOException {
+        Server server = startServer("a");
+        String single = serviceOn(server);
+        String pooled = serviceOn(server);
+        ChannelManager manager = manager(Map.of(pooled, new Service(OptionalInt.of(2), Optional.empty())));
+        Channel singleChannel = manager.getOrCreateChannel(single, instances(single)).await().indefinitely();
+        Channel pooledChannel = manager.getOrCreateChannel(pooled, instances(pooled)).await().indefinitely();
+        assertThat(echo(singleChannel)).isEqualTo("a");
+        assertThat(echo(pooledChannel)).isEqualTo("a");
+
+        manager.cleanup();
+
+        assertThat(manager.getActiveServiceCount()).isZero();
+        assertShutDown(singleChannel);
+        assertShutDown(pooledChannel);
+        assertThatThrownBy(() -> manager.getOrCreateChannel(single, instances(single)).await().indefinitely())
+                .isInstanceOf(ChannelCreationException.class);
+    }
+
+    @Test
+    void peakEwmaService_steersAwayFromTheSlowInstance() throws IOException {
+        Server fast = startServer("fast");
+        Server slow = startServer("slow", 30);
+        String service = serviceOn(fast, slow);
+        ChannelManager manager = manager(Map.of(service,
+                new Service(OptionalInt.empty(), Optional.of(PeakEwmaLoadBalancerProvider.POLICY_NAME))));
+        // The first Netty call in this JVM takes hundreds of ms to class-load
+        // and would make whichever instance served it look the slow one.
+        String warmUp = serviceOn(fast, slow);
+        Channel roundRobin = manager.getOrCreateChannel(warmUp, instances(warmUp)).await().indefinitely();
+        for (int i = 0; i < 10; i++) {
+            echo(roundRobin);
+        }
+        Channel channel = manager.getOrCreateChannel(service, instances(service)).await().indefinitely();
+
+        Map<String, Long> served = IntStream.range(0, 100)
+                .mapToObj(i -> echo(channel))
+                .collect(Collectors.groupingBy(name -> name, Collectors.counting()));
+
+        assertThat(served.getOrDefault("slow", 0L)).as("served by the slow instance").isLessThan(10);
+    }
+
+    @Test
+    void unknownLoadBalancer_failsChannelCreation() throws IOException {
+        String service = serviceOn(startServer("a"));
+        ChannelManager manager = manager(Map.of(service,
+                new Service(OptionalInt.empty(), Optional.of("no_such_policy"))));
+
+        assertThatThrownBy(() -> manager.getOrCreateChannel(service, instances(service)).await().indefinitely())
+                .isInstanceOf(ChannelCreationException.class)
+                .hasRootCauseMessage("Unknown load-balancing policy 'no_such_policy' for dynamic-grpc service "
+                        + service);
+    }
+
+    private Server startServer(String name) throws IOException {
+        return startServer(name, 0);
+    }
+
+    /** A server answering every echo with {@code name}, after {@code latencyMs}. */
+    private Server startServer(String name, long latencyMs) throws IOException {
+        Server server = Grpc.newServerBuilderForPort(0, InsecureServerCredentials.create())
+                .addService(ServerServiceDefinition.builder("test.Managed")
+                        .addMethod(ECHO, ServerCalls.asyncUnaryCall((request, response) -> {
+                            if (latencyMs > 0) {
+                                try {
+                                    Thread.sleep(latencyMs);
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                            }
+                            response.onNext(name);
+                            response.onCompleted();
+                        }))
+                        .build())
+                .build()
+                .start();
+        servers.add(server);
+        return server;
+    }
+
+    /** Defines a Stork service, with a name of its own, listing {@code targets}. */
+    private static String serviceOn(Server... targets) {
+        String service = "managed-" + UUID.randomUUID().toString().substring(0, 8);
+        String addresses = Arrays.stream(targets)
+                .map(s -> "localhost:" + s.getPort())
+                .collect(Collectors.joining(","));
+        Stork.getInstance().defineIfAbsent(service,
+                ServiceDefinition.of(new StaticConfiguration().withAddressList(addresses)));
+        return service;
+    }
+
+    private static List<ServiceInstance> instances(String service) {
+        return Stork.getInstance().getService(service).getInstances().await().indefinitely();
+    }
+
+    /** A manager with the channel defaults, overridden per service by {@code services}. */
+    private ChannelManager manager(Map<String, DynamicGrpcConfig.ServiceConfig> services) {
+        ChannelManager manager = new ChannelManager();
+        manager.config = new DefaultsConfig(services);
+        manager.metrics = new RegistryMetrics(registry);
+        manager.tlsConfig = new DynamicGrpcTlsAdapter() {
+            @Override
+            public boolean enabled() {
+                return false;
+            }
+        };
+        managers.add(manager);
+        return manager;
+    }
+
+    private ChannelManager manager() {
+        return manager(Map.of());
+    }
+
+    record Service(OptionalInt poolSize, Optional<String> loadBalancer) implements DynamicGrpcConfig.ServiceConfig {
+    }
+
+    /** The documented defaults, auth and TLS off; consul is never read by the manager. */
+    private record DefaultsConfig(Map<String, ServiceConfig> services) implements DynamicGrpcConfig {
+
+        @Override
+        public ChannelConfig channel() {
+            return new ChannelConfig() {
+                @Override
+                public long idleTtlMinutes() {
+                    return 15;
+                }
+
+                @Override
+                public long maxSize() {
+                    return 1000;
+                }
+
+                @Override
+                public long shutdownTimeoutSeconds() {
+                    return 2;
+                }
+
+                @Override
+                public int maxInboundMessageSize() {
+                    return Integer.MAX_VALUE;
+                }
+
+                @Override
+                public int maxOutboundMessageSize() {
+                    return Integer.MAX_VALUE;
+                }
+
+                @Override
+                public int flowControlWindow() {
+                    return 104857600;
+                }
+
+                @Override
+                public long deadlineMs() {
+                    return 15000;
+                }
+
+                @Override
+                public int storkRetries() {
+                    return 1;
+                }
+
+                @Override
+                public int poolSize() {
+                    return 1;
+                }
+
+                @Override
+                public String loadBalancer() {
+                    return "round_robin";
+                }
+            };
+        }
+
+        @Override
+        public TlsConfig tls() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public AuthConfig auth() {
+            return new AuthConfig() {
+                @Override
+                public boolean enabled() {
+                    return false;
+                }
+
+                @Override
+                public String headerName() {
+                    return "Authorization";
+                }
+
+                @Override
+                public String schemePrefix() {
+                    return "Bearer ";
+                }
+            };
+        }
+
+        @Override
+        public ConsulConfig consul() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
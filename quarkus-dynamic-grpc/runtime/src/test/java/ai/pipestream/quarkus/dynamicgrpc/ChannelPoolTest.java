@@ -0,0 +1,140 @@
+package ai.pipestream.quarkus.dynamicgrpc;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import io.grpc.CallOptions;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChannelPoolTest {
+
+    private static final MethodDescriptor<String, String> ECHO = EchoMethod.of("test.Pool");
+
+    /** Each in-process server stands in for one pool member's connection. */
+    private final List<Server> servers = new ArrayList<>();
+    private final List<ManagedChannel> members = new ArrayList<>();
+    /** Calls held open by member index; completing one frees its slot. */
+    private final List<BlockingQueue<StreamObserver<String>>> held = new ArrayList<>();
+    private ChannelPool pool;
+
+    @BeforeEach
+    void startMembers() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            String name = "channel-pool-" + UUID.randomUUID();
+            BlockingQueue<StreamObserver<String>> calls = new LinkedBlockingQueue<>();
+            servers.add(InProcessServerBuilder.forName(name)
+                    .directExecutor()
+                    .addService(ServerServiceDefinition.builder("test.Pool")
+                            .addMethod(ECHO, ServerCalls.asyncUnaryCall((request, response) -> calls.add(response)))
+                            .build())
+                    .build()
+                    .start());
+            members.add(InProcessChannelBuilder.forName(name).directExecutor().build());
+            held.add(calls);
+        }
+        pool = new ChannelPool(members);
+    }
+
+    @AfterEach
+    void shutdown() {
+        members.forEach(ManagedChannel::shutdownNow);
+        servers.forEach(Server::shutdownNow);
+    }
+
+    @Test
+    void callsSpreadEvenlyAcrossIdleMembers() {
+        for (int i = 0; i < 6; i++) {
+            start("call-" + i);
+        }
+
+        assertThat(pool.size()).isEqualTo(3);
+        for (int member = 0; member < 3; member++) {
+            assertThat(pool.outstanding(member)).as("member %d", member).isEqualTo(2);
+            assertThat(held.get(member)).hasSize(2);
+        }
+    }
+
+    @Test
+    void nextCallGoesToTheMemberThatFreedUp() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            start("call-" + i);
+        }
+        int freed = 1;
+        complete(freed, 2);
+
+        ListenableFuture<String> next = start("next");
+
+        assertThat(pool.outstanding(freed)).isEqualTo(1);
+        complete(freed, 1);
+        assertThat(next.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+    }
+
+    @Test
+    void failedAndCancelledCallsReleaseTheirSlot() {
+        ListenableFuture<String> failed = start("fails");
+        held.get(memberHolding()).poll().onError(Status.UNAVAILABLE.asRuntimeException());
+        assertThatThrownBy(() -> failed.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(StatusRuntimeException.class);
+
+        start("cancelled").cancel(true);
+
+        for (int m = 0; m < pool.size(); m++) {
+            assertThat(pool.outstanding(m)).as("member %d", m).isZero();
+        }
+    }
+
+    @Test
+    void singleMember_takesEveryCall() {
+        ChannelPool single = new ChannelPool(List.of(members.get(0)));
+        for (int i = 0; i < 3; i++) {
+            ClientCalls.futureUnaryCall(single.newCall(ECHO, CallOptions.DEFAULT), "call-" + i);
+        }
+
+        assertThat(single.leastOutstanding()).isZero();
+        assertThat(single.outstanding(0)).isEqualTo(3);
+        assertThat(single.authority()).isEqualTo(members.get(0).authority());
+    }
+
+    private ListenableFuture<String> start(String request) {
+        return ClientCalls.futureUnaryCall(pool.newCall(ECHO, CallOptions.DEFAULT), request);
+    }
+
+    private void complete(int member, int calls) throws InterruptedException {
+        for (int i = 0; i < calls; i++) {
+            StreamObserver<String> response = held.get(member).take();
+            response.onNext("done");
+            response.onCompleted();
+        }
+    }
+
+    private int memberHolding() {
+        for (int m = 0; m < held.size(); m++) {
+            if (!held.get(m).isEmpty()) {
+                return m;
+            }
+        }
+        throw new AssertionError("no call held");
+    }
+}
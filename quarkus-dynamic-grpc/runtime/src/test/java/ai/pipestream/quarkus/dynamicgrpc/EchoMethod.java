@@ -0,0 +1,51 @@
+package ai.pipestream.quarkus.dynamicgrpc;
+
+import io.grpc.MethodDescriptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/** String echo methods for tests that run calls against in-process servers. */
+final class EchoMethod {
+
+    static final MethodDescriptor.Marshaller<String> UTF8 = new MethodDescriptor.Marshaller<>() {
+        @Override
+        public InputStream stream(String value) {
+            return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String parse(InputStream stream) {
+            try {
+                return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private EchoMethod() {
+    }
+
+    /** {@code <service>/Echo}, taking and returning a UTF-8 string. */
+    static MethodDescriptor<String, String> of(String service) {
+        return MethodDescriptor.<String, String>newBuilder()
+                .setType(MethodDescriptor.MethodType.UNARY)
+                .setFullMethodName(MethodDescriptor.generateFullMethodName(service, "Echo"))
+                .setRequestMarshaller(UTF8)
+                .setResponseMarshaller(UTF8)
+                .build();
+    }
+
+    /** {@code <service>/Watch}, a bidi stream echoing each UTF-8 string sent on it. */
+    static MethodDescriptor<String, String> watch(String service) {
+        return MethodDescriptor.<String, String>newBuilder()
+                .setType(MethodDescriptor.MethodType.BIDI_STREAMING)
+                .setFullMethodName(MethodDescriptor.generateFullMethodName(service, "Watch"))
+                .setRequestMarshaller(UTF8)
+                .setResponseMarshaller(UTF8)
+                .build();
+    }
+}
@@ -0,0 +1,259 @@
+package ai.pipestream.quarkus.dynamicgrpc;
+
+import io.grpc.CallOptions;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.NameResolver;
+import io.grpc.NameResolverProvider;
+import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.StatusOr;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.inprocess.InProcessSocketAddress;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Simulation: one client balancing over local servers whose latencies are
+ * skewed, as when one module instance is GC-pausing or on a busy host.
+ */
+class PeakEwmaLoadBalancerTest {
+
+    private static final int CALLS = 600;
+    private static final int CONCURRENCY = 8;
+
+    private static final MethodDescriptor<String, String> ECHO = EchoMethod.of("test.Skewed");
+    private static final MethodDescriptor<String, String> WATCH = EchoMethod.watch("test.Skewed");
+
+    private final ScheduledExecutorService delays = Executors.newScheduledThreadPool(4);
+    private final List<Server> servers = new ArrayList<>();
+    private final List<AtomicInteger> served = new ArrayList<>();
+    private final List<AtomicInteger> watching = new ArrayList<>();
+    private final List<SocketAddress> addresses = new ArrayList<>();
+
+    @BeforeAll
+    static void registerPolicy() {
+        PeakEwmaLoadBalancerProvider.register();
+    }
+
+    @AfterEach
+    void shutdown() {
+        servers.forEach(Server::shutdownNow);
+        delays.shutdownNow();
+    }
+
+    @Test
+    void slowInstance_getsAFractionOfWhatRoundRobinSendsIt() throws Exception {
+        startServers(1, 1, 30);
+
+        int[] roundRobin = run("round_robin");
+        int[] peakEwma = run(PeakEwmaLoadBalancerProvider.POLICY_NAME);
+
+        assertThat(roundRobin[2]).as("round_robin gives the slow instance its equal share")
+                .isBetween(CALLS / 3 - 20, CALLS / 3 + 20);
+        assertThat(peakEwma[2]).as("peak_ewma steers away from the slow instance")
+                .isLessThan(CALLS / 10);
+        assertThat(peakEwma[0] + peakEwma[1] + peakEwma[2]).isEqualTo(CALLS);
+    }
+
+    @Test
+    void everyInstanceKeepsGettingProbed() throws Exception {
+        startServers(1, 5, 15);
+
+        int[] counts = run(PeakEwmaLoadBalancerProvider.POLICY_NAME);
+
+        assertThat(counts).doesNotContain(0);
+        assertThat(counts[0]).as("the fastest instance serves the most").isGreaterThan(counts[1]).isGreaterThan(counts[2]);
+    }
+
+    @Test
+    void longLivedStream_doesNotPushUnaryCallsOffItsInstance() throws Exception {
+        startServers(1, 1, 1);
+        ManagedChannel channel = channel(PeakEwmaLoadBalancerProvider.POLICY_NAME);
+        try {
+            CountDownLatch echoed = new CountDownLatch(1);
+            CompletableFuture<Void> closed = new CompletableFuture<>();
+            StreamObserver<String> watch = ClientCalls.asyncBidiStreamingCall(
+                    channel.newCall(WATCH, CallOptions.DEFAULT), new StreamObserver<>() {
+                        @Override
+                        public void onNext(String value) {
+                            echoed.countDown();
+                        }
+
+                        @Override
+                        public void onError(Throwable t) {
+                            closed.completeExceptionally(t);
+                        }
+
+                        @Override
+                        public void onCompleted() {
+                            closed.complete(null);
+                        }
+                    });
+            watch.onNext("watch");
+            assertThat(echoed.await(5, TimeUnit.SECONDS)).isTrue();
+            int streamed = watching.stream().map(AtomicInteger::get).toList().indexOf(1);
+            Thread.sleep(300);
+
+            int[] whileOpen = calls(channel);
+            watch.onCompleted();
+            closed.get(5, TimeUnit.SECONDS);
+            int[] afterClose = calls(channel);
+
+            assertThat(whileOpen[streamed]).as("an open stream is not a call in flight")
+                    .isGreaterThan(CALLS / 5);
+            assertThat(afterClose[streamed]).as("a stream's lifetime is not a latency sample")
+                    .isGreaterThan(CALLS / 5);
+        } finally {
+            channel.shutdownNow();
+        }
+    }
+
+    private void startServers(int... latencyMs) throws IOException {
+        for (int latency : latencyMs) {
+            String name = "skewed-" + UUID.randomUUID();
+            AtomicInteger count = new AtomicInteger();
+            AtomicInteger watchers = new AtomicInteger();
+            servers.add(InProcessServerBuilder.forName(name)
+                    .directExecutor()
+                    .addService(ServerServiceDefinition.builder("test.Skewed")
+                            .addMethod(ECHO, ServerCalls.asyncUnaryCall((request, response) -> {
+                                count.incrementAndGet();
+                                delays.schedule(() -> {
+                                    response.onNext(request);
+                                    response.onCompleted();
+                                }, latency, TimeUnit.MILLISECONDS);
+                            }))
+                            .addMethod(WATCH, ServerCalls.asyncBidiStreamingCall(response -> {
+                                watchers.incrementAndGet();
+                                return new StreamObserver<String>() {
+                                    @Override
+                                    public void onNext(String value) {
+                                        response.onNext(value);
+                                    }
+
+                                    @Override
+                                    public void onError(Throwable t) {
+                                    }
+
+                                    @Override
+                                    public void onCompleted() {
+                                        response.onCompleted();
+                                    }
+                                };
+                            }))
+                            .build())
+                    .build()
+                    .start());
+            served.add(count);
+            watching.add(watchers);
+            addresses.add(new InProcessSocketAddress(name));
+        }
+    }
+
+    /** {@link #calls} on a channel of its own balanced by {@code policy}. */
+    private int[] run(String policy) throws InterruptedException {
+        ManagedChannel channel = channel(policy);
+        try {
+            return calls(channel);
+        } finally {
+            channel.shutdownNow();
+        }
+    }
+
+    @SuppressWarnings("deprecation") // nameResolverFactory, as ChannelManager uses it
+    private ManagedChannel channel(String policy) {
+        return InProcessChannelBuilder.forTarget("fixed:///skewed")
+                .nameResolverFactory(new FixedAddresses(addresses))
+                .defaultLoadBalancingPolicy(policy)
+                .directExecutor()
+                .build();
+    }
+
+    /** {@link #CALLS} unary calls, {@link #CONCURRENCY} at a time; returns how many each server took. */
+    private int[] calls(ManagedChannel channel) throws InterruptedException {
+        served.forEach(count -> count.set(0));
+        Semaphore slots = new Semaphore(CONCURRENCY);
+        for (int i = 0; i < CALLS; i++) {
+            slots.acquire();
+            ClientCalls.futureUnaryCall(channel.newCall(ECHO, CallOptions.DEFAULT), "call-" + i)
+                    .addListener(slots::release, Runnable::run);
+        }
+        assertThat(slots.tryAcquire(CONCURRENCY, 30, TimeUnit.SECONDS)).isTrue();
+        return served.stream().mapToInt(AtomicInteger::get).toArray();
+    }
+
+    /** Resolves {@code fixed:///...} to the given addresses, one group each. */
+    private static final class FixedAddresses extends NameResolverProvider {
+
+        private final List<EquivalentAddressGroup> groups;
+
+        FixedAddresses(List<SocketAddress> addresses) {
+            this.groups = addresses.stream().map(EquivalentAddressGroup::new).toList();
+        }
+
+        @Override
+        public NameResolver newNameResolver(URI targetUri, NameResolver.Args args) {
+            return new NameResolver() {
+                @Override
+                public String getServiceAuthority() {
+                    return "skewed";
+                }
+
+                @Override
+                public void start(Listener2 listener) {
+                    listener.onResult(ResolutionResult.newBuilder()
+                            .setAddressesOrError(StatusOr.fromValue(groups))
+                            .build());
+                }
+
+                @Override
+                public void shutdown() {
+                }
+            };
+        }
+
+        @Override
+        public String getDefaultScheme() {
+            return "fixed";
+        }
+
+        @Override
+        protected boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        protected int priority() {
+            return 5;
+        }
+
+        @Override
+        public Collection<Class<? extends SocketAddress>> getProducedSocketAddressTypes() {
+            return List.of(InProcessSocketAddress.class);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package ai.pipestream.quarkus.dynamicgrpc;
+
+import io.grpc.Status;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class PeakEwmaTest {
+
+    private static final long DECAY = TimeUnit.SECONDS.toNanos(10);
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong now = new AtomicLong(1_000 * MS);
+    private final PeakEwma stats = new PeakEwma(DECAY, now::get);
+
+    @Test
+    void aSlowCallRaisesTheAverageAtOnce() {
+        call(10 * MS);
+        call(50 * MS);
+
+        assertThat(stats.latencyNanos()).isEqualTo(50.0 * MS);
+    }
+
+    @Test
+    void fasterCallsPullTheAverageDownGradually() {
+        call(50 * MS);
+
+        now.addAndGet(DECAY);
+        call(10 * MS);
+
+        // Weight 1 - e^-1 for the new sample after one decay period.
+        double w = Math.exp(-1);
+        assertThat(stats.latencyNanos()).isCloseTo(50 * MS * w + 10 * MS * (1 - w), within(1.0 * MS));
+        assertThat(stats.latencyNanos()).isGreaterThan(10.0 * MS);
+    }
+
+    @Test
+    void withoutSamplesTheAverageDecaysSoSlowBackendsAreProbedAgain() {
+        call(50 * MS);
+
+        now.addAndGet(5 * DECAY);
+
+        assertThat(stats.latencyNanos()).isCloseTo(50 * MS * Math.exp(-5), within(0.01 * MS));
+    }
+
+    @Test
+    void costScalesWithCallsInFlight() {
+        call(20 * MS);
+        double idle = stats.cost();
+
+        stats.start();
+        stats.start();
+
+        assertThat(stats.pending()).isEqualTo(2);
+        assertThat(stats.cost()).isCloseTo(idle * 3, within(0.01 * MS));
+    }
+
+    @Test
+    void unmeasuredBackendWithCallsInFlight_costsThePenalty() {
+        assertThat(stats.cost()).isZero();
+
+        stats.start();
+
+        assertThat(stats.cost()).isGreaterThanOrEqualTo(PeakEwma.PENALTY);
+    }
+
+    @Test
+    void aFastFailureDoesNotMakeTheBackendLookFast() {
+        call(40 * MS);
+
+        stats.start();
+        stats.finish(MS, true);
+
+        assertThat(stats.latencyNanos()).isEqualTo(80.0 * MS);
+    }
+
+    @Test
+    void backendFailures_areTheCodesThatSayTheInstanceIsInTrouble() {
+        assertThat(PeakEwmaLoadBalancer.backendFailure(Status.UNAVAILABLE)).isTrue();
+        assertThat(PeakEwmaLoadBalancer.backendFailure(Status.DEADLINE_EXCEEDED)).isTrue();
+        assertThat(PeakEwmaLoadBalancer.backendFailure(Status.OK)).isFalse();
+        assertThat(PeakEwmaLoadBalancer.backendFailure(Status.INVALID_ARGUMENT)).isFalse();
+        assertThat(PeakEwmaLoadBalancer.backendFailure(Status.CANCELLED)).isFalse();
+    }
+
+    @Test
+    void choose_takesTheCheaperOfTwo() {
+        PeakEwma fast = new PeakEwma(DECAY, now::get);
+        PeakEwma slow = new PeakEwma(DECAY, now::get);
+        fast.start();
+        fast.finish(MS, false);
+        slow.start();
+        slow.finish(100 * MS, false);
+
+        PeakEwma[] two = {slow, fast};
+        for (int i = 0; i < 20; i++) {
+            assertThat(PeakEwmaLoadBalancer.choose(two)).isEqualTo(1);
+        }
+        assertThat(PeakEwmaLoadBalancer.choose(new PeakEwma[]{slow})).isZero();
+    }
+
+    private void call(long rttNanos) {
+        stats.start();
+        stats.finish(rttNanos, false);
+    }
+}
@@ -0,0 +1,114 @@
+package ai.pipestream.quarkus.dynamicgrpc;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.MethodDescriptor;
+import io.grpc.stub.AbstractAsyncStub;
+import io.grpc.stub.AbstractBlockingStub;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StubCacheTest {
+
+    private final Channel channel = new Channel() {
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> method,
+                                                             CallOptions callOptions) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String authority() {
+            return "stub-cache-test";
+        }
+    };
+
+    private final AtomicInteger created = new AtomicInteger();
+    private final StubCache stubs = new StubCache(channel, created::incrementAndGet);
+
+    @Test
+    void sameStubForEveryCall_builtOnce() {
+        AtomicInteger creatorCalls = new AtomicInteger();
+
+        BlockingStub first = stubs.get(BlockingStub.class, ch -> {
+            creatorCalls.incrementAndGet();
+            return new BlockingStub(ch, CallOptions.DEFAULT);
+        });
+        for (int i = 0; i < 100; i++) {
+            assertThat(stubs.get(BlockingStub.class, ch -> new BlockingStub(ch, CallOptions.DEFAULT)))
+                    .isSameAs(first);
+        }
+
+        assertThat(first.getChannel()).isSameAs(channel);
+        assertThat(creatorCalls).hasValue(1);
+        assertThat(created).hasValue(1);
+    }
+
+    @Test
+    void eachStubTypeIsCachedSeparately() {
+        BlockingStub blocking = stubs.get(BlockingStub.class, ch -> new BlockingStub(ch, CallOptions.DEFAULT));
+        AsyncStub async = stubs.get(AsyncStub.class, ch -> new AsyncStub(ch, CallOptions.DEFAULT));
+
+        assertThat(stubs.get(BlockingStub.class, ch -> new BlockingStub(ch, CallOptions.DEFAULT))).isSameAs(blocking);
+        assertThat(stubs.get(AsyncStub.class, ch -> new AsyncStub(ch, CallOptions.DEFAULT))).isSameAs(async);
+        assertThat(stubs.size()).isEqualTo(2);
+        assertThat(created).hasValue(2);
+    }
+
+    @Test
+    void perCallOptionsAreViews_theSharedStubIsUntouched() {
+        BlockingStub shared = stubs.get(BlockingStub.class, ch -> new BlockingStub(ch, CallOptions.DEFAULT));
+
+        BlockingStub withDeadline = shared.withDeadlineAfter(5, TimeUnit.SECONDS).withCompression("gzip");
+
+        assertThat(withDeadline).isNotSameAs(shared);
+        assertThat(withDeadline.getChannel()).isSameAs(channel);
+        assertThat(withDeadline.getCallOptions().getDeadline()).isNotNull();
+        assertThat(withDeadline.getCallOptions().getCompressor()).isEqualTo("gzip");
+        assertThat(shared.getCallOptions().getDeadline()).isNull();
+        assertThat(shared.getCallOptions().getCompressor()).isNull();
+        assertThat(stubs.get(BlockingStub.class, ch -> new BlockingStub(ch, CallOptions.DEFAULT))).isSameAs(shared);
+    }
+
+    @Test
+    void creatorBuildingTheWrongType_isRejectedAndNotCached() {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        java.util.function.Function<Channel, BlockingStub> wrong =
+                (java.util.function.Function) (java.util.function.Function<Channel, AsyncStub>)
+                        ch -> new AsyncStub(ch, CallOptions.DEFAULT);
+
+        assertThatThrownBy(() -> stubs.get(BlockingStub.class, wrong))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(AsyncStub.class.getName());
+        assertThat(stubs.size()).isZero();
+        assertThat(created).hasValue(0);
+    }
+
+    static final class BlockingStub extends AbstractBlockingStub<BlockingStub> {
+        BlockingStub(Channel channel, CallOptions callOptions) {
+            super(channel, callOptions);
+        }
+
+        @Override
+        protected BlockingStub build(Channel channel, CallOptions callOptions) {
+            return new BlockingStub(channel, callOptions);
+        }
+    }
+
+    static final class AsyncStub extends AbstractAsyncStub<AsyncStub> {
+        AsyncStub(Channel channel, CallOptions callOptions) {
+            super(channel, callOptions);
+        }
+
+        @Override
+        protected AsyncStub build(Channel channel, CallOptions callOptions) {
+            return new AsyncStub(channel, callOptions);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ai.pipestream.quarkus.dynamicgrpc.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DynamicGrpcMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final DynamicGrpcMetrics metrics = new DynamicGrpcMetrics() {
+        @Override
+        MeterRegistry getRegistry() {
+            return registry;
+        }
+    };
+
+    @Test
+    void registeringTheSameServiceTwice_keepsTheNewPoolsGauges() {
+        metrics.registerChannelPool("repository", 2, member -> 1);
+        metrics.registerChannelPool("repository", 2, member -> 10 + member);
+
+        assertThat(registry.get("dynamic.grpc.channel.pool.size").tag("service", "repository").gauge().value())
+                .isEqualTo(2.0);
+        assertThat(registry.get("dynamic.grpc.channel.pool.outstanding").gauges())
+                .as("the rebuilt pool reports through live gauges, not the removed ones")
+                .hasSize(2)
+                .extracting(Gauge::value)
+                .containsExactlyInAnyOrder(10.0, 11.0);
+    }
+
+    @Test
+    void aSmallerRebuiltPool_dropsTheExtraMemberGauges() {
+        metrics.registerChannelPool("repository", 3, member -> 0);
+        metrics.registerChannelPool("repository", 1, member -> 5);
+
+        assertThat(registry.get("dynamic.grpc.channel.pool.outstanding").gauges())
+                .extracting(g -> g.getId().getTag("member"))
+                .containsExactly("0");
+        assertThat(registry.get("dynamic.grpc.channel.pool.size").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void removeChannelPool_removesEveryGaugeOfTheService() {
+        metrics.registerChannelPool("repository", 2, member -> 0);
+        metrics.registerChannelPool("parser", 1, member -> 0);
+
+        metrics.removeChannelPool("repository");
+
+        assertThat(registry.find("dynamic.grpc.channel.pool.outstanding").tag("service", "repository").gauges())
+                .isEmpty();
+        assertThat(registry.find("dynamic.grpc.channel.pool.size").tag("service", "repository").gauge()).isNull();
+        assertThat(registry.find("dynamic.grpc.channel.pool.outstanding").tag("service", "parser").gauges())
+                .hasSize(1);
+    }
+}
@@ -0,0 +1,19 @@
+package ai.pipestream.quarkus.dynamicgrpc.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/** {@link DynamicGrpcMetrics} recording into a given registry, for tests outside CDI. */
+public final class RegistryMetrics extends DynamicGrpcMetrics {
+
+    private final MeterRegistry registry;
+
+    /** @param registry where every meter is registered */
+    public RegistryMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    MeterRegistry getRegistry() {
+        return registry;
+    }
+}